@@ -28,14 +28,19 @@ import static net.java.dev.spellcast.utilities.UtilityConstants.*;
 
 import java.awt.Dimension;
 import java.awt.EventQueue;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.concurrent.*;
 
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 
@@ -56,13 +61,20 @@ import com.googlecode.logVisualizer.logData.LogDataHolder;
 import com.googlecode.logVisualizer.parser.LogParser;
 import com.googlecode.logVisualizer.parser.MafiaLogParser;
 import com.googlecode.logVisualizer.parser.PreparsedLogParser;
+import com.googlecode.logVisualizer.parser.mafiaLogBlockParsers.EncounterBlockParser;
 import com.googlecode.logVisualizer.util.Lists;
+import com.googlecode.logVisualizer.util.LogsCache;
+import com.googlecode.logVisualizer.util.ReadingProgress;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesHandler;
+import com.googlecode.logVisualizer.util.textualLogs.TextLogCreator;
 import com.googlecode.logVisualizer.util.xmlLogs.FileAccessException;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLAccessException;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
 
 public final class LogVisualizer {
     static {
+        long phaseStart = StartupProfile.startPhase();
+
         // Create data directories if they do not exist.
         if (!ROOT_LOCATION.exists())
             ROOT_LOCATION.mkdir();
@@ -79,7 +91,9 @@ public final class LogVisualizer {
         for (final File f : TEMP_LOCATION.listFiles())
             if (!f.isDirectory())
                 f.delete();
+        StartupProfile.endPhase("Data directories", phaseStart);
 
+        phaseStart = StartupProfile.startPhase();
         writeDataFilesToFileSystem();
 
         // Create normal data files if they do not exist.
@@ -105,15 +119,55 @@ public final class LogVisualizer {
                     e.printStackTrace();
                 }
             }
-
-        // Set chart theme back to what it looked like before JFreeChart 1.0.11.
-        ChartFactory.setChartTheme(StandardChartTheme.createLegacyTheme());
-        BarRenderer.setDefaultBarPainter(new StandardBarPainter());
+        StartupProfile.endPhase("Data files", phaseStart);
     }
 
+    /**
+     * Sets the chart theme back to what it looked like before JFreeChart
+     * 1.0.11. Charts may only be created after this is done, see
+     * {@link #awaitChartTheme()}.
+     */
+    private static volatile Future<?> chartThemeInitialization;
+
     private final LogVisualizerGUI gui;
 
+    /**
+     * Loads the logs opened in the GUI one after another, so the event dispatch
+     * thread stays responsive while they are being parsed.
+     */
+    private final ExecutorService logLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(
+                                final Runnable r) {
+            final Thread t = new Thread(r, "Log loader");
+            t.setDaemon(true);
+
+            return t;
+        }
+    });
+
+    /**
+     * The glass pane of the main window, which is shown while a log is being
+     * loaded. It is only ever bound to the load currently running on the
+     * {@link #logLoader}.
+     */
+    private final LoadingProgressPanel loadingPanel = new LoadingProgressPanel();
+
+    /**
+     * The reading progress of the log currently being loaded, or {@code null}
+     * if no log is being loaded. Only accessed on the event dispatch thread.
+     */
+    private ReadingProgress runningLoadProgress;
+
+    private final Timer loadingPanelUpdater = new Timer(100, new ActionListener() {
+        public void actionPerformed(
+                                    final ActionEvent e) {
+            if (runningLoadProgress != null)
+                loadingPanel.setProgress(runningLoadProgress.getPercentage());
+        }
+    });
+
     private LogVisualizer() {
+        long phaseStart = StartupProfile.startPhase();
         try {
             final String wantedLaf = Settings.getSettingString("LookAndFeel");
             LookAndFeelInfo usedLaf = null;
@@ -130,37 +184,77 @@ public final class LogVisualizer {
         } catch (final Exception e) {
             e.printStackTrace();
         }
+        StartupProfile.endPhase("Settings and look&feel", phaseStart);
 
+        phaseStart = StartupProfile.startPhase();
         gui = new LogVisualizerGUI(new LogLoaderListener() {
             public void loadMafiaLog(
                                      final File file) {
+                final ReadingProgress progress = new ReadingProgress(file);
                 loadLog(file,
+                        progress,
                         new MafiaLogParser(file,
-                                           Settings.getSettingBoolean("Include mafia log notes")));
+                                           Settings.getSettingBoolean("Include mafia log notes"),
+                                           progress));
             }
 
             public void loadPreparsedLog(
                                          final File file) {
-                loadLog(file, new PreparsedLogParser(file));
+                final ReadingProgress progress = new ReadingProgress(file);
+                loadLog(file, progress, new PreparsedLogParser(file, progress));
+            }
+
+            public void loadLogData(
+                                    final File file, final LogDataHolder logData) {
+                if (EventQueue.isDispatchThread())
+                    addLogGUI(file, logData);
+                else
+                    // Background loaders are held back until the log is
+                    // shown.
+                    try {
+                        EventQueue.invokeAndWait(newLogGUIAdder(file, logData));
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (final InvocationTargetException e) {
+                        e.printStackTrace();
+                    }
             }
 
             public void loadXMLLog(
                                    final File file) {
-                try {
-                    final LogDataHolder logData = XMLLogReader.parseXMLLog(file);
-                    addLogGUI(file, logData);
-                } catch (final FileAccessException e) {
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(gui,
-                                                  "A problem occurred while reading the file.",
-                                                  "Error occurred",
-                                                  JOptionPane.ERROR_MESSAGE);
-                } catch (final XMLAccessException e) {
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(gui,
-                                                  "A problem occurred while parsing the XML.",
-                                                  "Error occurred",
-                                                  JOptionPane.ERROR_MESSAGE);
+                final ReadingProgress progress = new ReadingProgress(file);
+                loadInBackground(file, progress, new Callable<LogDataHolder>() {
+                    public LogDataHolder call() {
+                        try {
+                            return XMLLogReader.parseXMLLog(file, progress);
+                        } catch (final FileAccessException e) {
+                            if (!progress.isCancelled()) {
+                                e.printStackTrace();
+                                showErrorDialog("A problem occurred while reading the file.",
+                                                "Error occurred");
+                            }
+                        } catch (final XMLAccessException e) {
+                            if (!progress.isCancelled()) {
+                                e.printStackTrace();
+                                showErrorDialog("A problem occurred while parsing the XML.",
+                                                "Error occurred");
+                            }
+                        }
+
+                        return null;
+                    }
+                });
+            }
+        });
+
+        gui.setGlassPane(loadingPanel);
+        loadingPanel.addCancelListener(new ActionListener() {
+            public void actionPerformed(
+                                        final ActionEvent e) {
+                // The panel stays until the loader has actually stopped.
+                if (runningLoadProgress != null) {
+                    runningLoadProgress.cancel();
+                    loadingPanel.setCancelling("Cancelling...");
                 }
             }
         });
@@ -168,6 +262,7 @@ public final class LogVisualizer {
         gui.setSize(800, 600);
         RefineryUtilities.centerFrameOnScreen(gui);
         gui.setVisible(true);
+        StartupProfile.endPhase("Main window", phaseStart);
 
         if (Settings.getSettingBoolean("First program startup")) {
             final JLabel text = new JLabel("<html>Note that <b>for the purpose of logging your own runs with KolMafia, it is best</b> to "
@@ -197,23 +292,101 @@ public final class LogVisualizer {
     }
 
     private void loadLog(
-                         final File file, final LogParser parser) {
-        try {
-            parser.parse();
-            addLogGUI(file, parser.getLogData());
-        } catch (final IOException e) {
-            // If there was an IO error of some kind while reading the
-            // log file, print the stack trace and show an error dialog,
-            // so the user actually knows something is up.
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(gui,
-                                          "There was a problem with reading and/or parsing the ascension log.\n\n"
-                                                  + "Make sure that the ascension log file isn't corrupted or doesn't contain any line longer than 500 characters\n"
-                                                  + "and try again. If it still doesn't work, try contacting the developers of the Ascension Log Visualizer for\n"
-                                                  + "further help.",
-                                          "Problem occurred",
-                                          JOptionPane.ERROR_MESSAGE);
-        }
+                         final File file, final ReadingProgress progress,
+                         final LogParser parser) {
+        loadInBackground(file, progress, new Callable<LogDataHolder>() {
+            public LogDataHolder call() {
+                try {
+                    parser.parse();
+
+                    return parser.getLogData();
+                } catch (final IOException e) {
+                    // If there was an IO error of some kind while reading the
+                    // log file, print the stack trace and show an error dialog,
+                    // so the user actually knows something is up. A cancelled
+                    // parsing also ends with an IO error, which isn't one.
+                    if (!progress.isCancelled()) {
+                        e.printStackTrace();
+                        showErrorDialog("There was a problem with reading and/or parsing the ascension log.\n\n"
+                                                + "Make sure that the ascension log file isn't corrupted or doesn't contain any line longer than 500 characters\n"
+                                                + "and try again. If it still doesn't work, try contacting the developers of the Ascension Log Visualizer for\n"
+                                                + "further help.",
+                                        "Problem occurred");
+                    }
+
+                    return null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads a log with the given loader on the log loader thread and adds a
+     * {@link LogGUI} for it once it is loaded.
+     * <p>
+     * While the log is loading, a progress panel showing how much of the log
+     * file has been read covers the main window. Its cancel button cancels the
+     * given reading progress, which stops the loader the next time it reads
+     * from the log file. Cancelled loads don't add a {@link LogGUI}. Loads are
+     * run one after another, and the progress panel is only bound to a load
+     * once it starts, so it never shows or cancels a load still waiting behind
+     * another one.
+     * <p>
+     * This method has to be called on the event dispatch thread.
+     * 
+     * @param file
+     *            The log file.
+     * @param progress
+     *            The reading progress of the log file.
+     * @param loader
+     *            The loader of the log, which shows an error dialog itself and
+     *            returns {@code null} if the log couldn't be loaded.
+     */
+    private void loadInBackground(
+                                  final File file, final ReadingProgress progress,
+                                  final Callable<LogDataHolder> loader) {
+        logLoader.execute(new Runnable() {
+            public void run() {
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        runningLoadProgress = progress;
+                        loadingPanel.start("Loading " + file.getName());
+                        loadingPanelUpdater.start();
+                    }
+                });
+
+                LogDataHolder logData = null;
+                try {
+                    logData = loader.call();
+                } catch (final Exception e) {
+                    e.printStackTrace();
+                }
+
+                final LogDataHolder loadedLogData = logData;
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        loadingPanelUpdater.stop();
+                        loadingPanel.stop();
+                        runningLoadProgress = null;
+                        if (!progress.isCancelled() && loadedLogData != null)
+                            addLogGUI(file, loadedLogData);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows an error dialog with the given message on the event dispatch
+     * thread.
+     */
+    private void showErrorDialog(
+                                 final String message, final String title) {
+        EventQueue.invokeLater(new Runnable() {
+            public void run() {
+                JOptionPane.showMessageDialog(gui, message, title, JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     /**
@@ -222,8 +395,19 @@ public final class LogVisualizer {
      */
     private void addLogGUI(
                            final File log, final LogDataHolder logData) {
-        EventQueue.invokeLater(new Runnable() {
+        EventQueue.invokeLater(newLogGUIAdder(log, logData));
+    }
+
+    /**
+     * @return A task which adds a {@link LogGUI} with the given logData to the
+     *         log pane. It has to be run on the event dispatch thread.
+     */
+    private Runnable newLogGUIAdder(
+                                    final File log, final LogDataHolder logData) {
+        return new Runnable() {
             public void run() {
+                awaitChartTheme();
+
                 final LogGUI logGUI = new LogGUI(log, logData, !logData.isDetailedLog());
                 logGUI.setGanttPanelButtonListener(new GanttPaneButtonListener() {
                     public void areaCategoryCustomizerPressed(
@@ -239,7 +423,127 @@ public final class LogVisualizer {
 
                 gui.addLogTab(logGUI);
             }
+        };
+    }
+
+    /**
+     * Starts to initialise the parts of the program which aren't needed to
+     * show the main window in the background: the chart theme, the data tables,
+     * the area name mappings, the logs cache catalog and the textual log
+     * augmentations. All of them are held in classes which are initialised on
+     * first use, so code using them before they are ready simply waits for
+     * their initialisation to finish.
+     * 
+     * @param mainWindowShown
+     *            Counted down once the main window is shown. The start-up
+     *            profile is printed after that and after all background
+     *            initialisation is done.
+     */
+    private static void startBackgroundInitialization(
+                                                      final CountDownLatch mainWindowShown) {
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(
+                                    final Runnable r) {
+                final Thread t = new Thread(r, "Start-up initialisation");
+                t.setDaemon(true);
+
+                return t;
+            }
         });
+
+        chartThemeInitialization = executor.submit(newInitializationPhase("Chart theme", new Runnable() {
+            public void run() {
+                ChartFactory.setChartTheme(StandardChartTheme.createLegacyTheme());
+                BarRenderer.setDefaultBarPainter(new StandardBarPainter());
+            }
+        }));
+        executor.submit(newInitializationPhase("Data tables", new Runnable() {
+            public void run() {
+                DataTablesHandler.HANDLER.getDataTables();
+            }
+        }));
+        executor.submit(newInitializationPhase("Area name mappings", new Runnable() {
+            public void run() {
+                initializeClass(EncounterBlockParser.class);
+            }
+        }));
+        executor.submit(newInitializationPhase("Logs cache catalog", new Runnable() {
+            public void run() {
+                LogsCache.CACHE.getLogs();
+            }
+        }));
+        executor.submit(newInitializationPhase("Textual log augmentations", new Runnable() {
+            public void run() {
+                initializeClass(TextLogCreator.class);
+            }
+        }));
+        executor.shutdown();
+
+        if (StartupProfile.isEnabled()) {
+            final Thread reporter = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        mainWindowShown.await();
+                        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                        StartupProfile.printReport(System.err);
+                    } catch (final InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }, "Start-up profile");
+            reporter.setDaemon(true);
+            reporter.start();
+        }
+    }
+
+    /**
+     * @return A runnable running the given task as a start-up phase of the
+     *         given name.
+     */
+    private static Runnable newInitializationPhase(
+                                                   final String name, final Runnable task) {
+        return new Runnable() {
+            public void run() {
+                final long phaseStart = StartupProfile.startPhase();
+                try {
+                    task.run();
+                } catch (final RuntimeException e) {
+                    e.printStackTrace();
+                    throw e;
+                } catch (final Error e) {
+                    e.printStackTrace();
+                    throw e;
+                } finally {
+                    StartupProfile.endPhase(name, phaseStart);
+                }
+            }
+        };
+    }
+
+    private static void initializeClass(
+                                        final Class<?> c) {
+        try {
+            Class.forName(c.getName(), true, c.getClassLoader());
+        } catch (final ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits until the chart theme is set, if it is being set in the
+     * background.
+     */
+    private static void awaitChartTheme() {
+        final Future<?> initialization = chartThemeInitialization;
+        if (initialization != null)
+            try {
+                initialization.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                e.printStackTrace();
+            }
     }
 
     /**
@@ -278,11 +582,23 @@ public final class LogVisualizer {
                             final String[] args) {
         if (args.length > 0 && (args[0].equals("-parse") || args[0].equals("-p")))
             LogVisualizerCLI.runCLIParsing(args);
-        else
+        else if (args.length > 0 && (args[0].equals("-batch") || args[0].equals("-b")))
+            System.exit(LogVisualizerBatch.runBatch(args));
+        else if (args.length > 0 && args[0].equals("-server")) {
+            final int status = LogVisualizerServer.runServer(args);
+            if (status != 0)
+                System.exit(status);
+        } else {
+            StartupProfile.setEnabled(args.length > 0 && args[0].equals("-startup-profile"));
+
+            final CountDownLatch mainWindowShown = new CountDownLatch(1);
+            startBackgroundInitialization(mainWindowShown);
             EventQueue.invokeLater(new Runnable() {
                 public void run() {
                     new LogVisualizer();
+                    mainWindowShown.countDown();
                 }
             });
+        }
     }
 }
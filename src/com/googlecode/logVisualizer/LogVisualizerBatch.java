@@ -0,0 +1,379 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+import net.java.dev.spellcast.utilities.UtilityConstants;
+
+import com.googlecode.logVisualizer.gui.InternalMafiaLogParserDialog;
+import com.googlecode.logVisualizer.logData.turn.Encounter;
+import com.googlecode.logVisualizer.parser.LogsCreator;
+import com.googlecode.logVisualizer.util.BatchMetrics;
+import com.googlecode.logVisualizer.util.BatchScheduler;
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchProgress;
+import com.googlecode.logVisualizer.util.BatchScheduler.ProgressListener;
+import com.googlecode.logVisualizer.util.Lists;
+import com.googlecode.logVisualizer.util.LogOutputFormat;
+import com.googlecode.logVisualizer.util.LogsCache;
+import com.googlecode.logVisualizer.util.Pair;
+
+/**
+ * Headless batch command to parse mafia logs without any user interaction,
+ * meant to be run by scripts. Unlike {@link LogVisualizerCLI}, this command
+ * doesn't store any of its options in the {@link Settings}, writes all its
+ * messages to standard error and can write machine-readable metrics of the
+ * run (see {@link BatchMetrics}) as JSON.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * -batch [options] MAFIA_LOGS_DIRECTORY [OUTPUT_DIRECTORY]
+ * 
+ * --threads N          number of parsing threads (default: one per processor)
+ * --formats F,F,...    output formats: text, html, bbcode, xml (default: text)
+ * --since YYYYMMDD     only ascensions started on or after the given date
+ * --count N            only the last N ascensions
+ * --cache-only         only update the log cache, no output directory needed
+ * --compress           GZIP compress XML output
+ * --vthreads           experimental: write outputs on virtual threads if
+ *                      available (Java 21 and above)
+ * --metrics-json FILE  write metrics as JSON to FILE, or to standard out if -
+ * </pre>
+ */
+public final class LogVisualizerBatch {
+    private static final String USAGE = "Usage: -batch [--threads N] [--formats text,html,bbcode,xml] [--since YYYYMMDD]\n"
+                                         + "              [--count N] [--cache-only] [--compress] [--vthreads (experimental)]\n"
+                                         + "              [--metrics-json FILE|-] MAFIA_LOGS_DIRECTORY [OUTPUT_DIRECTORY]";
+
+    // This class is not to be instanced.
+    private LogVisualizerBatch() {}
+
+    /**
+     * Runs the batch command.
+     * 
+     * @param args
+     *            The command line arguments, the first of which is the name of
+     *            the command itself.
+     * @return The exit status of the command: {@code 0} if all ascensions were
+     *         handled successfully, {@code 1} if there were errors or the run
+     *         was cancelled and {@code 2} if the arguments were invalid.
+     */
+    public static int runBatch(
+                               final String[] args) {
+        final BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        final BatchMetrics metrics = new BatchMetrics();
+        final BatchScheduler scheduler = BatchScheduler.newDefaultScheduler(options.threads,
+                                                                            new ProgressListener() {
+                                                                                public void progressChanged(
+                                                                                                            final BatchProgress progress) {
+                                                                                    metrics.progressChanged(progress);
+                                                                                    System.err.println(progress);
+                                                                                }
+                                                                            });
+        if (options.isUsingVirtualThreads)
+            if (scheduler.setUsingVirtualThreads(true))
+                System.err.println("Writing outputs on virtual threads, which is experimental.");
+            else
+                System.err.println("Virtual threads are not supported by this Java version, using normal threads instead.");
+
+        // Interrupting the program cancels the run, but lets the ascensions
+        // already being parsed finish.
+        final CountDownLatch runDone = new CountDownLatch(1);
+        final Thread cancellationHook = new Thread(new Runnable() {
+            public void run() {
+                scheduler.cancel();
+                try {
+                    runDone.await();
+                } catch (final InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(cancellationHook);
+
+        // The cancellation hook only lets the program end once the metrics of
+        // the cancelled run are written as well.
+        try {
+            List<Pair<String, Encounter>> errorFileList = Collections.emptyList();
+            try {
+                final File[] mafiaLogs = options.mafiaLogsDirectory.listFiles(InternalMafiaLogParserDialog.MAFIA_LOG_FILTER);
+                if (mafiaLogs.length == 0) {
+                    System.err.println("The directory specified for mafia logs does not contain any mafia logs.");
+                    return 1;
+                }
+
+                final List<File> condensedMafiaLogs = selectAscensions(LogsCreator.createCondensedMafiaLogs(mafiaLogs),
+                                                                       options);
+                System.err.println("Parsing " + condensedMafiaLogs.size() + " ascensions.");
+
+                if (options.isCacheOnly)
+                    errorFileList = LogsCache.CACHE.createCache(condensedMafiaLogs.toArray(new File[condensedMafiaLogs.size()]),
+                                                                null,
+                                                                scheduler,
+                                                                metrics);
+                else
+                    errorFileList = LogsCreator.createParsedLogsFromCondensedMafiaLogs(condensedMafiaLogs,
+                                                                                       options.outputDirectory,
+                                                                                       options.formats,
+                                                                                       options.isCompressed,
+                                                                                       scheduler,
+                                                                                       metrics);
+            } catch (final IOException e) {
+                System.err.println("There was a problem while condensing the mafia logs.");
+                e.printStackTrace();
+                return 1;
+            } finally {
+                metrics.finish();
+
+                // Temporary files should be deleted after use. Possible
+                // subdirectories are ignored here.
+                for (final File f : UtilityConstants.TEMP_LOCATION.listFiles())
+                    if (!f.isDirectory())
+                        f.delete();
+            }
+
+            for (final Pair<String, Encounter> p : errorFileList)
+                System.err.println("Error in " + p.getVar1() + " after turn "
+                                   + p.getVar2().getTurnNumber());
+            System.err.println(scheduler.isCancelled() ? "Parsing cancelled." : "Parsing finished.");
+
+            if (options.metricsDestination != null)
+                try {
+                    writeMetrics(metrics, options.metricsDestination);
+                } catch (final IOException e) {
+                    System.err.println("The metrics couldn't be written.");
+                    e.printStackTrace();
+                    return 1;
+                }
+
+            return errorFileList.isEmpty() && !scheduler.isCancelled() ? 0 : 1;
+        } finally {
+            runDone.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(cancellationHook);
+            } catch (final IllegalStateException e) {
+                // The program is already shutting down.
+            }
+        }
+    }
+
+    /**
+     * @return The condensed mafia logs of the ascensions selected by the given
+     *         options, latest first.
+     */
+    private static List<File> selectAscensions(
+                                               final File[] condensedMafiaLogs,
+                                               final BatchOptions options) {
+        final List<File> logs = Lists.newArrayList(condensedMafiaLogs.length);
+        for (final File f : condensedMafiaLogs)
+            if (getAscensionStartDate(f) >= options.sinceDate)
+                logs.add(f);
+
+        Collections.sort(logs, new Comparator<File>() {
+            public int compare(
+                               final File o1, final File o2) {
+                return o2.getName().compareToIgnoreCase(o1.getName());
+            }
+        });
+
+        return logs.size() > options.count ? logs.subList(0, options.count) : logs;
+    }
+
+    /**
+     * @return The start date of the ascension of the given condensed mafia log
+     *         in the format YYYYMMDD, or {@code 0} if it can't be read from its
+     *         file name.
+     */
+    private static int getAscensionStartDate(
+                                             final File condensedMafiaLog) {
+        final String name = condensedMafiaLog.getName();
+        final int delimiterIndex = name.lastIndexOf("-");
+        final int extensionIndex = name.lastIndexOf(".");
+        if (delimiterIndex < 0 || extensionIndex < delimiterIndex)
+            return 0;
+
+        try {
+            return Integer.parseInt(name.substring(delimiterIndex + 1, extensionIndex));
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeMetrics(
+                                     final BatchMetrics metrics, final String destination)
+                                                                                          throws IOException {
+        if (destination.equals("-")) {
+            final Writer writer = new OutputStreamWriter(System.out, "UTF-8");
+            metrics.writeJSON(writer);
+            writer.flush();
+        } else {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destination),
+                                                                            "UTF-8"));
+            try {
+                metrics.writeJSON(writer);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * The parsed command line options of the batch command.
+     */
+    private static final class BatchOptions {
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Set<LogOutputFormat> formats = EnumSet.of(LogOutputFormat.TEXT_LOG);
+
+        int sinceDate = 0;
+
+        int count = Integer.MAX_VALUE;
+
+        boolean isCacheOnly;
+
+        boolean isCompressed;
+
+        boolean isUsingVirtualThreads;
+
+        String metricsDestination;
+
+        File mafiaLogsDirectory;
+
+        File outputDirectory;
+
+        /**
+         * @param args
+         *            The command line arguments, the first of which is the
+         *            name of the command itself.
+         * @return The parsed options.
+         * @throws IllegalArgumentException
+         *             if the arguments are invalid
+         */
+        static BatchOptions parse(
+                                  final String[] args) {
+            final BatchOptions options = new BatchOptions();
+            final List<String> directories = Lists.newArrayList(2);
+
+            for (int i = 1; i < args.length; i++) {
+                final String arg = args[i];
+                if (arg.equals("--threads"))
+                    options.threads = parsePositiveInt(arg, getValue(args, ++i, arg));
+                else if (arg.equals("--formats"))
+                    options.formats = parseFormats(getValue(args, ++i, arg));
+                else if (arg.equals("--since"))
+                    options.sinceDate = parseDate(arg, getValue(args, ++i, arg));
+                else if (arg.equals("--count"))
+                    options.count = parsePositiveInt(arg, getValue(args, ++i, arg));
+                else if (arg.equals("--cache-only"))
+                    options.isCacheOnly = true;
+                else if (arg.equals("--compress"))
+                    options.isCompressed = true;
+                else if (arg.equals("--vthreads"))
+                    options.isUsingVirtualThreads = true;
+                else if (arg.equals("--metrics-json"))
+                    options.metricsDestination = getValue(args, ++i, arg);
+                else if (arg.startsWith("--"))
+                    throw new IllegalArgumentException("Unknown option " + arg + ".");
+                else
+                    directories.add(arg);
+            }
+
+            if (directories.isEmpty() || directories.size() > 2)
+                throw new IllegalArgumentException("Please specify the mafia logs directory and, unless --cache-only is used, the output directory.");
+            if (directories.size() == 1 && !options.isCacheOnly)
+                throw new IllegalArgumentException("Please specify an output directory or use --cache-only.");
+
+            options.mafiaLogsDirectory = new File(directories.get(0));
+            if (!options.mafiaLogsDirectory.isDirectory())
+                throw new IllegalArgumentException(options.mafiaLogsDirectory + " is not a directory.");
+            if (!options.isCacheOnly) {
+                options.outputDirectory = new File(directories.get(1));
+                if (!options.outputDirectory.isDirectory())
+                    throw new IllegalArgumentException(options.outputDirectory + " is not a directory.");
+            }
+
+            return options;
+        }
+
+        private static String getValue(
+                                       final String[] args, final int index, final String option) {
+            if (index >= args.length)
+                throw new IllegalArgumentException(option + " expects a value.");
+
+            return args[index];
+        }
+
+        private static int parsePositiveInt(
+                                            final String option, final String value) {
+            try {
+                final int number = Integer.parseInt(value);
+                if (number > 0)
+                    return number;
+            } catch (final NumberFormatException e) {
+                // Handled below.
+            }
+
+            throw new IllegalArgumentException(option + " expects a positive number.");
+        }
+
+        private static int parseDate(
+                                     final String option, final String value) {
+            if (!value.matches("\\d{8}"))
+                throw new IllegalArgumentException(option + " expects a date in the format YYYYMMDD.");
+
+            return Integer.parseInt(value);
+        }
+
+        private static Set<LogOutputFormat> parseFormats(
+                                                         final String value) {
+            final Set<LogOutputFormat> formats = EnumSet.noneOf(LogOutputFormat.class);
+            for (final String format : value.split(","))
+                if (format.equalsIgnoreCase("text"))
+                    formats.add(LogOutputFormat.TEXT_LOG);
+                else if (format.equalsIgnoreCase("html"))
+                    formats.add(LogOutputFormat.HTML_LOG);
+                else if (format.equalsIgnoreCase("bbcode"))
+                    formats.add(LogOutputFormat.BBCODE_LOG);
+                else if (format.equalsIgnoreCase("xml"))
+                    formats.add(LogOutputFormat.XML_LOG);
+                else
+                    throw new IllegalArgumentException("Unknown format " + format + ".");
+
+            return formats;
+        }
+    }
+}
@@ -26,18 +26,24 @@ package com.googlecode.logVisualizer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import com.googlecode.logVisualizer.gui.InternalMafiaLogParserDialog;
 import com.googlecode.logVisualizer.logData.turn.Encounter;
 import com.googlecode.logVisualizer.parser.LogsCreator;
+import com.googlecode.logVisualizer.util.BatchScheduler;
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchProgress;
+import com.googlecode.logVisualizer.util.BatchScheduler.ProgressListener;
 import com.googlecode.logVisualizer.util.LogOutputFormat;
 import com.googlecode.logVisualizer.util.Pair;
 
 public final class LogVisualizerCLI {
     public static void runCLIParsing(
                                      final String[] args) {
-        final LogOutputFormat outputFormat = getOutputFormat(args);
+        final Set<LogOutputFormat> outputFormats = getOutputFormats(args);
         final int numberToParse = getNumberOfLogsToParse(args);
         final Pair<File, File> logFolders = getLogsSrcDestFolders(args);
         final File mafiaLogsDirectory = logFolders.getVar1();
@@ -59,14 +65,45 @@ public final class LogVisualizerCLI {
         Settings.setSettingString("Parsed logs saving location",
                                   parsedLogsSavingDirectory.getAbsolutePath());
 
+        // Interrupting the program (for example with Ctrl+C) cancels the
+        // parsing, but lets the logs already being parsed finish, so that no
+        // half-written logs are left behind.
+        final BatchScheduler scheduler = BatchScheduler.newDefaultScheduler(new ProgressListener() {
+            public void progressChanged(
+                                        final BatchProgress progress) {
+                System.out.println(progress);
+            }
+        });
+        if (isUsingVirtualThreads(args))
+            if (scheduler.setUsingVirtualThreads(true))
+                System.out.println("Writing parsed logs on virtual threads, which is experimental.");
+            else
+                System.out.println("Virtual threads are not supported by this Java version, using normal threads instead.");
+
+        final CountDownLatch parsingDone = new CountDownLatch(1);
+        final Thread cancellationHook = new Thread(new Runnable() {
+            public void run() {
+                scheduler.cancel();
+                try {
+                    parsingDone.await();
+                } catch (final InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(cancellationHook);
+
         // Now, the actual parsing can start.
         try {
             System.out.println("Parsing, please wait.");
             final List<Pair<String, Encounter>> errorFileList = LogsCreator.createParsedLogs(mafiaLogs,
                                                                                              parsedLogsSavingDirectory,
-                                                                                             outputFormat,
-                                                                                             numberToParse);
-            System.out.println("Parsing finished.\n\n");
+                                                                                             outputFormats,
+                                                                                             numberToParse,
+                                                                                             isCompressedOutput(args),
+                                                                                             scheduler);
+            System.out.println(scheduler.isCancelled() ? "Parsing cancelled.\n\n"
+                                                      : "Parsing finished.\n\n");
 
             // If there were error logs, give the user feedback on them.
             if (!errorFileList.isEmpty()) {
@@ -83,22 +120,57 @@ public final class LogVisualizerCLI {
         } catch (final IOException e) {
             System.out.println("There was a problem while running the parser. Please check whether the parsed logs were created.");
             e.printStackTrace();
+        } finally {
+            parsingDone.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(cancellationHook);
+            } catch (final IllegalStateException e) {
+                // The program is already shutting down.
+            }
         }
     }
 
-    private static LogOutputFormat getOutputFormat(
-                                                   final String[] args) {
-        LogOutputFormat outputFormat = LogOutputFormat.TEXT_LOG;
+    /**
+     * Every given format flag adds its format, so that all of them can be
+     * created from a single parsing run. If no format flag is given, only
+     * the text format will be used.
+     */
+    private static Set<LogOutputFormat> getOutputFormats(
+                                                         final String[] args) {
+        final Set<LogOutputFormat> outputFormats = EnumSet.noneOf(LogOutputFormat.class);
 
         for (final String s : args)
-            if (s.equals("-html"))
-                outputFormat = LogOutputFormat.HTML_LOG;
+            if (s.equals("-text"))
+                outputFormats.add(LogOutputFormat.TEXT_LOG);
+            else if (s.equals("-html"))
+                outputFormats.add(LogOutputFormat.HTML_LOG);
             else if (s.equals("-bbcode"))
-                outputFormat = LogOutputFormat.BBCODE_LOG;
+                outputFormats.add(LogOutputFormat.BBCODE_LOG);
             else if (s.equals("-xml"))
-                outputFormat = LogOutputFormat.XML_LOG;
+                outputFormats.add(LogOutputFormat.XML_LOG);
+
+        if (outputFormats.isEmpty())
+            outputFormats.add(LogOutputFormat.TEXT_LOG);
+
+        return outputFormats;
+    }
+
+    private static boolean isCompressedOutput(
+                                              final String[] args) {
+        for (final String s : args)
+            if (s.equals("-gz") || s.equals("-compress"))
+                return true;
+
+        return false;
+    }
+
+    private static boolean isUsingVirtualThreads(
+                                                 final String[] args) {
+        for (final String s : args)
+            if (s.equals("-vthreads") || s.equals("-virtualthreads"))
+                return true;
 
-        return outputFormat;
+        return false;
     }
 
     private static int getNumberOfLogsToParse(
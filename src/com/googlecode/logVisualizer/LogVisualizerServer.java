@@ -0,0 +1,830 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.java.dev.spellcast.utilities.UtilityConstants;
+
+import com.googlecode.logVisualizer.gui.InternalMafiaLogParserDialog;
+import com.googlecode.logVisualizer.logData.LogDataHolder;
+import com.googlecode.logVisualizer.logData.Statgain;
+import com.googlecode.logVisualizer.logData.logSummary.LevelData;
+import com.googlecode.logVisualizer.logData.logSummary.LogSummaryData;
+import com.googlecode.logVisualizer.logData.turn.Encounter;
+import com.googlecode.logVisualizer.util.*;
+import com.googlecode.logVisualizer.util.textualLogs.TextLogCreator;
+import com.googlecode.logVisualizer.util.xmlLogs.FileAccessException;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLAccessException;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server which keeps the {@link LogsCache} and the ascension logs
+ * read from it in memory, so scripts querying the ascension logs don't have to
+ * pay for the start-up of the program and the parsing of the logs on every
+ * query. The server only listens on the loopback interface.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * -server [--port N] [--threads N] [--warm-heap-fraction F] [MAFIA_LOGS_DIRECTORY]
+ * 
+ * --port N                port to listen on (default: 8642)
+ * --threads N             number of threads serving requests (default: one per
+ *                         processor)
+ * --warm-heap-fraction F  fraction of the maximum heap size the ascension logs
+ *                         kept in memory may take up (default: 0.5)
+ * </pre>
+ * 
+ * If no mafia logs directory is given, the {@code "Mafia logs location"}
+ * setting is used. The cache is brought up to date with the mafia logs before
+ * the server starts to serve requests.
+ * <p>
+ * The following requests are served:
+ * <ul>
+ * <li>{@code GET /ascensions}: A JSON list of all cached ascensions.</li>
+ * <li>{@code GET /ascensions/NAME/summary}: The log summary of the given
+ * ascension as JSON.</li>
+ * <li>{@code GET /ascensions/NAME/log?format=text|html|bbcode}: The given
+ * ascension as a textual log, text being the default format.</li>
+ * <li>{@code POST /reparse}: Parses the mafia logs which changed since they
+ * were last cached (see {@link LogsCache#updateCache}) and answers with the
+ * updated ascensions as JSON. Only one re-parse can run at a time.</li>
+ * </ul>
+ * Requests are served concurrently. Every request works on the immutable
+ * snapshot of the cached ascensions which was current when it arrived, a
+ * re-parse publishes a new snapshot once it is done. Ascension logs are read
+ * from the cache the first time they are requested and are kept in memory
+ * afterwards, until a re-parse changes them or until their estimated heap usage
+ * (see {@link CachedLogsLoader#estimateHeapUsage(File)}) exceeds the heap
+ * budget, in which case the least recently requested ones are dropped first.
+ * Textual logs are streamed to the client while they are being created.
+ * <p>
+ * {@link com.googlecode.logVisualizer.devtools.ServerExercise} runs a server
+ * on the cached logs and sends it every kind of request.
+ */
+public final class LogVisualizerServer {
+    private static final String USAGE = "Usage: -server [--port N] [--threads N] [--warm-heap-fraction F] [MAFIA_LOGS_DIRECTORY]";
+
+    private static final int DEFAULT_PORT = 8642;
+
+    private static final double DEFAULT_WARM_HEAP_FRACTION = 0.5;
+
+    private static final String ASCENSIONS_PATH = "/ascensions";
+
+    private static final String REPARSE_PATH = "/reparse";
+
+    private final AtomicReference<ServerSnapshot> snapshot = new AtomicReference<ServerSnapshot>(ServerSnapshot.EMPTY);
+
+    private final Lock reparseLock = new ReentrantLock();
+
+    private final WarmLogs warmLogs;
+
+    private final File mafiaLogsDirectory;
+
+    private final int threads;
+
+    /**
+     * @param mafiaLogsDirectory
+     *            The directory of the mafia logs from which the cache is
+     *            updated, may be {@code null} if re-parsing should not be
+     *            possible.
+     * @param threads
+     *            The number of threads used to parse logs and serve requests.
+     * @param maxWarmHeap
+     *            The maximum estimated heap usage in bytes of the ascension
+     *            logs kept in memory. The most recently requested log is
+     *            always kept.
+     */
+    public LogVisualizerServer(
+                               final File mafiaLogsDirectory, final int threads,
+                               final long maxWarmHeap) {
+        this.mafiaLogsDirectory = mafiaLogsDirectory;
+        this.threads = threads;
+        warmLogs = new WarmLogs(maxWarmHeap);
+    }
+
+    /**
+     * Runs the server command. This method only returns if the server couldn't
+     * be started, otherwise the server runs until the program is terminated.
+     * 
+     * @param args
+     *            The command line arguments, the first of which is the name of
+     *            the command itself.
+     * @return The exit status of the command: {@code 1} if the server couldn't
+     *         be started and {@code 2} if the arguments were invalid.
+     */
+    public static int runServer(
+                                final String[] args) {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double warmHeapFraction = DEFAULT_WARM_HEAP_FRACTION;
+        String mafiaLogsLocation = Settings.getSettingString("Mafia logs location");
+        try {
+            for (int i = 1; i < args.length; i++)
+                if (args[i].equals("--port"))
+                    port = parsePositiveInt(args, ++i);
+                else if (args[i].equals("--threads"))
+                    threads = parsePositiveInt(args, ++i);
+                else if (args[i].equals("--warm-heap-fraction"))
+                    warmHeapFraction = parseFraction(args, ++i);
+                else if (args[i].startsWith("--"))
+                    throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+                else
+                    mafiaLogsLocation = args[i];
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        File mafiaLogsDirectory = null;
+        if (mafiaLogsLocation.length() > 0) {
+            mafiaLogsDirectory = new File(mafiaLogsLocation);
+            if (!mafiaLogsDirectory.isDirectory()) {
+                System.err.println(mafiaLogsDirectory + " is not a directory.");
+                return 2;
+            }
+        } else
+            System.err.println("No mafia logs directory given, only the cached ascensions will be served.");
+
+        final LogVisualizerServer server = new LogVisualizerServer(mafiaLogsDirectory,
+                                                                   threads,
+                                                                   (long) (Runtime.getRuntime()
+                                                                                  .maxMemory() * warmHeapFraction));
+        try {
+            server.start(port);
+        } catch (final IOException e) {
+            System.err.println("The server couldn't be started on port " + port + ": " + e.getMessage());
+            return 1;
+        }
+
+        return 0;
+    }
+
+    private static int parsePositiveInt(
+                                        final String[] args, final int index) {
+        if (index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1] + ".");
+
+        try {
+            final int value = Integer.parseInt(args[index]);
+            if (value > 0)
+                return value;
+        } catch (final NumberFormatException e) {
+            // The error is reported below.
+        }
+
+        throw new IllegalArgumentException("Invalid value for " + args[index - 1] + ": " + args[index]);
+    }
+
+    private static double parseFraction(
+                                        final String[] args, final int index) {
+        if (index >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[index - 1] + ".");
+
+        try {
+            final double value = Double.parseDouble(args[index]);
+            if (value > 0 && value <= 1)
+                return value;
+        } catch (final NumberFormatException e) {
+            // The error is reported below.
+        }
+
+        throw new IllegalArgumentException("Invalid value for " + args[index - 1] + ": " + args[index]);
+    }
+
+    /**
+     * Updates the cache with the mafia logs and starts serving requests on the
+     * given port of the loopback interface. This method returns after the
+     * server was started.
+     * 
+     * @param port
+     *            The port to listen on.
+     * @throws IOException
+     *             if the server couldn't be bound to the given port
+     */
+    public void start(
+                      final int port)
+                                     throws IOException {
+        if (mafiaLogsDirectory != null) {
+            System.err.println("Updating the log cache...");
+            reparse();
+        } else
+            publishCatalog();
+
+        final HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                                                              port),
+                                                        0);
+        final ExecutorService requestExecutor = Executors.newFixedThreadPool(threads);
+        httpServer.setExecutor(requestExecutor);
+        httpServer.createContext(ASCENSIONS_PATH, new AscensionsHandler());
+        httpServer.createContext(REPARSE_PATH, new ReparseHandler());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                httpServer.stop(1);
+                requestExecutor.shutdown();
+            }
+        }));
+
+        httpServer.start();
+        System.err.println("Serving " + snapshot.get().ascensions.size() + " ascensions on http://"
+                           + httpServer.getAddress().getHostString() + ":"
+                           + httpServer.getAddress().getPort() + "/");
+    }
+
+    /**
+     * Updates the cache with the mafia logs and publishes a new snapshot of the
+     * cached ascensions. Ascension logs which are kept in memory stay there,
+     * unless they were re-parsed.
+     * <p>
+     * Only one re-parse may run at a time.
+     * 
+     * @return A pair of the names of the ascensions which were added or
+     *         changed, and the mafia logs which had an exception thrown during
+     *         the parsing process together with the turn after which it
+     *         occurred.
+     * @throws IOException
+     *             if there was a problem while reading the mafia logs
+     */
+    private Pair<List<String>, List<Pair<String, Encounter>>> reparse()
+                                                                        throws IOException {
+        final File[] mafiaLogs = mafiaLogsDirectory.listFiles(InternalMafiaLogParserDialog.MAFIA_LOG_FILTER);
+
+        final List<Pair<String, Encounter>> errorFileList;
+        try {
+            errorFileList = LogsCache.CACHE.updateCache(mafiaLogs,
+                                                        null,
+                                                        BatchScheduler.newDefaultScheduler(threads, null));
+        } finally {
+            for (final File f : UtilityConstants.TEMP_LOCATION.listFiles())
+                if (!f.isDirectory())
+                    f.delete();
+        }
+
+        final ServerSnapshot previous = snapshot.get();
+        final ServerSnapshot updated = publishCatalog();
+
+        final List<String> updatedAscensions = Lists.newArrayList();
+        for (final CachedAscension ascension : updated.ascensions.values())
+            if (!ascension.isSameVersion(previous.ascensions.get(ascension.name)))
+                updatedAscensions.add(ascension.name);
+
+        return Pair.of(updatedAscensions, errorFileList);
+    }
+
+    /**
+     * Publishes a snapshot of the current content of the cache and drops the
+     * logs kept in memory which changed.
+     * 
+     * @return The published snapshot.
+     */
+    private ServerSnapshot publishCatalog() {
+        final ServerSnapshot updated = ServerSnapshot.of(LogsCache.CACHE.getLogsByCharacter());
+
+        synchronized (warmLogs) {
+            snapshot.set(updated);
+            warmLogs.retainCurrent(updated);
+        }
+
+        return updated;
+    }
+
+    /**
+     * @return The log data of the given ascension. If it isn't in memory yet,
+     *         it is read from the cache and kept in memory. Note that two concurrent requests for the same ascension
+     *         may both read it from the cache.
+     */
+    private LogDataHolder getLogData(
+                                     final CachedAscension ascension)
+                                                                     throws FileAccessException,
+                                                                     XMLAccessException {
+        final LogDataHolder warmLogData = warmLogs.get(ascension);
+        if (warmLogData != null)
+            return warmLogData;
+
+        final LogDataHolder logData = XMLLogReader.parseXMLLog(ascension.file);
+        warmLogs.put(ascension, logData);
+
+        return logData;
+    }
+
+    private static void sendResponse(
+                                     final HttpExchange exchange, final int status,
+                                     final String contentType, final String body)
+                                                                                 throws IOException {
+        final byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        final OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void sendError(
+                                  final HttpExchange exchange, final int status,
+                                  final String message)
+                                                       throws IOException {
+        sendResponse(exchange, status, "application/json", "{\"error\": " + JSONStrings.quote(message)
+                                                           + "}\n");
+    }
+
+    /**
+     * Sends the given error, unless the response headers were already sent.
+     * In that case the response can only be cut short, which happens when the
+     * exchange is closed.
+     */
+    private static void sendErrorIfPossible(
+                                            final HttpExchange exchange, final int status,
+                                            final String message)
+                                                                 throws IOException {
+        if (exchange.getResponseCode() == -1)
+            sendError(exchange, status, message);
+    }
+
+    /**
+     * @return The value of the given parameter in the query of the request or
+     *         {@code null} if it isn't present.
+     */
+    private static String getQueryParameter(
+                                            final HttpExchange exchange, final String parameter) {
+        final String query = exchange.getRequestURI().getQuery();
+        if (query != null)
+            for (final String s : query.split("&"))
+                if (s.startsWith(parameter + "="))
+                    return s.substring(parameter.length() + 1);
+
+        return null;
+    }
+
+    private static String toJSON(
+                                 final LogDataHolder logData) {
+        final LogSummaryData summary = logData.getLogSummary();
+        final StringBuilder str = new StringBuilder(10000);
+
+        str.append("{\"name\": ").append(JSONStrings.quote(logData.getLogName()));
+        str.append(", \"characterClass\": ")
+           .append(JSONStrings.quote(logData.getCharacterClass().toString()));
+        str.append(", \"ascensionPath\": ")
+           .append(JSONStrings.quote(logData.getAscensionPath().toString()));
+        str.append(", \"turns\": ").append(logData.getLastTurnSpent().getTurnNumber());
+        str.append(", \"combatTurns\": ").append(summary.getTotalTurnsCombat());
+        str.append(", \"noncombatTurns\": ").append(summary.getTotalTurnsNoncombat());
+        str.append(", \"otherTurns\": ").append(summary.getTotalTurnsOther());
+        str.append(", \"turnsFromFood\": ").append(summary.getTotalTurnsFromFood());
+        str.append(", \"turnsFromBooze\": ").append(summary.getTotalTurnsFromBooze());
+        str.append(", \"turnsFromOther\": ").append(summary.getTotalTurnsFromOther());
+        str.append(", \"turnsFromRollover\": ").append(summary.getTotalTurnsFromRollover());
+        str.append(", \"meatGained\": ").append(summary.getTotalMeatGain());
+        str.append(", \"meatSpent\": ").append(summary.getTotalMeatSpent());
+        str.append(", \"mpUsed\": ").append(summary.getTotalMPUsed());
+        str.append(", \"skillCasts\": ").append(summary.getTotalAmountSkillCasts());
+
+        final Statgain stats = summary.getTotalStatgains();
+        str.append(", \"statgains\": {\"muscle\": ").append(stats.mus);
+        str.append(", \"mysticality\": ").append(stats.myst);
+        str.append(", \"moxie\": ").append(stats.mox);
+        str.append(", \"total\": ").append(stats.getTotalStatgain()).append("}");
+
+        str.append(", \"levels\": [");
+        final List<LevelData> levels = summary.getLevelData();
+        for (int i = 0; i < levels.size(); i++) {
+            final LevelData level = levels.get(i);
+            str.append(i == 0 ? "" : ", ");
+            str.append("{\"level\": ").append(level.getLevelNumber());
+            str.append(", \"reachedOnTurn\": ").append(level.getLevelReachedOnTurn());
+            str.append(", \"combatTurns\": ").append(level.getCombatTurns());
+            str.append(", \"noncombatTurns\": ").append(level.getNoncombatTurns());
+            str.append(", \"otherTurns\": ").append(level.getOtherTurns()).append("}");
+        }
+        str.append("]");
+
+        appendDataNumberPairs(str, "turnsPerArea", "turns", summary.getTurnsPerArea());
+        appendDataNumberPairs(str, "familiarUsage", "turns", summary.getFamiliarUsage());
+        appendDataNumberPairs(str, "semirares", "turn", summary.getSemirares());
+        appendDataNumberPairs(str, "banishedCombats", "turn", summary.getBanishedCombats());
+        appendCountables(str, "consumablesUsed", summary.getAllConsumablesUsed());
+        appendCountables(str, "droppedItems", summary.getDroppedItems());
+        str.append("}\n");
+
+        return str.toString();
+    }
+
+    private static void appendDataNumberPairs(
+                                              final StringBuilder str, final String key,
+                                              final String numberKey,
+                                              final List<DataNumberPair<String>> pairs) {
+        str.append(", ").append(JSONStrings.quote(key)).append(": [");
+        for (int i = 0; i < pairs.size(); i++) {
+            final DataNumberPair<String> p = pairs.get(i);
+            str.append(i == 0 ? "" : ", ");
+            str.append("{\"name\": ").append(JSONStrings.quote(p.getData()));
+            str.append(", ").append(JSONStrings.quote(numberKey)).append(": ").append(p.getNumber());
+            str.append("}");
+        }
+        str.append("]");
+    }
+
+    private static void appendCountables(
+                                         final StringBuilder str, final String key,
+                                         final List<? extends AbstractCountable<?>> countables) {
+        str.append(", ").append(JSONStrings.quote(key)).append(": [");
+        for (int i = 0; i < countables.size(); i++) {
+            final AbstractCountable<?> c = countables.get(i);
+            str.append(i == 0 ? "" : ", ");
+            str.append("{\"name\": ").append(JSONStrings.quote(c.getName()));
+            str.append(", \"amount\": ").append(c.getAmount()).append("}");
+        }
+        str.append("]");
+    }
+
+    /**
+     * Serves the list of ascensions, their summaries and textual logs.
+     */
+    private final class AscensionsHandler implements HttpHandler {
+        public void handle(
+                           final HttpExchange exchange)
+                                                       throws IOException {
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    sendError(exchange, 405, "Only GET requests are supported here.");
+                    return;
+                }
+
+                final ServerSnapshot requestSnapshot = snapshot.get();
+                final String path = exchange.getRequestURI().getPath();
+                if (path.equals(ASCENSIONS_PATH) || path.equals(ASCENSIONS_PATH + "/")) {
+                    sendAscensionsList(exchange, requestSnapshot);
+                    return;
+                }
+
+                // The path has the form /ascensions/NAME/RESOURCE.
+                final String ascensionPath = path.substring(ASCENSIONS_PATH.length() + 1);
+                final int delimiterIndex = ascensionPath.lastIndexOf("/");
+                final CachedAscension ascension = delimiterIndex > 0 ? requestSnapshot.ascensions.get(ascensionPath.substring(0,
+                                                                                                                            delimiterIndex))
+                        : null;
+                if (ascension == null) {
+                    sendError(exchange, 404, "No such ascension.");
+                    return;
+                }
+
+                final String resource = ascensionPath.substring(delimiterIndex + 1);
+                if (resource.equals("summary"))
+                    sendResponse(exchange,
+                                 200,
+                                 "application/json",
+                                 toJSON(getLogData(ascension)));
+                else if (resource.equals("log"))
+                    sendTextualLog(exchange, ascension);
+                else
+                    sendError(exchange, 404, "Unknown resource " + resource + ".");
+            } catch (final FileAccessException e) {
+                e.printStackTrace();
+                sendErrorIfPossible(exchange, 500, "The cached ascension couldn't be read.");
+            } catch (final XMLAccessException e) {
+                e.printStackTrace();
+                sendErrorIfPossible(exchange, 500, "The cached ascension couldn't be read.");
+            } catch (final RuntimeException e) {
+                e.printStackTrace();
+                sendErrorIfPossible(exchange, 500, e.toString());
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void sendAscensionsList(
+                                        final HttpExchange exchange,
+                                        final ServerSnapshot requestSnapshot)
+                                                                             throws IOException {
+            final StringBuilder str = new StringBuilder(100 + requestSnapshot.ascensions.size() * 100);
+            str.append("[");
+            final Set<String> warmLogNames = warmLogs.getNames(requestSnapshot);
+            boolean isFirst = true;
+            for (final CachedAscension ascension : requestSnapshot.ascensions.values()) {
+                str.append(isFirst ? "\n" : ",\n");
+                str.append("{\"name\": ").append(JSONStrings.quote(ascension.name));
+                str.append(", \"character\": ").append(JSONStrings.quote(ascension.characterName));
+                str.append(", \"bytes\": ").append(ascension.file.length());
+                str.append(", \"lastModified\": ").append(ascension.lastModified);
+                str.append(", \"inMemory\": ").append(warmLogNames.contains(ascension.name));
+                str.append("}");
+                isFirst = false;
+            }
+            str.append("\n]\n");
+
+            sendResponse(exchange, 200, "application/json", str.toString());
+        }
+
+        /**
+         * Streams the textual log to the client while it is being created. The
+         * length of the response isn't known beforehand, so it is sent in
+         * chunks.
+         */
+        private void sendTextualLog(
+                                    final HttpExchange exchange,
+                                    final CachedAscension ascension)
+                                                                    throws IOException,
+                                                                    FileAccessException,
+                                                                    XMLAccessException {
+            final String format = getQueryParameter(exchange, "format");
+            final LogOutputFormat logVersion;
+            final String contentType;
+            if (format == null || format.equals("text")) {
+                logVersion = LogOutputFormat.TEXT_LOG;
+                contentType = "text/plain";
+            } else if (format.equals("html")) {
+                logVersion = LogOutputFormat.HTML_LOG;
+                contentType = "text/html";
+            } else if (format.equals("bbcode")) {
+                logVersion = LogOutputFormat.BBCODE_LOG;
+                contentType = "text/plain";
+            } else {
+                sendError(exchange, 400, "Unknown format " + format + ".");
+                return;
+            }
+
+            final LogDataHolder logData = getLogData(ascension);
+            if (!logData.isDetailedLog()) {
+                sendError(exchange, 409, "Only detailed logs can be rendered as textual logs.");
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+
+            final Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                                                                         "UTF-8"),
+                                                  64 * 1024);
+            try {
+                TextLogCreator.writeTextualLog(logData, logVersion, out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Re-parses the mafia logs which changed since they were last cached.
+     */
+    private final class ReparseHandler implements HttpHandler {
+        public void handle(
+                           final HttpExchange exchange)
+                                                       throws IOException {
+            try {
+                if (!exchange.getRequestMethod().equals("POST"))
+                    sendError(exchange, 405, "Only POST requests are supported here.");
+                else if (mafiaLogsDirectory == null)
+                    sendError(exchange, 409, "The server was started without a mafia logs directory.");
+                else if (!reparseLock.tryLock())
+                    sendError(exchange, 409, "A re-parse is already running.");
+                else
+                    try {
+                        final long startTime = System.currentTimeMillis();
+                        final Pair<List<String>, List<Pair<String, Encounter>>> result = reparse();
+
+                        final StringBuilder str = new StringBuilder(1000);
+                        str.append("{\"updated\": [");
+                        for (int i = 0; i < result.getVar1().size(); i++)
+                            str.append(i == 0 ? "" : ", ").append(JSONStrings.quote(result.getVar1().get(i)));
+                        str.append("], \"errors\": [");
+                        for (int i = 0; i < result.getVar2().size(); i++) {
+                            final Pair<String, Encounter> error = result.getVar2().get(i);
+                            str.append(i == 0 ? "" : ", ");
+                            str.append("{\"file\": ").append(JSONStrings.quote(error.getVar1()));
+                            str.append(", \"turn\": ").append(error.getVar2().getTurnNumber()).append("}");
+                        }
+                        str.append("], \"ascensions\": ").append(snapshot.get().ascensions.size());
+                        str.append(", \"elapsedMillis\": ").append(System.currentTimeMillis() - startTime);
+                        str.append("}\n");
+
+                        sendResponse(exchange, 200, "application/json", str.toString());
+                    } finally {
+                        reparseLock.unlock();
+                    }
+            } catch (final IOException e) {
+                e.printStackTrace();
+                sendErrorIfPossible(exchange, 500, "The mafia logs couldn't be read: " + e.getMessage());
+            } catch (final RuntimeException e) {
+                e.printStackTrace();
+                sendErrorIfPossible(exchange, 500, e.toString());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * A cached ascension log file as it was present when a snapshot was taken.
+     */
+    private static final class CachedAscension {
+        final String name;
+
+        final String characterName;
+
+        final File file;
+
+        final long lastModified;
+
+        CachedAscension(
+                        final String characterName, final File file) {
+            this.name = XMLLogCreator.getLogNameFromXMLLogFileName(file.getName());
+            this.characterName = characterName;
+            this.file = file;
+            this.lastModified = file.lastModified();
+        }
+
+        /**
+         * @return {@code true} if the given ascension is the same cached file
+         *         as this one and wasn't changed in the meantime.
+         */
+        boolean isSameVersion(
+                              final CachedAscension other) {
+            return other != null && file.equals(other.file) && lastModified == other.lastModified;
+        }
+    }
+
+    /**
+     * The log data of a cached ascension which is kept in memory.
+     */
+    private static final class WarmLog {
+        final CachedAscension ascension;
+
+        final LogDataHolder logData;
+
+        final long heapEstimate;
+
+        WarmLog(
+                final CachedAscension ascension, final LogDataHolder logData) {
+            this.ascension = ascension;
+            this.logData = logData;
+            heapEstimate = CachedLogsLoader.estimateHeapUsage(ascension.file);
+        }
+    }
+
+    /**
+     * The cached ascensions kept in memory, in the order they were last
+     * requested in. Once their estimated heap usage exceeds the budget, the
+     * least recently requested ones are dropped, but the most recently
+     * requested one is always kept.
+     * <p>
+     * All methods are synchronized on the instance.
+     */
+    private final class WarmLogs {
+        private final long maxHeap;
+
+        private final LinkedHashMap<String, WarmLog> logs = new LinkedHashMap<String, WarmLog>(16,
+                                                                                              0.75f,
+                                                                                              true);
+
+        private long heap;
+
+        WarmLogs(
+                 final long maxHeap) {
+            this.maxHeap = maxHeap;
+        }
+
+        /**
+         * @return The log data of the given ascension, or {@code null} if that
+         *         version of it isn't kept in memory.
+         */
+        synchronized LogDataHolder get(
+                                       final CachedAscension ascension) {
+            final WarmLog warmLog = logs.get(ascension.name);
+
+            return warmLog != null && warmLog.ascension.isSameVersion(ascension) ? warmLog.logData
+                                                                                 : null;
+        }
+
+        /**
+         * Keeps the given log in memory, unless the cache changed since it was
+         * read.
+         */
+        synchronized void put(
+                              final CachedAscension ascension, final LogDataHolder logData) {
+            if (!ascension.isSameVersion(snapshot.get().ascensions.get(ascension.name)))
+                return;
+
+            remove(ascension.name);
+            final WarmLog warmLog = new WarmLog(ascension, logData);
+            logs.put(ascension.name, warmLog);
+            heap += warmLog.heapEstimate;
+
+            final Iterator<WarmLog> leastRecentlyUsed = logs.values().iterator();
+            while (heap > maxHeap && logs.size() > 1) {
+                heap -= leastRecentlyUsed.next().heapEstimate;
+                leastRecentlyUsed.remove();
+            }
+        }
+
+        /**
+         * Drops the logs which aren't part of the given snapshot in the same
+         * version anymore.
+         */
+        synchronized void retainCurrent(
+                                        final ServerSnapshot current) {
+            for (final Iterator<WarmLog> it = logs.values().iterator(); it.hasNext();) {
+                final WarmLog warmLog = it.next();
+                if (!warmLog.ascension.isSameVersion(current.ascensions.get(warmLog.ascension.name))) {
+                    heap -= warmLog.heapEstimate;
+                    it.remove();
+                }
+            }
+        }
+
+        /**
+         * @return The names of the ascensions of the given snapshot which are
+         *         kept in memory.
+         */
+        synchronized Set<String> getNames(
+                                          final ServerSnapshot requestSnapshot) {
+            final Set<String> names = Sets.newHashSet();
+            // Iterating over the values doesn't change their order.
+            for (final WarmLog warmLog : logs.values())
+                if (warmLog.ascension.isSameVersion(requestSnapshot.ascensions.get(warmLog.ascension.name)))
+                    names.add(warmLog.ascension.name);
+
+            return names;
+        }
+
+        private void remove(
+                            final String name) {
+            final WarmLog warmLog = logs.remove(name);
+            if (warmLog != null)
+                heap -= warmLog.heapEstimate;
+        }
+    }
+
+    /**
+     * Immutable view of the cached ascensions at a certain point in time.
+     */
+    private static final class ServerSnapshot {
+        static final ServerSnapshot EMPTY = new ServerSnapshot(Collections.<String, CachedAscension> emptyMap());
+
+        final Map<String, CachedAscension> ascensions;
+
+        private ServerSnapshot(
+                               final Map<String, CachedAscension> ascensions) {
+            this.ascensions = ascensions;
+        }
+
+        /**
+         * @param logsByCharacter
+         *            The cached log files with their character name used as
+         *            the key.
+         * @return A snapshot of the given cached logs.
+         */
+        static ServerSnapshot of(
+                                 final Map<String, List<File>> logsByCharacter) {
+            final Map<String, CachedAscension> ascensions = new TreeMap<String, CachedAscension>(String.CASE_INSENSITIVE_ORDER);
+            for (final String characterName : logsByCharacter.keySet())
+                for (final File f : logsByCharacter.get(characterName)) {
+                    final CachedAscension ascension = new CachedAscension(characterName, f);
+                    ascensions.put(ascension.name, ascension);
+                }
+
+            return new ServerSnapshot(Collections.unmodifiableMap(ascensions));
+        }
+    }
+}
@@ -28,13 +28,19 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 
 import net.java.dev.spellcast.utilities.UtilityConstants;
 
+import com.googlecode.logVisualizer.util.FileReplacement;
+import com.googlecode.logVisualizer.util.WriteBehind;
+
 /**
  * This class handles access to general settings and preferences of the
  * Ascension Log Visualizer.
@@ -67,22 +73,82 @@ import net.java.dev.spellcast.utilities.UtilityConstants;
  * parsed, otherwise FALSE.</li>
  * <li>{@code "Show non-ASCII characters in parsed logs"}: TRUE if non-ASCII
  * characters are to be at all included in parsed logs, otherwise FALSE.</li>
+ * <li>{@code "Print textual log days concurrently"}: TRUE if the days of a
+ * single parsed log are printed on several threads at the same time, otherwise
+ * FALSE. Parsing several logs at once always prints them day after day.</li>
+ * <li>{@code "Compress cached logs"}: TRUE if the Ascension Log XML files of
+ * the logs cache are saved GZIP compressed, otherwise FALSE.</li>
+ * <li>{@code "Batch parsing heap fraction"}: The fraction of the maximum heap
+ * size which the logs parsed at the same time during batch parsing are allowed
+ * to take up, a decimal number between 0 and 1.</li>
+ * <li>{@code "Use virtual threads for I/O"}: Experimental. TRUE if the
+ * I/O-heavy parts of batch parsing, like writing parsed logs, should run on
+ * virtual threads if the Java version supports them, otherwise FALSE.</li>
+ * <li>{@code "Reload externally edited settings"}: TRUE if changes made to the
+ * settings file by other programs while the ALV is running should be picked
+ * up, otherwise FALSE.</li>
  * <li>{@code "First program startup"}: TRUE if this is the very first startup
  * of the ALV on this machine, even spanning different versions, otherwise
  * FALSE.</li>
+ * <p>
+ * The settings are held in memory, reading them is cheap and never blocks.
+ * Changed settings are written to the settings file in the background shortly
+ * after they were set, so that several changes in a row only result in one
+ * write (see {@link WriteBehind}). The file is written to a temporary file
+ * first, which then replaces the settings file (see {@link FileReplacement}),
+ * so the settings file is never left half written. Pending changes are written
+ * when the program exits, or when {@link #flushSettings()} is called.
  */
 public final class Settings {
     private static final String TRUE_STRING = "TRUE";
 
     private static final String FALSE_STRING = "FALSE";
 
+    /**
+     * The time after the first change of a setting after which the settings
+     * file is written. Changes made in the meantime are written along with
+     * it.
+     */
+    private static final long WRITE_DELAY_MILLIS = 500;
+
+    /**
+     * The interval in which the settings file is checked for external edits,
+     * if the {@code "Reload externally edited settings"} setting is turned on.
+     */
+    private static final long EXTERNAL_EDITS_CHECK_INTERVAL_MILLIS = 2000;
+
     private static final Properties DEFAULT_SETTINGS = new Properties();
 
+    private static final ConcurrentMap<String, String> SETTINGS = new ConcurrentHashMap<String, String>();
+
+    private static final Object FILE_LOCK = new Object();
+
+    /**
+     * Guards changes of the settings against them being replaced by a reload
+     * of externally edited settings at the same time.
+     */
+    private static final Object MODIFICATION_LOCK = new Object();
+
+    private static final WriteBehind SETTINGS_WRITER = new WriteBehind(new Runnable() {
+        public void run() {
+            saveSettingsToFile();
+        }
+    }, WRITE_DELAY_MILLIS);
+
     private static final File SETTINGS_FILE;
 
+    private static final File TEMP_SETTINGS_FILE;
+
+    /**
+     * The modification time of the settings file after it was last written or
+     * read by this class.
+     */
+    private static volatile long settingsFileLastModified;
+
     static {
         SETTINGS_FILE = new File(UtilityConstants.ROOT_DIRECTORY + File.separator
                 + UtilityConstants.DATA_DIRECTORY + "ALV settings.txt");
+        TEMP_SETTINGS_FILE = new File(SETTINGS_FILE.getPath() + ".tmp");
 
         boolean isNimbusLafPresent = false;
         for (final LookAndFeelInfo lafi : UIManager.getInstalledLookAndFeels())
@@ -110,49 +176,68 @@ public final class Settings {
         DEFAULT_SETTINGS.setProperty("Using old ascension counting", FALSE_STRING);
         DEFAULT_SETTINGS.setProperty("Include mafia log notes", TRUE_STRING);
         DEFAULT_SETTINGS.setProperty("Show non-ASCII characters in parsed logs", TRUE_STRING);
+        DEFAULT_SETTINGS.setProperty("Print textual log days concurrently", FALSE_STRING);
+        DEFAULT_SETTINGS.setProperty("Compress cached logs", TRUE_STRING);
+        DEFAULT_SETTINGS.setProperty("Batch parsing heap fraction", "0.5");
+        DEFAULT_SETTINGS.setProperty("Use virtual threads for I/O", FALSE_STRING);
+        DEFAULT_SETTINGS.setProperty("Reload externally edited settings", FALSE_STRING);
 
         DEFAULT_SETTINGS.setProperty("First program startup", TRUE_STRING);
 
+        FileReplacement.restoreInterruptedReplacement(SETTINGS_FILE);
+
         // If settings file hasn't been created yet, create it with default
         // values. Otherwise only make sure that the version number is correct.
         if (SETTINGS_FILE.exists())
             try {
-                final Properties p = new Properties();
-                final FileInputStream fis = new FileInputStream(SETTINGS_FILE);
-                p.load(fis);
-                fis.close();
+                putAll(loadSettingsFromFile());
 
                 // The version and XML format version properties have to be set
                 // anyway, so that they hold the correct version string.
-                p.setProperty("Version", DEFAULT_SETTINGS.getProperty("Version"));
-                p.setProperty("XML format version",
+                SETTINGS.put("Version", DEFAULT_SETTINGS.getProperty("Version"));
+                SETTINGS.put("XML format version",
                         DEFAULT_SETTINGS.getProperty("XML format version"));
-
-                saveSettingsToFile(p);
             } catch (final IOException e) {
                 e.printStackTrace();
                 // In case something went wrong go back to default values.
-                saveSettingsToFile(DEFAULT_SETTINGS);
+                SETTINGS.clear();
+                putAll(DEFAULT_SETTINGS);
             }
         else
-            saveSettingsToFile(DEFAULT_SETTINGS);
+            putAll(DEFAULT_SETTINGS);
+        saveSettingsToFile();
+
+        if (getSettingBoolean("Reload externally edited settings"))
+            WriteBehind.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    reloadExternallyEditedSettings();
+                }
+            }, EXTERNAL_EDITS_CHECK_INTERVAL_MILLIS);
     }
 
     /**
-     * Writes the given Properties object to the file system.
+     * Writes the current settings to the file system. The settings are first
+     * written to a temporary file, which then replaces the settings file.
      */
-    private static void saveSettingsToFile(
-            final Properties p) {
-        synchronized (DEFAULT_SETTINGS) {
+    private static void saveSettingsToFile() {
+        final Properties p = new Properties();
+        for (final Entry<String, String> e : SETTINGS.entrySet())
+            p.setProperty(e.getKey(), e.getValue());
+
+        synchronized (FILE_LOCK) {
             try {
-                SETTINGS_FILE.delete();
-                SETTINGS_FILE.createNewFile();
-
-                final FileOutputStream fos = new FileOutputStream(SETTINGS_FILE);
-                p.store(fos, "This file stores the settings of the Ascension Log Visualizer."
-                        + System.getProperty("line.separator")
-                        + "#It is not advisable to edit this file by hand.");
-                fos.close();
+                final FileOutputStream fos = new FileOutputStream(TEMP_SETTINGS_FILE);
+                try {
+                    p.store(fos, "This file stores the settings of the Ascension Log Visualizer."
+                            + System.getProperty("line.separator")
+                            + "#It is not advisable to edit this file by hand.");
+                } finally {
+                    fos.close();
+                }
+
+                FileReplacement.replace(TEMP_SETTINGS_FILE, SETTINGS_FILE);
+
+                settingsFileLastModified = SETTINGS_FILE.lastModified();
             } catch (final IOException e) {
                 e.printStackTrace();
             }
@@ -160,23 +245,72 @@ public final class Settings {
     }
 
     /**
-     * Loads the current Properties from the file system.
+     * Loads the Properties saved in the settings file.
      */
     private static Properties loadSettingsFromFile()
             throws IOException {
-        final Properties p = new Properties(DEFAULT_SETTINGS);
+        final Properties p = new Properties();
 
-        synchronized (DEFAULT_SETTINGS) {
+        synchronized (FILE_LOCK) {
+            final long lastModified = SETTINGS_FILE.lastModified();
             final FileInputStream fis = new FileInputStream(SETTINGS_FILE);
-            p.load(fis);
-            fis.close();
+            try {
+                p.load(fis);
+            } finally {
+                fis.close();
+            }
+
+            settingsFileLastModified = lastModified;
         }
 
         return p;
     }
 
     /**
-     * Will set the specified setting to the new value.
+     * Replaces the settings in memory with the ones in the settings file if
+     * the file was changed by somebody else since it was last written or read.
+     * Nothing is done while changes are waiting to be written, as these would
+     * overwrite the external edits anyway.
+     * <p>
+     * The check and the replacement are done while holding the same lock as
+     * {@link #setSettingString(String, String)}, so a setting changed in
+     * between is never lost.
+     */
+    private static void reloadExternallyEditedSettings() {
+        synchronized (MODIFICATION_LOCK) {
+            if (SETTINGS_WRITER.isWritePending() || !SETTINGS_FILE.exists()
+                    || SETTINGS_FILE.lastModified() == settingsFileLastModified)
+                return;
+
+            try {
+                final Properties p = loadSettingsFromFile();
+
+                putAll(p);
+                SETTINGS.keySet().retainAll(p.stringPropertyNames());
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void putAll(
+            final Properties p) {
+        for (final String key : p.stringPropertyNames())
+            SETTINGS.put(key, p.getProperty(key));
+    }
+
+    /**
+     * Writes changed settings which are still waiting to be written to the
+     * settings file right away. A write which is already running is waited
+     * for. This method returns after they were written.
+     */
+    public static void flushSettings() {
+        SETTINGS_WRITER.flush();
+    }
+
+    /**
+     * Will set the specified setting to the new value. The settings file is
+     * written in the background shortly afterwards.
      *
      * @param key
      *            The name of the setting.
@@ -185,12 +319,11 @@ public final class Settings {
      */
     public static void setSettingString(
             final String key, final String value) {
-        try {
-            final Properties p = loadSettingsFromFile();
-            p.setProperty(key, value);
-            saveSettingsToFile(p);
-        } catch (final IOException e) {
-            e.printStackTrace();
+        synchronized (MODIFICATION_LOCK) {
+            if (value.equals(SETTINGS.put(key, value)))
+                return;
+
+            SETTINGS_WRITER.scheduleWrite();
         }
     }
 
@@ -198,27 +331,17 @@ public final class Settings {
      * @param key
      *            The name of the setting.
      * @return The value of the setting. Returns {@code null} if the setting
-     *         doesn't exist or there was a problem with reading the settings
-     *         file.
+     *         doesn't exist.
      */
     public static String getSettingString(
             final String key) {
-        String value = null;
+        final String value = SETTINGS.get(key);
 
-        try {
-            value = loadSettingsFromFile().getProperty(key);
-        } catch (final IOException e) {
-            e.printStackTrace();
-        }
-
-        return value;
+        return value != null ? value : DEFAULT_SETTINGS.getProperty(key);
     }
 
     /**
      * Will set the specified setting to the new value.
-     * <p>
-     * Note that settings which aren't already present inside the settings file
-     * will be ignored.
      *
      * @param key
      *            The name of the setting.
@@ -238,7 +361,7 @@ public final class Settings {
      *            The name of the setting.
      * @return True if the value string of the setting is equal to TRUE,
      *         otherwise false. Returns {@code null} if the setting doesn't
-     *         exist or there was a problem with reading the settings file.
+     *         exist.
      */
     public static Boolean getSettingBoolean(
             final String key) {
@@ -250,6 +373,28 @@ public final class Settings {
         return value.equals(TRUE_STRING) ? Boolean.TRUE : Boolean.FALSE;
     }
 
+    /**
+     * @param key
+     *            The name of the setting.
+     * @param defaultValue
+     *            The value to return if the setting doesn't hold a number.
+     * @return The value of the setting as a number. Returns the given default
+     *         value if the setting doesn't exist or isn't a number.
+     */
+    public static double getSettingDouble(
+            final String key, final double defaultValue) {
+        final String value = getSettingString(key);
+
+        if (value == null)
+            return defaultValue;
+
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     // This class is not to be instanced.
     private Settings() {}
 }
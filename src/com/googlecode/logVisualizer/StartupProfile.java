@@ -0,0 +1,158 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.googlecode.logVisualizer.util.Lists;
+
+/**
+ * This class records how long the phases of the program start-up take. The
+ * phases are always recorded, as that is cheap, but they are only reported if
+ * the program was started with the {@code -startup-profile} flag.
+ * <p>
+ * A phase is timed by taking the time at its start with {@link #startPhase()}
+ * and handing it to {@link #endPhase(String, long)} once it is done. Phases
+ * may be recorded concurrently from several threads.
+ * <p>
+ * All methods in this class are thread-safe.
+ */
+public final class StartupProfile {
+    private static final long START_NANOS = System.nanoTime();
+
+    private static final List<Phase> PHASES = Collections.synchronizedList(Lists.<Phase> newArrayList());
+
+    private static volatile boolean isEnabled = false;
+
+    // This class is not to be instanced.
+    private StartupProfile() {}
+
+    /**
+     * @param isEnabled
+     *            True if the recorded phases should be reported, otherwise
+     *            false.
+     */
+    public static void setEnabled(
+                                  final boolean isEnabled) {
+        StartupProfile.isEnabled = isEnabled;
+    }
+
+    /**
+     * @return True if the recorded phases should be reported, otherwise false.
+     */
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * @return The start time of a phase, to be handed to
+     *         {@link #endPhase(String, long)}.
+     */
+    public static long startPhase() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a phase which just ended.
+     * 
+     * @param name
+     *            The name of the phase.
+     * @param startNanos
+     *            The start time of the phase, as returned by
+     *            {@link #startPhase()}.
+     */
+    public static void endPhase(
+                                final String name, final long startNanos) {
+        PHASES.add(new Phase(name,
+                             Thread.currentThread().getName(),
+                             startNanos - START_NANOS,
+                             System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Prints the recorded phases in the order they ended, if reporting is
+     * enabled. The start of a phase is given relative to the moment the
+     * start-up profiling began, which is shortly after the start of the
+     * program.
+     * 
+     * @param out
+     *            The stream to print the report to.
+     */
+    public static void printReport(
+                                   final PrintStream out) {
+        if (!isEnabled)
+            return;
+
+        final StringBuilder str = new StringBuilder(1000);
+        str.append("Start-up profile (profiling began ");
+        str.append(ManagementFactory.getRuntimeMXBean().getUptime()
+                   - (System.nanoTime() - START_NANOS) / 1000000);
+        str.append(" ms after the start of the JVM):");
+        str.append(System.getProperty("line.separator"));
+        str.append(String.format(Locale.US, "%10s %10s  %-30s %s", "start ms", "took ms", "phase", "thread"));
+        str.append(System.getProperty("line.separator"));
+
+        synchronized (PHASES) {
+            for (final Phase p : PHASES) {
+                str.append(String.format(Locale.US,
+                                         "%10.1f %10.1f  %-30s %s",
+                                         p.startNanos / 1e6,
+                                         p.durationNanos / 1e6,
+                                         p.name,
+                                         p.threadName));
+                str.append(System.getProperty("line.separator"));
+            }
+        }
+
+        out.print(str);
+    }
+
+    /**
+     * A single recorded phase.
+     */
+    private static final class Phase {
+        final String name;
+
+        final String threadName;
+
+        final long startNanos;
+
+        final long durationNanos;
+
+        Phase(
+              final String name, final String threadName, final long startNanos,
+              final long durationNanos) {
+            this.name = name;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+        }
+    }
+}
@@ -0,0 +1,548 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.chart;
+
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.Map;
+
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.DomainInfo;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.general.DatasetChangeListener;
+import org.jfree.data.general.DatasetUtilities;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+import org.jfree.data.xy.IntervalXYDataset;
+import org.jfree.data.xy.XYDataset;
+
+import com.googlecode.logVisualizer.util.Maps;
+
+/**
+ * A dataset which wraps another XY dataset and only hands out a sample of its
+ * data points, so charts of long logs with one data point per turn don't have
+ * to draw thousands of points or bars per pixel when they are zoomed out.
+ * <p>
+ * The data points are put into buckets which are a power of two domain units
+ * wide, roughly one pixel of the chart each. Depending on the used
+ * {@link SamplingMethod}, one or a few data points of every bucket make it into
+ * the sample. As long as there are less than two domain units per pixel, all
+ * data points of the wrapped dataset are handed out.
+ * <p>
+ * Every sample is made up of the same data points of all series, so an item
+ * index still refers to the same domain value in every series. Because of
+ * that, this class only samples the wrapped dataset if all its series have the
+ * same domain values in ascending order, which is the case for charts with one
+ * data point per turn. Otherwise, it simply hands out all data points.
+ * <p>
+ * The bounds of the dataset are always those of the wrapped dataset, so the
+ * axes of the chart don't change when the sample changes.
+ */
+public final class DownsampledXYDataset extends AbstractIntervalXYDataset implements DomainInfo,
+        RangeInfo, DatasetChangeListener {
+    /**
+     * The highest sampling level used. Buckets on this level are 2^16 domain
+     * units wide, which is far more than any log will ever need.
+     */
+    private static final int MAX_SAMPLING_LEVEL = 16;
+
+    private final XYDataset dataset;
+
+    private final SamplingMethod samplingMethod;
+
+    private final Map<Integer, Sample> samples = Maps.newHashMap();
+
+    private boolean isSampleable;
+
+    private int samplingLevel;
+
+    private Sample sample;
+
+    /**
+     * @param dataset
+     *            The dataset to be sampled.
+     * @param samplingMethod
+     *            The method used to choose the data points of the sample.
+     */
+    public DownsampledXYDataset(
+                                final XYDataset dataset, final SamplingMethod samplingMethod) {
+        if (dataset == null)
+            throw new NullPointerException("The dataset must not be null.");
+        if (samplingMethod == null)
+            throw new NullPointerException("The sampling method must not be null.");
+
+        this.dataset = dataset;
+        this.samplingMethod = samplingMethod;
+        isSampleable = checkSampleable();
+
+        dataset.addChangeListener(this);
+    }
+
+    /**
+     * @return The wrapped dataset.
+     */
+    public XYDataset getUnderlyingDataset() {
+        return dataset;
+    }
+
+    /**
+     * Sets the sample handed out by this dataset to fit the given scale and
+     * notifies all listeners if the sample changed.
+     * 
+     * @param domainUnitsPerPixel
+     *            The number of domain units, usually turns, displayed per pixel
+     *            of the chart.
+     * @return True if the sample changed, otherwise false.
+     */
+    public boolean setDomainUnitsPerPixel(
+                                          final double domainUnitsPerPixel) {
+        int level = 0;
+        while (level < MAX_SAMPLING_LEVEL && 1 << level + 1 <= domainUnitsPerPixel)
+            level++;
+
+        if (level == samplingLevel)
+            return false;
+
+        samplingLevel = level;
+        sample = isSampleable && level > 0 ? getSample(level) : null;
+        fireDatasetChanged();
+
+        return true;
+    }
+
+    /**
+     * @return The current sampling level. Buckets are 2^level domain units
+     *         wide, a level of 0 means that all data points are handed out.
+     */
+    public int getSamplingLevel() {
+        return samplingLevel;
+    }
+
+    /**
+     * Adds listeners to the given chart panel which update the sample of this
+     * dataset whenever the domain axis of the chart is zoomed or the chart
+     * panel is resized. The chart of the given panel has to be an
+     * {@link XYPlot} with this dataset as its dataset.
+     */
+    public void addZoomListeners(
+                                 final ChartPanel cp) {
+        ((XYPlot) cp.getChart().getPlot()).getDomainAxis()
+                                          .addChangeListener(new AxisChangeListener() {
+                                              public void axisChanged(
+                                                                      final AxisChangeEvent event) {
+                                                  updateSample(cp);
+                                              }
+                                          });
+        cp.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(
+                                         final ComponentEvent e) {
+                updateSample(cp);
+            }
+        });
+    }
+
+    private void updateSample(
+                              final ChartPanel cp) {
+        // Before the chart was drawn for the first time, the size of its data
+        // area isn't known yet, so the width of the whole panel has to do.
+        double dataAreaWidth = cp.getScreenDataArea().getWidth();
+        if (dataAreaWidth <= 0)
+            dataAreaWidth = cp.getWidth();
+        if (dataAreaWidth <= 0)
+            return;
+
+        final Range domainRange = ((XYPlot) cp.getChart().getPlot()).getDomainAxis().getRange();
+        setDomainUnitsPerPixel(domainRange.getLength() / dataAreaWidth);
+    }
+
+    /**
+     * Checks whether all series of the wrapped dataset have the same domain
+     * values in ascending order.
+     */
+    private boolean checkSampleable() {
+        final int seriesCount = dataset.getSeriesCount();
+        if (seriesCount == 0)
+            return false;
+
+        final int itemCount = dataset.getItemCount(0);
+        for (int i = 1; i < itemCount; i++)
+            if (dataset.getXValue(0, i) < dataset.getXValue(0, i - 1))
+                return false;
+
+        for (int s = 1; s < seriesCount; s++) {
+            if (dataset.getItemCount(s) != itemCount)
+                return false;
+            for (int i = 0; i < itemCount; i++)
+                if (dataset.getXValue(s, i) != dataset.getXValue(0, i))
+                    return false;
+        }
+
+        return true;
+    }
+
+    private Sample getSample(
+                             final int level) {
+        Sample levelSample = samples.get(level);
+        if (levelSample == null) {
+            levelSample = samplingMethod == SamplingMethod.LARGEST_TRIANGLE_THREE_BUCKETS ? createLargestTriangleSample(1 << level)
+                                                                                            : createMinMaxSample(1 << level);
+            samples.put(level, levelSample);
+        }
+
+        return levelSample;
+    }
+
+    /**
+     * @return The index of the first item of every bucket of the given width
+     *         between the given items, followed by the given end index.
+     */
+    private int[] getBucketStarts(
+                                  final int firstItem, final int endItem,
+                                  final double bucketWidth) {
+        final int[] buffer = new int[endItem - firstItem + 1];
+        int bucketCount = 0;
+        long currentBucket = Long.MIN_VALUE;
+        for (int i = firstItem; i < endItem; i++) {
+            final long bucket = (long) Math.floor(dataset.getXValue(0, i) / bucketWidth);
+            if (bucket != currentBucket) {
+                buffer[bucketCount++] = i;
+                currentBucket = bucket;
+            }
+        }
+        buffer[bucketCount] = endItem;
+
+        final int[] bucketStarts = new int[bucketCount + 1];
+        System.arraycopy(buffer, 0, bucketStarts, 0, bucketCount + 1);
+
+        return bucketStarts;
+    }
+
+    /**
+     * Creates a sample using the largest-triangle-three-buckets algorithm on
+     * every series. The first and last data points are always part of the
+     * sample, from every bucket in between the data point is picked which
+     * forms the largest triangle with the data point picked from the previous
+     * bucket and the average of the next bucket.
+     */
+    private Sample createLargestTriangleSample(
+                                               final double bucketWidth) {
+        final int itemCount = dataset.getItemCount(0);
+        final boolean[] isSampled = new boolean[itemCount];
+        if (itemCount <= 2) {
+            for (int i = 0; i < itemCount; i++)
+                isSampled[i] = true;
+            return new Sample(isSampled, false);
+        }
+
+        final int[] bucketStarts = getBucketStarts(1, itemCount - 1, bucketWidth);
+        final int bucketCount = bucketStarts.length - 1;
+
+        isSampled[0] = true;
+        isSampled[itemCount - 1] = true;
+        for (int s = 0; s < dataset.getSeriesCount(); s++) {
+            int previousItem = 0;
+            for (int b = 0; b < bucketCount; b++) {
+                // The average of the next bucket, or the last data point if
+                // this is the last bucket.
+                double nextX = 0;
+                double nextY = 0;
+                if (b + 1 < bucketCount) {
+                    final int nextStart = bucketStarts[b + 1];
+                    final int nextEnd = bucketStarts[b + 2];
+                    for (int i = nextStart; i < nextEnd; i++) {
+                        nextX += dataset.getXValue(s, i);
+                        nextY += getYValueOrZero(s, i);
+                    }
+                    nextX /= nextEnd - nextStart;
+                    nextY /= nextEnd - nextStart;
+                } else {
+                    nextX = dataset.getXValue(s, itemCount - 1);
+                    nextY = getYValueOrZero(s, itemCount - 1);
+                }
+
+                final double previousX = dataset.getXValue(s, previousItem);
+                final double previousY = getYValueOrZero(s, previousItem);
+                int largestItem = bucketStarts[b];
+                double largestArea = -1;
+                for (int i = bucketStarts[b]; i < bucketStarts[b + 1]; i++) {
+                    // Twice the area of the triangle, which is just as good
+                    // for comparisons.
+                    final double area = Math.abs((previousX - nextX)
+                                                 * (getYValueOrZero(s, i) - previousY)
+                                                 - (previousX - dataset.getXValue(s, i))
+                                                 * (nextY - previousY));
+                    if (area > largestArea) {
+                        largestArea = area;
+                        largestItem = i;
+                    }
+                }
+
+                isSampled[largestItem] = true;
+                previousItem = largestItem;
+            }
+        }
+
+        return new Sample(isSampled, false);
+    }
+
+    /**
+     * Creates a sample which holds the data points with the smallest and the
+     * largest value of every series from every bucket. The data points picked
+     * from a bucket share its width between them, so the bars of a bar chart
+     * still cover the whole domain range instead of leaving gaps.
+     */
+    private Sample createMinMaxSample(
+                                      final double bucketWidth) {
+        final int itemCount = dataset.getItemCount(0);
+        final boolean[] isSampled = new boolean[itemCount];
+        final int[] bucketStarts = getBucketStarts(0, itemCount, bucketWidth);
+
+        for (int b = 0; b < bucketStarts.length - 1; b++)
+            for (int s = 0; s < dataset.getSeriesCount(); s++) {
+                int minItem = bucketStarts[b];
+                int maxItem = bucketStarts[b];
+                for (int i = bucketStarts[b] + 1; i < bucketStarts[b + 1]; i++) {
+                    final double y = getYValueOrZero(s, i);
+                    if (y < getYValueOrZero(s, minItem))
+                        minItem = i;
+                    if (y > getYValueOrZero(s, maxItem))
+                        maxItem = i;
+                }
+
+                isSampled[minItem] = true;
+                isSampled[maxItem] = true;
+            }
+
+        final Sample minMaxSample = new Sample(isSampled, true);
+        int sampleItem = 0;
+        for (int b = 0; b < bucketStarts.length - 1; b++) {
+            final int firstSampleItem = sampleItem;
+            while (sampleItem < minMaxSample.items.length
+                   && minMaxSample.items[sampleItem] < bucketStarts[b + 1])
+                sampleItem++;
+
+            final double bucketStart = getUnderlyingStartXValue(bucketStarts[b]);
+            final double bucketEnd = getUnderlyingEndXValue(bucketStarts[b + 1] - 1);
+            final double share = (bucketEnd - bucketStart) / (sampleItem - firstSampleItem);
+            for (int i = firstSampleItem; i < sampleItem; i++) {
+                minMaxSample.startXValues[i] = bucketStart + (i - firstSampleItem) * share;
+                minMaxSample.endXValues[i] = bucketStart + (i - firstSampleItem + 1) * share;
+            }
+        }
+
+        return minMaxSample;
+    }
+
+    private double getYValueOrZero(
+                                   final int series, final int item) {
+        final double y = dataset.getYValue(series, item);
+        return Double.isNaN(y) ? 0 : y;
+    }
+
+    private double getUnderlyingStartXValue(
+                                            final int item) {
+        return dataset instanceof IntervalXYDataset ? ((IntervalXYDataset) dataset).getStartXValue(0,
+                                                                                                    item)
+                                                    : dataset.getXValue(0, item);
+    }
+
+    private double getUnderlyingEndXValue(
+                                          final int item) {
+        return dataset instanceof IntervalXYDataset ? ((IntervalXYDataset) dataset).getEndXValue(0,
+                                                                                                  item)
+                                                    : dataset.getXValue(0, item);
+    }
+
+    private int getUnderlyingItem(
+                                  final int item) {
+        return sample != null ? sample.items[item] : item;
+    }
+
+    /**
+     * The sample of the wrapped dataset has to be created again if the wrapped
+     * dataset changes.
+     */
+    public void datasetChanged(
+                               final DatasetChangeEvent event) {
+        samples.clear();
+        isSampleable = checkSampleable();
+        sample = isSampleable && samplingLevel > 0 ? getSample(samplingLevel) : null;
+        fireDatasetChanged();
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return dataset.getSeriesCount();
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Comparable getSeriesKey(
+                                   final int series) {
+        return dataset.getSeriesKey(series);
+    }
+
+    @Override
+    public DomainOrder getDomainOrder() {
+        return dataset.getDomainOrder();
+    }
+
+    public int getItemCount(
+                            final int series) {
+        return sample != null ? sample.items.length : dataset.getItemCount(series);
+    }
+
+    public Number getX(
+                       final int series, final int item) {
+        return dataset.getX(series, getUnderlyingItem(item));
+    }
+
+    public Number getY(
+                       final int series, final int item) {
+        return dataset.getY(series, getUnderlyingItem(item));
+    }
+
+    public Number getStartX(
+                            final int series, final int item) {
+        if (sample != null && sample.startXValues != null)
+            return Double.valueOf(sample.startXValues[item]);
+
+        return dataset instanceof IntervalXYDataset ? ((IntervalXYDataset) dataset).getStartX(series,
+                                                                                               getUnderlyingItem(item))
+                                                    : getX(series, item);
+    }
+
+    public Number getEndX(
+                          final int series, final int item) {
+        if (sample != null && sample.endXValues != null)
+            return Double.valueOf(sample.endXValues[item]);
+
+        return dataset instanceof IntervalXYDataset ? ((IntervalXYDataset) dataset).getEndX(series,
+                                                                                             getUnderlyingItem(item))
+                                                    : getX(series, item);
+    }
+
+    public Number getStartY(
+                            final int series, final int item) {
+        return dataset instanceof IntervalXYDataset ? ((IntervalXYDataset) dataset).getStartY(series,
+                                                                                               getUnderlyingItem(item))
+                                                    : getY(series, item);
+    }
+
+    public Number getEndY(
+                          final int series, final int item) {
+        return dataset instanceof IntervalXYDataset ? ((IntervalXYDataset) dataset).getEndY(series,
+                                                                                             getUnderlyingItem(item))
+                                                    : getY(series, item);
+    }
+
+    public Range getDomainBounds(
+                                 final boolean includeInterval) {
+        return DatasetUtilities.findDomainBounds(dataset, includeInterval);
+    }
+
+    public double getDomainLowerBound(
+                                      final boolean includeInterval) {
+        final Range bounds = getDomainBounds(includeInterval);
+        return bounds != null ? bounds.getLowerBound() : Double.NaN;
+    }
+
+    public double getDomainUpperBound(
+                                      final boolean includeInterval) {
+        final Range bounds = getDomainBounds(includeInterval);
+        return bounds != null ? bounds.getUpperBound() : Double.NaN;
+    }
+
+    public Range getRangeBounds(
+                                final boolean includeInterval) {
+        return DatasetUtilities.findRangeBounds(dataset, includeInterval);
+    }
+
+    public double getRangeLowerBound(
+                                     final boolean includeInterval) {
+        final Range bounds = getRangeBounds(includeInterval);
+        return bounds != null ? bounds.getLowerBound() : Double.NaN;
+    }
+
+    public double getRangeUpperBound(
+                                     final boolean includeInterval) {
+        final Range bounds = getRangeBounds(includeInterval);
+        return bounds != null ? bounds.getUpperBound() : Double.NaN;
+    }
+
+    /**
+     * The methods which can be used to pick the data points of a sample.
+     */
+    public static enum SamplingMethod {
+        /**
+         * Picks one data point per bucket which keeps the visual shape of the
+         * line best. Meant to be used for line charts.
+         */
+        LARGEST_TRIANGLE_THREE_BUCKETS,
+
+        /**
+         * Picks the data points with the smallest and largest values per
+         * bucket, so no peak gets lost. Meant to be used for bar charts.
+         */
+        MIN_MAX_BUCKETS;
+    }
+
+    /**
+     * The items of the wrapped dataset which make up a sample, together with
+     * the domain intervals of the sampled data points if they differ from
+     * those of the wrapped dataset.
+     */
+    private static final class Sample {
+        final int[] items;
+
+        final double[] startXValues;
+
+        final double[] endXValues;
+
+        Sample(
+               final boolean[] isSampled, final boolean hasOwnIntervals) {
+            int count = 0;
+            for (final boolean b : isSampled)
+                if (b)
+                    count++;
+
+            items = new int[count];
+            int index = 0;
+            for (int i = 0; i < isSampled.length; i++)
+                if (isSampled[i])
+                    items[index++] = i;
+
+            startXValues = hasOwnIntervals ? new double[count] : null;
+            endXValues = hasOwnIntervals ? new double[count] : null;
+        }
+    }
+}
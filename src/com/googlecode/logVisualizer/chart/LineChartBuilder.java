@@ -38,6 +38,7 @@ import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.xy.XYDataset;
 import org.jfree.ui.RectangleInsets;
 
+import com.googlecode.logVisualizer.chart.DownsampledXYDataset.SamplingMethod;
 import com.googlecode.logVisualizer.logData.LogDataHolder;
 
 public abstract class LineChartBuilder extends AbstractChart {
@@ -95,8 +96,19 @@ public abstract class LineChartBuilder extends AbstractChart {
         return chart;
     }
 
+    /**
+     * The chart only gets a sample of the dataset returned by
+     * {@link #createDataset()}, which is updated whenever the chart is zoomed.
+     * This keeps the chart responsive on long logs with one data point per
+     * turn, see {@link DownsampledXYDataset}.
+     */
     @Override
     protected ChartPanel createChartPanel() {
-        return new ChartPanel(createChart(createDataset()), false);
+        final DownsampledXYDataset dataset = new DownsampledXYDataset(createDataset(),
+                                                                      SamplingMethod.LARGEST_TRIANGLE_THREE_BUCKETS);
+        final ChartPanel panel = new ChartPanel(createChart(dataset), false);
+        dataset.addZoomListeners(panel);
+
+        return panel;
     }
 }
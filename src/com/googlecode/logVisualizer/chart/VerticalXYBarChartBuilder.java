@@ -35,6 +35,7 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.data.xy.IntervalXYDataset;
 
+import com.googlecode.logVisualizer.chart.DownsampledXYDataset.SamplingMethod;
 import com.googlecode.logVisualizer.logData.LogDataHolder;
 
 public abstract class VerticalXYBarChartBuilder extends AbstractChart {
@@ -89,8 +90,18 @@ public abstract class VerticalXYBarChartBuilder extends AbstractChart {
         return chart;
     }
 
+    /**
+     * When zoomed out, the chart only shows the highest and lowest bars of
+     * every few turns of the dataset returned by {@link #createDataset()}, see
+     * {@link DownsampledXYDataset}.
+     */
     @Override
     protected ChartPanel createChartPanel() {
-        return new ChartPanel(createChart(createDataset()), false);
+        final DownsampledXYDataset dataset = new DownsampledXYDataset(createDataset(),
+                                                                      SamplingMethod.MIN_MAX_BUCKETS);
+        final ChartPanel panel = new ChartPanel(createChart(dataset), false);
+        dataset.addZoomListeners(panel);
+
+        return panel;
     }
 }
@@ -39,6 +39,12 @@ public final class AreaInterval {
 
     private List<TurnInterval> subIntervals = Lists.newArrayList();
 
+    /**
+     * The sub-intervals merged for the different detail levels, starting with
+     * level 1. Levels are only computed once they are asked for.
+     */
+    private final List<List<TurnInterval>> mergedSubIntervals = Lists.newArrayList();
+
     public AreaInterval(
                         final TurnInterval area, final String areaIntervalName) {
         name = areaIntervalName;
@@ -72,6 +78,7 @@ public final class AreaInterval {
             endTurn = interval.getEndTurn();
 
         subIntervals.add(interval);
+        mergedSubIntervals.clear();
     }
 
     public TurnInterval getSubInterval(
@@ -82,12 +89,66 @@ public final class AreaInterval {
     public void setSubIntervals(
                                 final List<TurnInterval> subIntervals) {
         this.subIntervals = subIntervals;
+        mergedSubIntervals.clear();
     }
 
     public List<TurnInterval> getSubIntervals() {
         return subIntervals;
     }
 
+    /**
+     * Returns the sub-intervals of this area interval at the given detail
+     * level. At level 0, these are the sub-intervals themselves. At level
+     * {@code n}, sub-intervals which are at most 2^n - 1 turns apart are
+     * merged into one, so fragmented areas consist of fewer intervals the
+     * lower the level of detail is.
+     * 
+     * @param detailLevel
+     *            The detail level, 0 being the most detailed.
+     * @return The sub-intervals at the given detail level.
+     */
+    public List<TurnInterval> getSubIntervals(
+                                              final int detailLevel) {
+        if (detailLevel <= 0)
+            return subIntervals;
+
+        // Each level is merged from the previous one, as merging with a larger
+        // gap gives the same result either way, but has less to go through.
+        while (mergedSubIntervals.size() < detailLevel) {
+            final int level = mergedSubIntervals.size() + 1;
+            mergedSubIntervals.add(mergeSubIntervals(getSubIntervals(level - 1), (1 << level) - 1));
+        }
+
+        return mergedSubIntervals.get(detailLevel - 1);
+    }
+
+    private List<TurnInterval> mergeSubIntervals(
+                                                 final List<TurnInterval> intervals,
+                                                 final int maximumGap) {
+        final List<TurnInterval> result = Lists.newArrayList(intervals.size());
+
+        int start = 0;
+        int end = 0;
+        boolean isMerging = false;
+        for (final TurnInterval ti : intervals)
+            if (isMerging && ti.getStartTurn() - end <= maximumGap)
+                end = Math.max(end, ti.getEndTurn());
+            else {
+                if (isMerging)
+                    result.add(new SimpleTurnInterval(name, start, end));
+
+                start = ti.getStartTurn();
+                end = ti.getEndTurn();
+                isMerging = true;
+            }
+
+        if (isMerging)
+            result.add(new SimpleTurnInterval(name, start, end));
+
+        // Don't keep copies of levels that didn't merge anything.
+        return result.size() == intervals.size() ? intervals : result;
+    }
+
     @Override
     public boolean equals(
                           final Object o) {
@@ -28,6 +28,8 @@ import java.awt.BasicStroke;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Paint;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.io.File;
 import java.io.IOException;
 import java.text.NumberFormat;
@@ -43,11 +45,14 @@ import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
 import org.jfree.chart.labels.IntervalCategoryToolTipGenerator;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.plot.IntervalMarker;
 import org.jfree.chart.plot.ValueMarker;
 import org.jfree.chart.renderer.category.CategoryItemRenderer;
+import org.jfree.data.Range;
 import org.jfree.data.gantt.SlidingGanttCategoryDataset;
 import org.jfree.ui.Layer;
 import org.jfree.ui.RectangleAnchor;
@@ -242,6 +247,44 @@ public abstract class GanttChartBuilder extends AbstractChart {
         add(scrollBar, BorderLayout.EAST);
     }
 
+    /**
+     * Keeps the level of detail of the dataset fitting to the displayed range
+     * of turns, which changes whenever the chart is zoomed or resized.
+     */
+    @Override
+    protected void addChartPanelListeners(
+                                          final ChartPanel cp) {
+        cp.getChart().getCategoryPlot().getRangeAxis().addChangeListener(new AxisChangeListener() {
+            public void axisChanged(
+                                    final AxisChangeEvent event) {
+                updateDetailLevel(cp);
+            }
+        });
+        cp.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(
+                                         final ComponentEvent e) {
+                updateDetailLevel(cp);
+            }
+        });
+    }
+
+    private void updateDetailLevel(
+                                   final ChartPanel cp) {
+        // Before the chart was drawn for the first time, the size of its data
+        // area isn't known yet, so the width of the whole panel has to do.
+        double dataAreaWidth = cp.getScreenDataArea().getWidth();
+        if (dataAreaWidth <= 0)
+            dataAreaWidth = cp.getWidth();
+        if (dataAreaWidth <= 0)
+            return;
+
+        final Range turnRange = cp.getChart().getCategoryPlot().getRangeAxis().getRange();
+        if (((TurnRundownDataset) dataset.getUnderlyingDataset()).setTurnsPerPixel(turnRange.getLength()
+                                                                                   / dataAreaWidth))
+            cp.repaint();
+    }
+
     @Override
     protected ChartPanel createChartPanel() {
         return new ChartPanel(createChart(createDataset()), false);
@@ -40,8 +40,20 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
 
     private static final List DATASET_NAMES = Arrays.asList(DATASET_NAME);
 
+    /**
+     * The highest detail level used, see
+     * {@link AreaInterval#getSubIntervals(int)}.
+     */
+    private static final int MAX_DETAIL_LEVEL = 10;
+
     private Map<String, AreaInterval> dataMap = new LinkedHashMap<String, AreaInterval>(100);
 
+    private List<String> columnKeys = new ArrayList<String>(100);
+
+    private Map<String, Integer> columnIndexes = new HashMap<String, Integer>(150);
+
+    private int detailLevel;
+
     public TurnRundownDataset() {
         super();
     }
@@ -51,6 +63,11 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
         dataMap = new LinkedHashMap<String, AreaInterval>((int) (data.size() * 1.5 + 1));
         for (final AreaInterval ai : data)
             dataMap.put(ai.getName(), ai);
+
+        columnKeys = new ArrayList<String>(dataMap.keySet());
+        columnIndexes = new HashMap<String, Integer>((int) (columnKeys.size() * 1.5 + 1));
+        for (int i = 0; i < columnKeys.size(); i++)
+            columnIndexes.put(columnKeys.get(i), i);
     }
 
     public Collection<AreaInterval> getDataset() {
@@ -66,8 +83,42 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
         final AreaInterval tmp = dataMap.get(categoryName);
         if (tmp != null)
             tmp.addSubInterval(area);
-        else
+        else {
             dataMap.put(categoryName, new AreaInterval(area, categoryName));
+            columnIndexes.put(categoryName, columnKeys.size());
+            columnKeys.add(categoryName);
+        }
+    }
+
+    /**
+     * Sets the level of detail of the sub-intervals handed out by this dataset
+     * to fit the given scale. Sub-intervals of an area which are less than a
+     * pixel apart are merged, so the chart doesn't have to draw thousands of
+     * tiny bars on long, fragmented logs when it is zoomed out.
+     * 
+     * @param turnsPerPixel
+     *            The number of turns displayed per pixel of the chart.
+     * @return True if the level of detail changed, otherwise false.
+     */
+    public boolean setTurnsPerPixel(
+                                    final double turnsPerPixel) {
+        int level = 0;
+        while (level < MAX_DETAIL_LEVEL && (1 << level + 1) - 1 <= turnsPerPixel)
+            level++;
+
+        if (level == detailLevel)
+            return false;
+
+        detailLevel = level;
+        return true;
+    }
+
+    /**
+     * @return The current level of detail, see
+     *         {@link AreaInterval#getSubIntervals(int)}.
+     */
+    public int getDetailLevel() {
+        return detailLevel;
     }
 
     public Number getEndValue(
@@ -81,7 +132,7 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
                               final Comparable rowKey, final Comparable columnKey,
                               final int subinterval) {
         final AreaInterval tmp = dataMap.get(columnKey.toString());
-        final TurnInterval sub = tmp != null ? tmp.getSubInterval(subinterval) : null;
+        final TurnInterval sub = tmp != null ? getSubInterval(tmp, subinterval) : null;
 
         return sub != null ? Integer.valueOf(sub.getEndTurn()) : null;
     }
@@ -118,7 +169,7 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
                                 final Comparable rowKey, final Comparable columnKey,
                                 final int subinterval) {
         final AreaInterval tmp = dataMap.get(columnKey.toString());
-        final TurnInterval sub = tmp != null ? tmp.getSubInterval(subinterval) : null;
+        final TurnInterval sub = tmp != null ? getSubInterval(tmp, subinterval) : null;
 
         return sub != null ? Integer.valueOf(sub.getStartTurn()) : null;
     }
@@ -132,7 +183,14 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
 
     public int getSubIntervalCount(
                                    final Comparable rowKey, final Comparable columnKey) {
-        return dataMap.get(columnKey.toString()).getSubIntervals().size();
+        return dataMap.get(columnKey.toString()).getSubIntervals(detailLevel).size();
+    }
+
+    private TurnInterval getSubInterval(
+                                        final AreaInterval areaInterval, final int index) {
+        final List<TurnInterval> subIntervals = areaInterval.getSubIntervals(detailLevel);
+
+        return index < subIntervals.size() && index >= 0 ? subIntervals.get(index) : null;
     }
 
     public Number getEndValue(
@@ -165,23 +223,18 @@ public final class TurnRundownDataset extends AbstractSeriesDataset implements G
 
     public int getColumnIndex(
                               final Comparable key) {
-        final String keyName = key.toString();
-        final Object[] keys = dataMap.keySet().toArray();
-        for (int i = 0; i < keys.length; i++)
-            if (keys[i].equals(keyName))
-                return i;
+        final Integer index = columnIndexes.get(key.toString());
 
-        return -1;
+        return index != null ? index.intValue() : -1;
     }
 
     public Comparable<?> getColumnKey(
                                       final int column) {
-        final Object[] keys = dataMap.keySet().toArray();
-        return (Comparable<?>) keys[column];
+        return columnKeys.get(column);
     }
 
     public List getColumnKeys() {
-        return new ArrayList<String>(dataMap.keySet());
+        return new ArrayList<String>(columnKeys);
     }
 
     public int getRowIndex(
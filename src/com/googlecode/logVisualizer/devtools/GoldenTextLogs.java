@@ -0,0 +1,220 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.devtools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.googlecode.logVisualizer.Settings;
+import com.googlecode.logVisualizer.logData.LogDataHolder;
+import com.googlecode.logVisualizer.util.LogOutputFormat;
+import com.googlecode.logVisualizer.util.textualLogs.TextLogCreator;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
+
+/**
+ * Development tool which checks that the textual logs created from reference
+ * ascension logs haven't changed. It is not used by the program itself.
+ * <p>
+ * Every {@code NAME.xml.gz} file in the golden directory (by default
+ * {@code devtools/golden} in the project directory) is parsed and printed as
+ * text, HTML and BBCode log, once with the days printed one after the other
+ * and once with the days printed concurrently. Each output has to be exactly
+ * the same as the expected one in {@code NAME.FORMAT.txt.gz}, for example
+ * {@code rich-20140101.HTML_LOG.txt.gz}. The expected logs use {@code \n} as
+ * line separator and show non-ASCII characters.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * GoldenTextLogs [--update] [DIRECTORY]
+ * 
+ * --update  writes the current output as the expected one, for changes to the
+ *           textual logs which are meant to be
+ * </pre>
+ * 
+ * The program exits with status 1 if any output differs from the expected one.
+ */
+public final class GoldenTextLogs {
+    private static final String DEFAULT_GOLDEN_DIRECTORY = "devtools/golden";
+
+    private static final String XML_LOG_SUFFIX = ".xml.gz";
+
+    private static final LogOutputFormat[] TEXTUAL_FORMATS = { LogOutputFormat.TEXT_LOG,
+                                                              LogOutputFormat.HTML_LOG,
+                                                              LogOutputFormat.BBCODE_LOG };
+
+    private static final String NON_ASCII_SETTING = "Show non-ASCII characters in parsed logs";
+
+    private static final String CONCURRENT_DAYS_SETTING = "Print textual log days concurrently";
+
+    // This class is not to be instanced.
+    private GoldenTextLogs() {}
+
+    public static void main(
+                            final String[] args)
+                                                throws Exception {
+        boolean isUpdating = false;
+        File goldenDirectory = new File(DEFAULT_GOLDEN_DIRECTORY);
+        for (final String arg : args)
+            if (arg.equals("--update"))
+                isUpdating = true;
+            else
+                goldenDirectory = new File(arg);
+
+        final File[] xmlLogs = goldenDirectory.listFiles();
+        if (xmlLogs == null) {
+            System.err.println("Usage: GoldenTextLogs [--update] [DIRECTORY]");
+            System.exit(2);
+        }
+        Arrays.sort(xmlLogs);
+
+        final boolean wasShowingNonASCII = Settings.getSettingBoolean(NON_ASCII_SETTING);
+        final boolean wasPrintingDaysConcurrently = Settings.getSettingBoolean(CONCURRENT_DAYS_SETTING);
+        int compared = 0;
+        int differences = 0;
+        try {
+            Settings.setSettingBoolean(NON_ASCII_SETTING, true);
+            for (final File xmlLog : xmlLogs) {
+                if (!xmlLog.getName().endsWith(XML_LOG_SUFFIX))
+                    continue;
+
+                final String name = xmlLog.getName().substring(0,
+                                                               xmlLog.getName().length()
+                                                                       - XML_LOG_SUFFIX.length());
+                final LogDataHolder logData = XMLLogReader.parseXMLLog(xmlLog);
+                for (final LogOutputFormat format : TEXTUAL_FORMATS) {
+                    final File expectedLog = new File(goldenDirectory, name + "." + format + ".txt.gz");
+
+                    Settings.setSettingBoolean(CONCURRENT_DAYS_SETTING, false);
+                    final String sequentialLog = createTextualLog(logData, format);
+                    Settings.setSettingBoolean(CONCURRENT_DAYS_SETTING, true);
+                    final String concurrentLog = createTextualLog(logData, format);
+
+                    if (isUpdating)
+                        writeCompressed(expectedLog, sequentialLog);
+
+                    final String expected = readCompressed(expectedLog);
+                    if (!compare(name + " " + format + " (sequential)", expected, sequentialLog))
+                        differences++;
+                    if (!compare(name + " " + format + " (concurrent)", expected, concurrentLog))
+                        differences++;
+                    compared += 2;
+                }
+            }
+        } finally {
+            Settings.setSettingBoolean(NON_ASCII_SETTING, wasShowingNonASCII);
+            Settings.setSettingBoolean(CONCURRENT_DAYS_SETTING, wasPrintingDaysConcurrently);
+            Settings.flushSettings();
+        }
+
+        System.out.println(compared + " textual logs compared, " + differences + " differ");
+        System.exit(differences == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return The textual log of the given log data in the given format, with
+     *         {@code \n} as line separator.
+     */
+    private static String createTextualLog(
+                                           final LogDataHolder logData,
+                                           final LogOutputFormat format)
+                                                                        throws IOException {
+        final StringWriter log = new StringWriter(500 * 1024);
+        TextLogCreator.writeTextualLog(logData, format, log);
+
+        final String lineSeparator = System.getProperty("line.separator");
+        return lineSeparator.equals("\n") ? log.toString() : log.toString().replace(lineSeparator,
+                                                                                     "\n");
+    }
+
+    /**
+     * Prints the first line in which the actual log differs from the expected
+     * one, if there is one.
+     * 
+     * @return True if both logs are the same, otherwise false.
+     */
+    private static boolean compare(
+                                   final String description, final String expected,
+                                   final String actual) {
+        if (expected.equals(actual))
+            return true;
+
+        final String[] expectedLines = expected.split("\n", -1);
+        final String[] actualLines = actual.split("\n", -1);
+        int line = 0;
+        while (line < expectedLines.length && line < actualLines.length
+               && expectedLines[line].equals(actualLines[line]))
+            line++;
+
+        System.out.println("DIFFERS " + description + " in line " + (line + 1) + ":");
+        System.out.println("  expected: "
+                           + (line < expectedLines.length ? expectedLines[line] : "<end of log>"));
+        System.out.println("  actual:   "
+                           + (line < actualLines.length ? actualLines[line] : "<end of log>"));
+
+        return false;
+    }
+
+    private static String readCompressed(
+                                         final File file)
+                                                         throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)),
+                                                                               "UTF-8"));
+        try {
+            final StringBuilder str = new StringBuilder(500 * 1024);
+            final char[] buffer = new char[64 * 1024];
+            for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer))
+                str.append(buffer, 0, read);
+
+            return str.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeCompressed(
+                                        final File file, final String text)
+                                                                           throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)),
+                                                                        "UTF-8"));
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.devtools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.googlecode.logVisualizer.LogVisualizerServer;
+import com.googlecode.logVisualizer.util.Lists;
+
+/**
+ * Development tool which starts a {@link LogVisualizerServer} on the logs
+ * currently in the logs cache and sends it every kind of request it serves,
+ * several at the same time. It checks the status codes of the answers, that
+ * the answers aren't empty and that textual logs are streamed, and prints
+ * how many ascensions were kept in memory at the end. It is not used by the
+ * program itself.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * ServerExercise [--threads N] [--rounds N] [--warm-heap-fraction F]
+ * 
+ * --threads N             number of concurrent requests and server threads
+ *                         (default: 4)
+ * --rounds N              number of times every ascension is requested
+ *                         (default: 2)
+ * --warm-heap-fraction F  heap budget of the server for ascension logs kept
+ *                         in memory (default: 0.5); a small value shows the
+ *                         least recently requested logs being dropped
+ * </pre>
+ * 
+ * The program exits with status 1 if any request got an unexpected answer.
+ * The logs cache is taken from the user home directory, which can be changed
+ * with {@code -Duser.home=DIRECTORY}.
+ */
+public final class ServerExercise {
+    private static final Pattern ASCENSION_NAME = Pattern.compile("\"name\": \"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private static final Pattern IN_MEMORY = Pattern.compile("\"inMemory\": true");
+
+    private static final String[] LOG_FORMATS = { "text", "html", "bbcode" };
+
+    private final String host = "127.0.0.1";
+
+    private final int port;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private ServerExercise(
+                           final int port) {
+        this.port = port;
+    }
+
+    public static void main(
+                            final String[] args)
+                                                throws Exception {
+        int threads = 4;
+        int rounds = 2;
+        double warmHeapFraction = 0.5;
+        for (int i = 0; i < args.length; i++)
+            if (args[i].equals("--threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--rounds"))
+                rounds = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--warm-heap-fraction"))
+                warmHeapFraction = Double.parseDouble(args[++i]);
+            else {
+                System.err.println("Usage: ServerExercise [--threads N] [--rounds N] [--warm-heap-fraction F]");
+                System.exit(2);
+            }
+
+        final ServerSocket freePort = new ServerSocket(0);
+        final int port = freePort.getLocalPort();
+        freePort.close();
+
+        new LogVisualizerServer(null,
+                                threads,
+                                (long) (Runtime.getRuntime().maxMemory() * warmHeapFraction)).start(port);
+
+        final ServerExercise exercise = new ServerExercise(port);
+        final long startTime = System.currentTimeMillis();
+        exercise.run(threads, rounds);
+
+        System.out.println(exercise.requests.get() + " requests, " + exercise.failures.get()
+                           + " failures, " + (System.currentTimeMillis() - startTime) + " ms");
+        System.exit(exercise.failures.get() == 0 ? 0 : 1);
+    }
+
+    private void run(
+                     final int threads, final int rounds)
+                                                         throws Exception {
+        final List<String> names = Lists.newArrayList();
+        final Matcher nameMatcher = ASCENSION_NAME.matcher(request("GET", "/ascensions", null, 200));
+        while (nameMatcher.find())
+            names.add(nameMatcher.group(1).replaceAll("\\\\(.)", "$1"));
+        System.out.println(names.size() + " ascensions cached");
+
+        // Requests which are answered with an error.
+        request("GET", "/ascensions/no such ascension/summary", null, 404);
+        request("POST", "/ascensions", null, 405);
+        request("POST", "/reparse", null, 409);
+        if (!names.isEmpty()) {
+            request("GET", "/ascensions/" + names.get(0) + "/log", "format=nonsense", 400);
+            request("GET", "/ascensions/" + names.get(0) + "/nonsense", null, 404);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> results = Lists.newArrayList();
+        for (int round = 0; round < rounds; round++)
+            for (final String name : names) {
+                results.add(executor.submit(new Runnable() {
+                    public void run() {
+                        request("GET", "/ascensions/" + name + "/summary", null, 200);
+                    }
+                }));
+                for (final String format : LOG_FORMATS)
+                    results.add(executor.submit(new Runnable() {
+                        public void run() {
+                            request("GET", "/ascensions/" + name + "/log", "format=" + format, 200);
+                        }
+                    }));
+            }
+        for (final Future<?> f : results)
+            f.get();
+        executor.shutdown();
+
+        final Matcher inMemoryMatcher = IN_MEMORY.matcher(request("GET", "/ascensions", null, 200));
+        int inMemory = 0;
+        while (inMemoryMatcher.find())
+            inMemory++;
+        System.out.println(inMemory + " of " + names.size() + " ascensions kept in memory");
+    }
+
+    /**
+     * Sends a request and checks its answer. Unexpected answers are counted
+     * as failures and printed.
+     * 
+     * @return The body of the answer.
+     */
+    private String request(
+                           final String method, final String path, final String query,
+                           final int expectedStatus) {
+        requests.incrementAndGet();
+        try {
+            final URI uri = new URI("http", null, host, port, path, query, null);
+            final HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+            connection.setRequestMethod(method);
+
+            final int status = connection.getResponseCode();
+            final InputStream in = status < 400 ? connection.getInputStream()
+                                               : connection.getErrorStream();
+            final String body = in != null ? read(in) : "";
+            connection.disconnect();
+
+            if (status != expectedStatus)
+                fail(method + " " + uri + ": status " + status + " instead of " + expectedStatus
+                     + ": " + body.trim());
+            else if (body.length() == 0)
+                fail(method + " " + uri + ": empty answer");
+            else if (status == 200 && path.endsWith("/log")
+                     && !"chunked".equalsIgnoreCase(connection.getHeaderField("Transfer-Encoding")))
+                fail(method + " " + uri + ": the textual log wasn't streamed");
+
+            return body;
+        } catch (final IOException e) {
+            fail(method + " " + path + ": " + e);
+        } catch (final URISyntaxException e) {
+            fail(method + " " + path + ": " + e);
+        }
+
+        return "";
+    }
+
+    private void fail(
+                      final String message) {
+        failures.incrementAndGet();
+        System.out.println("FAILED " + message);
+    }
+
+    private static String read(
+                               final InputStream in)
+                                                    throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            final byte[] buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer))
+                out.write(buffer, 0, read);
+
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.devtools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
+
+/**
+ * Development tool which measures how long {@link XMLLogReader} takes to parse
+ * an ascension log XML file. It is not used by the program itself.
+ * <p>
+ * The file is parsed a number of times to warm up the JVM and then measured
+ * over a number of further runs. The CPU time of every run is printed as
+ * median, 10th and 90th percentile, together with the throughput in
+ * uncompressed XML per second. Compressed files are expanded to a temporary
+ * file beforehand, so only the parsing is measured.
+ * <p>
+ * The tool only uses {@link XMLLogReader#parseXMLLog(File)}, so the same
+ * measurement can be taken on older versions of the reader for comparison.
+ * <p>
+ * Usage:
+ * 
+ * <pre>
+ * XMLLogReaderBenchmark [--warmup N] [--runs N] [FILE]
+ * 
+ * --warmup N  number of runs which aren't measured (default: 50)
+ * --runs N    number of measured runs (default: 100)
+ * FILE        the XML log to parse (default:
+ *             devtools/golden/rich-20140101.xml.gz)
+ * </pre>
+ */
+public final class XMLLogReaderBenchmark {
+    private static final String DEFAULT_XML_LOG = "devtools/golden/rich-20140101.xml.gz";
+
+    // This class is not to be instanced.
+    private XMLLogReaderBenchmark() {}
+
+    public static void main(
+                            final String[] args)
+                                                throws Exception {
+        int warmupRuns = 50;
+        int measuredRuns = 100;
+        File xmlLog = new File(DEFAULT_XML_LOG);
+        for (int i = 0; i < args.length; i++)
+            if (args[i].equals("--warmup"))
+                warmupRuns = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--runs"))
+                measuredRuns = Integer.parseInt(args[++i]);
+            else
+                xmlLog = new File(args[i]);
+
+        if (!xmlLog.isFile() || measuredRuns < 1) {
+            System.err.println("Usage: XMLLogReaderBenchmark [--warmup N] [--runs N] [FILE]");
+            System.exit(2);
+        }
+
+        final File uncompressedLog = expandIfCompressed(xmlLog);
+        try {
+            for (int i = 0; i < warmupRuns; i++)
+                XMLLogReader.parseXMLLog(uncompressedLog);
+
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            final long[] times = new long[measuredRuns];
+            for (int i = 0; i < measuredRuns; i++) {
+                final long startTime = threads.getCurrentThreadCpuTime();
+                XMLLogReader.parseXMLLog(uncompressedLog);
+                times[i] = threads.getCurrentThreadCpuTime() - startTime;
+            }
+            Arrays.sort(times);
+
+            final long median = times[measuredRuns / 2];
+            final double megabytes = uncompressedLog.length() / (1024.0 * 1024.0);
+            System.out.printf("%s: %.1f MB, %d runs%n", xmlLog.getName(), megabytes, measuredRuns);
+            System.out.printf("median %.1f ms, p10 %.1f ms, p90 %.1f ms, %.1f MB/s%n",
+                              median / 1e6,
+                              times[measuredRuns / 10] / 1e6,
+                              times[measuredRuns * 9 / 10] / 1e6,
+                              megabytes / (median / 1e9));
+        } finally {
+            if (uncompressedLog != xmlLog)
+                uncompressedLog.delete();
+        }
+    }
+
+    /**
+     * @return The given file if it isn't compressed, otherwise a temporary
+     *         file with its uncompressed content.
+     */
+    private static File expandIfCompressed(
+                                           final File file)
+                                                           throws IOException {
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            in.mark(2);
+            final boolean isCompressed = in.read() == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                                         && in.read() == (GZIPInputStream.GZIP_MAGIC >> 8 & 0xff);
+            in.reset();
+            if (!isCompressed)
+                return file;
+
+            final File uncompressedFile = File.createTempFile("benchmark", ".xml");
+            final InputStream gzipIn = new GZIPInputStream(in);
+            final OutputStream out = new BufferedOutputStream(new FileOutputStream(uncompressedFile));
+            try {
+                final byte[] buffer = new byte[64 * 1024];
+                for (int read = gzipIn.read(buffer); read >= 0; read = gzipIn.read(buffer))
+                    out.write(buffer, 0, read);
+            } finally {
+                out.close();
+            }
+
+            return uncompressedFile;
+        } finally {
+            in.close();
+        }
+    }
+}
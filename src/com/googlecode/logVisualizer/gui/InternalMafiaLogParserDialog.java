@@ -30,6 +30,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -38,13 +39,16 @@ import java.util.regex.Pattern;
 
 import javax.swing.*;
 
-import net.java.swingfx.waitwithstyle.PerformanceInfiniteProgressPanel;
+import net.java.swingfx.waitwithstyle.PerformanceCancelableProgressPanel;
 
 import org.jfree.ui.RefineryUtilities;
 
 import com.googlecode.logVisualizer.Settings;
 import com.googlecode.logVisualizer.logData.turn.Encounter;
 import com.googlecode.logVisualizer.parser.LogsCreator;
+import com.googlecode.logVisualizer.util.BatchScheduler;
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchProgress;
+import com.googlecode.logVisualizer.util.BatchScheduler.ProgressListener;
 import com.googlecode.logVisualizer.util.LogOutputFormat;
 import com.googlecode.logVisualizer.util.Pair;
 
@@ -90,13 +94,29 @@ public final class InternalMafiaLogParserDialog extends JDialog {
 
     private LogOutputFormat logOutputFormat = LogOutputFormat.TEXT_LOG;
 
+    private volatile BatchScheduler scheduler;
+
     InternalMafiaLogParserDialog(
                                  final JFrame owner) {
         super(owner, true);
         setLayout(new BorderLayout(5, 20));
         setTitle("Mafia Logs Parser");
         setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-        setGlassPane(new PerformanceInfiniteProgressPanel());
+        final PerformanceCancelableProgressPanel progressPanel = new PerformanceCancelableProgressPanel();
+        progressPanel.addCancelListener(new ActionListener() {
+            public void actionPerformed(
+                                        final ActionEvent e) {
+                // Logs which are already being parsed will still be finished,
+                // so the wait-animation has to stay until they are.
+                final BatchScheduler currentScheduler = scheduler;
+                if (currentScheduler != null) {
+                    currentScheduler.cancel();
+                    progressPanel.setText("Cancelling, finishing the logs already being parsed...");
+                    setWaitingForComputationEnd(true);
+                }
+            }
+        });
+        setGlassPane(progressPanel);
 
         mafiaLogsDirectoryField = new JTextField(Settings.getSettingString("Mafia logs location"));
         parsedLogsSavingDirectoryField = new JTextField(Settings.getSettingString("Parsed logs saving location"));
@@ -295,6 +315,21 @@ public final class InternalMafiaLogParserDialog extends JDialog {
         Settings.setSettingString("Parsed logs saving location",
                                   parsedLogsSavingDirectoryField.getText());
 
+        final PerformanceCancelableProgressPanel progressPanel = (PerformanceCancelableProgressPanel) getGlassPane();
+        progressPanel.setText(null);
+        scheduler = BatchScheduler.newDefaultScheduler(new ProgressListener() {
+            public void progressChanged(
+                                        final BatchProgress progress) {
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        if (!scheduler.isCancelled())
+                            progressPanel.setText(progress.toString());
+                    }
+                });
+            }
+        });
+        final BatchScheduler currentScheduler = scheduler;
+
         final ExecutorService executor = Executors.newSingleThreadExecutor();
         executor.execute(new Runnable() {
             public void run() {
@@ -302,9 +337,11 @@ public final class InternalMafiaLogParserDialog extends JDialog {
                     final int logToParse = ((Integer) numberToParseSpinner.getModel().getValue()).intValue();
                     final List<Pair<String, Encounter>> errorFileList = LogsCreator.createParsedLogs(mafiaLogs,
                                                                                                     parsedLogsSavingDirectory,
-                                                                                                    logOutputFormat,
+                                                                                                    EnumSet.of(logOutputFormat),
                                                                                                     logToParse > 0 ? logToParse
-                                                                                                                  : Integer.MAX_VALUE);
+                                                                                                                  : Integer.MAX_VALUE,
+                                                                                                    false,
+                                                                                                    currentScheduler);
 
                     EventQueue.invokeLater(new Runnable() {
                         public void run() {
@@ -0,0 +1,165 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+
+/**
+ * A card of the chart area of the {@link LogGUI}, whose content is only created
+ * once it is needed for the first time.
+ * <p>
+ * Building a card happens in two steps. First, the data of the card is computed
+ * by {@link #computeData()} on a background thread, if the card needs any
+ * expensive computations done. Afterwards, the content of the card is created
+ * from that data by {@link #createContent(Object)} on the event dispatch
+ * thread. Until then, the card only shows a short loading message.
+ * <p>
+ * All methods of this class, apart from {@link #computeData()}, have to be
+ * called on the event dispatch thread.
+ */
+abstract class LazyCard<T> extends JPanel {
+    private static final ExecutorService DATA_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(
+                                final Runnable r) {
+            final Thread t = new Thread(r, "Log card data computation");
+            t.setDaemon(true);
+
+            return t;
+        }
+    });
+
+    private final boolean isDataComputedInBackground;
+
+    private boolean isBuildStarted;
+
+    private boolean isBuilt;
+
+    private Runnable builtListener;
+
+    /**
+     * @param isDataComputedInBackground
+     *            A flag denoting whether {@link #computeData()} should be
+     *            called on a background thread. If false, the card content is
+     *            created directly with {@code null} as its data.
+     */
+    LazyCard(
+             final boolean isDataComputedInBackground) {
+        super(new BorderLayout());
+        this.isDataComputedInBackground = isDataComputedInBackground;
+
+        add(new JLabel("Loading...", SwingConstants.CENTER), BorderLayout.CENTER);
+    }
+
+    /**
+     * Computes the data from which the content of this card is created. This
+     * method is called on a background thread and therefore must not touch any
+     * Swing components.
+     * 
+     * @return The data of this card.
+     */
+    T computeData() {
+        return null;
+    }
+
+    /**
+     * Creates the content of this card. This method is called on the event
+     * dispatch thread.
+     * 
+     * @param data
+     *            The data computed by {@link #computeData()}.
+     * @return The content of this card.
+     */
+    abstract Component createContent(
+                                     T data);
+
+    /**
+     * Starts to build this card, if that hasn't been done yet.
+     * 
+     * @param listener
+     *            Run once the card is built, or directly if it already is. Only
+     *            the last listener given while the card is being built will be
+     *            run. May be {@code null}.
+     */
+    void build(
+               final Runnable listener) {
+        if (isBuilt) {
+            if (listener != null)
+                listener.run();
+
+            return;
+        }
+
+        builtListener = listener;
+        if (isBuildStarted)
+            return;
+
+        isBuildStarted = true;
+        if (isDataComputedInBackground)
+            DATA_EXECUTOR.execute(new Runnable() {
+                public void run() {
+                    T data = null;
+                    try {
+                        data = computeData();
+                    } catch (final RuntimeException e) {
+                        e.printStackTrace();
+                    }
+
+                    final T cardData = data;
+                    EventQueue.invokeLater(new Runnable() {
+                        public void run() {
+                            setContent(cardData);
+                        }
+                    });
+                }
+            });
+        else
+            setContent(null);
+    }
+
+    private void setContent(
+                            final T data) {
+        removeAll();
+        add(createContent(data), BorderLayout.CENTER);
+        revalidate();
+        repaint();
+
+        isBuilt = true;
+        if (builtListener != null) {
+            final Runnable listener = builtListener;
+            builtListener = null;
+            listener.run();
+        }
+    }
+}
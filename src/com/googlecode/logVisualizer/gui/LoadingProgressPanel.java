@@ -0,0 +1,158 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Graphics;
+import java.awt.GridBagLayout;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseMotionAdapter;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+
+/**
+ * A glass pane which covers a window while a log is being loaded. It shows how
+ * far the loading has progressed on a progress bar, together with a button to
+ * cancel the loading. While it is visible, it blocks all input to the covered
+ * window apart from its cancel button.
+ * <p>
+ * All methods of this class have to be called on the event dispatch thread.
+ */
+public final class LoadingProgressPanel extends JPanel {
+    private static final Color SHIELD_COLOR = new Color(255, 255, 255, 160);
+
+    private final JLabel textLabel = new JLabel(" ");
+
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+
+    private final JButton cancelButton = new JButton("Cancel");
+
+    public LoadingProgressPanel() {
+        super(new GridBagLayout());
+        setOpaque(false);
+
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(300, progressBar.getPreferredSize().height));
+
+        final JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 0));
+        buttonPanel.add(cancelButton);
+
+        final JPanel contentPanel = new JPanel(new BorderLayout(5, 5));
+        contentPanel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createEtchedBorder(),
+                                                                  BorderFactory.createEmptyBorder(10,
+                                                                                                  10,
+                                                                                                  10,
+                                                                                                  10)));
+        contentPanel.add(textLabel, BorderLayout.NORTH);
+        contentPanel.add(progressBar, BorderLayout.CENTER);
+        contentPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(contentPanel);
+
+        // The input events of the covered window are swallowed.
+        addMouseListener(new MouseAdapter() {});
+        addMouseMotionListener(new MouseMotionAdapter() {});
+        addKeyListener(new KeyAdapter() {});
+        setFocusTraversalKeysEnabled(false);
+    }
+
+    /**
+     * Shows this panel with the given text and an empty progress bar.
+     * 
+     * @param text
+     *            The text describing what is being loaded.
+     */
+    public void start(
+                      final String text) {
+        textLabel.setText(text);
+        progressBar.setValue(0);
+        cancelButton.setEnabled(true);
+        setVisible(true);
+        requestFocusInWindow();
+    }
+
+    /**
+     * Hides this panel.
+     */
+    public void stop() {
+        setVisible(false);
+    }
+
+    /**
+     * @param text
+     *            The text describing what is being loaded.
+     */
+    public void setText(
+                        final String text) {
+        textLabel.setText(text);
+    }
+
+    /**
+     * @param percentage
+     *            How much of the loading is done, a number between 0 and 100.
+     */
+    public void setProgress(
+                            final int percentage) {
+        progressBar.setValue(percentage);
+    }
+
+    /**
+     * Disables the cancel button and shows the given text until the loading
+     * has actually stopped.
+     * 
+     * @param text
+     *            The text to show while the loading is being cancelled.
+     */
+    public void setCancelling(
+                              final String text) {
+        textLabel.setText(text);
+        cancelButton.setEnabled(false);
+    }
+
+    /**
+     * @param listener
+     *            The listener to notify when the cancel button is pressed.
+     */
+    public void addCancelListener(
+                                  final ActionListener listener) {
+        cancelButton.addActionListener(listener);
+    }
+
+    @Override
+    protected void paintComponent(
+                                  final Graphics g) {
+        g.setColor(SHIELD_COLOR);
+        g.fillRect(0, 0, getWidth(), getHeight());
+    }
+}
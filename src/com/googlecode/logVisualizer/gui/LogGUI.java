@@ -40,9 +40,17 @@ import com.googlecode.logVisualizer.gui.notetaker.Notetaker;
 import com.googlecode.logVisualizer.gui.searchDialogs.SearchDialogs;
 import com.googlecode.logVisualizer.logData.LogDataHolder;
 import com.googlecode.logVisualizer.logData.turn.TurnInterval;
-import com.googlecode.logVisualizer.util.LogOutputFormat;
-import com.googlecode.logVisualizer.util.textualLogs.TextLogCreator;
 
+/**
+ * The view of one ascension log. It shows a navigation list on the left and
+ * the chart or panel selected in it on the right.
+ * <p>
+ * Apart from the turn rundown gantt chart, which is shown first, every chart
+ * and panel is only created once it is selected for the first time (see
+ * {@link LazyCard}). After a card was selected and built, the card following
+ * it in the navigation list is built in the background, as it is the one most
+ * likely to be selected next.
+ */
 public final class LogGUI extends JSplitPane {
     private static final String[] LIST_MENU_ITEM_NAMES = { "Turn rundown gantt",
                                                           "Total turns spent",
@@ -65,6 +73,12 @@ public final class LogGUI extends JSplitPane {
 
     private final LogDataHolder logData;
 
+    /**
+     * The lines shown by the textual log card, once it is built. Only used on
+     * the event dispatch thread.
+     */
+    private TextLogLines textLogLines;
+
     /**
      * @param log
      *            The file holding the ascension log.
@@ -90,32 +104,175 @@ public final class LogGUI extends JSplitPane {
         final JPanel chartArea = new JPanel(new CardLayout());
         final JList navigation = new JList();
 
-        int i = 0;
-        chartArea.add(ganttPanel, LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new TotalTurnsSpentPie(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new TurnsSpentPerAreaBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new TurnsSpentPerLevelBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new TotalConsumptionPie(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new ConsumptionBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new PerDayConsumptionBarCharts(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new FamiliarUsagePie(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new SkillCastsBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new SkillMPCostBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new MPGainsBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new MPGainsPerLevelBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new MPGainedSpentPerTurnXYBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new MeatPerLevelBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new PullsPanel(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new StatGiverBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new StatsPerAreaBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new StatsPerTurnPerLevelBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new StatDevelopmentPanelGUI(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new QuestTurnsBarChart(logData), LIST_MENU_ITEM_NAMES[i++]);
-        chartArea.add(new MiscPanel(logData), LIST_MENU_ITEM_NAMES[i++]);
-        if (isTextLogFromFile)
-            chartArea.add(new LogViewer(log), LIST_MENU_ITEM_NAMES[i++]);
-        else
-            chartArea.add(new LogViewer(logData), LIST_MENU_ITEM_NAMES[i++]);
+        final LazyCard<?>[] cards = new LazyCard<?>[LIST_MENU_ITEM_NAMES.length];
+        int i = 1;
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new TotalTurnsSpentPie(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new TurnsSpentPerAreaBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new TurnsSpentPerLevelBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new TotalConsumptionPie(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new ConsumptionBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new PerDayConsumptionBarCharts(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new FamiliarUsagePie(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new SkillCastsBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new SkillMPCostBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new MPGainsBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new MPGainsPerLevelBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new MPGainedSpentPerTurnXYBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new MeatPerLevelBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new PullsPanel(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new StatGiverBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new StatsPerAreaBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new StatsPerTurnPerLevelBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new StatDevelopmentPanelGUI(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new QuestTurnsBarChart(logData);
+            }
+        };
+        cards[i++] = new LazyCard<Void>(false) {
+            @Override
+            Component createContent(
+                                    final Void data) {
+                return new MiscPanel(logData);
+            }
+        };
+        // The textual log is created or its file indexed on a background
+        // thread, as it can take quite a while for long ascensions.
+        cards[i++] = new LazyCard<TextLogLines>(true) {
+            @Override
+            TextLogLines computeData() {
+                try {
+                    return isTextLogFromFile ? TextLogLines.createFromFile(log)
+                                            : TextLogLines.createFromLog(logData);
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+
+            @Override
+            Component createContent(
+                                    final TextLogLines data) {
+                final TextLogLines lines = data != null ? data : TextLogLines.createFromText("");
+                textLogLines = lines;
+
+                return isTextLogFromFile ? new LogViewer(lines) : new LogViewer(logData, lines);
+            }
+        };
+
+        chartArea.add(ganttPanel, LIST_MENU_ITEM_NAMES[0]);
+        for (i = 1; i < cards.length; i++)
+            chartArea.add(cards[i], LIST_MENU_ITEM_NAMES[i]);
 
         navigation.setModel(new AbstractListModel() {
             public int getSize() {
@@ -132,10 +289,12 @@ public final class LogGUI extends JSplitPane {
         navigation.addListSelectionListener(new ListSelectionListener() {
             public void valueChanged(
                                      final ListSelectionEvent lse) {
-                if (!lse.getValueIsAdjusting())
+                if (!lse.getValueIsAdjusting() && navigation.getSelectedIndex() >= 0) {
+                    final int index = navigation.getSelectedIndex();
                     ((CardLayout) chartArea.getLayout()).show(chartArea,
-                                                              navigation.getSelectedValue()
-                                                                        .toString());
+                                                              LIST_MENU_ITEM_NAMES[index]);
+                    showCard(cards, index);
+                }
             }
         });
 
@@ -146,6 +305,44 @@ public final class LogGUI extends JSplitPane {
         setLeftComponent(navigationScrollPane);
     }
 
+    /**
+     * Builds the card of the given index, if it isn't yet, and afterwards the
+     * card following it in the navigation list.
+     */
+    private static void showCard(
+                                 final LazyCard<?>[] cards, final int index) {
+        final Runnable prefetchNextCard = new Runnable() {
+            public void run() {
+                // Give the selected card the chance to be painted first.
+                if (index + 1 < cards.length)
+                    EventQueue.invokeLater(new Runnable() {
+                        public void run() {
+                            cards[index + 1].build(null);
+                        }
+                    });
+            }
+        };
+
+        if (cards[index] != null)
+            cards[index].build(prefetchNextCard);
+        else
+            prefetchNextCard.run();
+    }
+
+    /**
+     * A log panel is only removed from its parent when its log is closed, so
+     * the lines of the textual log are disposed of here. This deletes the
+     * temporary file of a textual log created from the log data.
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        if (textLogLines != null) {
+            textLogLines.dispose();
+            textLogLines = null;
+        }
+    }
+
     /**
      * @return The data of the ascension log.
      */
@@ -173,18 +370,11 @@ public final class LogGUI extends JSplitPane {
      * A simple JTextArea that holds the whole contents of the given log file.
      */
     private final static class LogViewer extends JPanel {
-        private static final String NEW_LINE = "\n";
-
         LogViewer(
-                  final LogDataHolder logData) {
+                  final LogDataHolder logData, final TextLogLines lines) {
             super(new BorderLayout());
 
-            final JTextArea log = new JTextArea(TextLogCreator.getTextualLog(logData,
-                                                                             LogOutputFormat.TEXT_LOG));
-            log.setWrapStyleWord(true);
-            log.setLineWrap(true);
-            log.setCaretPosition(0);
-            log.setEditable(false);
+            final JList log = createLogList(lines);
 
             final JPanel buttonPanel = new JPanel(new GridLayout(1, 0, 0, 10));
             final JButton exportLogButton = new JButton("View/Export log");
@@ -202,7 +392,7 @@ public final class LogGUI extends JSplitPane {
                                             final ActionEvent e) {
                     final TurnInterval ti = SearchDialogs.showAreaSearchDialog(null, logData);
 
-                    jumpToInterval(log, ti);
+                    jumpToInterval(log, lines, ti);
                 }
             });
             final JButton turnSearchButton = new JButton("Turn Search");
@@ -212,7 +402,7 @@ public final class LogGUI extends JSplitPane {
                                             final ActionEvent e) {
                     final TurnInterval ti = SearchDialogs.showTurnSearchDialog(null, logData);
 
-                    jumpToInterval(log, ti);
+                    jumpToInterval(log, lines, ti);
                 }
             });
             final JButton notetakerButton = new JButton("Open Notetaker");
@@ -237,69 +427,80 @@ public final class LogGUI extends JSplitPane {
 
             final JSplitPane splitter = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
             splitter.setTopComponent(buttonPanel);
-            splitter.setBottomComponent(new JScrollPane(log));
+            splitter.setBottomComponent(createLogPanel(log, lines));
             splitter.setDividerLocation(50);
 
             add(splitter, BorderLayout.CENTER);
         }
 
         LogViewer(
-                  final File logFile) {
+                  final TextLogLines lines) {
             super(new BorderLayout());
 
-            final JTextArea log = new JTextArea();
-            log.setWrapStyleWord(true);
-            log.setLineWrap(true);
-
-            try {
-                final FileInputStream fis = new FileInputStream(logFile);
-                final BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-                final StringBuilder tmpLines = new StringBuilder(50000);
-                String tmpLine;
-
-                while ((tmpLine = br.readLine()) != null) {
-                    tmpLines.append(tmpLine);
-                    tmpLines.append(NEW_LINE);
-
-                    final int tmpLinesLength = tmpLines.length();
-                    if (tmpLinesLength > 49500) {
-                        log.append(tmpLines.toString());
-                        tmpLines.delete(0, tmpLinesLength);
-                    }
+            add(createLogPanel(createLogList(lines), lines), BorderLayout.CENTER);
+        }
+
+        /**
+         * Lines aren't wrapped, so all list cells have the same size and the
+         * list only ever has to lay out and render the visible lines.
+         */
+        private static JList createLogList(
+                                           final TextLogLines lines) {
+            final JList log = new JList(lines);
+            log.setFont(UIManager.getFont("TextArea.font"));
+            log.setPrototypeCellValue(lines.getLongestLine().length() > 0 ? lines.getLongestLine()
+                                                                          : " ");
+
+            return log;
+        }
+
+        private static JPanel createLogPanel(
+                                             final JList log, final TextLogLines lines) {
+            final JComboBox dayChooser = new JComboBox(lines.getDayNames().toArray());
+            dayChooser.setEnabled(dayChooser.getItemCount() > 0);
+            dayChooser.addActionListener(new ActionListener() {
+                public void actionPerformed(
+                                            final ActionEvent e) {
+                    if (dayChooser.getSelectedIndex() >= 0)
+                        jumpToLine(log, lines.getDayStartLine(dayChooser.getSelectedIndex()));
                 }
+            });
 
-                if (tmpLines.length() != 0)
-                    log.append(tmpLines.toString());
+            final JPanel dayPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            dayPanel.add(new JLabel("Jump to:"));
+            dayPanel.add(dayChooser);
 
-                br.close();
-            } catch (final IOException e) {
-                e.printStackTrace();
-            }
-            log.setCaretPosition(0);
+            final JPanel logPanel = new JPanel(new BorderLayout());
+            logPanel.add(dayPanel, BorderLayout.NORTH);
+            logPanel.add(new JScrollPane(log), BorderLayout.CENTER);
 
-            add(new JScrollPane(log), BorderLayout.CENTER);
+            return logPanel;
         }
 
-        private void jumpToInterval(
-                                    final JTextArea text, final TurnInterval ti) {
+        private static void jumpToInterval(
+                                           final JList log, final TextLogLines lines,
+                                           final TurnInterval ti) {
             // If a turn interval was selected, jump to it in the ascension log.
-            // We want the turn interval to be the first displayed line in the
-            // text area. For that to always work correctly we first jump to the
-            // very end of the log.
-            // Sadly, that call seems to be optimised away one way or another if
-            // the the caret position changes are done right after each other,
-            // which made it necessary to use that rather ridiculous looking
-            // call to the EventQueue.
             if (ti != null) {
-                final int position = text.getText().indexOf(ti.toString());
-                if (position >= 0) {
-                    text.setCaretPosition(text.getText().length());
-                    EventQueue.invokeLater(new Runnable() {
-                        public void run() {
-                            text.setCaretPosition(position);
-                        }
-                    });
-                }
+                final int line = lines.getTurnIntervalLine(ti.toString());
+                if (line >= 0)
+                    jumpToLine(log, line);
+            }
+        }
+
+        /**
+         * Selects the given line and scrolls the list so that line is the first
+         * displayed one, if the list is long enough for that.
+         */
+        private static void jumpToLine(
+                                       final JList log, final int line) {
+            log.setSelectedIndex(line);
+
+            final Rectangle lineBounds = log.getCellBounds(line, line);
+            if (lineBounds != null) {
+                lineBounds.x = 0;
+                lineBounds.height = log.getVisibleRect().height;
+                log.scrollRectToVisible(lineBounds);
             }
         }
     }
@@ -24,7 +24,6 @@
 
 package com.googlecode.logVisualizer.gui;
 
-import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -43,9 +42,12 @@ import com.googlecode.logVisualizer.gui.MafiaLogsVisualizerDialog.AscensionLogLo
 import com.googlecode.logVisualizer.gui.dataTablesEditor.DataTablesEditor;
 import com.googlecode.logVisualizer.gui.notetaker.Notetaker;
 import com.googlecode.logVisualizer.gui.projectUpdatesViewer.ProjectUpdateViewer;
+import com.googlecode.logVisualizer.gui.searchDialogs.SearchDialogs;
 import com.googlecode.logVisualizer.logData.LogDataHolder;
 import com.googlecode.logVisualizer.util.LogOutputFormat;
+import com.googlecode.logVisualizer.util.LogsSearchIndex.SearchHit;
 import com.googlecode.logVisualizer.util.dataTables.DataTablesHandler;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
 import com.sun.java.forums.CloseableTabbedPane;
 import com.sun.java.forums.CloseableTabbedPaneListener;
 
@@ -55,7 +57,7 @@ public final class LogVisualizerGUI extends JFrame {
         public boolean accept(
                               final File f) {
             return f.isDirectory() || f.getName().toLowerCase().endsWith(".txt")
-                   || f.getName().toLowerCase().endsWith(".xml");
+                   || XMLLogCreator.isXMLLogFileName(f.getName());
         }
 
         @Override
@@ -127,6 +129,15 @@ public final class LogVisualizerGUI extends JFrame {
                                            showNonASCIIInLogsMenu.isSelected());
             }
         });
+        final JCheckBoxMenuItem concurrentLogPrintingMenu = new JCheckBoxMenuItem("Print parsed log days concurrently",
+                                                                                  Settings.getSettingBoolean("Print textual log days concurrently"));
+        concurrentLogPrintingMenu.addItemListener(new ItemListener() {
+            public void itemStateChanged(
+                                         final ItemEvent e) {
+                Settings.setSettingBoolean("Print textual log days concurrently",
+                                           concurrentLogPrintingMenu.isSelected());
+            }
+        });
 
         fileMenu.add(new AbstractAction("Parse mafia logs") {
             public void actionPerformed(
@@ -146,11 +157,9 @@ public final class LogVisualizerGUI extends JFrame {
                 new MafiaLogsVisualizerDialog(LogVisualizerGUI.this,
                                               new AscensionLogLoaderListener() {
                                                   public void visualizeAscensionLog(
-                                                                                    final File logFile) {
-                                                      if (logFile.getName().endsWith(".xml"))
-                                                          logLoaderlistener.loadXMLLog(logFile);
-                                                      else
-                                                          logLoaderlistener.loadMafiaLog(logFile);
+                                                                                    final File logFile,
+                                                                                    final LogDataHolder logData) {
+                                                      logLoaderlistener.loadLogData(logFile, logData);
                                                   }
                                               });
             }
@@ -160,15 +169,11 @@ public final class LogVisualizerGUI extends JFrame {
                                         final ActionEvent arg0) {
                 final int state = logChooser.showOpenDialog(null);
                 if (state == JFileChooser.APPROVE_OPTION) {
-                    setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-
                     final File logFile = logChooser.getSelectedFile();
                     if (logFile.getName().endsWith(".txt"))
                         logLoaderlistener.loadPreparsedLog(logFile);
                     else
                         logLoaderlistener.loadXMLLog(logFile);
-
-                    setCursor(Cursor.getDefaultCursor());
                 }
             }
         });
@@ -197,6 +202,7 @@ public final class LogVisualizerGUI extends JFrame {
         fileMenu.add(ascensionCountingMenu);
         fileMenu.add(mafiaNotesParsingMenu);
         fileMenu.add(showNonASCIIInLogsMenu);
+        fileMenu.add(concurrentLogPrintingMenu);
         fileMenu.addSeparator();
         fileMenu.add(new AbstractAction("Exit") {
             public void actionPerformed(
@@ -229,6 +235,14 @@ public final class LogVisualizerGUI extends JFrame {
                     new DetailedLogViewer(((LogGUI) logsPane.getSelectedComponent()).getLogData());
             }
         });
+        extraMenu.add(new AbstractAction("Search cached logs") {
+            public void actionPerformed(
+                                        final ActionEvent arg0) {
+                final SearchHit hit = SearchDialogs.showCachedLogsSearchDialog(LogVisualizerGUI.this);
+                if (hit != null)
+                    logLoaderlistener.loadXMLLog(hit.getCachedLog());
+            }
+        });
         extraMenu.addSeparator();
         extraMenu.add(new AbstractAction("Look&Feel changer") {
             public void actionPerformed(
@@ -361,6 +375,12 @@ public final class LogVisualizerGUI extends JFrame {
 
     /**
      * A listener to handle parsing and showing of ascension logs.
+     * <p>
+     * The methods of this listener are called on the event dispatch thread and
+     * should only start the loading of the given log, so the GUI isn't blocked
+     * while the log is parsed. The only exception is
+     * {@link #loadLogData(File, LogDataHolder)}, which may also be called from
+     * a background thread.
      */
     public interface LogLoaderListener {
         /**
@@ -383,5 +403,18 @@ public final class LogVisualizerGUI extends JFrame {
          */
         public void loadPreparsedLog(
                                      File file);
+
+        /**
+         * If called from a background thread, this method only returns once
+         * the log is shown, so that background loaders don't load logs faster
+         * than they can be shown.
+         * 
+         * @param file
+         *            The file the given log data was read from.
+         * @param logData
+         *            The already loaded data of an ascension log.
+         */
+        public void loadLogData(
+                                File file, LogDataHolder logData);
     }
 }
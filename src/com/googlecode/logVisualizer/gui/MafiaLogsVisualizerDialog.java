@@ -46,16 +46,21 @@ import javax.swing.event.ChangeListener;
 import javax.swing.table.AbstractTableModel;
 
 import net.java.dev.spellcast.utilities.UtilityConstants;
-import net.java.swingfx.waitwithstyle.PerformanceInfiniteProgressPanel;
+import net.java.swingfx.waitwithstyle.PerformanceCancelableProgressPanel;
 
 import org.jfree.ui.RefineryUtilities;
 
 import com.googlecode.logVisualizer.Settings;
+import com.googlecode.logVisualizer.logData.LogDataHolder;
 import com.googlecode.logVisualizer.logData.turn.Encounter;
-import com.googlecode.logVisualizer.parser.LogsCreator;
-import com.googlecode.logVisualizer.parser.UsefulPatterns;
+import com.googlecode.logVisualizer.util.BatchScheduler;
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchProgress;
+import com.googlecode.logVisualizer.util.BatchScheduler.ProgressListener;
+import com.googlecode.logVisualizer.util.CachedLogsLoader;
+import com.googlecode.logVisualizer.util.CachedLogsLoader.LoadListener;
 import com.googlecode.logVisualizer.util.Lists;
 import com.googlecode.logVisualizer.util.LogsCache;
+import com.googlecode.logVisualizer.util.LogsCache.CacheListener;
 import com.googlecode.logVisualizer.util.Pair;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
@@ -72,9 +77,10 @@ import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
  * {@link AscensionLogLoaderListener} instance which is needed for the
  * constructor.
  * <p>
- * Note that the ascension log delegation through the
- * {@link AscensionLogLoaderListener} interface must be able to handle
- * concurrent method calls from this class.
+ * The cached logs are loaded in parallel (see {@link CachedLogsLoader}), but
+ * handed to the {@link AscensionLogLoaderListener} one at a time from a
+ * background thread, which means the listener must not assume to be called on
+ * the Event Dispatch Thread.
  */
 final class MafiaLogsVisualizerDialog extends JDialog {
     private static final FilenameFilter MAFIA_LOG_FILTER = new FilenameFilter() {
@@ -103,12 +109,16 @@ final class MafiaLogsVisualizerDialog extends JDialog {
 
     private final AscensionLogLoaderListener ascensionLogLoaderListener;
 
+    private volatile BatchScheduler cachingScheduler;
+
+    private volatile CachedLogsLoader logsLoader;
+
     /**
      * Constructs the object.
      * <p>
-     * Note that the mafia log delegation through the
-     * {@link AscensionLogLoaderListener} interface must be able to handle
-     * concurrent method calls from this class.
+     * Note that the ascension log delegation through the
+     * {@link AscensionLogLoaderListener} interface happens on a background
+     * thread.
      * 
      * @param owner
      *            The owner of this dialog.
@@ -130,7 +140,25 @@ final class MafiaLogsVisualizerDialog extends JDialog {
         setLayout(new BorderLayout(5, 10));
         setTitle("Mafia Logs Parser");
         setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-        setGlassPane(new PerformanceInfiniteProgressPanel());
+        final PerformanceCancelableProgressPanel progressPanel = new PerformanceCancelableProgressPanel();
+        progressPanel.addCancelListener(new ActionListener() {
+            public void actionPerformed(
+                                        final ActionEvent e) {
+                // Logs which are already being cached will still be finished,
+                // so the wait-animation has to stay until the background tasks
+                // are done.
+                final BatchScheduler scheduler = cachingScheduler;
+                if (scheduler != null)
+                    scheduler.cancel();
+                final CachedLogsLoader loader = logsLoader;
+                if (loader != null)
+                    loader.cancel();
+
+                progressPanel.setText("Cancelling...");
+                progressPanel.setVisible(true);
+            }
+        });
+        setGlassPane(progressPanel);
 
         ascensionLogLoaderListener = mafiaLogLoaderListener;
         visualizableAscensionLogsTable = new JTable(new AscensionLogsTableModel(EMPTY_MAFIA_LOGS_LIST));
@@ -359,56 +387,43 @@ final class MafiaLogsVisualizerDialog extends JDialog {
     private void createDataTable(
                                  final File[] mafiaLogs)
                                                         throws IOException {
-        Arrays.sort(mafiaLogs, new Comparator<File>() {
-            public int compare(
-                               final File o1, final File o2) {
-                return o1.getName().compareToIgnoreCase(o2.getName());
-            }
-        });
-
         final List<Pair<String, Encounter>> errorFileList;
 
-        // If the cache is empty, we need to create all logs. Otherwise, we only
-        // need to re-parse the last cached ascension (in case more turns were
-        // played) and the ascensions that follow it.
-        if (logsCache.getLogsByCharacter().isEmpty())
-            errorFileList = logsCache.createCache(LogsCreator.createCondensedMafiaLogs(mafiaLogs));
-        else {
-            final Map<String, List<File>> cachedLogs = logsCache.getLogsByCharacter();
-            final List<Pair<String, String>> lastLogsCached = Lists.newArrayList(cachedLogs.size());
-            for (final String character : cachedLogs.keySet()) {
-                final List<File> logs = cachedLogs.get(character);
-                final File lastLog = logs.get(logs.size() - 1);
-
-                lastLogsCached.add(Pair.of(character, lastLog.getName().replace(".xml", "")));
+        final PerformanceCancelableProgressPanel progressPanel = (PerformanceCancelableProgressPanel) getGlassPane();
+        final BatchScheduler scheduler = BatchScheduler.newDefaultScheduler(new ProgressListener() {
+            public void progressChanged(
+                                        final BatchProgress progress) {
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        final BatchScheduler currentScheduler = cachingScheduler;
+                        if (currentScheduler != null && !currentScheduler.isCancelled())
+                            progressPanel.setText(progress.toString());
+                    }
+                });
             }
+        });
+        cachingScheduler = scheduler;
 
-            final List<File> logsToParse = Lists.newArrayList();
-            for (final Pair<String, String> lastLogCached : lastLogsCached) {
-                boolean isLastCachedLogFound = false;
-                for (final File log : mafiaLogs) {
-                    final int delimiterIndex = log.getName().lastIndexOf("_");
-                    final String characterName = log.getName()
-                                                    .substring(0, delimiterIndex)
-                                                    .replaceAll("_", " ");
-
-                    if (characterName.equals(lastLogCached.getVar1()))
-                        if (!isLastCachedLogFound) {
-                            final String date = Integer.toString(UsefulPatterns.getMafiaLogDate(log));
-                            if (lastLogCached.getVar2().endsWith(date)) {
-                                logsToParse.add(log);
-                                isLastCachedLogFound = true;
-                            }
-                        } else
-                            logsToParse.add(log);
-                }
+        // Show the logs in the table as soon as they are cached.
+        final CacheListener tableUpdater = new CacheListener() {
+            public void logCached(
+                                  final File cachedLog) {
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        ((AscensionLogsTableModel) visualizableAscensionLogsTable.getModel()).setAscensionLogs(logsCache.getLogs());
+                    }
+                });
             }
+        };
 
-            errorFileList = logsCache.createCache(LogsCreator.createCondensedMafiaLogs(logsToParse.toArray(new File[0])));
-        }
+        // Only the logs which aren't up to date in the cache are parsed.
+        errorFileList = logsCache.updateCache(mafiaLogs, tableUpdater, scheduler);
+
+        cachingScheduler = null;
 
         EventQueue.invokeLater(new Runnable() {
             public void run() {
+                progressPanel.setText(null);
                 ((AscensionLogsTableModel) visualizableAscensionLogsTable.getModel()).setAscensionLogs(logsCache.getLogs());
                 toggleAllBox.setSelected(false);
 
@@ -423,26 +438,33 @@ final class MafiaLogsVisualizerDialog extends JDialog {
     private void runParser() {
         taskQueue.runBackgroundTask(new Runnable() {
             public void run() {
-                // 4 Threads per CPU should be a high enough number to not slow
-                // the computation too much down by scheduler overhead while
-                // still making use of threaded computing.
-                final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime()
-                                                                                     .availableProcessors() * 4);
-
-                for (final File f : ((AscensionLogsTableModel) visualizableAscensionLogsTable.getModel()).getVisualizableMafiaLogs())
-                    executor.execute(new Runnable() {
-                        public void run() {
-                            ascensionLogLoaderListener.visualizeAscensionLog(f);
-                        }
-                    });
+                // The loader bounds the number of logs held in memory at the
+                // same time, so selecting lots of logs doesn't exhaust the
+                // heap before they are handed over to the listener.
+                final List<File> logs = ((AscensionLogsTableModel) visualizableAscensionLogsTable.getModel()).getVisualizableMafiaLogs();
+                final CachedLogsLoader loader = CachedLogsLoader.newDefaultLoader();
+                logsLoader = loader;
+                loader.loadLogs(logs, new LoadListener() {
+                    public void logLoaded(
+                                          final File log, final LogDataHolder logData) {
+                        ascensionLogLoaderListener.visualizeAscensionLog(log, logData);
+                    }
 
-                // Wait for all threads to finish.
-                executor.shutdown();
-                try {
-                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-                } catch (final InterruptedException e) {
-                    e.printStackTrace();
-                }
+                    public void logLoadFailed(
+                                              final File log, final Exception exception) {
+                        exception.printStackTrace();
+                        EventQueue.invokeLater(new Runnable() {
+                            public void run() {
+                                JOptionPane.showMessageDialog(getOwner(),
+                                                              "A problem occurred while reading the cached log "
+                                                                      + log.getName() + ".",
+                                                              "Error occurred",
+                                                              JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
+                    }
+                });
+                logsLoader = null;
             }
         });
     }
@@ -593,7 +615,8 @@ final class MafiaLogsVisualizerDialog extends JDialog {
 
         public Object getValueAt(
                                  final int rowIndex, final int columnIndex) {
-            return columnIndex == 0 ? ascensionLogs.get(rowIndex).getName().replace(".xml", "")
+            return columnIndex == 0 ? XMLLogCreator.getLogNameFromXMLLogFileName(ascensionLogs.get(rowIndex)
+                                                                                               .getName())
                                    : visualizables.get(rowIndex);
         }
 
@@ -653,7 +676,17 @@ final class MafiaLogsVisualizerDialog extends JDialog {
      * {@link MafiaLogsVisualizerDialog} class).
      */
     public static interface AscensionLogLoaderListener {
+        /**
+         * Called on a background thread. The log counts as loaded into memory
+         * until this method returns (see {@link CachedLogsLoader}), so it
+         * should only return once the log is shown.
+         * 
+         * @param ascensionLog
+         *            The cached ascension log file.
+         * @param logData
+         *            The already loaded data of the ascension log.
+         */
         public void visualizeAscensionLog(
-                                          final File ascensionLog);
+                                          final File ascensionLog, final LogDataHolder logData);
     }
 }
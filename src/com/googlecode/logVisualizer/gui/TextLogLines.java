@@ -0,0 +1,425 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.gui;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.swing.AbstractListModel;
+
+import com.googlecode.logVisualizer.logData.LogDataHolder;
+import com.googlecode.logVisualizer.util.Lists;
+import com.googlecode.logVisualizer.util.LogOutputFormat;
+import com.googlecode.logVisualizer.util.Maps;
+import com.googlecode.logVisualizer.util.textualLogs.TextLogCreator;
+
+/**
+ * The lines of a textual ascension log, used as the model of the list which
+ * displays the log in the {@link LogGUI}.
+ * <p>
+ * Only the offsets at which the lines start are held, the lines themselves are
+ * cut out of the log when they are displayed. This way, the list only ever has
+ * to handle the lines which are currently visible, no matter how long the log
+ * is. Logs held in a file are not read into memory at all, the lines are read
+ * from the file in pages instead, of which the most recently viewed ones are
+ * cached. Textual logs created from log data are written to a temporary file
+ * for this reason, instead of being created as one big string.
+ * <p>
+ * The start lines of all days and turn intervals are indexed when the log is
+ * first read, so jumping to a certain day or turn interval doesn't need to
+ * search through the log.
+ */
+abstract class TextLogLines extends AbstractListModel {
+    private static final String DAY_MARKER = "===";
+
+    private static final String CODE_TAG = "[code]";
+
+    private final List<String> dayNames = Lists.newArrayList();
+
+    private final List<Integer> dayStartLines = Lists.newArrayList();
+
+    private final Map<String, Integer> turnIntervalStartLines = Maps.newHashMap(500);
+
+    private String longestLine = "";
+
+    /**
+     * @param textualLog
+     *            The textual ascension log.
+     * @return The lines of the given log.
+     */
+    static TextLogLines createFromText(
+                                       final String textualLog) {
+        final TextLogLines lines = new StringLines(textualLog);
+        lines.indexLines();
+
+        return lines;
+    }
+
+    /**
+     * @param logFile
+     *            The file holding the textual ascension log.
+     * @return The lines of the log in the given file.
+     * @throws IOException
+     *             if there was a problem while reading the file
+     */
+    static TextLogLines createFromFile(
+                                       final File logFile)
+                                                          throws IOException {
+        final TextLogLines lines = new FileLines(logFile, false);
+        lines.indexLines();
+
+        return lines;
+    }
+
+    /**
+     * Creates the textual log of the given log data in a temporary file, which
+     * is deleted by {@link #dispose()} or, at the latest, when the program
+     * exits. The log is written to the file while it is being created, so it
+     * is never held in memory as a whole.
+     * 
+     * @param logData
+     *            The log data from which the textual log should be created.
+     * @return The lines of the textual log of the given log data.
+     * @throws IOException
+     *             if there was a problem while writing or reading the file
+     */
+    static TextLogLines createFromLog(
+                                      final LogDataHolder logData)
+                                                                  throws IOException {
+        final File logFile = File.createTempFile("textualLog", ".txt");
+        logFile.deleteOnExit();
+
+        boolean isCreated = false;
+        try {
+            // FileLines decodes the file with the default charset as well.
+            final Writer writer = new BufferedWriter(new FileWriter(logFile), 64 * 1024);
+            try {
+                TextLogCreator.writeTextualLog(logData, LogOutputFormat.TEXT_LOG, writer);
+            } finally {
+                writer.close();
+            }
+
+            final TextLogLines lines = new FileLines(logFile, true);
+            lines.indexLines();
+            isCreated = true;
+
+            return lines;
+        } finally {
+            if (!isCreated)
+                logFile.delete();
+        }
+    }
+
+    /**
+     * Releases the resources held by these lines. Temporary files created by
+     * {@link #createFromLog(LogDataHolder)} are deleted, after which the lines
+     * can't be read anymore. Does nothing for other lines.
+     */
+    void dispose() {}
+
+    /**
+     * @param index
+     *            The index of the line.
+     * @return The line at the given index, without its line break.
+     */
+    abstract String getLine(
+                            int index);
+
+    public Object getElementAt(
+                               final int index) {
+        return getLine(index);
+    }
+
+    /**
+     * @return The longest line of the log. Useful as the prototype cell value
+     *         of a list.
+     */
+    String getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * @return The names of all days of the log, in the form of "Day 1".
+     */
+    List<String> getDayNames() {
+        return dayNames;
+    }
+
+    /**
+     * @param dayIndex
+     *            The index of the day in the list returned by
+     *            {@link #getDayNames()}.
+     * @return The index of the line with the header of the given day.
+     */
+    int getDayStartLine(
+                        final int dayIndex) {
+        return dayStartLines.get(dayIndex);
+    }
+
+    /**
+     * @param turnInterval
+     *            The turn interval as it is written in the log, for example
+     *            "[1-2] Whitey's Grove [3,19,10]".
+     * @return The index of the line with the given turn interval, or -1 if
+     *         the log doesn't contain it.
+     */
+    int getTurnIntervalLine(
+                            final String turnInterval) {
+        final int tokenEnd = turnInterval.indexOf(']');
+        if (tokenEnd < 0)
+            return -1;
+
+        final Integer firstLine = turnIntervalStartLines.get(turnInterval.substring(0, tokenEnd + 1));
+        if (firstLine == null)
+            return -1;
+
+        // Several turn intervals might share the same turns, for example if
+        // free turns are involved, but they are always close to each other.
+        final int searchEnd = Math.min(firstLine.intValue() + 1000, getSize());
+        for (int i = firstLine.intValue(); i < searchEnd; i++)
+            if (getLine(i).startsWith(turnInterval))
+                return i;
+
+        return firstLine.intValue();
+    }
+
+    private void indexLines() {
+        final int size = getSize();
+        for (int i = 0; i < size; i++) {
+            final String line = getLine(i);
+
+            if (line.length() > longestLine.length())
+                longestLine = line;
+
+            if (line.startsWith(DAY_MARKER) || line.startsWith(CODE_TAG + DAY_MARKER)) {
+                final int nameStart = line.indexOf(DAY_MARKER) + DAY_MARKER.length();
+                final int nameEnd = line.indexOf(DAY_MARKER, nameStart);
+                if (nameEnd > nameStart) {
+                    dayNames.add(line.substring(nameStart, nameEnd));
+                    dayStartLines.add(i);
+                }
+            } else if (line.length() > 1 && line.charAt(0) == '['
+                       && Character.isDigit(line.charAt(1))) {
+                final int tokenEnd = line.indexOf(']');
+                if (tokenEnd > 0) {
+                    final String token = line.substring(0, tokenEnd + 1);
+                    if (!turnIntervalStartLines.containsKey(token))
+                        turnIntervalStartLines.put(token, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * The lines of a log held in a string.
+     */
+    private static final class StringLines extends TextLogLines {
+        private final String text;
+
+        private final int[] lineStarts;
+
+        private final int size;
+
+        StringLines(
+                    final String text) {
+            this.text = text;
+
+            int[] starts = new int[Math.max(text.length() / 40, 16)];
+            int count = 0;
+            int start = 0;
+            while (start < text.length()) {
+                if (count + 1 >= starts.length)
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+
+                starts[count++] = start;
+                final int lineEnd = text.indexOf('\n', start);
+                start = lineEnd >= 0 ? lineEnd + 1 : text.length();
+            }
+            starts[count] = text.length();
+
+            lineStarts = starts;
+            size = count;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        String getLine(
+                       final int index) {
+            int end = lineStarts[index + 1];
+            if (end > lineStarts[index] && text.charAt(end - 1) == '\n')
+                end--;
+            if (end > lineStarts[index] && text.charAt(end - 1) == '\r')
+                end--;
+
+            return text.substring(lineStarts[index], end);
+        }
+    }
+
+    /**
+     * The lines of a log held in a file.
+     */
+    private static final class FileLines extends TextLogLines {
+        private static final int LINES_PER_PAGE = 256;
+
+        private static final int CACHED_PAGES = 16;
+
+        private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+        private final File file;
+
+        private final boolean isTemporaryFile;
+
+        private final long[] lineStarts;
+
+        private final int size;
+
+        private final Map<Integer, String[]> pageCache = new LinkedHashMap<Integer, String[]>(CACHED_PAGES * 2,
+                                                                                              0.75f,
+                                                                                              true) {
+            @Override
+            protected boolean removeEldestEntry(
+                                                final Entry<Integer, String[]> eldest) {
+                return size() > CACHED_PAGES;
+            }
+        };
+
+        FileLines(
+                  final File file, final boolean isTemporaryFile)
+                                                                 throws IOException {
+            this.file = file;
+            this.isTemporaryFile = isTemporaryFile;
+
+            long[] starts = new long[1024];
+            int count = 0;
+            long position = 0;
+            boolean isLineStart = true;
+
+            final FileInputStream fis = new FileInputStream(file);
+            try {
+                final FileChannel channel = fis.getChannel();
+                final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        if (isLineStart) {
+                            if (count + 1 >= starts.length)
+                                starts = Arrays.copyOf(starts, starts.length * 2);
+
+                            starts[count++] = position;
+                        }
+
+                        isLineStart = buffer.get() == '\n';
+                        position++;
+                    }
+                    buffer.clear();
+                }
+            } finally {
+                fis.close();
+            }
+            starts[count] = position;
+
+            lineStarts = starts;
+            size = count;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        void dispose() {
+            pageCache.clear();
+            if (isTemporaryFile)
+                file.delete();
+        }
+
+        @Override
+        String getLine(
+                       final int index) {
+            final Integer pageIndex = Integer.valueOf(index / LINES_PER_PAGE);
+
+            String[] page = pageCache.get(pageIndex);
+            if (page == null) {
+                page = readPage(pageIndex.intValue());
+                pageCache.put(pageIndex, page);
+            }
+
+            return page[index % LINES_PER_PAGE];
+        }
+
+        private String[] readPage(
+                                  final int pageIndex) {
+            final int firstLine = pageIndex * LINES_PER_PAGE;
+            final int lastLine = Math.min(firstLine + LINES_PER_PAGE, size);
+            final String[] page = new String[lastLine - firstLine];
+
+            final ByteBuffer buffer = ByteBuffer.allocate((int) (lineStarts[lastLine] - lineStarts[firstLine]));
+            try {
+                final FileInputStream fis = new FileInputStream(file);
+                try {
+                    final FileChannel channel = fis.getChannel();
+                    long position = lineStarts[firstLine];
+                    while (buffer.hasRemaining() && channel.read(buffer, position) > 0)
+                        position = lineStarts[firstLine] + buffer.position();
+                } finally {
+                    fis.close();
+                }
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+
+            final byte[] bytes = buffer.array();
+            final Charset charset = Charset.defaultCharset();
+            for (int i = firstLine; i < lastLine; i++) {
+                final int start = (int) (lineStarts[i] - lineStarts[firstLine]);
+                int end = (int) (lineStarts[i + 1] - lineStarts[firstLine]);
+                if (end > start && bytes[end - 1] == '\n')
+                    end--;
+                if (end > start && bytes[end - 1] == '\r')
+                    end--;
+
+                page[i - firstLine] = new String(bytes, start, end - start, charset);
+            }
+
+            return page;
+        }
+    }
+}
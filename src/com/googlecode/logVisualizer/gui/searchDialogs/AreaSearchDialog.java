@@ -26,7 +26,6 @@ package com.googlecode.logVisualizer.gui.searchDialogs;
 
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -54,8 +53,7 @@ final class AreaSearchDialog extends TurnEntitySearchDialog {
             public void mouseClicked(
                                      final MouseEvent e) {
                 if (e.getClickCount() >= 2 && !turnIntervalResultsList.isSelectionEmpty()) {
-                    final DefaultListModel model = (DefaultListModel) turnIntervalResultsList.getModel();
-                    setSelectedTurn(((TurnContainer) model.getElementAt(turnIntervalResultsList.getSelectedIndex())).getTurn());
+                    setSelectedTurn(((TurnContainer) turnIntervalResultsList.getSelectedValue()).getTurn());
                     dispose();
                 }
             }
@@ -66,13 +64,11 @@ final class AreaSearchDialog extends TurnEntitySearchDialog {
 
     @Override
     protected JComponent createResultsPane() {
-        turnIntervalResultsList = new JList(new DefaultListModel());
+        turnIntervalResultsList = new JList(getResultsModel());
 
         turnIntervalResultsList.setToolTipText("Double-click area to jump to it in the proper ascension log");
         turnIntervalResultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         turnIntervalResultsList.setCellRenderer(new MultiLineCellRenderer());
-        for (final TurnContainer tc : getTurnsList())
-            addResult(tc);
 
         return new JScrollPane(turnIntervalResultsList,
                                JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
@@ -92,42 +88,4 @@ final class AreaSearchDialog extends TurnEntitySearchDialog {
 
         return result;
     }
-
-    @Override
-    protected void clearResults() {
-        ((DefaultListModel) turnIntervalResultsList.getModel()).clear();
-    }
-
-    @Override
-    protected void addResult(
-                             final TurnContainer tc) {
-        ((DefaultListModel) turnIntervalResultsList.getModel()).addElement(tc);
-    }
-
-    @Override
-    protected void addResults(
-                              final Collection<TurnContainer> results) {
-        // Default models already in use fire a lot of events when elements get
-        // added, to the point that there are very noticeable slow-downs.
-        // We can side-step this issue by simply using a new model in case there
-        // are a lot of elements to be added.
-        // A cleaner approach would probably be to implement a ListModel that
-        // doesn't fire events when they are not needed, but this is adequate
-        // enough for now.
-        if (results.size() <= 25)
-            for (final TurnContainer tc : results)
-                addResult(tc);
-        else {
-            final DefaultListModel newModel = new DefaultListModel();
-            final DefaultListModel currentModel = (DefaultListModel) turnIntervalResultsList.getModel();
-            if (!currentModel.isEmpty())
-                for (int i = 0; i < currentModel.size(); i++)
-                    newModel.addElement(currentModel.get(i));
-
-            for (final TurnContainer tc : results)
-                newModel.addElement(tc);
-
-            turnIntervalResultsList.setModel(newModel);
-        }
-    }
 }
@@ -0,0 +1,310 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.gui.searchDialogs;
+
+import java.awt.BorderLayout;
+import java.awt.EventQueue;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import org.jfree.ui.RefineryUtilities;
+
+import com.googlecode.logVisualizer.util.LogsCache;
+import com.googlecode.logVisualizer.util.LogsSearchIndex;
+import com.googlecode.logVisualizer.util.LogsSearchIndex.SearchField;
+import com.googlecode.logVisualizer.util.LogsSearchIndex.SearchHit;
+
+/**
+ * A dialog to search through all cached ascension logs at once with the help
+ * of the {@link LogsSearchIndex}. The hits are displayed with the most recent
+ * ascension first.
+ * <p>
+ * The index is brought up to date with the cache when the dialog opens, and
+ * all searches are done on a background thread shortly after the search
+ * string was last changed.
+ */
+final class CachedLogsSearchDialog extends JDialog {
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(
+                                final Runnable r) {
+            final Thread t = new Thread(r, "Cached logs search");
+            t.setDaemon(true);
+
+            return t;
+        }
+    });
+
+    private static final int SEARCH_DELAY = 150;
+
+    private static final int MAX_HITS = 1000;
+
+    private static final String ALL_FIELDS = "Everything";
+
+    private final JTextField searchField = new JTextField();
+
+    private final JComboBox fieldChooser;
+
+    private final JLabel statusLabel = new JLabel(" ");
+
+    private final HitsModel hitsModel = new HitsModel();
+
+    private final Timer searchTimer = new Timer(SEARCH_DELAY, null);
+
+    private volatile int searchCount;
+
+    private SearchHit selectedHit;
+
+    /**
+     * @param owner
+     *            The frame owning this dialog.
+     */
+    CachedLogsSearchDialog(
+                           final JFrame owner) {
+        super(owner, "Search Cached Ascension Logs", true);
+
+        final Object[] fields = new Object[SearchField.values().length + 1];
+        fields[0] = ALL_FIELDS;
+        System.arraycopy(SearchField.values(), 0, fields, 1, fields.length - 1);
+        fieldChooser = new JComboBox(fields);
+
+        final JList hitsList = new JList(hitsModel);
+        hitsList.setToolTipText("Double-click a hit to open its ascension log");
+        hitsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        hitsList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(
+                                     final MouseEvent e) {
+                if (e.getClickCount() >= 2 && !hitsList.isSelectionEmpty()) {
+                    selectedHit = (SearchHit) hitsList.getSelectedValue();
+                    dispose();
+                }
+            }
+        });
+
+        searchTimer.setRepeats(false);
+        searchTimer.addActionListener(new ActionListener() {
+            public void actionPerformed(
+                                        final ActionEvent e) {
+                startSearch();
+            }
+        });
+        fieldChooser.addActionListener(new ActionListener() {
+            public void actionPerformed(
+                                        final ActionEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(
+                                     final DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            public void removeUpdate(
+                                     final DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            public void changedUpdate(
+                                      final DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        setLayout(new BorderLayout(0, 15));
+        add(createSearchFieldPanel(), BorderLayout.NORTH);
+        add(new JScrollPane(hitsList,
+                            JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
+                            JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+
+        updateIndex();
+
+        setSize(800, 600);
+        RefineryUtilities.centerFrameOnScreen(this);
+        setVisible(true);
+    }
+
+    private JPanel createSearchFieldPanel() {
+        final JPanel searchFieldPanel = new JPanel(new GridBagLayout());
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(10, 20, 0, 30);
+        searchFieldPanel.add(new JLabel("Search in:"), gbc);
+
+        gbc = new GridBagConstraints();
+        gbc.gridx = 2;
+        gbc.gridy = 1;
+        gbc.anchor = GridBagConstraints.EAST;
+        gbc.weightx = 1.0;
+        gbc.weighty = 1.0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(10, 0, 0, 20);
+        searchFieldPanel.add(fieldChooser, gbc);
+
+        gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 2;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(25, 20, 0, 30);
+        searchFieldPanel.add(new JLabel("Search string:"), gbc);
+
+        gbc = new GridBagConstraints();
+        gbc.gridx = 2;
+        gbc.gridy = 2;
+        gbc.anchor = GridBagConstraints.EAST;
+        gbc.weightx = 1.0;
+        gbc.weighty = 1.0;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(25, 0, 0, 20);
+        searchFieldPanel.add(searchField, gbc);
+
+        return searchFieldPanel;
+    }
+
+    /**
+     * Brings the search index up to date with the cache on the search thread.
+     * Searches started in the meantime are done afterwards.
+     */
+    private void updateIndex() {
+        statusLabel.setText("Updating the search index...");
+
+        SEARCH_EXECUTOR.execute(new Runnable() {
+            public void run() {
+                LogsSearchIndex.INDEX.update(LogsCache.CACHE.getLogs());
+
+                final int indexedLogsCount = LogsSearchIndex.INDEX.getIndexedLogsCount();
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        if (searchCount == 0)
+                            statusLabel.setText(indexedLogsCount + " cached ascensions can be searched.");
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Starts a search for the current search string on the search thread. Once
+     * it is done, its hits are displayed, unless another search has been
+     * started in the meantime.
+     */
+    private void startSearch() {
+        final int searchNumber = ++searchCount;
+        final String searchString = searchField.getText().trim();
+        final SearchField field = fieldChooser.getSelectedItem() instanceof SearchField ? (SearchField) fieldChooser.getSelectedItem()
+                                                                                        : null;
+
+        if (searchString.length() == 0) {
+            hitsModel.setHits(Collections.<SearchHit> emptyList());
+            statusLabel.setText(" ");
+            return;
+        }
+
+        SEARCH_EXECUTOR.execute(new Runnable() {
+            public void run() {
+                if (searchNumber != searchCount)
+                    return;
+
+                final long searchStart = System.nanoTime();
+                final List<SearchHit> hits = LogsSearchIndex.INDEX.search(searchString,
+                                                                          field,
+                                                                          MAX_HITS + 1);
+                final long searchTime = (System.nanoTime() - searchStart) / 1000000;
+
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        if (searchNumber == searchCount) {
+                            if (hits.size() > MAX_HITS) {
+                                hitsModel.setHits(hits.subList(0, MAX_HITS));
+                                statusLabel.setText("Only the first " + MAX_HITS
+                                                    + " hits are shown, please refine the search. ("
+                                                    + searchTime + " ms)");
+                            } else {
+                                hitsModel.setHits(hits);
+                                statusLabel.setText(hits.size() + " hits found. (" + searchTime
+                                                    + " ms)");
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return The hit that was double-clicked before this dialog was closed,
+     *         or {@code null} if none was.
+     */
+    SearchHit getSelectedHit() {
+        return selectedHit;
+    }
+
+    /**
+     * A list model of the current search hits, which fires a single change
+     * event for every new set of hits.
+     */
+    private static final class HitsModel extends AbstractListModel {
+        private List<SearchHit> hits = Collections.emptyList();
+
+        public int getSize() {
+            return hits.size();
+        }
+
+        public Object getElementAt(
+                                   final int index) {
+            return hits.get(index);
+        }
+
+        void setHits(
+                     final List<SearchHit> hits) {
+            final int oldSize = this.hits.size();
+            this.hits = hits;
+
+            if (oldSize > 0)
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            if (hits.size() > 0)
+                fireIntervalAdded(this, 0, hits.size() - 1);
+        }
+    }
+}
@@ -28,10 +28,11 @@ import javax.swing.JFrame;
 
 import com.googlecode.logVisualizer.logData.LogDataHolder;
 import com.googlecode.logVisualizer.logData.turn.TurnInterval;
+import com.googlecode.logVisualizer.util.LogsSearchIndex.SearchHit;
 
 /**
  * Utility class to display various search dialogs, such as dialogs to search
- * through turn intervals or single turns.
+ * through turn intervals or single turns, or through all cached logs.
  */
 public final class SearchDialogs {
     /**
@@ -78,4 +79,19 @@ public final class SearchDialogs {
         } else
             return null;
     }
+
+    /**
+     * Displays a search dialog for all cached ascension logs.
+     * 
+     * @param owner
+     *            The Frame from which the dialog is displayed.
+     * @return The hit selected inside the dialog, will be {@code null} in case
+     *         no hit was selected.
+     */
+    public static SearchHit showCachedLogsSearchDialog(
+                                                       final JFrame owner) {
+        final CachedLogsSearchDialog dialog = new CachedLogsSearchDialog(owner);
+
+        return dialog.getSelectedHit();
+    }
 }
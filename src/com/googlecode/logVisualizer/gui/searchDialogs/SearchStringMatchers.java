@@ -24,6 +24,7 @@
 
 package com.googlecode.logVisualizer.gui.searchDialogs;
 
+import java.util.Collections;
 import java.util.List;
 
 import com.googlecode.logVisualizer.logData.Item;
@@ -47,6 +48,11 @@ final class SearchStringMatchers {
             return t.getAreaName().toLowerCase().contains(searchString);
         }
 
+        public List<String> getSearchedNames(
+                                             final TurnEntity t) {
+            return Lists.immutableListOf(t.getAreaName());
+        }
+
         @Override
         public String toString() {
             return "By Area Name";
@@ -67,6 +73,14 @@ final class SearchStringMatchers {
                 return false;
         }
 
+        public List<String> getSearchedNames(
+                                             final TurnEntity t) {
+            if (t instanceof Encounter)
+                return Lists.immutableListOf(((Encounter) t).getEncounterName());
+            else
+                return Collections.emptyList();
+        }
+
         @Override
         public String toString() {
             return "By Encounter Name";
@@ -86,6 +100,15 @@ final class SearchStringMatchers {
             return false;
         }
 
+        public List<String> getSearchedNames(
+                                             final TurnEntity t) {
+            final List<String> names = Lists.newArrayList(t.getDroppedItems().size());
+            for (final Item i : t.getDroppedItems())
+                names.add(i.getName());
+
+            return names;
+        }
+
         @Override
         public String toString() {
             return "By Itemdrops";
@@ -105,6 +128,15 @@ final class SearchStringMatchers {
             return false;
         }
 
+        public List<String> getSearchedNames(
+                                             final TurnEntity t) {
+            final List<String> names = Lists.newArrayList(t.getSkillsCast().size());
+            for (final Skill s : t.getSkillsCast())
+                names.add(s.getName());
+
+            return names;
+        }
+
         @Override
         public String toString() {
             return "By Skills Cast";
@@ -124,6 +156,15 @@ final class SearchStringMatchers {
             return false;
         }
 
+        public List<String> getSearchedNames(
+                                             final TurnEntity t) {
+            final List<String> names = Lists.newArrayList(t.getConsumablesUsed().size());
+            for (final Consumable c : t.getConsumablesUsed())
+                names.add(c.getName());
+
+            return names;
+        }
+
         @Override
         public String toString() {
             return "By Consumable";
@@ -142,5 +183,13 @@ final class SearchStringMatchers {
     public interface SearchStringMatcher {
         boolean matches(
                         final TurnEntity e, final String searchString);
+
+        /**
+         * @return All names of the given turn which are looked at by
+         *         {@link #matches(TurnEntity, String)}. Used to build search
+         *         indexes.
+         */
+        List<String> getSearchedNames(
+                                      final TurnEntity e);
     }
 }
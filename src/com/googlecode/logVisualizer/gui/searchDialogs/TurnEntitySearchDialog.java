@@ -25,17 +25,20 @@
 package com.googlecode.logVisualizer.gui.searchDialogs;
 
 import java.awt.BorderLayout;
+import java.awt.EventQueue;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
-import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import org.jfree.ui.RefineryUtilities;
 
@@ -48,15 +51,46 @@ import com.googlecode.logVisualizer.util.Lists;
  * This is the start of an implementation of a search dialog targeted at any
  * sort of {@link TurnEntity}.
  * <p>
- * The dialog itself and the search part are already part of this class, the
- * display and handling of the search results is left to the implementing class.
+ * The dialog itself, the search part and the list model of the search results
+ * are already part of this class, the display and handling of the search
+ * results is left to the implementing class.
+ * <p>
+ * Searches are done with a {@link TurnSearchIndex} on a background thread
+ * shortly after the search string was last changed, so typing doesn't lag
+ * even on long logs.
  * <p>
  * Note that implementation classes should not add any kind UI elements other
  * than through the {@link #createResultsPane()} method.
  */
 abstract class TurnEntitySearchDialog extends JDialog {
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(
+                                final Runnable r) {
+            final Thread t = new Thread(r, "Turn search");
+            t.setDaemon(true);
+
+            return t;
+        }
+    });
+
+    private static final int SEARCH_DELAY = 150;
+
     private final List<TurnContainer> turnList;
 
+    private final SearchResultsModel resultsModel = new SearchResultsModel();
+
+    private final Timer searchTimer = new Timer(SEARCH_DELAY, null);
+
+    private volatile int searchCount;
+
+    private TurnSearchIndex searchIndex;
+
+    private SearchStringMatcher lastMatcher;
+
+    private String lastSearchString;
+
+    private int[] lastResults;
+
     private SearchStringMatcher searchMatcher;
 
     private TurnEntity selectedTurn;
@@ -106,6 +140,15 @@ abstract class TurnEntitySearchDialog extends JDialog {
         turnList = createTurnList(logData);
         searchMatcher = defaultMatcher;
 
+        // The search index is built in the background right away, so it is
+        // most likely ready once the first search string is typed in.
+        searchTimer.setRepeats(false);
+        SEARCH_EXECUTOR.execute(new Runnable() {
+            public void run() {
+                getSearchIndex();
+            }
+        });
+
         setLayout(new BorderLayout(0, 15));
         add(createSearchFieldPanel(defaultMatcher), BorderLayout.NORTH);
         add(createResultsPane(), BorderLayout.CENTER);
@@ -161,45 +204,81 @@ abstract class TurnEntitySearchDialog extends JDialog {
         searchModeChooser.addActionListener(new ActionListener() {
             public void actionPerformed(
                                         ActionEvent e) {
-                if (searchModeChooser.isFocusOwner())
+                if (searchModeChooser.isFocusOwner()) {
                     searchMatcher = (SearchStringMatcher) searchModeChooser.getSelectedItem();
+                    searchTimer.restart();
+                }
             }
         });
-        searchField.addKeyListener(new KeyAdapter() {
-            private final char SPACE = ' ';
-
-            @Override
-            public void keyTyped(
-                                 final KeyEvent e) {
-                final char key = e.getKeyChar();
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(
+                                     final DocumentEvent e) {
+                searchTimer.restart();
+            }
 
-                // Adding a space does nothing for the search, so no action
-                // necessary.
-                if (key == SPACE)
-                    return;
+            public void removeUpdate(
+                                     final DocumentEvent e) {
+                searchTimer.restart();
+            }
 
-                // The last character isn't added to the text field yet, so we
-                // add it manually if it is valid.
-                final String searchString;
-                if (key != KeyEvent.CHAR_UNDEFINED)
-                    searchString = (searchField.getText() + key).trim().toLowerCase();
-                else
-                    searchString = searchField.getText().trim().toLowerCase();
+            public void changedUpdate(
+                                      final DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        searchTimer.addActionListener(new ActionListener() {
+            public void actionPerformed(
+                                        final ActionEvent e) {
+                startSearch(searchField.getText().trim().toLowerCase());
+            }
+        });
 
-                final SearchStringMatcher matcher = searchMatcher;
+        return searchFieldPanel;
+    }
 
-                // Populate the results display with valid turns.
-                clearResults();
-                final List<TurnContainer> newResults = Lists.newArrayList(50);
-                for (final TurnContainer tc : turnList)
-                    if (searchString.length() <= 0 || matcher.matches(tc.getTurn(), searchString))
-                        newResults.add(tc);
+    /**
+     * Starts a search for the given search string on the search thread. Once
+     * it is done, its results are displayed, unless another search has been
+     * started in the meantime.
+     * <p>
+     * If the search string contains the one of the last displayed search with
+     * the same matcher, only the results of that search are searched again.
+     */
+    private void startSearch(
+                             final String searchString) {
+        final int searchNumber = ++searchCount;
+        final SearchStringMatcher matcher = searchMatcher;
+        final int[] candidates = matcher == lastMatcher && lastSearchString != null
+                                 && searchString.contains(lastSearchString) ? lastResults : null;
+
+        SEARCH_EXECUTOR.execute(new Runnable() {
+            public void run() {
+                if (searchNumber != searchCount)
+                    return;
 
-                addResults(newResults);
+                final int[] results = getSearchIndex().search(matcher, searchString, candidates);
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        if (searchNumber == searchCount) {
+                            lastMatcher = matcher;
+                            lastSearchString = searchString;
+                            lastResults = results;
+                            resultsModel.setResults(results);
+                        }
+                    }
+                });
             }
         });
+    }
 
-        return searchFieldPanel;
+    /**
+     * Only to be called on the search thread.
+     */
+    private TurnSearchIndex getSearchIndex() {
+        if (searchIndex == null)
+            searchIndex = new TurnSearchIndex(turnList);
+
+        return searchIndex;
     }
 
     /**
@@ -258,22 +337,43 @@ abstract class TurnEntitySearchDialog extends JDialog {
                                                           final LogDataHolder logData);
 
     /**
-     * Clears the displayed search results.
-     */
-    protected abstract void clearResults();
-
-    /**
-     * Add the given turn to the results and display it.
+     * Returns the list model holding the current search results, as
+     * {@link TurnContainer}s. It holds all turns until the first search is
+     * done. Implementing classes should display the results with a list using
+     * this model.
+     * 
+     * @return The list model of the search results.
      */
-    protected abstract void addResult(
-                                      final TurnContainer tc);
+    protected ListModel getResultsModel() {
+        return resultsModel;
+    }
 
     /**
-     * Add the given turns to the results and display them.
-     * <p>
-     * This method needs to be able to add the given list of turns without UI
-     * slow-downs in the result display.
+     * A list model of search results, which only holds the indexes of the
+     * resulting turns in the turn list. Setting new results therefore only
+     * fires a single change event, no matter how many results there are.
      */
-    protected abstract void addResults(
-                                       final Collection<TurnContainer> results);
+    private final class SearchResultsModel extends AbstractListModel {
+        private int[] results;
+
+        public int getSize() {
+            return results != null ? results.length : turnList.size();
+        }
+
+        public Object getElementAt(
+                                   final int index) {
+            return turnList.get(results != null ? results[index] : index);
+        }
+
+        void setResults(
+                        final int[] results) {
+            final int oldSize = getSize();
+            this.results = results;
+
+            if (oldSize > 0)
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            if (getSize() > 0)
+                fireIntervalAdded(this, 0, getSize() - 1);
+        }
+    }
 }
@@ -26,7 +26,6 @@ package com.googlecode.logVisualizer.gui.searchDialogs;
 
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.Collection;
 import java.util.List;
 
 import javax.swing.*;
@@ -60,8 +59,7 @@ final class TurnSearchDialog extends TurnEntitySearchDialog {
             public void mouseClicked(
                                      final MouseEvent e) {
                 if (e.getClickCount() >= 2 && !turnResultsList.isSelectionEmpty()) {
-                    final DefaultListModel model = (DefaultListModel) turnResultsList.getModel();
-                    setSelectedTurn(((TurnContainer) model.getElementAt(turnResultsList.getSelectedIndex())).getTurn());
+                    setSelectedTurn(((TurnContainer) turnResultsList.getSelectedValue()).getTurn());
                     dispose();
                 }
             }
@@ -84,14 +82,12 @@ final class TurnSearchDialog extends TurnEntitySearchDialog {
     @Override
     protected JComponent createResultsPane() {
         final JSplitPane splitter = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
-        turnResultsList = new JList(new DefaultListModel());
+        turnResultsList = new JList(getResultsModel());
         dataPane = new TurnDataPane();
 
         turnResultsList.setToolTipText("Double-click turn to jump to it in the proper ascension log");
         turnResultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         turnResultsList.setCellRenderer(new MultiLineCellRenderer());
-        for (final TurnContainer tc : getTurnsList())
-            addResult(tc);
 
         splitter.setLeftComponent(new JScrollPane(turnResultsList,
                                                   JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
@@ -114,42 +110,4 @@ final class TurnSearchDialog extends TurnEntitySearchDialog {
 
         return result;
     }
-
-    @Override
-    protected void clearResults() {
-        ((DefaultListModel) turnResultsList.getModel()).clear();
-    }
-
-    @Override
-    protected void addResult(
-                             final TurnContainer tc) {
-        ((DefaultListModel) turnResultsList.getModel()).addElement(tc);
-    }
-
-    @Override
-    protected void addResults(
-                              final Collection<TurnContainer> results) {
-        // Default models already in use fire a lot of events when elements get
-        // added, to the point that there are very noticeable slow-downs.
-        // We can side-step this issue by simply using a new model in case there
-        // are a lot of elements to be added.
-        // A cleaner approach would probably be to implement a ListModel that
-        // doesn't fire events when they are not needed, but this is adequate
-        // enough for now.
-        if (results.size() <= 25)
-            for (final TurnContainer tc : results)
-                addResult(tc);
-        else {
-            final DefaultListModel newModel = new DefaultListModel();
-            final DefaultListModel currentModel = (DefaultListModel) turnResultsList.getModel();
-            if (!currentModel.isEmpty())
-                for (int i = 0; i < currentModel.size(); i++)
-                    newModel.addElement(currentModel.get(i));
-
-            for (final TurnContainer tc : results)
-                newModel.addElement(tc);
-
-            turnResultsList.setModel(newModel);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.gui.searchDialogs;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.googlecode.logVisualizer.gui.searchDialogs.SearchStringMatchers.SearchStringMatcher;
+import com.googlecode.logVisualizer.util.Maps;
+
+/**
+ * An inverted trigram index over all names looked at by the
+ * {@link SearchStringMatchers}, for one list of turns.
+ * <p>
+ * For every matcher, each three character long part of the lower-cased names
+ * of a turn points to the index of that turn in the turn list. A search string
+ * can only be contained in a name if all its trigrams are, so the turns to
+ * check with the actual matcher can be narrowed down to the intersection of the
+ * turn lists of the search string's trigrams.
+ * <p>
+ * Instances of this class are immutable once created and can be used from any
+ * thread.
+ */
+final class TurnSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int[] NO_TURNS = new int[0];
+
+    private final List<TurnContainer> turns;
+
+    private final Map<SearchStringMatcher, Map<String, int[]>> gramIndexes;
+
+    /**
+     * @param turns
+     *            The turns which should be searchable. The indexes returned
+     *            by {@link #search(SearchStringMatcher, String, int[])} point
+     *            into this list.
+     */
+    TurnSearchIndex(
+                    final List<TurnContainer> turns) {
+        this.turns = turns;
+
+        gramIndexes = Maps.newHashMap((int) (SearchStringMatchers.MATCHERS.size() * 1.4) + 1);
+        for (final SearchStringMatcher matcher : SearchStringMatchers.MATCHERS)
+            gramIndexes.put(matcher, createGramIndex(matcher));
+    }
+
+    private Map<String, int[]> createGramIndex(
+                                               final SearchStringMatcher matcher) {
+        final Map<String, TurnIndexes> postings = Maps.newHashMap(1000);
+
+        for (int i = 0; i < turns.size(); i++)
+            for (final String name : matcher.getSearchedNames(turns.get(i).getTurn())) {
+                final String lowerCaseName = name.toLowerCase();
+
+                for (int j = 0; j + GRAM_LENGTH <= lowerCaseName.length(); j++) {
+                    final String gram = lowerCaseName.substring(j, j + GRAM_LENGTH);
+
+                    TurnIndexes turnIndexes = postings.get(gram);
+                    if (turnIndexes == null) {
+                        turnIndexes = new TurnIndexes();
+                        postings.put(gram, turnIndexes);
+                    }
+                    turnIndexes.add(i);
+                }
+            }
+
+        final Map<String, int[]> gramIndex = Maps.newHashMap((int) (postings.size() * 1.4) + 1);
+        for (final String gram : postings.keySet())
+            gramIndex.put(gram, postings.get(gram).toArray());
+
+        return gramIndex;
+    }
+
+    /**
+     * @param matcher
+     *            The matcher which should be used for the search.
+     * @param searchString
+     *            The lower-cased search string. An empty search string matches
+     *            all turns.
+     * @param candidates
+     *            The sorted indexes of the turns out of which the results should
+     *            be taken, for example the results of a previous search with a
+     *            search string contained in the given one, or {@code null} if
+     *            all turns should be searched.
+     * @return The sorted indexes of all turns matching the given search string.
+     */
+    int[] search(
+                 final SearchStringMatcher matcher, final String searchString,
+                 final int[] candidates) {
+        int[] turnIndexes = candidates;
+
+        if (searchString.length() >= GRAM_LENGTH) {
+            final Map<String, int[]> gramIndex = gramIndexes.get(matcher);
+
+            for (int i = 0; i + GRAM_LENGTH <= searchString.length(); i++) {
+                final int[] gramTurns = gramIndex.get(searchString.substring(i, i + GRAM_LENGTH));
+                if (gramTurns == null)
+                    return NO_TURNS;
+
+                turnIndexes = turnIndexes == null ? gramTurns : intersect(turnIndexes, gramTurns);
+                if (turnIndexes.length == 0)
+                    return NO_TURNS;
+            }
+        }
+
+        if (searchString.length() == 0) {
+            if (turnIndexes != null)
+                return turnIndexes;
+
+            turnIndexes = new int[turns.size()];
+            for (int i = 0; i < turnIndexes.length; i++)
+                turnIndexes[i] = i;
+
+            return turnIndexes;
+        }
+
+        // The trigrams only narrow down the possible results, whether the turns
+        // really match still needs to be checked.
+        final int[] results = new int[turnIndexes != null ? turnIndexes.length : turns.size()];
+        int resultsCount = 0;
+        for (int i = 0; i < results.length; i++) {
+            final int turnIndex = turnIndexes != null ? turnIndexes[i] : i;
+            if (matcher.matches(turns.get(turnIndex).getTurn(), searchString))
+                results[resultsCount++] = turnIndex;
+        }
+
+        return Arrays.copyOf(results, resultsCount);
+    }
+
+    private static int[] intersect(
+                                   final int[] first, final int[] second) {
+        final int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length)
+            if (first[i] < second[j])
+                i++;
+            else if (first[i] > second[j])
+                j++;
+            else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * A growable, sorted list of turn indexes without duplicates, as long as
+     * the indexes are added in ascending order.
+     */
+    private static final class TurnIndexes {
+        private int[] indexes = new int[4];
+
+        private int size;
+
+        void add(
+                 final int index) {
+            if (size > 0 && indexes[size - 1] == index)
+                return;
+
+            if (size == indexes.length)
+                indexes = Arrays.copyOf(indexes, size * 2);
+            indexes[size++] = index;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(indexes, size);
+        }
+    }
+}
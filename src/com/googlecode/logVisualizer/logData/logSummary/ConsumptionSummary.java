@@ -34,6 +34,7 @@ import com.googlecode.logVisualizer.logData.consumables.Consumable;
 import com.googlecode.logVisualizer.logData.turn.turnAction.DayChange;
 import com.googlecode.logVisualizer.util.CountableSet;
 import com.googlecode.logVisualizer.util.dataTables.DataTablesHandler;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesSnapshot;
 
 /**
  * This class is a consumption data holder. It orders consumption by day and has
@@ -54,11 +55,12 @@ public final class ConsumptionSummary {
     ConsumptionSummary(
                        final Collection<Consumable> consumables,
                        final Collection<DayChange> dayChanges) {
+        final DataTablesSnapshot dataTables = DataTablesHandler.HANDLER.getDataTables();
         for (final DayChange dc : dayChanges) {
             final ConsumptionDayStats dayStats = new ConsumptionDayStats(dc.getDayNumber());
             for (final Consumable c : consumables)
                 if (c.getDayNumberOfUsage() == dc.getDayNumber())
-                    dayStats.addConsumable(c);
+                    dayStats.addConsumable(c, dataTables);
 
             dayStatistics.add(dayStats);
         }
@@ -189,25 +191,25 @@ public final class ConsumptionSummary {
         }
 
         private void addConsumable(
-                                   final Consumable c) {
+                                   final Consumable c, final DataTablesSnapshot dataTables) {
             consumablesUsed.addElement(c);
             totalConsumablesStatgains = totalConsumablesStatgains.addStats(c.getStatGain());
             switch (c.getConsumableVersion()) {
                 case FOOD:
                     totalTurnsFromFood += c.getAdventureGain();
-                    totalFullnessHit += DataTablesHandler.HANDLER.getFullnessHit(c.getName())
+                    totalFullnessHit += dataTables.getFullnessHit(c.getName())
                                         * c.getAmount();
                     foodConsumablesStatgains = foodConsumablesStatgains.addStats(c.getStatGain());
                     break;
                 case BOOZE:
                     totalTurnsFromBooze += c.getAdventureGain();
-                    totalDrunkennessHit += DataTablesHandler.HANDLER.getDrunkennessHit(c.getName())
+                    totalDrunkennessHit += dataTables.getDrunkennessHit(c.getName())
                                            * c.getAmount();
                     boozeConsumablesStatgains = boozeConsumablesStatgains.addStats(c.getStatGain());
                     break;
                 case SPLEEN:
                     totalTurnsFromSpleen += c.getAdventureGain();
-                    totalSpleenHit += DataTablesHandler.HANDLER.getSpleenHit(c.getName())
+                    totalSpleenHit += dataTables.getSpleenHit(c.getName())
                                       * c.getAmount();
                     usedConsumablesStatgains = usedConsumablesStatgains.addStats(c.getStatGain());
                     break;
@@ -34,6 +34,7 @@ import com.googlecode.logVisualizer.logData.turn.turnAction.PlayerSnapshot;
 import com.googlecode.logVisualizer.parser.UsefulPatterns;
 import com.googlecode.logVisualizer.util.*;
 import com.googlecode.logVisualizer.util.dataTables.DataTablesHandler;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesSnapshot;
 
 /**
  * A calculator for various summaries of an ascension log. This class makes use
@@ -182,6 +183,9 @@ final class SummaryDataCalculator {
         int totalTurnsOther = 0;
         int totalMeatGain = 0;
         int totalMeatSpent = 0;
+        // All turns are checked against the same data tables, even if they
+        // are reloaded in the meantime.
+        final DataTablesSnapshot dataTables = DataTablesHandler.HANDLER.getDataTables();
         for (final TurnInterval ti : logData.getTurnIntervalsSpent()) {
             // Consumables summary, day of usage is only a hindrance here.
             for (final Consumable c : ti.getConsumablesUsed()) {
@@ -260,17 +264,17 @@ final class SummaryDataCalculator {
                                                                st.getTurnNumber()));
 
                 // Semirare summary
-                if (DataTablesHandler.HANDLER.isSemirareEncounter(st))
+                if (dataTables.isSemirareEncounter(st))
                     semirares.add(DataNumberPair.of(st.getEncounterName(), st.getTurnNumber()));
 
                 // Bad Moon summary
-                if (DataTablesHandler.HANDLER.isBadMoonEncounter(st))
+                if (dataTables.isBadMoonEncounter(st))
                     badmoonAdventures.add(DataNumberPair.of(st.getEncounterName(),
                                                             st.getTurnNumber()));
 
                 for (final Encounter e : st.getEncounters()) {
                     // Wandering adventure summary
-                    if (DataTablesHandler.HANDLER.isWanderingEncounter(e))
+                    if (dataTables.isWanderingEncounter(e))
                         wanderingAdventures.add(DataNumberPair.of(e.getEncounterName(),
                                                                   e.getTurnNumber()));
 
@@ -26,16 +26,18 @@ package com.googlecode.logVisualizer.parser;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.java.dev.spellcast.utilities.UtilityConstants;
 
 import com.googlecode.logVisualizer.Settings;
+import com.googlecode.logVisualizer.logData.LogDataHolder;
 import com.googlecode.logVisualizer.logData.turn.Encounter;
+import com.googlecode.logVisualizer.util.BatchMetrics;
+import com.googlecode.logVisualizer.util.BatchScheduler;
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchTask;
 import com.googlecode.logVisualizer.util.Lists;
 import com.googlecode.logVisualizer.util.LogOutputFormat;
 import com.googlecode.logVisualizer.util.Pair;
@@ -186,14 +188,203 @@ public final class LogsCreator {
                                                                        final LogOutputFormat logVersion,
                                                                        final int logsToParse)
                                                                                              throws IOException {
+        return createParsedLogs(mafiaLogs, savingDestDir, logVersion, logsToParse, false);
+    }
+
+    /**
+     * Creates and saves parsed ascension logs. The format of those logs is
+     * similar to the one used by the AFH MafiaLog Parser. (
+     * {@link TextLogCreator} handles the log format)
+     * <p>
+     * The file names of the created logs have the format
+     * {@code USERNAME_ascendYYYYMMDD.txt}, where Y is the year, M is the month
+     * and D is the day of the first day of that ascension.
+     * <p>
+     * Note that only the last n ascensions will be parsed.
+     * 
+     * @param mafiaLogs
+     *            The mafia logs which should be turned into parsed ascension
+     *            logs.
+     * @param savingDestDir
+     *            The directory inside which the parsed ascension logs should be
+     *            saved in.
+     * @param logVersion
+     *            The output format of the parsed logs.
+     * @param logsToParse
+     *            The last n ascensions that should be parsed.
+     * @param isXMLCompressed
+     *            {@code true} if logs in the {@link LogOutputFormat#XML_LOG}
+     *            format should be GZIP compressed, otherwise {@code false}.
+     *            This flag is ignored for all other formats.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing process. The included turn
+     *         the turn after which the exception occurred. This list will be
+     *         empty if all files were correctly parsed.
+     * @throws IOException
+     *             if there was a problem while accessing or writing files
+     *             handled by this method
+     * @throws NullPointerException
+     *             if mafiaLogs is {@code null}; if savingDestDir is
+     *             {@code null}
+     * @throws IllegalArgumentException
+     *             if mafiaLogs does not contain any elements; if the directory
+     *             savingDestDir does not exist; if savingDestDir is not a
+     *             directory; if logsToParse is smaller than 1
+     */
+    public static final List<Pair<String, Encounter>> createParsedLogs(
+                                                                       final File[] mafiaLogs,
+                                                                       final File savingDestDir,
+                                                                       final LogOutputFormat logVersion,
+                                                                       final int logsToParse,
+                                                                       final boolean isXMLCompressed)
+                                                                                                     throws IOException {
+        return createParsedLogs(mafiaLogs,
+                                savingDestDir,
+                                EnumSet.of(logVersion),
+                                logsToParse,
+                                isXMLCompressed);
+    }
+
+    /**
+     * Creates and saves parsed ascension logs in all of the given formats. The
+     * format of those logs is similar to the one used by the AFH MafiaLog
+     * Parser. ( {@link TextLogCreator} handles the log format)
+     * <p>
+     * Every ascension is only condensed and parsed once, after which the parsed
+     * log data is handed to the writers of all given formats. These writers
+     * run concurrently to each other and to the parsing of other ascensions.
+     * <p>
+     * The file names of the created logs have the format
+     * {@code USERNAME_ascendYYYYMMDD.txt}, where Y is the year, M is the month
+     * and D is the day of the first day of that ascension. Because the text
+     * and BBCode formats share that file name, the BBCode logs will be named
+     * {@code USERNAME_ascendYYYYMMDD_bbcode.txt} if both formats are
+     * requested.
+     * <p>
+     * Note that only the last n ascensions will be parsed.
+     * 
+     * @param mafiaLogs
+     *            The mafia logs which should be turned into parsed ascension
+     *            logs.
+     * @param savingDestDir
+     *            The directory inside which the parsed ascension logs should be
+     *            saved in.
+     * @param logVersions
+     *            The output formats of the parsed logs.
+     * @param logsToParse
+     *            The last n ascensions that should be parsed.
+     * @param isXMLCompressed
+     *            {@code true} if logs in the {@link LogOutputFormat#XML_LOG}
+     *            format should be GZIP compressed, otherwise {@code false}.
+     *            This flag is ignored for all other formats.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing or writing process. The
+     *         included turn the turn after which the exception occurred. This
+     *         list will be empty if all files were correctly parsed.
+     * @throws IOException
+     *             if there was a problem while accessing or writing files
+     *             handled by this method
+     * @throws NullPointerException
+     *             if mafiaLogs is {@code null}; if savingDestDir is
+     *             {@code null}; if logVersions is {@code null}
+     * @throws IllegalArgumentException
+     *             if mafiaLogs does not contain any elements; if the directory
+     *             savingDestDir does not exist; if savingDestDir is not a
+     *             directory; if logVersions does not contain any elements; if
+     *             logsToParse is smaller than 1
+     */
+    public static final List<Pair<String, Encounter>> createParsedLogs(
+                                                                       final File[] mafiaLogs,
+                                                                       final File savingDestDir,
+                                                                       final Set<LogOutputFormat> logVersions,
+                                                                       final int logsToParse,
+                                                                       final boolean isXMLCompressed)
+                                                                                                     throws IOException {
+        return createParsedLogs(mafiaLogs,
+                                savingDestDir,
+                                logVersions,
+                                logsToParse,
+                                isXMLCompressed,
+                                BatchScheduler.newDefaultScheduler(null));
+    }
+
+    /**
+     * Creates and saves parsed ascension logs in all of the given formats. The
+     * format of those logs is similar to the one used by the AFH MafiaLog
+     * Parser. ( {@link TextLogCreator} handles the log format)
+     * <p>
+     * Every ascension is only condensed and parsed once, after which the parsed
+     * log data is handed to the writers of all given formats. These writers
+     * run concurrently to each other and to the parsing of other ascensions.
+     * <p>
+     * The ascensions are parsed by the given scheduler, which reports the
+     * progress of the parsing and through which it can be cancelled. If it is
+     * cancelled, ascensions that weren't started yet won't be parsed, but the
+     * ones already being parsed will still be saved.
+     * <p>
+     * The file names of the created logs have the format
+     * {@code USERNAME_ascendYYYYMMDD.txt}, where Y is the year, M is the month
+     * and D is the day of the first day of that ascension. Because the text
+     * and BBCode formats share that file name, the BBCode logs will be named
+     * {@code USERNAME_ascendYYYYMMDD_bbcode.txt} if both formats are
+     * requested.
+     * <p>
+     * Note that only the last n ascensions will be parsed.
+     * 
+     * @param mafiaLogs
+     *            The mafia logs which should be turned into parsed ascension
+     *            logs.
+     * @param savingDestDir
+     *            The directory inside which the parsed ascension logs should be
+     *            saved in.
+     * @param logVersions
+     *            The output formats of the parsed logs.
+     * @param logsToParse
+     *            The last n ascensions that should be parsed.
+     * @param isXMLCompressed
+     *            {@code true} if logs in the {@link LogOutputFormat#XML_LOG}
+     *            format should be GZIP compressed, otherwise {@code false}.
+     *            This flag is ignored for all other formats.
+     * @param scheduler
+     *            The scheduler used to parse the ascensions.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing or writing process. The
+     *         included turn the turn after which the exception occurred. This
+     *         list will be empty if all files were correctly parsed.
+     * @throws IOException
+     *             if there was a problem while accessing or writing files
+     *             handled by this method
+     * @throws NullPointerException
+     *             if mafiaLogs is {@code null}; if savingDestDir is
+     *             {@code null}; if logVersions is {@code null}; if scheduler
+     *             is {@code null}
+     * @throws IllegalArgumentException
+     *             if mafiaLogs does not contain any elements; if the directory
+     *             savingDestDir does not exist; if savingDestDir is not a
+     *             directory; if logVersions does not contain any elements; if
+     *             logsToParse is smaller than 1
+     */
+    public static final List<Pair<String, Encounter>> createParsedLogs(
+                                                                       final File[] mafiaLogs,
+                                                                       final File savingDestDir,
+                                                                       final Set<LogOutputFormat> logVersions,
+                                                                       final int logsToParse,
+                                                                       final boolean isXMLCompressed,
+                                                                       final BatchScheduler scheduler)
+                                                                                                      throws IOException {
         if (!savingDestDir.exists())
             throw new IllegalArgumentException("The directory doesn't exist.");
         if (!savingDestDir.isDirectory())
             throw new IllegalArgumentException("The given file is not a directory.");
+        if (logVersions.isEmpty())
+            throw new IllegalArgumentException("At least one output format has to be given.");
         if (logsToParse <= 0)
             throw new IllegalArgumentException("The number of logs to parse must not be below 1.");
-
-        final List<Pair<String, Encounter>> errorFileList = Collections.synchronizedList(new ArrayList<Pair<String, Encounter>>());
+        if (scheduler == null)
+            throw new NullPointerException("The scheduler must not be null.");
 
         final File[] condensedMafiaLogs = createCondensedMafiaLogs(mafiaLogs);
         Arrays.sort(condensedMafiaLogs, new Comparator<File>() {
@@ -202,64 +393,17 @@ public final class LogsCreator {
                 return o2.getName().compareToIgnoreCase(o1.getName());
             }
         });
-
-        // 4 Threads per CPU should be a high enough number to not slow the
-        // computation too much down by scheduler overhead while still making
-        // use of threaded computing.
-        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime()
-                                                                             .availableProcessors() * 4);
-
-        int logsLeftToParse = logsToParse;
-        for (final File f : condensedMafiaLogs) {
-            if (logsLeftToParse <= 0)
-                break;
-            else
-                logsLeftToParse--;
-
-            executor.execute(new Runnable() {
-                public void run() {
-                    final MafiaLogParser parser = new MafiaLogParser(f,
-                                                                     Settings.getSettingBoolean("Include mafia log notes"));
-
-                    try {
-                        parser.parse();
-
-                        if (logVersion == LogOutputFormat.XML_LOG)
-                            XMLLogCreator.createXMLLog(parser.getLogData(), savingDestDir);
-                        else {
-                            final File parsedLog = new File(savingDestDir,
-                                                            getParsedLogNameFromCondensedMafiaLog(f.getName(),
-                                                                                                  logVersion));
-                            if (parsedLog.exists())
-                                parsedLog.delete();
-                            parsedLog.createNewFile();
-
-                            TextLogCreator.saveTextualLogToFile(parser.getLogData(),
-                                                                parsedLog,
-                                                                logVersion);
-                        }
-                    } catch (final Exception e) {
-                        // Add the erroneous log to the error file list.
-                        errorFileList.add(Pair.of(getParsedLogNameFromCondensedMafiaLog(f.getName(),
-                                                                                        logVersion),
-                                                  (Encounter) parser.getLogData()
-                                                                    .getLastTurnSpent()));
-                        // Print stack trace and the file name of the file in
-                        // which the error happened.
-                        System.err.println(f.getName());
-                        e.printStackTrace();
-                    }
-                }
-            });
-        }
-
-        // Wait for all threads to finish.
-        executor.shutdown();
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-        } catch (final InterruptedException e) {
-            e.printStackTrace();
-        }
+        final List<File> logsToBeParsed = Arrays.asList(condensedMafiaLogs)
+                                                .subList(0,
+                                                         Math.min(logsToParse,
+                                                                  condensedMafiaLogs.length));
+
+        final List<Pair<String, Encounter>> errorFileList = createParsedLogsFromCondensedMafiaLogs(logsToBeParsed,
+                                                                                                  savingDestDir,
+                                                                                                  logVersions,
+                                                                                                  isXMLCompressed,
+                                                                                                  scheduler,
+                                                                                                  null);
 
         // Temporary files should be deleted after use. Possible subdirectories
         // are ignored here.
@@ -270,6 +414,174 @@ public final class LogsCreator {
         return errorFileList;
     }
 
+    /**
+     * Creates and saves parsed ascension logs in all of the given formats from
+     * the given condensed mafia logs (see
+     * {@link #createCondensedMafiaLogs(File[])}). Apart from that, this method
+     * works like
+     * {@link #createParsedLogs(File[], File, Set, int, boolean, BatchScheduler)}
+     * .
+     * <p>
+     * Note that the condensed mafia logs won't be deleted by this method.
+     * 
+     * @param condensedMafiaLogs
+     *            The condensed mafia logs which should be turned into parsed
+     *            ascension logs.
+     * @param savingDestDir
+     *            The directory inside which the parsed ascension logs should be
+     *            saved in.
+     * @param logVersions
+     *            The output formats of the parsed logs.
+     * @param isXMLCompressed
+     *            {@code true} if logs in the {@link LogOutputFormat#XML_LOG}
+     *            format should be GZIP compressed, otherwise {@code false}.
+     *            This flag is ignored for all other formats.
+     * @param scheduler
+     *            The scheduler used to parse the ascensions.
+     * @param metrics
+     *            The metrics to record the parse, summary and write timings
+     *            of every ascension in, may be {@code null}.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing or writing process. The
+     *         included turn the turn after which the exception occurred. This
+     *         list will be empty if all files were correctly parsed.
+     * @throws NullPointerException
+     *             if condensedMafiaLogs is {@code null}; if savingDestDir is
+     *             {@code null}; if logVersions is {@code null}; if scheduler
+     *             is {@code null}
+     * @throws IllegalArgumentException
+     *             if the directory savingDestDir does not exist; if
+     *             savingDestDir is not a directory; if logVersions does not
+     *             contain any elements
+     */
+    public static final List<Pair<String, Encounter>> createParsedLogsFromCondensedMafiaLogs(
+                                                                                             final Collection<File> condensedMafiaLogs,
+                                                                                             final File savingDestDir,
+                                                                                             final Set<LogOutputFormat> logVersions,
+                                                                                             final boolean isXMLCompressed,
+                                                                                             final BatchScheduler scheduler,
+                                                                                             final BatchMetrics metrics) {
+        if (!savingDestDir.exists())
+            throw new IllegalArgumentException("The directory doesn't exist.");
+        if (!savingDestDir.isDirectory())
+            throw new IllegalArgumentException("The given file is not a directory.");
+        if (logVersions.isEmpty())
+            throw new IllegalArgumentException("At least one output format has to be given.");
+        if (scheduler == null)
+            throw new NullPointerException("The scheduler must not be null.");
+
+        final Set<LogOutputFormat> formats = EnumSet.copyOf(logVersions);
+        final List<Pair<String, Encounter>> errorFileList = Collections.synchronizedList(new ArrayList<Pair<String, Encounter>>());
+
+        scheduler.run(condensedMafiaLogs, new BatchTask() {
+            public void process(
+                                final File f, final Executor subtasks) {
+                final MafiaLogParser parser = new MafiaLogParser(f,
+                                                                 Settings.getSettingBoolean("Include mafia log notes"));
+
+                final long parseStart = System.nanoTime();
+                try {
+                    parser.parse();
+                } catch (final Exception e) {
+                    if (metrics != null)
+                        metrics.recordError(f, parser.getLogData()
+                                                     .getLastTurnSpent()
+                                                     .getTurnNumber());
+                    // Add the erroneous log to the error file list.
+                    errorFileList.add(Pair.of(getParsedLogName(f.getName(),
+                                                               formats.iterator().next(),
+                                                               formats),
+                                              (Encounter) parser.getLogData()
+                                                                .getLastTurnSpent()));
+                    // Print stack trace and the file name of the file in which
+                    // the error happened.
+                    System.err.println(f.getName());
+                    e.printStackTrace();
+
+                    return;
+                }
+
+                // The log data isn't changed anymore from here on and can
+                // therefore be read by all writers at the same time.
+                final LogDataHolder logData = parser.getLogData();
+                if (metrics != null)
+                    metrics.recordParse(f,
+                                        System.nanoTime() - parseStart,
+                                        parser.getSummaryCreationTime(),
+                                        logData.getLastTurnSpent().getTurnNumber());
+
+                for (final LogOutputFormat format : formats)
+                    subtasks.execute(new Runnable() {
+                        public void run() {
+                            final long writeStart = System.nanoTime();
+                            try {
+                                if (format == LogOutputFormat.XML_LOG)
+                                    XMLLogCreator.createXMLLog(logData,
+                                                               savingDestDir,
+                                                               isXMLCompressed);
+                                else {
+                                    final File parsedLog = new File(savingDestDir,
+                                                                    getParsedLogName(f.getName(),
+                                                                                     format,
+                                                                                     formats));
+                                    if (parsedLog.exists())
+                                        parsedLog.delete();
+                                    parsedLog.createNewFile();
+
+                                    // Several logs are already written at the
+                                    // same time, so the days of each log are
+                                    // printed one after another.
+                                    TextLogCreator.saveTextualLogToFile(logData,
+                                                                        parsedLog,
+                                                                        format,
+                                                                        false);
+                                }
+
+                                if (metrics != null)
+                                    metrics.recordWrite(f,
+                                                        format.toString(),
+                                                        System.nanoTime() - writeStart);
+                            } catch (final Exception e) {
+                                if (metrics != null)
+                                    metrics.recordError(f, logData.getLastTurnSpent()
+                                                                  .getTurnNumber());
+                                // Add the erroneous log to the error file list.
+                                errorFileList.add(Pair.of(getParsedLogName(f.getName(),
+                                                                           format,
+                                                                           formats),
+                                                          (Encounter) logData.getLastTurnSpent()));
+                                // Print stack trace and the file name of the
+                                // file in which the error happened.
+                                System.err.println(f.getName());
+                                e.printStackTrace();
+                            }
+                        }
+                    });
+            }
+        });
+
+        return errorFileList;
+    }
+
+    /**
+     * Returns the parsed ascension log file name of the given condensed mafia
+     * log for the given format, taking into account that the text and BBCode
+     * formats would otherwise share the same file name if both are created.
+     */
+    private static String getParsedLogName(
+                                           final String condensedMafiaLogFileName,
+                                           final LogOutputFormat logVersion,
+                                           final Set<LogOutputFormat> allLogVersions) {
+        final String parsedLogName = getParsedLogNameFromCondensedMafiaLog(condensedMafiaLogFileName,
+                                                                           logVersion);
+        if (logVersion == LogOutputFormat.BBCODE_LOG
+            && allLogVersions.contains(LogOutputFormat.TEXT_LOG))
+            return parsedLogName.replace(".txt", "_bbcode.txt");
+
+        return parsedLogName;
+    }
+
     /**
      * Takes the file name of a condensed mafia log and changes it into the
      * proper format for parsed ascension logs.
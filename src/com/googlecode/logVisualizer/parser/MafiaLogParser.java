@@ -63,6 +63,7 @@ import com.googlecode.logVisualizer.parser.mafiaLogBlockParsers.PlayerSnapshotBl
 import com.googlecode.logVisualizer.util.Lists;
 import com.googlecode.logVisualizer.util.Maps;
 import com.googlecode.logVisualizer.util.Pair;
+import com.googlecode.logVisualizer.util.ReadingProgress;
 import com.googlecode.logVisualizer.util.Stack;
 
 public final class MafiaLogParser implements LogParser {
@@ -84,6 +85,8 @@ public final class MafiaLogParser implements LogParser {
 
     private final File log;
 
+    private final ReadingProgress progress;
+
     private final Stack<EquipmentChange> equipmentStack = Stack.newStack();
     {
         equipmentStack.push(logData.getLastEquipmentChange());
@@ -106,6 +109,8 @@ public final class MafiaLogParser implements LogParser {
 
     private final List<LineParser> lineParsers = Lists.newArrayList();
 
+    private long summaryCreationTime = -1;
+
     /**
      * @param log
      *            The mafia ascension log which is intended to be parsed to set.
@@ -114,7 +119,23 @@ public final class MafiaLogParser implements LogParser {
      */
     public MafiaLogParser(
             final File log, final boolean isIncludeMafiaLogNotes) {
+        this(log, isIncludeMafiaLogNotes, null);
+    }
+
+    /**
+     * @param log
+     *            The mafia ascension log which is intended to be parsed to set.
+     * @param progress
+     *            The reading progress of the log, through which the parsing
+     *            can also be cancelled. May be {@code null}.
+     * @throws NullPointerException
+     *             if log is {@code null}
+     */
+    public MafiaLogParser(
+            final File log, final boolean isIncludeMafiaLogNotes,
+            final ReadingProgress progress) {
         this.log = log;
+        this.progress = progress;
 
         // Set the log name
         getLogData().setLogName(log.getName().replace(".txt", UsefulPatterns.EMPTY_STRING));
@@ -140,7 +161,7 @@ public final class MafiaLogParser implements LogParser {
      */
     public void parse()
             throws IOException {
-        final MafiaSessionLogReader reader = new MafiaSessionLogReader(log);
+        final MafiaSessionLogReader reader = new MafiaSessionLogReader(log, progress);
         final boolean isOldAscensionCounting = Settings.getSettingBoolean("Using old ascension counting");
         boolean nsFightWon = false;
 
@@ -255,7 +276,18 @@ public final class MafiaLogParser implements LogParser {
         getLogData().setFamiliarChanges(famChanges);
         getLogData().setEquipmentChanges(equipChanges);
 
+        final long summaryStart = System.nanoTime();
         getLogData().createLogSummary();
+        summaryCreationTime = System.nanoTime() - summaryStart;
+    }
+
+    /**
+     * @return The time in nanoseconds the creation of the log summary took as
+     *         part of {@link #parse()}, or {@code -1} if the parsing hasn't
+     *         gotten that far.
+     */
+    public long getSummaryCreationTime() {
+        return summaryCreationTime;
     }
 
     /**
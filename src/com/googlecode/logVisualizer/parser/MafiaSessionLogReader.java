@@ -26,8 +26,8 @@ package com.googlecode.logVisualizer.parser;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.Collections;
 import java.util.List;
@@ -35,6 +35,7 @@ import java.util.Set;
 
 import com.googlecode.logVisualizer.parser.mafiaLogBlockParsers.HybridDataBlockParser;
 import com.googlecode.logVisualizer.util.Lists;
+import com.googlecode.logVisualizer.util.ReadingProgress;
 import com.googlecode.logVisualizer.util.Sets;
 
 /**
@@ -92,12 +93,28 @@ public final class MafiaSessionLogReader {
     MafiaSessionLogReader(
             final File log)
                     throws IOException {
+        this(log, null);
+    }
+
+    /**
+     * @param log
+     *            The condensed mafia session log that is supposed to be parsed.
+     * @param progress
+     *            The reading progress of the log, through which the reading
+     *            can also be cancelled. May be {@code null}.
+     * @throws IOException
+     *             if there were issues with accessing the log
+     */
+    MafiaSessionLogReader(
+            final File log, final ReadingProgress progress)
+                    throws IOException {
         if (!log.exists())
             throw new IllegalArgumentException("Log file must exist.");
         if (log.isDirectory())
             throw new IllegalArgumentException("Log file has to be a file, not a directory.");
 
-        this.log = new BufferedReader(new FileReader(log));
+        this.log = new BufferedReader(new InputStreamReader(ReadingProgress.openStream(log,
+                progress)));
     }
 
     /**
@@ -28,8 +28,8 @@ import static com.googlecode.logVisualizer.parser.UsefulPatterns.*;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Scanner;
 import java.util.regex.Matcher;
@@ -41,6 +41,7 @@ import com.googlecode.logVisualizer.parser.blockParsers.*;
 import com.googlecode.logVisualizer.parser.lineParsers.*;
 import com.googlecode.logVisualizer.util.DataNumberPair;
 import com.googlecode.logVisualizer.util.Lists;
+import com.googlecode.logVisualizer.util.ReadingProgress;
 
 /**
  * A parser for pre-parsed ascension logs with a format equal or at least very
@@ -59,6 +60,8 @@ public final class PreparsedLogParser extends AbstractLogParser {
 
     private final File log;
 
+    private final ReadingProgress progress;
+
     private final List<DataNumberPair<String>> semirares = Lists.newArrayList();
 
     private final List<DataNumberPair<String>> badMoonAdventures = Lists.newArrayList();
@@ -74,8 +77,24 @@ public final class PreparsedLogParser extends AbstractLogParser {
      */
     public PreparsedLogParser(
                               final File log) {
+        this(log, null);
+    }
+
+    /**
+     * @param log
+     *            The pre-parsed ascension log which is intended to be parsed to
+     *            set.
+     * @param progress
+     *            The reading progress of the log, through which the parsing
+     *            can also be cancelled. May be {@code null}.
+     * @throws NullPointerException
+     *             if log is {@code null}
+     */
+    public PreparsedLogParser(
+                              final File log, final ReadingProgress progress) {
         super(new LogDataHolder(false));
         this.log = log;
+        this.progress = progress;
 
         // Set the log name
         if (log.getName().contains("_ascend")) {
@@ -261,7 +280,8 @@ public final class PreparsedLogParser extends AbstractLogParser {
      */
     public void parse()
                        throws IOException {
-        final BufferedReader reader = new BufferedReader(new FileReader(log));
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(ReadingProgress.openStream(log,
+                                                                                                         progress)));
         String line;
 
         // Parse the turn rundown part of the log.
@@ -0,0 +1,257 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchProgress;
+import com.googlecode.logVisualizer.util.BatchScheduler.ProgressListener;
+
+/**
+ * This class collects timings and other measurements of a batch run over
+ * ascension logs and writes them out as JSON, so they can be tracked over
+ * many runs.
+ * <p>
+ * Measurements are collected per condensed mafia log, identified by its file
+ * name. Hand an instance of this class to the {@link BatchScheduler} of the
+ * batch as its {@link ProgressListener} to also collect the admission
+ * metrics of the scheduler.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class BatchMetrics implements ProgressListener {
+    private final Map<String, LogMetrics> logs = Maps.newHashMap();
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final long startNanos = System.nanoTime();
+
+    private long elapsedNanos = -1;
+
+    private BatchProgress lastProgress;
+
+    /**
+     * Records the parsing of the given log.
+     * 
+     * @param log
+     *            The condensed mafia log.
+     * @param parseNanos
+     *            The time in nanoseconds the parsing took, including the
+     *            creation of the summary.
+     * @param summaryNanos
+     *            The time in nanoseconds the creation of the summary took.
+     * @param turns
+     *            The number of turns of the parsed log.
+     */
+    public synchronized void recordParse(
+                                         final File log, final long parseNanos,
+                                         final long summaryNanos, final int turns) {
+        final LogMetrics metrics = getLogMetrics(log);
+        metrics.parseNanos = parseNanos;
+        metrics.summaryNanos = summaryNanos;
+        metrics.turns = turns;
+    }
+
+    /**
+     * Records the writing of one output of the given log.
+     * 
+     * @param log
+     *            The condensed mafia log.
+     * @param output
+     *            The name of the output, for example the name of its format.
+     * @param writeNanos
+     *            The time in nanoseconds the writing took.
+     */
+    public synchronized void recordWrite(
+                                         final File log, final String output,
+                                         final long writeNanos) {
+        getLogMetrics(log).writeNanos.add(Pair.of(output, writeNanos));
+    }
+
+    /**
+     * Records an error during the handling of the given log.
+     * 
+     * @param log
+     *            The condensed mafia log.
+     * @param turn
+     *            The turn after which the error occurred.
+     */
+    public synchronized void recordError(
+                                         final File log, final int turn) {
+        getLogMetrics(log).errorTurns.add(turn);
+    }
+
+    public synchronized void progressChanged(
+                                             final BatchProgress progress) {
+        lastProgress = progress;
+    }
+
+    /**
+     * Marks the end of the batch. Measurements taken afterwards will still be
+     * recorded, but the elapsed time of the batch won't change anymore.
+     */
+    public synchronized void finish() {
+        if (elapsedNanos < 0)
+            elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Writes all measurements as a single JSON object to the given writer.
+     * Durations are given in milliseconds and sizes in bytes.
+     * 
+     * @param writer
+     *            The writer to write to. It won't be closed by this method.
+     * @throws IOException
+     *             if there was a problem while writing
+     */
+    public synchronized void writeJSON(
+                                       final Writer writer)
+                                                           throws IOException {
+        final long elapsed = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+
+        final List<String> names = Lists.sort(Lists.newArrayList(logs.keySet()));
+        int failedLogs = 0;
+        long turns = 0;
+        long bytes = 0;
+
+        writer.write("{\n  \"startTime\": " + startTime + ",\n  \"logs\": [");
+        for (int i = 0; i < names.size(); i++) {
+            final LogMetrics metrics = logs.get(names.get(i));
+            if (!metrics.errorTurns.isEmpty())
+                failedLogs++;
+            turns += metrics.turns;
+            bytes += metrics.bytes;
+
+            writer.write(i == 0 ? "\n    " : ",\n    ");
+            metrics.writeJSON(writer);
+        }
+        writer.write(names.isEmpty() ? "],\n" : "\n  ],\n");
+
+        final double seconds = elapsed / 1e9;
+        writer.write("  \"totals\": {");
+        writer.write("\"logs\": " + names.size());
+        writer.write(", \"failedLogs\": " + failedLogs);
+        writer.write(", \"turns\": " + turns);
+        writer.write(", \"bytes\": " + bytes);
+        writer.write(", \"elapsedMillis\": " + formatMillis(elapsed));
+        writer.write(", \"turnsPerSecond\": " + formatDecimal(seconds > 0 ? turns / seconds : 0));
+        writer.write(", \"megabytesPerSecond\": "
+                     + formatDecimal(seconds > 0 ? bytes / (1024.0 * 1024.0) / seconds : 0));
+        if (lastProgress != null) {
+            writer.write(", \"admissionWaits\": " + lastProgress.getAdmissionWaits());
+            writer.write(", \"admissionWaitMillis\": " + lastProgress.getAdmissionWaitMillis());
+            writer.write(", \"peakHeapInFlight\": " + lastProgress.getPeakHeapInFlight());
+        }
+        writer.write("}\n}\n");
+        writer.flush();
+    }
+
+    private LogMetrics getLogMetrics(
+                                     final File log) {
+        LogMetrics metrics = logs.get(log.getName());
+        if (metrics == null) {
+            metrics = new LogMetrics(log.getName(), log.length());
+            logs.put(log.getName(), metrics);
+        }
+
+        return metrics;
+    }
+
+    private static String formatMillis(
+                                       final long nanos) {
+        return formatDecimal(nanos / 1e6);
+    }
+
+    private static String formatDecimal(
+                                        final double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    /**
+     * The measurements of a single log.
+     */
+    private static final class LogMetrics {
+        final String name;
+
+        final long bytes;
+
+        long parseNanos = -1;
+
+        long summaryNanos = -1;
+
+        int turns;
+
+        final List<Pair<String, Long>> writeNanos = Lists.newArrayList(4);
+
+        final List<Integer> errorTurns = Lists.newArrayList(1);
+
+        LogMetrics(
+                   final String name, final long bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        void writeJSON(
+                       final Writer writer)
+                                           throws IOException {
+            writer.write("{\"name\": " + JSONStrings.quote(name));
+            writer.write(", \"bytes\": " + bytes);
+            writer.write(", \"turns\": " + turns);
+            if (parseNanos >= 0)
+                writer.write(", \"parseMillis\": " + formatMillis(parseNanos));
+            if (summaryNanos >= 0)
+                writer.write(", \"summaryMillis\": " + formatMillis(summaryNanos));
+
+            writer.write(", \"writeMillis\": {");
+            for (int i = 0; i < writeNanos.size(); i++) {
+                final Pair<String, Long> p = writeNanos.get(i);
+                writer.write((i == 0 ? "" : ", ") + JSONStrings.quote(p.getVar1()) + ": "
+                             + formatMillis(p.getVar2()));
+            }
+            writer.write("}");
+
+            writer.write(", \"errorTurns\": [");
+            writeList(writer, errorTurns);
+            writer.write("]}");
+        }
+
+        private static void writeList(
+                                      final Writer writer, final Collection<Integer> values)
+                                                                                             throws IOException {
+            boolean isFirst = true;
+            for (final Integer i : values) {
+                writer.write((isFirst ? "" : ", ") + i);
+                isFirst = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,744 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.googlecode.logVisualizer.Settings;
+
+/**
+ * This class runs a task on every file of a batch of files, for example to
+ * parse a number of condensed mafia logs, using a fixed number of threads.
+ * <p>
+ * The files are processed largest first, so that the longest ascensions don't
+ * end up being started last and keep a single thread busy long after all other
+ * ones have finished. Tasks can hand parts of their work back to the scheduler
+ * through the {@link Executor} given to them. Such subtasks are run before any
+ * file that hasn't been started yet, so threads which would otherwise idle
+ * help finish the files already in progress before starting new ones.
+ * <p>
+ * To keep the memory usage of a batch bounded, a new file is only started
+ * while the estimated heap usage of all files in progress stays below the heap
+ * limit of the scheduler. The heap usage of a file is estimated from its size
+ * on disk, using a ratio of heap bytes per file byte which is learned from the
+ * heap usage observed while files are in progress (see
+ * {@link #getHeapBytesPerFileByte()}). A single file is always allowed to
+ * start, even if it is estimated to be bigger than the heap limit. The time
+ * threads spent waiting for such an admission is reported as part of the
+ * {@link BatchProgress}.
+ * <p>
+ * Subtasks are meant for the I/O-heavy parts of the work, like writing output
+ * files. If virtual threads are available and enabled (see
+ * {@link #setUsingVirtualThreads(boolean)}), every subtask runs on its own
+ * virtual thread instead of taking up one of the worker threads, which are
+ * then left to the CPU-heavy parts like parsing. The use of virtual threads
+ * is experimental, see {@link VirtualThreads}.
+ * <p>
+ * A file counts as done as soon as its task and all subtasks handed out by it
+ * have finished, at which point the {@link ProgressListener} is notified. The
+ * listener is called from the worker threads, but never concurrently.
+ * <p>
+ * Cancellation is cooperative: after {@link #cancel()} has been called, no
+ * further files will be started, but files which are already in progress
+ * (including their subtasks) will still be finished, so no half-written
+ * output is left behind. Once cancelled, a scheduler stays cancelled.
+ * {@link #cancel()} may be called from any thread.
+ */
+public final class BatchScheduler {
+    private static final Comparator<File> LARGEST_FIRST_COMPARATOR = new Comparator<File>() {
+        public int compare(
+                           final File o1, final File o2) {
+            final long l1 = o1.length();
+            final long l2 = o2.length();
+            if (l1 != l2)
+                return l1 > l2 ? -1 : 1;
+
+            return o1.getName().compareToIgnoreCase(o2.getName());
+        }
+    };
+
+    /**
+     * The heap fraction used if the {@code "Batch parsing heap fraction"}
+     * setting doesn't hold a usable value.
+     */
+    private static final double DEFAULT_HEAP_FRACTION = 0.5;
+
+    /**
+     * Starting estimate of the heap usage of a parsed log per byte of its
+     * condensed mafia log, before anything has been learned at runtime. A
+     * parsed log together with its summary and textual log buffers usually
+     * takes up a few times the size of the session log it was created from.
+     */
+    private static final double INITIAL_HEAP_BYTES_PER_FILE_BYTE = 4.0;
+
+    private static final double MIN_HEAP_BYTES_PER_FILE_BYTE = 1.0;
+
+    private static final double MAX_HEAP_BYTES_PER_FILE_BYTE = 100.0;
+
+    /**
+     * The learned ratio is shared by all schedulers, so later batches don't
+     * have to learn it again.
+     */
+    private static final HeapRatio HEAP_RATIO = new HeapRatio(INITIAL_HEAP_BYTES_PER_FILE_BYTE,
+                                                              MIN_HEAP_BYTES_PER_FILE_BYTE,
+                                                              MAX_HEAP_BYTES_PER_FILE_BYTE);
+
+    private final int threads;
+
+    private final long maxHeapInFlight;
+
+    private final ProgressListener listener;
+
+    private volatile boolean isCancelled;
+
+    private volatile boolean isUsingVirtualThreads;
+
+    /**
+     * @param listener
+     *            The listener to notify about the progress of the batch, may be
+     *            {@code null}.
+     * @return A scheduler which uses one thread per available processor and is
+     *         otherwise configured like the one of
+     *         {@link #newDefaultScheduler(int, ProgressListener)}.
+     */
+    public static BatchScheduler newDefaultScheduler(
+                                                     final ProgressListener listener) {
+        return newDefaultScheduler(Runtime.getRuntime().availableProcessors(), listener);
+    }
+
+    /**
+     * The heap limit of the returned scheduler is the fraction of the maximum
+     * heap size given by the {@code "Batch parsing heap fraction"} setting.
+     * Virtual threads are used for subtasks if the
+     * {@code "Use virtual threads for I/O"} setting is turned on and they are
+     * available.
+     * 
+     * @param threads
+     *            The number of threads working on the batch.
+     * @param listener
+     *            The listener to notify about the progress of the batch, may be
+     *            {@code null}.
+     * @return A scheduler which uses the given number of threads.
+     * @throws IllegalArgumentException
+     *             if threads is smaller than 1
+     */
+    public static BatchScheduler newDefaultScheduler(
+                                                     final int threads,
+                                                     final ProgressListener listener) {
+        double heapFraction = Settings.getSettingDouble("Batch parsing heap fraction",
+                                                        DEFAULT_HEAP_FRACTION);
+        if (!(heapFraction > 0 && heapFraction <= 1))
+            heapFraction = DEFAULT_HEAP_FRACTION;
+
+        final BatchScheduler scheduler = new BatchScheduler(threads,
+                                                            (long) (Runtime.getRuntime()
+                                                                           .maxMemory() * heapFraction),
+                                                            listener);
+        scheduler.setUsingVirtualThreads(Boolean.TRUE.equals(Settings.getSettingBoolean("Use virtual threads for I/O")));
+
+        return scheduler;
+    }
+
+    /**
+     * Constructs a scheduler without a heap limit.
+     * 
+     * @param threads
+     *            The number of threads working on the batch.
+     * @param listener
+     *            The listener to notify about the progress of the batch, may be
+     *            {@code null}.
+     * @throws IllegalArgumentException
+     *             if threads is smaller than 1
+     */
+    public BatchScheduler(
+                          final int threads, final ProgressListener listener) {
+        this(threads, Long.MAX_VALUE, listener);
+    }
+
+    /**
+     * @param threads
+     *            The number of threads working on the batch.
+     * @param maxHeapInFlight
+     *            The maximum estimated heap usage in bytes of all files in
+     *            progress.
+     * @param listener
+     *            The listener to notify about the progress of the batch, may be
+     *            {@code null}.
+     * @throws IllegalArgumentException
+     *             if threads is smaller than 1; if maxHeapInFlight is smaller
+     *             than 1
+     */
+    public BatchScheduler(
+                          final int threads, final long maxHeapInFlight,
+                          final ProgressListener listener) {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one thread has to be used.");
+        if (maxHeapInFlight < 1)
+            throw new IllegalArgumentException("The heap limit must be a positive number.");
+
+        this.threads = threads;
+        this.maxHeapInFlight = maxHeapInFlight;
+        this.listener = listener;
+    }
+
+    /**
+     * Runs the given task on all given files and blocks until all of them have
+     * been handled or the batch has been cancelled and all files in progress
+     * have been finished.
+     * <p>
+     * Exceptions thrown by the task will be printed and otherwise ignored, so
+     * tasks should handle their errors themselves.
+     * 
+     * @param files
+     *            The files to process.
+     * @param task
+     *            The task to run on every file.
+     * @return {@code true} if all files have been processed, {@code false} if
+     *         the batch was cancelled before that.
+     * @throws NullPointerException
+     *             if files is {@code null}; if task is {@code null}
+     */
+    public boolean run(
+                       final Collection<File> files, final BatchTask task) {
+        if (files == null)
+            throw new NullPointerException("The files collection must not be null.");
+        if (task == null)
+            throw new NullPointerException("The batch task must not be null.");
+
+        if (files.isEmpty() || isCancelled)
+            return !isCancelled;
+
+        final int workerCount = Math.min(threads, files.size());
+        final ExecutorService subtaskExecutor = isUsingVirtualThreads ? VirtualThreads.newVirtualThreadPerTaskExecutor()
+                                                                     : null;
+        final Batch batch = new Batch(Lists.sort(Lists.newArrayList(files),
+                                                 LARGEST_FIRST_COMPARATOR),
+                                      task,
+                                      subtaskExecutor);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        for (int i = 0; i < workerCount; i++)
+            executor.execute(batch);
+        executor.shutdown();
+
+        // The files in progress are always finished, so an interrupt only
+        // cancels the batch and is restored after the workers are done.
+        boolean isInterrupted = false;
+        while (!executor.isTerminated())
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                isInterrupted = true;
+                cancel();
+            }
+        if (isInterrupted)
+            Thread.currentThread().interrupt();
+
+        // All subtasks are done at this point, because files are only done
+        // after their subtasks.
+        if (subtaskExecutor != null)
+            subtaskExecutor.shutdown();
+
+        return !isCancelled;
+    }
+
+    /**
+     * Cancels the batch. Files which haven't been started yet will be skipped.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * @return {@code true} if this scheduler was cancelled, otherwise
+     *         {@code false}.
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * Sets whether subtasks should run on virtual threads. This only has an
+     * effect on batches started afterwards. If the running Java version
+     * doesn't support virtual threads, the worker threads will still be used.
+     * <p>
+     * Running subtasks on virtual threads is experimental, see
+     * {@link VirtualThreads}.
+     * 
+     * @param isUsingVirtualThreads
+     *            {@code true} if subtasks should run on virtual threads,
+     *            otherwise {@code false}.
+     * @return {@code true} if subtasks will run on virtual threads, otherwise
+     *         {@code false}.
+     */
+    public boolean setUsingVirtualThreads(
+                                          final boolean isUsingVirtualThreads) {
+        this.isUsingVirtualThreads = isUsingVirtualThreads && VirtualThreads.isAvailable();
+
+        return this.isUsingVirtualThreads;
+    }
+
+    /**
+     * @return {@code true} if subtasks will run on virtual threads, otherwise
+     *         {@code false}.
+     */
+    public boolean isUsingVirtualThreads() {
+        return isUsingVirtualThreads;
+    }
+
+    /**
+     * @return The maximum estimated heap usage in bytes of all files in
+     *         progress.
+     */
+    public long getMaxHeapInFlight() {
+        return maxHeapInFlight;
+    }
+
+    /**
+     * The ratio is learned whenever a file is done, see {@link HeapRatio}.
+     * 
+     * @return The current estimate of heap bytes used per byte of a file in
+     *         progress.
+     */
+    public static double getHeapBytesPerFileByte() {
+        return HEAP_RATIO.get();
+    }
+
+    /**
+     * The work to be done on every file of a batch.
+     */
+    public static interface BatchTask {
+        /**
+         * Processes the given file.
+         * 
+         * @param file
+         *            The file to process.
+         * @param subtasks
+         *            Executor through which parts of the processing of the
+         *            given file can be run concurrently, preferably the
+         *            I/O-heavy ones. The file is only counted as done after
+         *            these subtasks have finished.
+         */
+        public void process(
+                            final File file, final Executor subtasks);
+    }
+
+    /**
+     * Interface used to notify interested parties about the progress of a
+     * batch.
+     */
+    public static interface ProgressListener {
+        /**
+         * Called after a file of the batch has been processed.
+         * 
+         * @param progress
+         *            The progress of the batch.
+         */
+        public void progressChanged(
+                                    final BatchProgress progress);
+    }
+
+    /**
+     * Immutable snapshot of the progress of a batch.
+     */
+    public static final class BatchProgress {
+        private final int filesDone;
+
+        private final int filesTotal;
+
+        private final long bytesDone;
+
+        private final long bytesTotal;
+
+        private final long elapsedMillis;
+
+        private final int admissionWaits;
+
+        private final long admissionWaitMillis;
+
+        private final long peakHeapInFlight;
+
+        BatchProgress(
+                      final int filesDone, final int filesTotal, final long bytesDone,
+                      final long bytesTotal, final long elapsedMillis, final int admissionWaits,
+                      final long admissionWaitMillis, final long peakHeapInFlight) {
+            this.filesDone = filesDone;
+            this.filesTotal = filesTotal;
+            this.bytesDone = bytesDone;
+            this.bytesTotal = bytesTotal;
+            this.elapsedMillis = elapsedMillis;
+            this.admissionWaits = admissionWaits;
+            this.admissionWaitMillis = admissionWaitMillis;
+            this.peakHeapInFlight = peakHeapInFlight;
+        }
+
+        /**
+         * @return The number of processed files.
+         */
+        public int getFilesDone() {
+            return filesDone;
+        }
+
+        /**
+         * @return The number of files in the batch.
+         */
+        public int getFilesTotal() {
+            return filesTotal;
+        }
+
+        /**
+         * @return The summed up size of all processed files in bytes.
+         */
+        public long getBytesDone() {
+            return bytesDone;
+        }
+
+        /**
+         * @return The summed up size of all files in the batch in bytes.
+         */
+        public long getBytesTotal() {
+            return bytesTotal;
+        }
+
+        /**
+         * @return The time since the start of the batch in milliseconds.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return The number of times a thread had to wait before it could
+         *         start a file because of the heap limit.
+         */
+        public int getAdmissionWaits() {
+            return admissionWaits;
+        }
+
+        /**
+         * @return The summed up time in milliseconds threads spent waiting
+         *         before they could start a file because of the heap limit.
+         */
+        public long getAdmissionWaitMillis() {
+            return admissionWaitMillis;
+        }
+
+        /**
+         * @return The highest estimated heap usage in bytes of all files in
+         *         progress at the same time.
+         */
+        public long getPeakHeapInFlight() {
+            return peakHeapInFlight;
+        }
+
+        /**
+         * The estimate assumes that the remaining files will be processed at
+         * the same rate in bytes per millisecond as the ones before.
+         * 
+         * @return The estimated time until the batch is done in milliseconds,
+         *         or {@code -1} if no estimate can be given yet.
+         */
+        public long getEstimatedMillisLeft() {
+            if (bytesDone <= 0)
+                return -1;
+
+            return (long) ((double) elapsedMillis * (bytesTotal - bytesDone) / bytesDone);
+        }
+
+        /**
+         * @return A short human-readable description of this progress.
+         */
+        @Override
+        public String toString() {
+            final StringBuilder str = new StringBuilder(60);
+            str.append(filesDone).append("/").append(filesTotal).append(" logs done");
+
+            final long millisLeft = getEstimatedMillisLeft();
+            if (millisLeft >= 0 && filesDone < filesTotal)
+                str.append(", about ").append((millisLeft + 999) / 1000).append(" seconds left");
+
+            return str.toString();
+        }
+    }
+
+    /**
+     * The state of a single run, which is also the loop of every worker
+     * thread.
+     * <p>
+     * All state apart from the files themselves is guarded by the lock of the
+     * batch.
+     */
+    private final class Batch implements Runnable {
+        private final Lock lock = new ReentrantLock();
+
+        private final Condition workAvailable = lock.newCondition();
+
+        private final Deque<Runnable> subtasks = new ArrayDeque<Runnable>();
+
+        private final Deque<FileWork> files = new ArrayDeque<FileWork>();
+
+        private final BatchTask task;
+
+        private final ExecutorService subtaskExecutor;
+
+        private final int filesTotal;
+
+        private final long bytesTotal;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private final HeapRatio.Learner heapRatioLearner = HEAP_RATIO.newLearner();
+
+        private int filesLeft;
+
+        private int filesDone;
+
+        private long bytesDone;
+
+        private int filesInFlight;
+
+        private long bytesInFlight;
+
+        private long heapInFlight;
+
+        private long peakHeapInFlight;
+
+        private int admissionWaits;
+
+        private long admissionWaitMillis;
+
+        Batch(
+              final List<File> sortedFiles, final BatchTask task,
+              final ExecutorService subtaskExecutor) {
+            this.task = task;
+            this.subtaskExecutor = subtaskExecutor;
+
+            long bytes = 0;
+            for (final File f : sortedFiles) {
+                final long length = f.length();
+                files.add(new FileWork(f, length));
+                bytes += length;
+            }
+
+            filesTotal = sortedFiles.size();
+            filesLeft = filesTotal;
+            bytesTotal = bytes;
+        }
+
+        public void run() {
+            for (Runnable r = nextWork(); r != null; r = nextWork())
+                try {
+                    r.run();
+                } catch (final RuntimeException e) {
+                    e.printStackTrace();
+                }
+        }
+
+        /**
+         * Blocks until there is work which may be started and returns it.
+         * Subtasks are always handed out first, files only if they are
+         * admitted by the heap limit or if they are to be skipped because of a
+         * cancellation.
+         * 
+         * @return The next work to do, or {@code null} if the batch is done.
+         */
+        private Runnable nextWork() {
+            lock.lock();
+            try {
+                long waitStart = -1;
+                while (true) {
+                    if (!subtasks.isEmpty())
+                        return subtasks.pollFirst();
+
+                    if (!files.isEmpty()) {
+                        final FileWork file = files.peekFirst();
+                        if (isCancelled)
+                            return files.pollFirst();
+
+                        file.heapEstimate = HEAP_RATIO.estimate(file.length);
+                        if (filesInFlight == 0 || heapInFlight + file.heapEstimate <= maxHeapInFlight) {
+                            if (waitStart >= 0) {
+                                admissionWaits++;
+                                admissionWaitMillis += System.currentTimeMillis() - waitStart;
+                            }
+
+                            file.isAdmitted = true;
+                            filesInFlight++;
+                            bytesInFlight += file.length;
+                            heapInFlight += file.heapEstimate;
+                            peakHeapInFlight = Math.max(peakHeapInFlight, heapInFlight);
+                            return files.pollFirst();
+                        }
+
+                        if (waitStart < 0)
+                            waitStart = System.currentTimeMillis();
+                    } else if (filesLeft == 0)
+                        return null;
+
+                    workAvailable.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void addSubtask(
+                        final Runnable subtask) {
+            lock.lock();
+            try {
+                subtasks.addLast(subtask);
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Called once for every file, either after it has been processed or
+         * after it has been skipped because of a cancellation.
+         */
+        void fileFinished(
+                          final FileWork file, final boolean isProcessed) {
+            BatchProgress progress = null;
+
+            lock.lock();
+            try {
+                if (isProcessed) {
+                    heapRatioLearner.observe(bytesInFlight);
+
+                    filesInFlight--;
+                    bytesInFlight -= file.length;
+                    heapInFlight -= file.heapEstimate;
+
+                    filesDone++;
+                    bytesDone += file.length;
+                    progress = new BatchProgress(filesDone,
+                                                 filesTotal,
+                                                 bytesDone,
+                                                 bytesTotal,
+                                                 System.currentTimeMillis() - startTime,
+                                                 admissionWaits,
+                                                 admissionWaitMillis,
+                                                 peakHeapInFlight);
+                }
+
+                filesLeft--;
+                workAvailable.signalAll();
+
+                // The listener is called while still holding the lock, so that
+                // it is never called concurrently and the progress events
+                // arrive in order.
+                if (progress != null && listener != null)
+                    try {
+                        listener.progressChanged(progress);
+                    } catch (final RuntimeException e) {
+                        e.printStackTrace();
+                    }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Processes a single file and keeps track of the subtasks handed out
+         * for it.
+         */
+        private final class FileWork implements Runnable, Executor {
+            final File file;
+
+            final long length;
+
+            long heapEstimate;
+
+            boolean isAdmitted;
+
+            private final AtomicInteger pendingParts = new AtomicInteger(1);
+
+            FileWork(
+                     final File file, final long length) {
+                this.file = file;
+                this.length = length;
+            }
+
+            public void run() {
+                // Files are only handed out without being admitted if the batch
+                // has been cancelled.
+                if (!isAdmitted) {
+                    fileFinished(this, false);
+                    return;
+                }
+
+                try {
+                    task.process(file, this);
+                } finally {
+                    partFinished();
+                }
+            }
+
+            public void execute(
+                                final Runnable command) {
+                if (command == null)
+                    throw new NullPointerException("The subtask must not be null.");
+
+                pendingParts.incrementAndGet();
+                final Runnable subtask = new Runnable() {
+                    public void run() {
+                        try {
+                            command.run();
+                        } catch (final RuntimeException e) {
+                            e.printStackTrace();
+                        } finally {
+                            partFinished();
+                        }
+                    }
+                };
+
+                if (subtaskExecutor != null)
+                    subtaskExecutor.execute(subtask);
+                else
+                    addSubtask(subtask);
+            }
+
+            private void partFinished() {
+                if (pendingParts.decrementAndGet() == 0)
+                    fileFinished(this, true);
+            }
+        }
+    }
+}
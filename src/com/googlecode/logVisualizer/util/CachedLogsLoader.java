@@ -0,0 +1,371 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.googlecode.logVisualizer.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.googlecode.logVisualizer.logData.LogDataHolder;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
+
+/**
+ * This class loads many cached ascension logs (see {@link LogsCache}) in
+ * parallel while keeping the memory used by them bounded.
+ * <p>
+ * Logs are only started to be loaded while both the number of logs currently
+ * in flight is below the concurrency limit and their estimated heap usage (see
+ * {@link #estimateHeapUsage(File)}) is below the heap limit. A log counts as
+ * in flight from the moment its loading starts until the {@link LoadListener}
+ * has returned from being notified about it, so a listener which only returns
+ * once it is done with the log will slow down the loading instead of letting
+ * finished logs pile up in memory. A single log which is estimated to be
+ * bigger than the heap limit will still be loaded, but only on its own.
+ * <p>
+ * The heap usage of a log is estimated from the size of its uncompressed XML,
+ * using a ratio of heap bytes per XML byte which is learned at runtime (see
+ * {@link HeapRatio}). For compressed logs, the uncompressed size is read from
+ * the end of the GZIP file.
+ * <p>
+ * The listener is notified on the thread that called
+ * {@link #loadLogs(Collection, LoadListener)}, one log at a time in the order
+ * in which the logs finished loading.
+ * <p>
+ * Only one load may run at a time. {@link #cancel()} may be called from any
+ * thread, even before the load has started. Once cancelled, a loader stays
+ * cancelled.
+ * <p>
+ * This class is used to visualise many cached logs at once. The log server
+ * loads logs on demand one at a time, and the batch mode only parses mafia
+ * logs into the cache without loading cached ones, so neither of them uses
+ * this class.
+ */
+public final class CachedLogsLoader {
+    /**
+     * Starting estimate of the heap usage of a loaded log per byte of its
+     * uncompressed XML, before anything has been learned at runtime. Measured
+     * on a 3000-turn log, the data of which takes up about as much heap as
+     * its uncompressed XML does on disk.
+     */
+    private static final double INITIAL_HEAP_BYTES_PER_XML_BYTE = 1.0;
+
+    private static final double MIN_HEAP_BYTES_PER_XML_BYTE = 0.25;
+
+    private static final double MAX_HEAP_BYTES_PER_XML_BYTE = 50.0;
+
+    /**
+     * The learned ratio is shared by all loaders, so later loads don't have to
+     * learn it again.
+     */
+    private static final HeapRatio HEAP_RATIO = new HeapRatio(INITIAL_HEAP_BYTES_PER_XML_BYTE,
+                                                              MIN_HEAP_BYTES_PER_XML_BYTE,
+                                                              MAX_HEAP_BYTES_PER_XML_BYTE);
+
+    /**
+     * The time after which the loading thread checks for a cancellation while
+     * waiting for logs to finish loading.
+     */
+    private static final long CANCEL_CHECK_INTERVAL_MILLIS = 100;
+
+    private final int maxConcurrentLoads;
+
+    private final long maxHeapInFlight;
+
+    private volatile boolean isCancelled;
+
+    /**
+     * @return A loader which uses one thread per available processor and lets
+     *         loaded logs use up to half of the maximum heap size.
+     */
+    public static CachedLogsLoader newDefaultLoader() {
+        return new CachedLogsLoader(Runtime.getRuntime().availableProcessors(),
+                                    Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * @param maxConcurrentLoads
+     *            The maximum number of logs loaded at the same time.
+     * @param maxHeapInFlight
+     *            The maximum estimated heap usage in bytes of all logs in
+     *            flight.
+     * @throws IllegalArgumentException
+     *             if maxConcurrentLoads is smaller than 1; if maxHeapInFlight
+     *             is smaller than 1
+     */
+    public CachedLogsLoader(
+                            final int maxConcurrentLoads, final long maxHeapInFlight) {
+        if (maxConcurrentLoads < 1)
+            throw new IllegalArgumentException("At least one log has to be loadable at a time.");
+        if (maxHeapInFlight < 1)
+            throw new IllegalArgumentException("The heap limit must be a positive number.");
+
+        this.maxConcurrentLoads = maxConcurrentLoads;
+        this.maxHeapInFlight = maxHeapInFlight;
+    }
+
+    /**
+     * Loads the given cached logs and notifies the given listener about every
+     * one of them. This method blocks until all logs have been handled or the
+     * loading has been cancelled.
+     * <p>
+     * Logs which are not Ascension Log XML files (see
+     * {@link XMLLogCreator#isXMLLogFileName(String)}) are reported as failed.
+     * 
+     * @param logs
+     *            The cached logs to load.
+     * @param listener
+     *            The listener to notify about the loaded logs.
+     * @return {@code true} if all logs have been handled, {@code false} if
+     *         the loading was cancelled before that.
+     * @throws NullPointerException
+     *             if logs is {@code null}; if listener is {@code null}
+     */
+    public boolean loadLogs(
+                            final Collection<File> logs, final LoadListener listener) {
+        if (logs == null)
+            throw new NullPointerException("The logs collection must not be null.");
+        if (listener == null)
+            throw new NullPointerException("The load listener must not be null.");
+
+        if (isCancelled)
+            return false;
+
+        // The executor is only used by this thread, which is also the one
+        // shutting it down, so no load is ever submitted to a shut down
+        // executor.
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentLoads,
+                                                                               Math.max(logs.size(),
+                                                                                        1)));
+        final HeapRatio.Learner heapRatioLearner = HEAP_RATIO.newLearner();
+
+        final BlockingQueue<LoadResult> results = new LinkedBlockingQueue<LoadResult>();
+        final Iterator<File> pending = logs.iterator();
+        File nextLog = pending.hasNext() ? pending.next() : null;
+        int logsInFlight = 0;
+        long xmlBytesInFlight = 0;
+        long heapInFlight = 0;
+
+        try {
+            while ((nextLog != null || logsInFlight > 0) && !isCancelled) {
+                // Start as many loads as the limits allow.
+                while (nextLog != null && logsInFlight < maxConcurrentLoads) {
+                    final long xmlBytes = getUncompressedXMLLength(nextLog);
+                    final long estimate = HEAP_RATIO.estimate(xmlBytes);
+                    if (logsInFlight > 0 && heapInFlight + estimate > maxHeapInFlight)
+                        break;
+
+                    executor.execute(new LoadTask(nextLog, xmlBytes, estimate, results));
+                    logsInFlight++;
+                    xmlBytesInFlight += xmlBytes;
+                    heapInFlight += estimate;
+                    nextLog = pending.hasNext() ? pending.next() : null;
+                }
+
+                // Waiting is interrupted regularly, so a cancellation is
+                // noticed even if no load finishes in the meantime.
+                final LoadResult result = results.poll(CANCEL_CHECK_INTERVAL_MILLIS,
+                                                       TimeUnit.MILLISECONDS);
+                if (result == null || isCancelled)
+                    continue;
+
+                if (result.logData != null)
+                    listener.logLoaded(result.log, result.logData);
+                else
+                    listener.logLoadFailed(result.log, result.exception);
+
+                heapRatioLearner.observe(xmlBytesInFlight);
+                logsInFlight--;
+                xmlBytesInFlight -= result.xmlBytes;
+                heapInFlight -= result.heapEstimate;
+            }
+        } catch (final InterruptedException e) {
+            isCancelled = true;
+            Thread.currentThread().interrupt();
+        } finally {
+            // Logs still being loaded are discarded.
+            executor.shutdownNow();
+        }
+
+        return !isCancelled;
+    }
+
+    /**
+     * Cancels the currently running load, or the next one if none is running
+     * yet. Logs which are already being loaded will be discarded and the
+     * listener won't be notified about any further logs.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * @return {@code true} if this loader was cancelled, otherwise
+     *         {@code false}.
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * @param log
+     *            A cached log file.
+     * @return The estimated number of bytes the data of the given log will take
+     *         up on the heap after it was loaded.
+     */
+    public static long estimateHeapUsage(
+                                         final File log) {
+        return HEAP_RATIO.estimate(getUncompressedXMLLength(log));
+    }
+
+    /**
+     * @return The size of the XML of the given cached log. For compressed logs
+     *         it is read from the end of the GZIP file, which holds the
+     *         uncompressed size modulo 2^32.
+     */
+    private static long getUncompressedXMLLength(
+                                                 final File log) {
+        final long length = log.length();
+        if (!log.getName().toLowerCase().endsWith(XMLLogCreator.COMPRESSED_XML_LOG_EXTENSION)
+            || length < 4)
+            return length;
+
+        try {
+            final RandomAccessFile file = new RandomAccessFile(log, "r");
+            try {
+                file.seek(length - 4);
+                final long uncompressedLength = file.read() | file.read() << 8
+                                                | file.read() << 16
+                                                | (long) file.read() << 24;
+
+                // Sizes of 4 GiB and above wrap around, which a cached log
+                // will never reach.
+                return Math.max(uncompressedLength, length);
+            } finally {
+                file.close();
+            }
+        } catch (final IOException e) {
+            e.printStackTrace();
+            return length;
+        }
+    }
+
+    /**
+     * Interface used to hand the loaded logs to their consumer.
+     */
+    public static interface LoadListener {
+        /**
+         * Called after the given log was successfully loaded.
+         * 
+         * @param log
+         *            The cached log file.
+         * @param logData
+         *            The data of the loaded log.
+         */
+        public void logLoaded(
+                              final File log, final LogDataHolder logData);
+
+        /**
+         * Called after loading the given log failed.
+         * 
+         * @param log
+         *            The cached log file.
+         * @param exception
+         *            The reason of the failure.
+         */
+        public void logLoadFailed(
+                                  final File log, final Exception exception);
+    }
+
+    /**
+     * Loads a single log and puts the result into the result queue.
+     */
+    private static final class LoadTask implements Runnable {
+        private final File log;
+
+        private final long xmlBytes;
+
+        private final long heapEstimate;
+
+        private final BlockingQueue<LoadResult> results;
+
+        LoadTask(
+                 final File log, final long xmlBytes, final long heapEstimate,
+                 final BlockingQueue<LoadResult> results) {
+            this.log = log;
+            this.xmlBytes = xmlBytes;
+            this.heapEstimate = heapEstimate;
+            this.results = results;
+        }
+
+        public void run() {
+            LogDataHolder logData = null;
+            Exception exception = null;
+            try {
+                if (!XMLLogCreator.isXMLLogFileName(log.getName()))
+                    throw new IllegalArgumentException(log.getName()
+                                                       + " is not an ascension log XML file.");
+
+                logData = XMLLogReader.parseXMLLog(log);
+            } catch (final Exception e) {
+                exception = e;
+            }
+
+            results.add(new LoadResult(log, xmlBytes, heapEstimate, logData, exception));
+        }
+    }
+
+    /**
+     * The outcome of a single load.
+     */
+    private static final class LoadResult {
+        final File log;
+
+        final long xmlBytes;
+
+        final long heapEstimate;
+
+        final LogDataHolder logData;
+
+        final Exception exception;
+
+        LoadResult(
+                   final File log, final long xmlBytes, final long heapEstimate,
+                   final LogDataHolder logData, final Exception exception) {
+            this.log = log;
+            this.xmlBytes = xmlBytes;
+            this.heapEstimate = heapEstimate;
+            this.logData = logData;
+            this.exception = exception;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * This class replaces files with completely written temporary files, in a way
+ * that never leaves the replaced file half written and always leaves at least
+ * one complete copy of it on disk.
+ * <p>
+ * A plain rename doesn't replace existing files on all platforms. If it
+ * fails, the atomic move of newer Java versions (7 and above) is used. If that
+ * isn't available either, the old file is first renamed to a backup file,
+ * which is only deleted after the new file is in place. Should the program
+ * die in between, {@link #restoreInterruptedReplacement(File)} puts the backup
+ * back in place, so readers should call it before reading a file written
+ * this way.
+ */
+public final class FileReplacement {
+    /**
+     * The extension of the backup files kept while a file is being replaced.
+     */
+    public static final String BACKUP_EXTENSION = ".bak";
+
+    private static final Method TO_PATH;
+
+    private static final Method MOVE;
+
+    private static final Object MOVE_OPTIONS;
+
+    static {
+        Method toPath = null;
+        Method move = null;
+        Object moveOptions = null;
+        try {
+            final Class<?> pathClass = Class.forName("java.nio.file.Path");
+            final Class<?> copyOptionClass = Class.forName("java.nio.file.CopyOption");
+            final Class<?> standardCopyOptionClass = Class.forName("java.nio.file.StandardCopyOption");
+
+            moveOptions = Array.newInstance(copyOptionClass, 2);
+            Array.set(moveOptions, 0, standardCopyOptionClass.getField("REPLACE_EXISTING").get(null));
+            Array.set(moveOptions, 1, standardCopyOptionClass.getField("ATOMIC_MOVE").get(null));
+
+            toPath = File.class.getMethod("toPath");
+            move = Class.forName("java.nio.file.Files").getMethod("move",
+                                                                  pathClass,
+                                                                  pathClass,
+                                                                  moveOptions.getClass());
+        } catch (final ClassNotFoundException e) {
+            // Atomic moves aren't supported by this Java version.
+        } catch (final NoSuchMethodException e) {
+            // Atomic moves aren't supported by this Java version.
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+
+        if (toPath != null && move != null) {
+            TO_PATH = toPath;
+            MOVE = move;
+            MOVE_OPTIONS = moveOptions;
+        } else {
+            TO_PATH = null;
+            MOVE = null;
+            MOVE_OPTIONS = null;
+        }
+    }
+
+    // This class is not to be instanced.
+    private FileReplacement() {}
+
+    /**
+     * Replaces the given target file with the given completely written
+     * temporary file. The target file doesn't have to exist yet.
+     * <p>
+     * Both files have to be in the same directory.
+     * 
+     * @param replacement
+     *            The completely written file which should take the place of
+     *            the target file. It won't exist anymore afterwards, unless an
+     *            exception is thrown.
+     * @param target
+     *            The file to replace.
+     * @throws IOException
+     *             if the target file couldn't be replaced; in that case the
+     *             old target file is still in place
+     */
+    public static void replace(
+                               final File replacement, final File target)
+                                                                         throws IOException {
+        if (replacement.renameTo(target) || moveAtomically(replacement, target))
+            return;
+
+        // Last resort: keep the old file as a backup until the new one is in
+        // place, so there always is a complete copy of it on disk.
+        final File backup = getBackupFile(target);
+        backup.delete();
+        if (target.exists() && !target.renameTo(backup))
+            throw new IOException("Could not replace the file " + target);
+
+        if (!replacement.renameTo(target)) {
+            backup.renameTo(target);
+            throw new IOException("Could not replace the file " + target);
+        }
+
+        backup.delete();
+    }
+
+    /**
+     * Puts the backup of the given file back in place if a replacement of the
+     * file was interrupted before the new file took its place. Nothing is
+     * done if there is no such backup.
+     * 
+     * @param target
+     *            The file which might have been replaced.
+     */
+    public static void restoreInterruptedReplacement(
+                                                     final File target) {
+        final File backup = getBackupFile(target);
+        if (!backup.exists())
+            return;
+
+        if (target.exists())
+            // The replacement went through, only the clean up didn't.
+            backup.delete();
+        else
+            backup.renameTo(target);
+    }
+
+    /**
+     * @return The backup file of the given file, which only exists while the
+     *         given file is being replaced.
+     */
+    public static File getBackupFile(
+                                     final File target) {
+        return new File(target.getPath() + BACKUP_EXTENSION);
+    }
+
+    private static boolean moveAtomically(
+                                          final File replacement, final File target) {
+        if (MOVE == null)
+            return false;
+
+        try {
+            MOVE.invoke(null, TO_PATH.invoke(replacement), TO_PATH.invoke(target), MOVE_OPTIONS);
+
+            return true;
+        } catch (final InvocationTargetException e) {
+            // Atomic moves aren't supported by every file system.
+            return false;
+        } catch (final IllegalAccessException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
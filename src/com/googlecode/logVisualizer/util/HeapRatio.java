@@ -0,0 +1,170 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * A ratio of heap bytes per file byte which is learned at runtime, used to
+ * estimate how much heap the data read from a file will take up before the
+ * file is read.
+ * <p>
+ * The ratio is learned from the heap usage observed while files are in
+ * progress. Whenever there was a garbage collection since the last
+ * observation, the heap still used after that collection, minus the heap
+ * which was already used when the {@link Learner} was created, is divided by
+ * the size of all files in progress. Because the heap used after a collection
+ * can still include some garbage, the ratio errs on the side of caution.
+ * <p>
+ * Reading the ratio is thread-safe. It is shared by all learners of the same
+ * instance, so later runs don't have to learn it again.
+ */
+public final class HeapRatio {
+    /**
+     * Weight of a new observation in the learned ratio.
+     */
+    private static final double OBSERVATION_WEIGHT = 0.3;
+
+    private final double minRatio;
+
+    private final double maxRatio;
+
+    private volatile double ratio;
+
+    /**
+     * @param initialRatio
+     *            The ratio used before anything has been learned.
+     * @param minRatio
+     *            The smallest ratio an observation may yield.
+     * @param maxRatio
+     *            The biggest ratio an observation may yield.
+     * @throws IllegalArgumentException
+     *             if the ratios aren't positive; if initialRatio isn't between
+     *             minRatio and maxRatio
+     */
+    public HeapRatio(
+                     final double initialRatio, final double minRatio, final double maxRatio) {
+        if (!(minRatio > 0 && minRatio <= initialRatio && initialRatio <= maxRatio))
+            throw new IllegalArgumentException("The initial ratio has to be a positive number between the minimum and maximum ratio.");
+
+        this.minRatio = minRatio;
+        this.maxRatio = maxRatio;
+        ratio = initialRatio;
+    }
+
+    /**
+     * @return The current estimate of heap bytes used per file byte.
+     */
+    public double get() {
+        return ratio;
+    }
+
+    /**
+     * @param fileBytes
+     *            The size of a file in bytes.
+     * @return The estimated number of heap bytes the data read from the file
+     *         will take up.
+     */
+    public long estimate(
+                         final long fileBytes) {
+        return (long) (fileBytes * ratio);
+    }
+
+    /**
+     * @return A new learner, which takes the heap used at this point in time
+     *         as its baseline.
+     */
+    public Learner newLearner() {
+        return new Learner();
+    }
+
+    /**
+     * @return The heap in bytes which was still used after the last garbage
+     *         collections, which is a lot closer to the size of the live data
+     *         than the currently used heap.
+     */
+    private static long getHeapUsedAfterCollection() {
+        long used = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                used += pool.getCollectionUsage().getUsed();
+
+        return used;
+    }
+
+    /**
+     * @return The number of garbage collections since the start of the
+     *         program.
+     */
+    private static long getCollectionCount() {
+        long count = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(gc.getCollectionCount(), 0);
+
+        return count;
+    }
+
+    /**
+     * Adds observations of a single run, for example a batch of files, to the
+     * learned ratio. Instances of this class are not thread-safe.
+     */
+    public final class Learner {
+        private final long baselineHeap = getHeapUsedAfterCollection();
+
+        private long lastCollectionCount = getCollectionCount();
+
+        Learner() {}
+
+        /**
+         * Adds the heap usage observed after the last garbage collection to
+         * the learned ratio, if there was a collection since the last
+         * observation. Should be called whenever a file is done, before it
+         * stops counting as in progress.
+         * 
+         * @param fileBytesInProgress
+         *            The size of all files in progress in bytes.
+         */
+        public void observe(
+                            final long fileBytesInProgress) {
+            final long collectionCount = getCollectionCount();
+            if (fileBytesInProgress <= 0 || collectionCount == lastCollectionCount)
+                return;
+            lastCollectionCount = collectionCount;
+
+            double observed = (double) (getHeapUsedAfterCollection() - baselineHeap)
+                              / fileBytesInProgress;
+            if (observed < minRatio)
+                observed = minRatio;
+            else if (observed > maxRatio)
+                observed = maxRatio;
+
+            ratio = (1 - OBSERVATION_WEIGHT) * ratio + OBSERVATION_WEIGHT * observed;
+        }
+    }
+}
@@ -27,17 +27,19 @@ package com.googlecode.logVisualizer.util;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.java.dev.spellcast.utilities.UtilityConstants;
 
 import com.googlecode.logVisualizer.Settings;
 import com.googlecode.logVisualizer.logData.turn.Encounter;
-import com.googlecode.logVisualizer.parser.LogParser;
 import com.googlecode.logVisualizer.parser.LogsCreator;
 import com.googlecode.logVisualizer.parser.MafiaLogParser;
+import com.googlecode.logVisualizer.parser.UsefulPatterns;
+import com.googlecode.logVisualizer.util.BatchScheduler.BatchTask;
 import com.googlecode.logVisualizer.util.xmlLogs.FileAccessException;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLAccessException;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
@@ -45,13 +47,18 @@ import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
 /**
  * This class should be used to handle ascension log caching to limit the amount
  * of parsing necessary to visualise ascension logs. It uses the Ascension Log
- * XML format to store the logs.
+ * XML format to store the logs, which are GZIP compressed if the
+ * {@code "Compress cached logs"} setting is turned on.
  * <p>
  * This class is implemented as an enum to guarantee that there is only one
  * instance present in the program at all times.
  * <p>
  * This implementation is thread-safe, but won't prevent the user from deleting
- * files that he still has a reference to somewhere.
+ * files that he still has a reference to somewhere. The catalog of cached logs
+ * is held in an immutable snapshot, so reading it never blocks, not even while
+ * the cache is being (re)built. Methods changing the cache are serialised among
+ * each other and publish a new snapshot for every log that was added to the
+ * cache, so readers see the cache fill up while it is being created.
  */
 public enum LogsCache {
     CACHE;
@@ -63,7 +70,9 @@ public enum LogsCache {
         }
     };
 
-    private Map<String, List<File>> logsByCharacterMap = Collections.emptyMap();
+    private final AtomicReference<CacheSnapshot> snapshot = new AtomicReference<CacheSnapshot>(CacheSnapshot.EMPTY);
+
+    private final Lock modificationLock = new ReentrantLock();
 
     private LogsCache() {
         // If the XML format version changed, we want to delete all cached logs,
@@ -78,118 +87,451 @@ public enum LogsCache {
 
     /**
      * @return A read-only map of all cached log files with their corresponding
-     *         character name used as the key.
+     *         character name used as the key. The map is a snapshot and will
+     *         not change when the cache is modified afterwards.
      */
-    public synchronized Map<String, List<File>> getLogsByCharacter() {
-        return Collections.unmodifiableMap(logsByCharacterMap);
+    public Map<String, List<File>> getLogsByCharacter() {
+        return snapshot.get().logsByCharacter;
     }
 
     /**
-     * @return A list of all cached log files sorted alphabetically.
+     * @return A read-only list of all cached log files sorted alphabetically.
+     *         The list is a snapshot and will not change when the cache is
+     *         modified afterwards.
      */
-    public synchronized List<File> getLogs() {
-        final List<File> logs = Lists.newArrayList(50);
-        for (final String character : logsByCharacterMap.keySet())
-            logs.addAll(logsByCharacterMap.get(character));
+    public List<File> getLogs() {
+        return snapshot.get().logs;
+    }
 
-        return Lists.sort(logs, FILE_COMPARATOR);
+    /**
+     * Caches the given logs. If there were already logs cached with a given
+     * name, they will be overwritten.
+     * <p>
+     * Please note that this class expects condensed mafia logs (see
+     * {@link LogsCreator#createCondensedMafiaLogs(File[])}) for further
+     * processing.
+     * 
+     * @param condensedMafiaLogs
+     *            The condensed mafia logs to be cached.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing process. The included turn
+     *         the turn after which the exception occurred. This list will be
+     *         empty if all files were correctly parsed.
+     */
+    public List<Pair<String, Encounter>> createCache(
+                                                     final File[] condensedMafiaLogs) {
+        return createCache(condensedMafiaLogs, null);
     }
 
     /**
      * Caches the given logs. If there were already logs cached with a given
      * name, they will be overwritten.
      * <p>
+     * Every log is published to the readers of this cache as soon as it has
+     * been cached, after which the given listener is notified. Note that the
+     * listener will be called concurrently from the threads doing the caching.
+     * <p>
      * Please note that this class expects condensed mafia logs (see
      * {@link LogsCreator#createCondensedMafiaLogs(File[])}) for further
      * processing.
      * 
      * @param condensedMafiaLogs
      *            The condensed mafia logs to be cached.
+     * @param listener
+     *            The listener to notify after each cached log, may be
+     *            {@code null}.
      * @return A list containing pairs with filenames and turns of condensed
      *         mafia log files that were attempted to be parsed, but had an
      *         exception thrown during the parsing process. The included turn
      *         the turn after which the exception occurred. This list will be
      *         empty if all files were correctly parsed.
      */
-    public synchronized List<Pair<String, Encounter>> createCache(
-                                                                  final File[] condensedMafiaLogs) {
+    public List<Pair<String, Encounter>> createCache(
+                                                     final File[] condensedMafiaLogs,
+                                                     final CacheListener listener) {
+        return createCache(condensedMafiaLogs, listener, BatchScheduler.newDefaultScheduler(null));
+    }
+
+    /**
+     * Caches the given logs. If there were already logs cached with a given
+     * name, they will be overwritten.
+     * <p>
+     * Every log is published to the readers of this cache as soon as it has
+     * been cached, after which the given listener is notified. Note that the
+     * listener will be called concurrently from the threads doing the caching.
+     * <p>
+     * The logs are parsed by the given scheduler, which reports the progress of
+     * the caching and through which it can be cancelled. If it is cancelled,
+     * logs that weren't started yet won't be cached.
+     * <p>
+     * Please note that this class expects condensed mafia logs (see
+     * {@link LogsCreator#createCondensedMafiaLogs(File[])}) for further
+     * processing.
+     * 
+     * @param condensedMafiaLogs
+     *            The condensed mafia logs to be cached.
+     * @param listener
+     *            The listener to notify after each cached log, may be
+     *            {@code null}.
+     * @param scheduler
+     *            The scheduler used to parse the logs.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing process. The included turn
+     *         the turn after which the exception occurred. This list will be
+     *         empty if all files were correctly parsed.
+     * @throws NullPointerException
+     *             if scheduler is {@code null}
+     */
+    public List<Pair<String, Encounter>> createCache(
+                                                     final File[] condensedMafiaLogs,
+                                                     final CacheListener listener,
+                                                     final BatchScheduler scheduler) {
+        return createCache(condensedMafiaLogs, listener, scheduler, null);
+    }
+
+    /**
+     * Caches the given logs. If there were already logs cached with a given
+     * name, they will be overwritten.
+     * <p>
+     * Every log is published to the readers of this cache as soon as it has
+     * been cached, after which the given listener is notified. Note that the
+     * listener will be called concurrently from the threads doing the caching.
+     * <p>
+     * The logs are parsed by the given scheduler, which reports the progress of
+     * the caching and through which it can be cancelled. If it is cancelled,
+     * logs that weren't started yet won't be cached.
+     * <p>
+     * Please note that this class expects condensed mafia logs (see
+     * {@link LogsCreator#createCondensedMafiaLogs(File[])}) for further
+     * processing.
+     * 
+     * @param condensedMafiaLogs
+     *            The condensed mafia logs to be cached.
+     * @param listener
+     *            The listener to notify after each cached log, may be
+     *            {@code null}.
+     * @param scheduler
+     *            The scheduler used to parse the logs.
+     * @param metrics
+     *            The metrics to record the parse, summary and write timings
+     *            of every log in, may be {@code null}.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing process. The included turn
+     *         the turn after which the exception occurred. This list will be
+     *         empty if all files were correctly parsed.
+     * @throws NullPointerException
+     *             if scheduler is {@code null}
+     */
+    public List<Pair<String, Encounter>> createCache(
+                                                     final File[] condensedMafiaLogs,
+                                                     final CacheListener listener,
+                                                     final BatchScheduler scheduler,
+                                                     final BatchMetrics metrics) {
+        if (scheduler == null)
+            throw new NullPointerException("The scheduler must not be null.");
+
         final List<Pair<String, Encounter>> errorFileList = Collections.synchronizedList(new ArrayList<Pair<String, Encounter>>());
-        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime()
-                                                                             .availableProcessors() * 2);
 
-        for (final File log : condensedMafiaLogs)
-            executor.execute(new Runnable() {
-                public void run() {
-                    final LogParser logParser = new MafiaLogParser(log,
+        modificationLock.lock();
+        try {
+            final boolean isCompressed = Settings.getSettingBoolean("Compress cached logs");
+
+            scheduler.run(Arrays.asList(condensedMafiaLogs), new BatchTask() {
+                public void process(
+                                    final File log, final Executor subtasks) {
+                    final MafiaLogParser logParser = new MafiaLogParser(log,
                                                                    Settings.getSettingBoolean("Include mafia log notes"));
 
+                    final long parseStart = System.nanoTime();
                     try {
                         logParser.parse();
-                        XMLLogCreator.createXMLLog(logParser.getLogData(),
-                                                   UtilityConstants.CACHE_LOCATION);
                     } catch (final IOException e) {
+                        if (metrics != null)
+                            metrics.recordError(log, logParser.getLogData()
+                                                              .getLastTurnSpent()
+                                                              .getTurnNumber());
                         // Add the erroneous log to the error file list.
                         errorFileList.add(Pair.of(log.getName(),
                                                   (Encounter) logParser.getLogData()
                                                                        .getLastTurnSpent()));
                         e.printStackTrace();
-                    } catch (final FileAccessException e) {
-                        e.printStackTrace();
-                    } catch (final XMLAccessException e) {
-                        e.printStackTrace();
+                        return;
                     }
+
+                    if (metrics != null)
+                        metrics.recordParse(log,
+                                            System.nanoTime() - parseStart,
+                                            logParser.getSummaryCreationTime(),
+                                            logParser.getLogData()
+                                                     .getLastTurnSpent()
+                                                     .getTurnNumber());
+
+                    // Writing the cached log is mostly I/O, so it is handed
+                    // to the scheduler as a subtask.
+                    subtasks.execute(new Runnable() {
+                        public void run() {
+                            final long writeStart = System.nanoTime();
+                            try {
+                                final File cachedLog = XMLLogCreator.createXMLLog(logParser.getLogData(),
+                                                                                  UtilityConstants.CACHE_LOCATION,
+                                                                                  isCompressed);
+                                if (metrics != null)
+                                    metrics.recordWrite(log,
+                                                        "CACHE",
+                                                        System.nanoTime() - writeStart);
+
+                                publish(cachedLog);
+                                LogsSearchIndex.INDEX.indexLog(cachedLog, logParser.getLogData());
+                                if (listener != null)
+                                    listener.logCached(cachedLog);
+                            } catch (final FileAccessException e) {
+                                recordWriteError(e);
+                            } catch (final XMLAccessException e) {
+                                recordWriteError(e);
+                            }
+                        }
+
+                        private void recordWriteError(
+                                                      final Exception e) {
+                            if (metrics != null)
+                                metrics.recordError(log, logParser.getLogData()
+                                                                  .getLastTurnSpent()
+                                                                  .getTurnNumber());
+                            e.printStackTrace();
+                        }
+                    });
                 }
             });
 
-        executor.shutdown();
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
-        } catch (final InterruptedException e) {
-            e.printStackTrace();
+            reloadCache();
+        } finally {
+            modificationLock.unlock();
         }
 
-        reloadCache();
-
         return errorFileList;
     }
 
+    /**
+     * Brings the cache up to date with the given mafia logs. If the cache is
+     * empty, all given logs will be cached. Otherwise, only the last cached
+     * ascension of every character (in case more turns were played since it
+     * was cached) and the ascensions following it will be re-parsed.
+     * <p>
+     * The mafia logs should be the raw session logs, they will be condensed by
+     * this method before they are parsed.
+     * 
+     * @param mafiaLogs
+     *            The mafia session logs from which the cache should be
+     *            updated.
+     * @param listener
+     *            The listener to notify after each cached log, may be
+     *            {@code null}.
+     * @param scheduler
+     *            The scheduler used to parse the logs.
+     * @return A list containing pairs with filenames and turns of condensed
+     *         mafia log files that were attempted to be parsed, but had an
+     *         exception thrown during the parsing process. The included turn
+     *         the turn after which the exception occurred. This list will be
+     *         empty if all files were correctly parsed.
+     * @throws IOException
+     *             if there was a problem while condensing the mafia logs
+     * @throws NullPointerException
+     *             if scheduler is {@code null}
+     */
+    public List<Pair<String, Encounter>> updateCache(
+                                                     final File[] mafiaLogs,
+                                                     final CacheListener listener,
+                                                     final BatchScheduler scheduler)
+                                                                                    throws IOException {
+        final File[] sortedMafiaLogs = mafiaLogs.clone();
+        Arrays.sort(sortedMafiaLogs, FILE_COMPARATOR);
+
+        // The lock is held for the whole update, so the set of logs to
+        // re-parse can't be changed by another update in the meantime.
+        modificationLock.lock();
+        try {
+            final Map<String, List<File>> cachedLogs = getLogsByCharacter();
+            if (cachedLogs.isEmpty())
+                return createCache(LogsCreator.createCondensedMafiaLogs(sortedMafiaLogs),
+                                   listener,
+                                   scheduler);
+
+            final List<Pair<String, String>> lastLogsCached = Lists.newArrayList(cachedLogs.size());
+            for (final String character : cachedLogs.keySet()) {
+                final List<File> logs = cachedLogs.get(character);
+                final File lastLog = logs.get(logs.size() - 1);
+
+                lastLogsCached.add(Pair.of(character,
+                                          XMLLogCreator.getLogNameFromXMLLogFileName(lastLog.getName())));
+            }
+
+            final List<File> logsToParse = Lists.newArrayList();
+            for (final Pair<String, String> lastLogCached : lastLogsCached) {
+                boolean isLastCachedLogFound = false;
+                for (final File log : sortedMafiaLogs) {
+                    final int delimiterIndex = log.getName().lastIndexOf("_");
+                    final String characterName = log.getName()
+                                                    .substring(0, delimiterIndex)
+                                                    .replaceAll("_", " ");
+
+                    if (characterName.equals(lastLogCached.getVar1()))
+                        if (!isLastCachedLogFound) {
+                            final String date = Integer.toString(UsefulPatterns.getMafiaLogDate(log));
+                            if (lastLogCached.getVar2().endsWith(date)) {
+                                logsToParse.add(log);
+                                isLastCachedLogFound = true;
+                            }
+                        } else
+                            logsToParse.add(log);
+                }
+            }
+
+            return createCache(LogsCreator.createCondensedMafiaLogs(logsToParse.toArray(new File[0])),
+                               listener,
+                               scheduler);
+        } finally {
+            modificationLock.unlock();
+        }
+    }
+
     /**
      * Reloads the internal cached logs collection with the current content of
-     * the cache folder. This method will dereference the up until now used map
-     * which backs {@link #getLogsByCharacter()}, but won't clear it in case it
-     * is still needed on the users side.
+     * the cache folder. This method will publish a new snapshot which backs
+     * {@link #getLogsByCharacter()} and {@link #getLogs()}, collections handed
+     * out before will not be changed.
      */
-    public synchronized void reloadCache() {
-        logsByCharacterMap = Maps.newHashMap();
+    public void reloadCache() {
+        modificationLock.lock();
+        try {
+            // Logs whose replacement was interrupted are put back in place.
+            for (final File f : UtilityConstants.CACHE_LOCATION.listFiles())
+                if (f.getName().endsWith(FileReplacement.BACKUP_EXTENSION)) {
+                    final String logFileName = f.getName().substring(0,
+                                                                     f.getName().length()
+                                                                             - FileReplacement.BACKUP_EXTENSION.length());
+                    FileReplacement.restoreInterruptedReplacement(new File(f.getParentFile(),
+                                                                           logFileName));
+                }
+
+            final File[] cachedFiles = UtilityConstants.CACHE_LOCATION.listFiles();
+            Arrays.sort(cachedFiles, FILE_COMPARATOR);
 
-        final File[] cachedFiles = UtilityConstants.CACHE_LOCATION.listFiles();
-        Arrays.sort(cachedFiles, FILE_COMPARATOR);
+            final List<File> logs = Lists.newArrayList(cachedFiles.length);
+            for (final File f : cachedFiles)
+                // Temporary files of logs being written are left out.
+                if (!f.isDirectory() && XMLLogCreator.isXMLLogFileName(f.getName()))
+                    logs.add(f);
 
-        for (final File f : cachedFiles)
-            if (!f.isDirectory()) {
+            snapshot.set(CacheSnapshot.of(logs));
+        } finally {
+            modificationLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes all cached ascension logs and empties the
+     * {@link LogsSearchIndex}.
+     */
+    public void deleteCache() {
+        modificationLock.lock();
+        try {
+            for (final File f : UtilityConstants.CACHE_LOCATION.listFiles())
+                if (!f.isDirectory())
+                    f.delete();
+
+            snapshot.set(CacheSnapshot.EMPTY);
+            LogsSearchIndex.INDEX.clear();
+        } finally {
+            modificationLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a new snapshot which additionally contains the given cached
+     * log. A log of the same name in the current snapshot will be replaced.
+     */
+    private void publish(
+                         final File cachedLog) {
+        final String logName = XMLLogCreator.getLogNameFromXMLLogFileName(cachedLog.getName());
+
+        CacheSnapshot current;
+        CacheSnapshot updated;
+        do {
+            current = snapshot.get();
+
+            final List<File> logs = Lists.newArrayList(current.logs.size() + 1);
+            for (final File f : current.logs)
+                if (!XMLLogCreator.getLogNameFromXMLLogFileName(f.getName()).equals(logName))
+                    logs.add(f);
+            logs.add(cachedLog);
+
+            updated = CacheSnapshot.of(Lists.sort(logs, FILE_COMPARATOR));
+        } while (!snapshot.compareAndSet(current, updated));
+    }
+
+    /**
+     * Interface used to notify interested parties about logs that were added
+     * to the cache.
+     */
+    public static interface CacheListener {
+        /**
+         * Called after the given log was added to the cache. The log is already
+         * visible through {@link LogsCache#getLogs()} at that point.
+         * 
+         * @param cachedLog
+         *            The newly cached log file.
+         */
+        public void logCached(
+                              final File cachedLog);
+    }
+
+    /**
+     * Immutable view of the cache catalog at a certain point in time.
+     */
+    private static final class CacheSnapshot {
+        static final CacheSnapshot EMPTY = new CacheSnapshot(Collections.<String, List<File>> emptyMap(),
+                                                             Collections.<File> emptyList());
+
+        final Map<String, List<File>> logsByCharacter;
+
+        final List<File> logs;
+
+        private CacheSnapshot(
+                              final Map<String, List<File>> logsByCharacter,
+                              final List<File> logs) {
+            this.logsByCharacter = logsByCharacter;
+            this.logs = logs;
+        }
+
+        /**
+         * @param sortedLogs
+         *            The cached log files, sorted alphabetically.
+         * @return A snapshot of the given logs.
+         */
+        static CacheSnapshot of(
+                                final List<File> sortedLogs) {
+            final Map<String, List<File>> logsByCharacter = Maps.newHashMap();
+            for (final File f : sortedLogs) {
                 final int delimiterIndex = f.getName().lastIndexOf("-");
                 final String characterName = f.getName().substring(0, delimiterIndex);
 
-                final List<File> characterLogsList;
-                if (logsByCharacterMap.containsKey(characterName))
-                    characterLogsList = logsByCharacterMap.get(characterName);
-                else
+                List<File> characterLogsList = logsByCharacter.get(characterName);
+                if (characterLogsList == null) {
                     characterLogsList = Lists.newArrayList(50);
+                    logsByCharacter.put(characterName, characterLogsList);
+                }
 
                 characterLogsList.add(f);
-
-                logsByCharacterMap.put(characterName, characterLogsList);
             }
-    }
 
-    /**
-     * Deletes all cached ascension logs.
-     */
-    public synchronized void deleteCache() {
-        for (final File f : UtilityConstants.CACHE_LOCATION.listFiles())
-            if (!f.isDirectory())
-                f.delete();
+            for (final Map.Entry<String, List<File>> entry : logsByCharacter.entrySet())
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
 
-        logsByCharacterMap = Collections.emptyMap();
+            return new CacheSnapshot(Collections.unmodifiableMap(logsByCharacter),
+                                     Collections.unmodifiableList(Lists.newArrayList(sortedLogs)));
+        }
     }
 }
@@ -0,0 +1,698 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.java.dev.spellcast.utilities.UtilityConstants;
+
+import com.googlecode.logVisualizer.logData.Item;
+import com.googlecode.logVisualizer.logData.LogDataHolder;
+import com.googlecode.logVisualizer.logData.Skill;
+import com.googlecode.logVisualizer.logData.consumables.Consumable;
+import com.googlecode.logVisualizer.logData.turn.SingleTurn;
+import com.googlecode.logVisualizer.util.xmlLogs.FileAccessException;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLAccessException;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogCreator;
+import com.googlecode.logVisualizer.util.xmlLogs.XMLLogReader;
+
+/**
+ * An inverted index over the areas, encounters, item drops, skill casts and
+ * consumables of all ascension logs in the {@link LogsCache}, which makes it
+ * possible to find out on which ascensions and turns something happened
+ * without having to load every single log.
+ * <p>
+ * For every cached log, the index holds the turn numbers on which each name
+ * appeared. Additionally, every distinct name points to the logs it appeared
+ * in, so a search only has to look through the few thousand distinct names
+ * instead of through all turns of all logs.
+ * <p>
+ * The index is kept up to date incrementally. Logs are added as soon as they
+ * are cached, and {@link #update(List)} only reads those cached logs which
+ * aren't indexed yet or changed since they were indexed. The index is stored
+ * in the cache directory and written in the background shortly after it was
+ * changed (see {@link WriteBehind}).
+ * <p>
+ * This class is implemented as an enum to guarantee that there is only one
+ * instance present in the program at all times. All its methods are
+ * thread-safe.
+ */
+public enum LogsSearchIndex {
+    INDEX;
+
+    /**
+     * The different kinds of names held by the index.
+     */
+    public static enum SearchField {
+        AREA("Area") {
+            @Override
+            void addNames(
+                          final SingleTurn turn, final Collection<String> names) {
+                names.add(turn.getAreaName());
+            }
+        },
+        ENCOUNTER("Encounter") {
+            @Override
+            void addNames(
+                          final SingleTurn turn, final Collection<String> names) {
+                names.add(turn.getEncounterName());
+            }
+        },
+        ITEM_DROP("Item drop") {
+            @Override
+            void addNames(
+                          final SingleTurn turn, final Collection<String> names) {
+                for (final Item i : turn.getDroppedItems())
+                    names.add(i.getName());
+            }
+        },
+        SKILL_CAST("Skill cast") {
+            @Override
+            void addNames(
+                          final SingleTurn turn, final Collection<String> names) {
+                for (final Skill s : turn.getSkillsCast())
+                    names.add(s.getName());
+            }
+        },
+        CONSUMABLE("Consumable") {
+            @Override
+            void addNames(
+                          final SingleTurn turn, final Collection<String> names) {
+                for (final Consumable c : turn.getConsumablesUsed())
+                    names.add(c.getName());
+            }
+        };
+
+        private final String description;
+
+        private SearchField(
+                            final String description) {
+            this.description = description;
+        }
+
+        /**
+         * Adds the names of this kind of the given turn to the given
+         * collection.
+         */
+        abstract void addNames(
+                               SingleTurn turn, Collection<String> names);
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private static final String INDEX_FILE_NAME = "logsSearchIndex.bin";
+
+    private static final int INDEX_MAGIC = 0x414C5649;
+
+    private static final int INDEX_VERSION = 1;
+
+    private static final long WRITE_DELAY_MILLIS = 2000;
+
+    /**
+     * Sorts logs by the date of their ascension, the most recent one first.
+     */
+    private static final Comparator<LogEntry> ENTRY_RECENCY_COMPARATOR = new Comparator<LogEntry>() {
+        public int compare(
+                           final LogEntry o1, final LogEntry o2) {
+            if (o1.date != o2.date)
+                return o1.date > o2.date ? -1 : 1;
+
+            return o1.logName.compareTo(o2.logName);
+        }
+    };
+
+    private static final Comparator<SearchHit> TURN_NUMBER_COMPARATOR = new Comparator<SearchHit>() {
+        public int compare(
+                           final SearchHit o1, final SearchHit o2) {
+            return o1.turnNumber - o2.turnNumber;
+        }
+    };
+
+    private final Map<String, LogEntry> entries = Maps.newHashMap(500);
+
+    private final Map<SearchField, Map<String, Posting>> vocabularies = new EnumMap<SearchField, Map<String, Posting>>(SearchField.class);
+
+    private final WriteBehind indexWriter = new WriteBehind(new Runnable() {
+        public void run() {
+            writeIndex();
+        }
+    }, WRITE_DELAY_MILLIS);
+
+    private LogsSearchIndex() {
+        for (final SearchField field : SearchField.values())
+            vocabularies.put(field, Maps.<String, Posting> newHashMap(2000));
+
+        readIndex();
+    }
+
+    /**
+     * Adds the given log to the index. If a log with the same name was already
+     * indexed, it will be replaced.
+     * 
+     * @param cachedLog
+     *            The cached log file of the given log data.
+     * @param logData
+     *            The log data read from or written to the given file. Only
+     *            detailed logs can be indexed.
+     */
+    public synchronized void indexLog(
+                                      final File cachedLog, final LogDataHolder logData) {
+        if (!logData.isDetailedLog())
+            return;
+
+        final LogEntry entry = new LogEntry(cachedLog);
+        for (final SearchField field : SearchField.values()) {
+            final Map<String, TurnNumbers> turnsByName = Maps.newHashMap(200);
+            final List<String> names = Lists.newArrayList(5);
+
+            for (final SingleTurn turn : logData.getTurnsSpent()) {
+                names.clear();
+                field.addNames(turn, names);
+
+                for (final String name : names) {
+                    TurnNumbers turnNumbers = turnsByName.get(name);
+                    if (turnNumbers == null) {
+                        turnNumbers = new TurnNumbers();
+                        turnsByName.put(name, turnNumbers);
+                    }
+                    turnNumbers.add(turn.getTurnNumber());
+                }
+            }
+
+            final Map<String, int[]> fieldNames = entry.getNames(field);
+            for (final Map.Entry<String, TurnNumbers> e : turnsByName.entrySet())
+                fieldNames.put(e.getKey(), e.getValue().toArray());
+        }
+
+        addEntry(entry);
+        scheduleWrite();
+    }
+
+    /**
+     * Brings the index up to date with the given cached logs. Logs which are
+     * not indexed yet or changed since they were indexed are read and added to
+     * the index, indexed logs which aren't part of the given ones are removed
+     * from it.
+     * 
+     * @param cachedLogs
+     *            All logs currently held by the cache, see
+     *            {@link LogsCache#getLogs()}.
+     */
+    public void update(
+                       final List<File> cachedLogs) {
+        final Set<String> logNames = Sets.newHashSet((int) (cachedLogs.size() * 1.4) + 1);
+        final List<File> logsToIndex = Lists.newArrayList();
+
+        synchronized (this) {
+            for (final File f : cachedLogs) {
+                final String logName = XMLLogCreator.getLogNameFromXMLLogFileName(f.getName());
+                final LogEntry entry = entries.get(logName);
+
+                logNames.add(logName);
+                if (entry == null || !entry.stamp.equals(getStamp(f)))
+                    logsToIndex.add(f);
+            }
+
+            boolean isChanged = false;
+            for (final String logName : Lists.newArrayList(entries.keySet()))
+                if (!logNames.contains(logName)) {
+                    removeEntry(entries.get(logName));
+                    isChanged = true;
+                }
+
+            if (isChanged)
+                scheduleWrite();
+        }
+
+        // The logs are read without holding the lock, so searches don't have
+        // to wait for that.
+        for (final File f : logsToIndex)
+            try {
+                indexLog(f, XMLLogReader.parseXMLLog(f));
+            } catch (final FileAccessException e) {
+                e.printStackTrace();
+            } catch (final XMLAccessException e) {
+                e.printStackTrace();
+            }
+    }
+
+    /**
+     * Removes all logs from the index.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        for (final Map<String, Posting> vocabulary : vocabularies.values())
+            vocabulary.clear();
+
+        scheduleWrite();
+    }
+
+    /**
+     * @return The number of indexed logs.
+     */
+    public synchronized int getIndexedLogsCount() {
+        return entries.size();
+    }
+
+    /**
+     * Searches the index for all names containing the given search string,
+     * ignoring case.
+     * 
+     * @param searchString
+     *            The search string. Must not be empty.
+     * @param field
+     *            The kind of names to search, or {@code null} if all of them
+     *            should be searched.
+     * @param maxHits
+     *            The maximum number of hits returned.
+     * @return The found hits, sorted by the date of their ascension with the
+     *         most recent one first, and then by their turn number.
+     */
+    public synchronized List<SearchHit> search(
+                                               final String searchString,
+                                               final SearchField field, final int maxHits) {
+        final String lowerCaseSearchString = searchString.toLowerCase();
+
+        // First all matching names are collected from the vocabularies, which
+        // is fast as those only hold every distinct name once.
+        final List<SearchField> matchedFields = Lists.newArrayList();
+        final List<String> matchedNames = Lists.newArrayList();
+        final Set<LogEntry> matchedEntries = Sets.newHashSet();
+        for (final SearchField f : SearchField.values())
+            if (field == null || field == f)
+                for (final Map.Entry<String, Posting> e : vocabularies.get(f).entrySet())
+                    if (e.getValue().lowerCaseName.contains(lowerCaseSearchString)) {
+                        matchedFields.add(f);
+                        matchedNames.add(e.getKey());
+                        matchedEntries.addAll(e.getValue().entries);
+                    }
+
+        // The hits are then created log by log, starting with the most recent
+        // one, until enough of them were found.
+        final List<SearchHit> hits = Lists.newArrayList(100);
+        for (final LogEntry entry : Lists.sort(Lists.newArrayList(matchedEntries),
+                                               ENTRY_RECENCY_COMPARATOR)) {
+            final List<SearchHit> entryHits = Lists.newArrayList();
+            for (int i = 0; i < matchedNames.size(); i++) {
+                final int[] turnNumbers = entry.getNames(matchedFields.get(i))
+                                               .get(matchedNames.get(i));
+                if (turnNumbers != null)
+                    for (final int turnNumber : turnNumbers)
+                        entryHits.add(new SearchHit(entry,
+                                                    matchedFields.get(i),
+                                                    matchedNames.get(i),
+                                                    turnNumber));
+            }
+
+            hits.addAll(Lists.sort(entryHits, TURN_NUMBER_COMPARATOR));
+            if (hits.size() >= maxHits)
+                return Lists.newArrayList(hits.subList(0, maxHits));
+        }
+
+        return hits;
+    }
+
+    private void addEntry(
+                          final LogEntry entry) {
+        final LogEntry oldEntry = entries.get(entry.logName);
+        if (oldEntry != null)
+            removeEntry(oldEntry);
+
+        entries.put(entry.logName, entry);
+        for (final SearchField field : SearchField.values()) {
+            final Map<String, Posting> vocabulary = vocabularies.get(field);
+
+            for (final String name : entry.getNames(field).keySet()) {
+                Posting posting = vocabulary.get(name);
+                if (posting == null) {
+                    posting = new Posting(name);
+                    vocabulary.put(name, posting);
+                }
+                posting.entries.add(entry);
+            }
+        }
+    }
+
+    private void removeEntry(
+                             final LogEntry entry) {
+        entries.remove(entry.logName);
+        for (final SearchField field : SearchField.values()) {
+            final Map<String, Posting> vocabulary = vocabularies.get(field);
+
+            for (final String name : entry.getNames(field).keySet()) {
+                final Posting posting = vocabulary.get(name);
+
+                if (posting != null) {
+                    posting.entries.remove(entry);
+                    if (posting.entries.isEmpty())
+                        vocabulary.remove(name);
+                }
+            }
+        }
+    }
+
+    private void scheduleWrite() {
+        indexWriter.scheduleWrite();
+    }
+
+    private static File getIndexFile() {
+        return new File(new File(UtilityConstants.CACHE_LOCATION, "index"), INDEX_FILE_NAME);
+    }
+
+    private static String getStamp(
+                                   final File cachedLog) {
+        return cachedLog.length() + "/" + cachedLog.lastModified();
+    }
+
+    private synchronized void readIndex() {
+        final File indexFile = getIndexFile();
+        FileReplacement.restoreInterruptedReplacement(indexFile);
+        if (!indexFile.exists())
+            return;
+
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile),
+                                                                                   64 * 1024));
+            try {
+                if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+                    return;
+
+                final int entriesCount = in.readInt();
+                for (int i = 0; i < entriesCount; i++) {
+                    final LogEntry entry = new LogEntry(new File(UtilityConstants.CACHE_LOCATION,
+                                                                 in.readUTF()),
+                                                        in.readUTF());
+
+                    for (final SearchField field : SearchField.values()) {
+                        final Map<String, int[]> fieldNames = entry.getNames(field);
+
+                        final int namesCount = in.readInt();
+                        for (int j = 0; j < namesCount; j++) {
+                            final String name = in.readUTF();
+                            final int[] turnNumbers = new int[readVarInt(in)];
+                            int turnNumber = 0;
+                            for (int k = 0; k < turnNumbers.length; k++) {
+                                turnNumber += readVarInt(in);
+                                turnNumbers[k] = turnNumber;
+                            }
+
+                            fieldNames.put(name, turnNumbers);
+                        }
+                    }
+
+                    addEntry(entry);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            // A broken index is simply created again from the cached logs.
+            e.printStackTrace();
+            clear();
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file which then replaces the old index
+     * file, so a partially written index is never read.
+     * <p>
+     * Log entries aren't changed anymore after they were added to the index,
+     * so only the list of them is copied while holding the lock. Searches and
+     * newly indexed logs don't have to wait for the file to be written.
+     */
+    private void writeIndex() {
+        final File indexFile = getIndexFile();
+        if (!indexFile.getParentFile().isDirectory() && !indexFile.getParentFile().mkdirs())
+            return;
+
+        final List<LogEntry> entriesToWrite;
+        synchronized (this) {
+            entriesToWrite = Lists.newArrayList(entries.values());
+        }
+
+        File tmpIndexFile = null;
+        try {
+            tmpIndexFile = File.createTempFile(INDEX_FILE_NAME, ".tmp", indexFile.getParentFile());
+
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpIndexFile),
+                                                                                       64 * 1024));
+            try {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+
+                out.writeInt(entriesToWrite.size());
+                for (final LogEntry entry : entriesToWrite) {
+                    out.writeUTF(entry.cachedLog.getName());
+                    out.writeUTF(entry.stamp);
+
+                    for (final SearchField field : SearchField.values()) {
+                        final Map<String, int[]> fieldNames = entry.getNames(field);
+
+                        out.writeInt(fieldNames.size());
+                        for (final Map.Entry<String, int[]> e : fieldNames.entrySet()) {
+                            out.writeUTF(e.getKey());
+                            writeVarInt(out, e.getValue().length);
+                            int lastTurnNumber = 0;
+                            for (final int turnNumber : e.getValue()) {
+                                writeVarInt(out, turnNumber - lastTurnNumber);
+                                lastTurnNumber = turnNumber;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+
+            FileReplacement.replace(tmpIndexFile, indexFile);
+        } catch (final IOException e) {
+            e.printStackTrace();
+            if (tmpIndexFile != null)
+                tmpIndexFile.delete();
+        }
+    }
+
+    /**
+     * Writes the given non-negative number in as few bytes as possible, seven
+     * bits per byte. The turn numbers are stored as the differences to their
+     * predecessors, which mostly fit in a single byte this way.
+     */
+    private static void writeVarInt(
+                                    final DataOutputStream out, final int value)
+                                                                                throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte(remaining & 0x7F | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(
+                                  final DataInputStream in)
+                                                           throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * A single hit of a search, that is a name found on a certain turn of a
+     * certain ascension.
+     */
+    public static final class SearchHit {
+        private final LogEntry entry;
+
+        private final SearchField field;
+
+        private final String name;
+
+        private final int turnNumber;
+
+        SearchHit(
+                  final LogEntry entry, final SearchField field, final String name,
+                  final int turnNumber) {
+            this.entry = entry;
+            this.field = field;
+            this.name = name;
+            this.turnNumber = turnNumber;
+        }
+
+        /**
+         * @return The name of the ascension log of this hit.
+         */
+        public String getLogName() {
+            return entry.logName;
+        }
+
+        /**
+         * @return The cached log file of the ascension of this hit.
+         */
+        public File getCachedLog() {
+            return entry.cachedLog;
+        }
+
+        /**
+         * @return The kind of the found name.
+         */
+        public SearchField getField() {
+            return field;
+        }
+
+        /**
+         * @return The found name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The turn number on which the name was found.
+         */
+        public int getTurnNumber() {
+            return turnNumber;
+        }
+
+        @Override
+        public String toString() {
+            return entry.logName + ", turn " + turnNumber + ": " + field + " " + name;
+        }
+    }
+
+    /**
+     * The indexed names of a single cached log.
+     */
+    private static final class LogEntry {
+        final String logName;
+
+        final File cachedLog;
+
+        final String stamp;
+
+        /**
+         * The start date of the ascension as a number in the format of
+         * YYYYMMDD, or 0 if it isn't known.
+         */
+        final int date;
+
+        private final Map<SearchField, Map<String, int[]>> namesByField = new EnumMap<SearchField, Map<String, int[]>>(SearchField.class);
+
+        LogEntry(
+                 final File cachedLog) {
+            this(cachedLog, getStamp(cachedLog));
+        }
+
+        LogEntry(
+                 final File cachedLog, final String stamp) {
+            this.cachedLog = cachedLog;
+            this.stamp = stamp;
+            logName = XMLLogCreator.getLogNameFromXMLLogFileName(cachedLog.getName());
+
+            int logDate = 0;
+            try {
+                logDate = Integer.parseInt(logName.substring(logName.lastIndexOf('-') + 1));
+            } catch (final NumberFormatException e) {
+                // Logs without a parsable date are simply treated as the
+                // oldest ones.
+            }
+            date = logDate;
+
+            for (final SearchField field : SearchField.values())
+                namesByField.put(field, Maps.<String, int[]> newHashMap());
+        }
+
+        /**
+         * @return The names of the given kind mapped to the sorted numbers of
+         *         the turns they appeared on.
+         */
+        Map<String, int[]> getNames(
+                                    final SearchField field) {
+            return namesByField.get(field);
+        }
+    }
+
+    /**
+     * All logs a distinct name appears in.
+     */
+    private static final class Posting {
+        final String lowerCaseName;
+
+        final List<LogEntry> entries = new ArrayList<LogEntry>(4);
+
+        Posting(
+                final String name) {
+            lowerCaseName = name.toLowerCase();
+        }
+    }
+
+    /**
+     * A growable list of turn numbers without consecutive duplicates.
+     */
+    private static final class TurnNumbers {
+        private int[] turnNumbers = new int[4];
+
+        private int size;
+
+        void add(
+                 final int turnNumber) {
+            if (size > 0 && turnNumbers[size - 1] == turnNumber)
+                return;
+
+            if (size == turnNumbers.length)
+                turnNumbers = Arrays.copyOf(turnNumbers, size * 2);
+            turnNumbers[size++] = turnNumber;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(turnNumbers, size);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.io.*;
+
+/**
+ * Tracks how far a file has been read and allows the reading to be cancelled.
+ * <p>
+ * The file has to be read through a stream opened by
+ * {@link #openStream(File, ReadingProgress)}. Once {@link #cancel()} has been
+ * called, every further read from that stream throws an
+ * {@link InterruptedIOException}, so whatever code reads the file stops at its
+ * next read.
+ * <p>
+ * This class is thread-safe. The progress is usually read and the reading
+ * cancelled on a different thread than the one reading the file.
+ */
+public final class ReadingProgress {
+    private final long totalBytes;
+
+    private volatile long bytesRead;
+
+    private volatile boolean isCancelled;
+
+    /**
+     * @param file
+     *            The file whose reading progress should be tracked.
+     */
+    public ReadingProgress(
+                           final File file) {
+        totalBytes = file.length();
+    }
+
+    /**
+     * Opens a stream on the given file, which reports its progress to the
+     * given reading progress.
+     * 
+     * @param file
+     *            The file to read.
+     * @param progress
+     *            The reading progress of the given file. May be {@code null},
+     *            in which case a plain file stream is returned.
+     * @return A stream on the given file.
+     * @throws FileNotFoundException
+     *             if the file couldn't be opened
+     */
+    public static InputStream openStream(
+                                         final File file, final ReadingProgress progress)
+                                                                                          throws FileNotFoundException {
+        final InputStream in = new FileInputStream(file);
+
+        return progress != null ? progress.new TrackingInputStream(in) : in;
+    }
+
+    /**
+     * @return The amount of bytes of the file read so far.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The size of the file in bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The percentage of the file read so far, between 0 and 100.
+     */
+    public int getPercentage() {
+        return totalBytes > 0 ? (int) Math.min(100, bytesRead * 100 / totalBytes) : 0;
+    }
+
+    /**
+     * Cancels the reading of the file.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * @return True if the reading of the file has been cancelled, otherwise
+     *         false.
+     */
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    private final class TrackingInputStream extends FilterInputStream {
+        TrackingInputStream(
+                            final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read()
+                         throws IOException {
+            checkCancelled();
+
+            final int b = super.read();
+            if (b >= 0)
+                bytesRead++;
+
+            return b;
+        }
+
+        @Override
+        public int read(
+                        final byte[] b, final int off, final int len)
+                                                                     throws IOException {
+            checkCancelled();
+
+            final int read = super.read(b, off, len);
+            if (read > 0)
+                bytesRead += read;
+
+            return read;
+        }
+
+        @Override
+        public long skip(
+                         final long n)
+                                      throws IOException {
+            checkCancelled();
+
+            final long skipped = super.skip(n);
+            bytesRead += skipped;
+
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void checkCancelled()
+                                     throws InterruptedIOException {
+            if (isCancelled)
+                throw new InterruptedIOException("Reading the file was cancelled.");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class gives access to the virtual threads of newer Java versions (21
+ * and above), while still running on older ones.
+ * <p>
+ * Virtual threads are cheap enough to use one thread per task, which makes
+ * them a good fit for work that spends most of its time waiting for I/O. On
+ * Java versions without virtual threads, {@link #isAvailable()} returns
+ * {@code false} and callers should fall back to their usual thread pools.
+ * <p>
+ * Their use is experimental. So far only the fallback for Java versions
+ * without virtual threads has been run, so the options which turn them on
+ * (the {@code --vthreads} batch option, the {@code -vthreads} parsing option
+ * and the {@code "Use virtual threads for I/O"} setting) are off by default
+ * and documented as experimental.
+ */
+public final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method method = null;
+        try {
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException e) {
+            // Virtual threads aren't supported by this Java version.
+        } catch (final SecurityException e) {
+            e.printStackTrace();
+        }
+
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = method;
+    }
+
+    // This class is not to be instanced.
+    private VirtualThreads() {}
+
+    /**
+     * @return {@code true} if the running Java version supports virtual
+     *         threads, otherwise {@code false}.
+     */
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return An executor which starts a new virtual thread for every task, or
+     *         {@code null} if virtual threads aren't available.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isAvailable())
+            return null;
+
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (final Exception e) {
+            // Virtual threads can also be unusable, for example if they are
+            // only a preview feature of the running Java version.
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes data to a file in the background shortly after it was changed, so
+ * that several changes in a row only result in one write.
+ * <p>
+ * All instances share one background thread, so their writes never run at the
+ * same time. Writes which are still pending when the program exits are done
+ * before it exits. A write which is already running when the program exits or
+ * when {@link #flush()} is called is waited for.
+ */
+public final class WriteBehind {
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(
+                                final Runnable r) {
+            final Thread t = new Thread(r, "Write-behind writer");
+            t.setDaemon(true);
+
+            return t;
+        }
+    });
+
+    private static final List<WriteBehind> INSTANCES = new CopyOnWriteArrayList<WriteBehind>();
+
+    static {
+        // Pending changes have to be written before the program exits.
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                for (final WriteBehind w : INSTANCES)
+                    w.flush();
+            }
+        }));
+    }
+
+    private final AtomicBoolean isWritePending = new AtomicBoolean();
+
+    private final Object writeLock = new Object();
+
+    private final Runnable writer;
+
+    private final long writeDelayMillis;
+
+    private final Runnable flushTask = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param writer
+     *            The task which writes the data. It is only ever run by one
+     *            thread at a time.
+     * @param writeDelayMillis
+     *            The time after the first change after which the data is
+     *            written. Changes made in the meantime are written along with
+     *            it.
+     */
+    public WriteBehind(
+                       final Runnable writer, final long writeDelayMillis) {
+        if (writer == null)
+            throw new NullPointerException("The writer must not be null.");
+
+        this.writer = writer;
+        this.writeDelayMillis = writeDelayMillis;
+        INSTANCES.add(this);
+    }
+
+    /**
+     * Marks the data as changed. It will be written shortly afterwards, unless
+     * a write is already waiting to be done.
+     */
+    public void scheduleWrite() {
+        if (isWritePending.compareAndSet(false, true))
+            WRITER.schedule(flushTask, writeDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@code true} if changes are waiting to be written, otherwise
+     *         {@code false}.
+     */
+    public boolean isWritePending() {
+        return isWritePending.get();
+    }
+
+    /**
+     * Writes the data right away if changes are waiting to be written. If a
+     * write is already running, it is waited for first. This method returns
+     * after the data was written.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            // The flag is cleared before writing, so changes made during the
+            // write schedule another one.
+            if (isWritePending.getAndSet(false))
+                writer.run();
+        }
+    }
+
+    /**
+     * Periodically runs the given task on the thread shared by all writes, so
+     * it never runs at the same time as a write.
+     * 
+     * @param task
+     *            The task to run.
+     * @param delayMillis
+     *            The time between the end of one run and the start of the
+     *            next.
+     */
+    public static void scheduleWithFixedDelay(
+                                              final Runnable task, final long delayMillis) {
+        WRITER.scheduleWithFixedDelay(task, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,109 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util.dataTables;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Utility class to compute the normalised form of names used as keys in the
+ * lookup tables of the {@link DataTablesHandler}. A normalised name contains no
+ * non-ASCII characters and is all lower case.
+ * <p>
+ * Names which are already normalised are returned as they are, after a single
+ * pass over their characters. Normalised forms of other names are cached, so
+ * that looking up the same names over and over again, as is done while parsing
+ * and summarising logs, neither runs a regular expression nor allocates new
+ * strings.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class DataTableNames {
+    /**
+     * The cache is simply cleared once it reaches this size. The names looked
+     * up in the data tables come from a rather small vocabulary, so this
+     * should almost never happen.
+     */
+    private static final int MAX_CACHED_NAMES = 20000;
+
+    private static final ConcurrentMap<String, String> NORMALIZED_NAMES = new ConcurrentHashMap<String, String>(2000);
+
+    // This class is not to be instanced.
+    private DataTableNames() {}
+
+    /**
+     * @param name
+     *            The name to normalise.
+     * @return The given name without non-ASCII characters and in lower case.
+     *         If the name already is in this form, the same string instance is
+     *         returned.
+     */
+    public static String normalize(
+                                   final String name) {
+        if (isNormalized(name))
+            return name;
+
+        String normalizedName = NORMALIZED_NAMES.get(name);
+        if (normalizedName == null) {
+            normalizedName = computeNormalizedName(name);
+
+            if (NORMALIZED_NAMES.size() >= MAX_CACHED_NAMES)
+                NORMALIZED_NAMES.clear();
+            NORMALIZED_NAMES.put(name, normalizedName);
+        }
+
+        return normalizedName;
+    }
+
+    /**
+     * @return True if the given name contains neither non-ASCII characters nor
+     *         upper case letters, otherwise false.
+     */
+    private static boolean isNormalized(
+                                        final String name) {
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (c > 0x7F || (c >= 'A' && c <= 'Z'))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static String computeNormalizedName(
+                                                final String name) {
+        final StringBuilder str = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z')
+                str.append((char) (c + ('a' - 'A')));
+            else if (c <= 0x7F)
+                str.append(c);
+        }
+
+        return str.toString();
+    }
+}
@@ -0,0 +1,361 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util.dataTables;
+
+import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.jar.JarEntry;
+
+import net.java.dev.spellcast.utilities.UtilityConstants;
+
+import com.googlecode.logVisualizer.util.FileReplacement;
+
+/**
+ * This class handles the precompiled binary bundles of the data tables.
+ * <p>
+ * Reading the data tables from their text and XML files means running a
+ * regular expression over every line or an XML parser over every file on each
+ * start of the program. A bundle holds the collections which result from
+ * reading a group of such files in a compact binary form, so they can be
+ * restored with a few plain stream reads instead.
+ * <p>
+ * Every bundle is stamped with the state of the files it was compiled from
+ * (see {@link #getSourcesStamp(String...)}). A bundle whose stamp doesn't
+ * match the current state of its source files, for example because a default
+ * file was updated or because the data tables editor saved a user file, is
+ * ignored, the data tables are read from their source files and the bundle is
+ * compiled again.
+ * <p>
+ * Bundles are saved to the kol data directory next to the data files.
+ */
+public final class DataTablesBundle {
+    private static final int BUNDLE_MAGIC = 0x414C5644;
+
+    /**
+     * The version of the bundle format. This has to be increased whenever the
+     * way the data tables are read into their collections or the way they are
+     * written to a bundle changes, so older bundles aren't used anymore.
+     */
+    private static final int BUNDLE_VERSION = 1;
+
+    // This class is not to be instanced.
+    private DataTablesBundle() {}
+
+    /**
+     * Returns a stamp describing the current state of the given data files.
+     * For data files in the kol data directory, the stamp is made up of their
+     * size and modification date, for data files which are only part of the
+     * program itself, of their location, size and checksum.
+     * 
+     * @param filenames
+     *            The names of the data files in the kol data directory.
+     * @return The stamp of the given data files. Will be {@code null} if the
+     *         state of one of the data files couldn't be determined, in which
+     *         case no bundle should be used for them.
+     */
+    public static String getSourcesStamp(
+                                         final String... filenames) {
+        final StringBuilder stamp = new StringBuilder(filenames.length * 100);
+        for (final String filename : filenames) {
+            final String fileStamp = getSourceStamp(filename);
+            if (fileStamp == null)
+                return null;
+
+            stamp.append(filename).append(' ').append(fileStamp).append('\n');
+        }
+
+        return stamp.toString();
+    }
+
+    private static String getSourceStamp(
+                                         final String filename) {
+        final String fullname = UtilityConstants.KOL_DATA_DIRECTORY + filename;
+
+        // The same lookup order as DataUtilities uses to find data files.
+        final File override = new File(UtilityConstants.ROOT_LOCATION, fullname);
+        if (override.exists())
+            return "file " + override.length() + " " + override.lastModified();
+
+        URL url = UtilityConstants.SYSTEM_CLASSLOADER.getResource(fullname);
+        if (url == null)
+            url = UtilityConstants.MAINCLASS_CLASSLOADER.getResource(fullname);
+        if (url == null)
+            return "none";
+
+        try {
+            if (url.getProtocol().equals("file")) {
+                final File f = new File(url.toURI());
+                return url + " " + f.length() + " " + f.lastModified();
+            }
+
+            final URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection) {
+                final JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+                return url + " " + entry.getSize() + " " + entry.getCrc();
+            }
+        } catch (final IOException e) {
+            e.printStackTrace();
+        } catch (final URISyntaxException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the bundle of the given name, if it exists and was compiled from
+     * source files in the state described by the given stamp.
+     * <p>
+     * The given reader may have read parts of the bundle even if this method
+     * returns false, so it should only publish what it read if this method
+     * returns true.
+     * 
+     * @param bundleName
+     *            The file name of the bundle.
+     * @param sourcesStamp
+     *            The stamp of the source files of the bundle, see
+     *            {@link #getSourcesStamp(String...)}. If it is {@code null},
+     *            the bundle will not be read.
+     * @param reader
+     *            The reader of the bundle content.
+     * @return True if the bundle was read, otherwise false.
+     */
+    public static boolean readBundle(
+                                     final String bundleName, final String sourcesStamp,
+                                     final BundleReader reader) {
+        if (sourcesStamp == null)
+            return false;
+
+        final File bundle = new File(UtilityConstants.KOL_DATA_LOCATION, bundleName);
+        FileReplacement.restoreInterruptedReplacement(bundle);
+        if (!bundle.exists())
+            return false;
+
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(bundle),
+                                                                                   64 * 1024));
+            try {
+                if (in.readInt() != BUNDLE_MAGIC || in.readInt() != BUNDLE_VERSION
+                    || !in.readUTF().equals(sourcesStamp))
+                    return false;
+
+                reader.readBundle(in);
+
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            // A broken bundle is simply compiled again.
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the bundle of the given name. The bundle is first written to a
+     * temporary file which then replaces the old bundle, so readers never see
+     * a partially written bundle.
+     * <p>
+     * Nothing will be written if the kol data directory doesn't exist.
+     * 
+     * @param bundleName
+     *            The file name of the bundle.
+     * @param sourcesStamp
+     *            The stamp of the source files of the bundle, see
+     *            {@link #getSourcesStamp(String...)}. It has to be determined
+     *            before the source files are read. If it is {@code null}, the
+     *            bundle will not be written.
+     * @param writer
+     *            The writer of the bundle content.
+     */
+    public static void writeBundle(
+                                   final String bundleName, final String sourcesStamp,
+                                   final BundleWriter writer) {
+        if (sourcesStamp == null || !UtilityConstants.KOL_DATA_LOCATION.isDirectory())
+            return;
+
+        final File bundle = new File(UtilityConstants.KOL_DATA_LOCATION, bundleName);
+        File tmpBundle = null;
+        try {
+            tmpBundle = File.createTempFile(bundleName, ".tmp", UtilityConstants.KOL_DATA_LOCATION);
+
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpBundle),
+                                                                                       64 * 1024));
+            try {
+                out.writeInt(BUNDLE_MAGIC);
+                out.writeInt(BUNDLE_VERSION);
+                out.writeUTF(sourcesStamp);
+
+                writer.writeBundle(out);
+            } finally {
+                out.close();
+            }
+
+            FileReplacement.replace(tmpBundle, bundle);
+        } catch (final IOException e) {
+            e.printStackTrace();
+            if (tmpBundle != null)
+                tmpBundle.delete();
+        }
+    }
+
+    /**
+     * Writes the given set of strings to the given bundle stream.
+     */
+    public static void writeStringSet(
+                                      final DataOutputStream out, final Set<String> set)
+                                                                                        throws IOException {
+        out.writeInt(set.size());
+        for (final String s : set)
+            out.writeUTF(s);
+    }
+
+    /**
+     * Reads a set of strings written by
+     * {@link #writeStringSet(DataOutputStream, Set)} from the given bundle
+     * stream into the given set.
+     */
+    public static void readStringSet(
+                                     final DataInputStream in, final Set<String> set)
+                                                                                     throws IOException {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++)
+            set.add(in.readUTF());
+    }
+
+    /**
+     * Writes the given map of strings and integers to the given bundle stream.
+     */
+    public static void writeStringIntegerMap(
+                                             final DataOutputStream out,
+                                             final Map<String, Integer> map)
+                                                                            throws IOException {
+        out.writeInt(map.size());
+        for (final Entry<String, Integer> e : map.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeInt(e.getValue().intValue());
+        }
+    }
+
+    /**
+     * Reads a map of strings and integers written by
+     * {@link #writeStringIntegerMap(DataOutputStream, Map)} from the given
+     * bundle stream into the given map.
+     */
+    public static void readStringIntegerMap(
+                                            final DataInputStream in,
+                                            final Map<String, Integer> map)
+                                                                           throws IOException {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++)
+            map.put(in.readUTF(), Integer.valueOf(in.readInt()));
+    }
+
+    /**
+     * Writes the given map of strings and booleans to the given bundle stream.
+     */
+    public static void writeStringBooleanMap(
+                                             final DataOutputStream out,
+                                             final Map<String, Boolean> map)
+                                                                            throws IOException {
+        out.writeInt(map.size());
+        for (final Entry<String, Boolean> e : map.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeBoolean(e.getValue().booleanValue());
+        }
+    }
+
+    /**
+     * Reads a map of strings and booleans written by
+     * {@link #writeStringBooleanMap(DataOutputStream, Map)} from the given
+     * bundle stream into the given map.
+     */
+    public static void readStringBooleanMap(
+                                            final DataInputStream in,
+                                            final Map<String, Boolean> map)
+                                                                           throws IOException {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++)
+            map.put(in.readUTF(), Boolean.valueOf(in.readBoolean()));
+    }
+
+    /**
+     * Writes the given map of strings to the given bundle stream.
+     */
+    public static void writeStringMap(
+                                      final DataOutputStream out, final Map<String, String> map)
+                                                                                                throws IOException {
+        out.writeInt(map.size());
+        for (final Entry<String, String> e : map.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue());
+        }
+    }
+
+    /**
+     * Reads a map of strings written by
+     * {@link #writeStringMap(DataOutputStream, Map)} from the given bundle
+     * stream into the given map.
+     */
+    public static void readStringMap(
+                                     final DataInputStream in, final Map<String, String> map)
+                                                                                             throws IOException {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++)
+            map.put(in.readUTF(), in.readUTF());
+    }
+
+    /**
+     * Implementations of this interface read the content of a bundle.
+     */
+    public interface BundleReader {
+        /**
+         * Reads the content of a bundle from the given stream.
+         */
+        void readBundle(
+                        final DataInputStream in)
+                                                 throws IOException;
+    }
+
+    /**
+     * Implementations of this interface write the content of a bundle.
+     */
+    public interface BundleWriter {
+        /**
+         * Writes the content of a bundle to the given stream.
+         */
+        void writeBundle(
+                         final DataOutputStream out)
+                                                    throws IOException;
+    }
+}
@@ -29,6 +29,8 @@ import static net.java.dev.spellcast.utilities.UtilityConstants.KOL_DATA_DIRECTO
 import static net.java.dev.spellcast.utilities.UtilityConstants.ROOT_DIRECTORY;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
@@ -45,21 +47,35 @@ import net.java.dev.spellcast.utilities.UtilityConstants;
 import com.googlecode.logVisualizer.logData.turn.Encounter;
 import com.googlecode.logVisualizer.logData.turn.turnAction.EquipmentChange;
 import com.googlecode.logVisualizer.parser.UsefulPatterns;
-import com.googlecode.logVisualizer.util.Lists;
 import com.googlecode.logVisualizer.util.Maps;
 import com.googlecode.logVisualizer.util.Pair;
 import com.googlecode.logVisualizer.util.Sets;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesBundle.BundleReader;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesBundle.BundleWriter;
 import com.googlecode.logVisualizer.util.dataTables.XMLDataFilesWriter.DataWriter;
 import com.googlecode.logVisualizer.util.xmlLogs.XMLAccessException;
 
 /**
  * This class is a centralised place to handle access to various useful data
  * tables.
+ * <p>
+ * All data tables are held in one immutable {@link DataTablesSnapshot}, which
+ * is replaced as a whole whenever the data tables are reloaded or updated.
+ * Queries therefore never block and always see a consistent set of data
+ * tables, even while parsing threads run concurrently to a reload. Code doing
+ * many queries, for example for every turn of a log, should get the snapshot
+ * once through {@link #getDataTables()} and query it directly, so all of its
+ * queries are answered from the same data.
+ * <p>
+ * On start-up, the data tables are restored from their precompiled bundle (see
+ * {@link DataTablesBundle}) if it is up to date. Otherwise, and whenever the
+ * data tables are reloaded or updated, they are read from the data files and
+ * the bundle is compiled again.
  */
 public enum DataTablesHandler {
     HANDLER;
 
-    private static final String FLOWERS_FOR_BAD_MOON_ADVENUTRE = "flowers for ";
+    private static final String DATA_TABLES_BUNDLE = "dataTables.bin";
 
     private final Map<String, Integer> fullnessHitMap;
 
@@ -67,29 +83,21 @@ public enum DataTablesHandler {
 
     private final Map<String, Integer> spleenHitMap;
 
-    private Set<String> badmoonAdventuresSet;
-
-    private Set<String> semirareAdventuresSet;
-
-    private Set<String> wanderingAdventuresSet;
-
-    private Map<String, Boolean> itemdropsMap;
-
-    private Map<String, Integer> skillsMap;
-
-    private Map<String, Integer> mpRegenEquipmentsMap;
-
-    private Map<String, Integer> mpCostEquipmentsMap;
-
-    private Map<String, ExtraStats> statsEquipmentsMap;
-
-    private Map<String, Outfit> outfitsMap;
+    private volatile DataTablesSnapshot tables;
 
     private DataTablesHandler() {
         fullnessHitMap = Maps.newHashMap(500);
         drunkennessHitMap = Maps.newHashMap(500);
         spleenHitMap = Maps.newHashMap(300);
 
+        final String sourcesStamp = DataTablesBundle.getSourcesStamp(getDataTablesFiles());
+        if (readDataTablesBundle(sourcesStamp))
+            return;
+
+        fullnessHitMap.clear();
+        drunkennessHitMap.clear();
+        spleenHitMap.clear();
+
         final Pattern tableDataExtractionPattern = Pattern.compile("([.[^\t]]+)\\s+(\\d+)\\s+.+");
         readFormattedTable(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
                                                    "fullness.txt"),
@@ -104,17 +112,48 @@ public enum DataTablesHandler {
                            spleenHitMap,
                            tableDataExtractionPattern);
 
-        reloadDataTables();
+        reloadDataTables(sourcesStamp);
+    }
+
+    /**
+     * @return The names of all data files the data tables are read from.
+     */
+    private static String[] getDataTablesFiles() {
+        return new String[] { "fullness.txt", "inebriety.txt", "spleenhit.txt",
+                             "badmoonDefault.xml", "badmoon.xml", "semirareDefault.xml",
+                             "semirare.xml", "wanderingEncountersDefault.xml",
+                             "wanderingEncounters.xml", "itemsDefault.xml", "items.xml",
+                             "skillsDefault.xml", "skills.xml", "mpRegenEquipmentDefault.xml",
+                             "mpRegenEquipment.xml", "mpCostEquipmentDefault.xml",
+                             "mpCostEquipment.xml", "statsEquipmentDefault.xml",
+                             "statsEquipment.xml", "outfitsDefault.xml", "outfits.xml" };
+    }
+
+    /**
+     * @return The current snapshot of all data tables. It won't change when
+     *         the data tables are reloaded or updated afterwards.
+     */
+    public DataTablesSnapshot getDataTables() {
+        return tables;
     }
 
     /**
      * Reloads the collections from the data tables.
      * <p>
-     * Please note that current collections will only be dereferenced, not
-     * emptied and repopulated. This means that references to the old
-     * collections will continue to link to the old data.
+     * The collections are published as a new snapshot in one step once all
+     * of them are read, current snapshots are not changed. This means that
+     * references to the old collections will continue to link to the old data.
+     * Reloads and updates are serialised among each other, but don't block
+     * queries.
+     * <p>
+     * The data tables bundle is compiled again afterwards.
      */
     public synchronized void reloadDataTables() {
+        reloadDataTables(DataTablesBundle.getSourcesStamp(getDataTablesFiles()));
+    }
+
+    private void reloadDataTables(
+                                  final String sourcesStamp) {
         final Set<String> badmoonAdventuresSet = Sets.newHashSet(150);
         final Set<String> semirareAdventuresSet = Sets.newHashSet(150);
         final Set<String> wanderingAdventuresSet = Sets.newHashSet(150);
@@ -313,15 +352,144 @@ public enum DataTablesHandler {
         readXMLDataFile("outfitsDefault.xml", "outfit", outfitArgumentsHandler);
         readXMLDataFile("outfits.xml", "outfit", outfitArgumentsHandler);
 
-        this.badmoonAdventuresSet = Collections.unmodifiableSet(badmoonAdventuresSet);
-        this.semirareAdventuresSet = Collections.unmodifiableSet(semirareAdventuresSet);
-        this.wanderingAdventuresSet = Collections.unmodifiableSet(wanderingAdventuresSet);
-        this.itemdropsMap = Collections.unmodifiableMap(itemdropsMap);
-        this.skillsMap = Collections.unmodifiableMap(skillsMap);
-        this.mpRegenEquipmentsMap = Collections.unmodifiableMap(mpRegenEquipmentsMap);
-        this.mpCostEquipmentsMap = Collections.unmodifiableMap(mpCostEquipmentsMap);
-        this.statsEquipmentsMap = Collections.unmodifiableMap(statsEquipmentsMap);
-        this.outfitsMap = Collections.unmodifiableMap(outfitsMap);
+        tables = new DataTablesSnapshot(fullnessHitMap,
+                                        drunkennessHitMap,
+                                        spleenHitMap,
+                                        badmoonAdventuresSet,
+                                        semirareAdventuresSet,
+                                        wanderingAdventuresSet,
+                                        itemdropsMap,
+                                        skillsMap,
+                                        mpRegenEquipmentsMap,
+                                        mpCostEquipmentsMap,
+                                        statsEquipmentsMap,
+                                        outfitsMap);
+
+        writeDataTablesBundle(sourcesStamp, tables);
+    }
+
+    /**
+     * Restores all data tables from the data tables bundle, if it was compiled
+     * from data files in the state described by the given stamp.
+     * 
+     * @return True if the data tables were restored, otherwise false.
+     */
+    private boolean readDataTablesBundle(
+                                         final String sourcesStamp) {
+        final Set<String> badmoonAdventuresSet = Sets.newHashSet(150);
+        final Set<String> semirareAdventuresSet = Sets.newHashSet(150);
+        final Set<String> wanderingAdventuresSet = Sets.newHashSet(150);
+        final Map<String, Boolean> itemdropsMap = Maps.newHashMap(500);
+        final Map<String, Integer> skillsMap = Maps.newHashMap(300);
+        final Map<String, Integer> mpRegenEquipmentsMap = Maps.newHashMap(300);
+        final Map<String, Integer> mpCostEquipmentsMap = Maps.newHashMap(300);
+        final Map<String, ExtraStats> statsEquipmentsMap = Maps.newHashMap(300);
+        final Map<String, Outfit> outfitsMap = Maps.newHashMap(300);
+
+        final boolean isRead = DataTablesBundle.readBundle(DATA_TABLES_BUNDLE,
+                                                           sourcesStamp,
+                                                           new BundleReader() {
+            public void readBundle(
+                                   final DataInputStream in)
+                                                            throws IOException {
+                DataTablesBundle.readStringIntegerMap(in, fullnessHitMap);
+                DataTablesBundle.readStringIntegerMap(in, drunkennessHitMap);
+                DataTablesBundle.readStringIntegerMap(in, spleenHitMap);
+                DataTablesBundle.readStringSet(in, badmoonAdventuresSet);
+                DataTablesBundle.readStringSet(in, semirareAdventuresSet);
+                DataTablesBundle.readStringSet(in, wanderingAdventuresSet);
+                DataTablesBundle.readStringBooleanMap(in, itemdropsMap);
+                DataTablesBundle.readStringIntegerMap(in, skillsMap);
+                DataTablesBundle.readStringIntegerMap(in, mpRegenEquipmentsMap);
+                DataTablesBundle.readStringIntegerMap(in, mpCostEquipmentsMap);
+
+                int size = in.readInt();
+                for (int i = 0; i < size; i++)
+                    statsEquipmentsMap.put(in.readUTF(), new ExtraStats(in.readDouble(),
+                                                                        in.readInt(),
+                                                                        in.readInt(),
+                                                                        in.readInt()));
+
+                size = in.readInt();
+                for (int i = 0; i < size; i++)
+                    outfitsMap.put(in.readUTF(), new Outfit(in.readUTF(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean(),
+                                                            in.readBoolean()));
+            }
+        });
+
+        if (isRead)
+            tables = new DataTablesSnapshot(fullnessHitMap,
+                                            drunkennessHitMap,
+                                            spleenHitMap,
+                                            badmoonAdventuresSet,
+                                            semirareAdventuresSet,
+                                            wanderingAdventuresSet,
+                                            itemdropsMap,
+                                            skillsMap,
+                                            mpRegenEquipmentsMap,
+                                            mpCostEquipmentsMap,
+                                            statsEquipmentsMap,
+                                            outfitsMap);
+
+        return isRead;
+    }
+
+    /**
+     * Compiles the given data tables into the data tables bundle.
+     */
+    private void writeDataTablesBundle(
+                                              final String sourcesStamp,
+                                              final DataTablesSnapshot dataTables) {
+        DataTablesBundle.writeBundle(DATA_TABLES_BUNDLE, sourcesStamp, new BundleWriter() {
+            public void writeBundle(
+                                    final DataOutputStream out)
+                                                               throws IOException {
+                DataTablesBundle.writeStringIntegerMap(out, fullnessHitMap);
+                DataTablesBundle.writeStringIntegerMap(out, drunkennessHitMap);
+                DataTablesBundle.writeStringIntegerMap(out, spleenHitMap);
+                DataTablesBundle.writeStringSet(out, dataTables.getBadmoonAdventuresSet());
+                DataTablesBundle.writeStringSet(out, dataTables.getSemirareAdventuresSet());
+                DataTablesBundle.writeStringSet(out, dataTables.getWanderingAdventuresSet());
+                DataTablesBundle.writeStringBooleanMap(out, dataTables.getItemdropsMap());
+                DataTablesBundle.writeStringIntegerMap(out, dataTables.getSkillCostsMap());
+                DataTablesBundle.writeStringIntegerMap(out, dataTables.getMPFromEquipmentMap());
+                DataTablesBundle.writeStringIntegerMap(out,
+                                                       dataTables.getMPCostOffsetEquipmentMap());
+
+                out.writeInt(dataTables.getStatsEquipmentMap().size());
+                for (final Entry<String, ExtraStats> e : dataTables.getStatsEquipmentMap()
+                                                                   .entrySet()) {
+                    final ExtraStats stats = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeDouble(stats.generalGain);
+                    out.writeInt(stats.musGain);
+                    out.writeInt(stats.mystGain);
+                    out.writeInt(stats.moxGain);
+                }
+
+                out.writeInt(dataTables.getOutfitsMap().size());
+                for (final Entry<String, Outfit> e : dataTables.getOutfitsMap().entrySet()) {
+                    final Outfit outfit = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(outfit.outfitName);
+                    out.writeBoolean(outfit.hat);
+                    out.writeBoolean(outfit.weapon);
+                    out.writeBoolean(outfit.offhand);
+                    out.writeBoolean(outfit.shirt);
+                    out.writeBoolean(outfit.pants);
+                    out.writeBoolean(outfit.acc1);
+                    out.writeBoolean(outfit.acc2);
+                    out.writeBoolean(outfit.acc3);
+                }
+            }
+        });
     }
 
     /**
@@ -330,6 +498,10 @@ public enum DataTablesHandler {
      * <p>
      * Please note that using {@code null} as a parameter will result in the
      * given data table and linked collection to stay the way it is.
+     * <p>
+     * The updated data tables are published as a new snapshot (see
+     * {@link #reloadDataTables()}). Code still holding on to an older snapshot
+     * keeps using its data.
      */
     public synchronized void updateDataTables(
                                               final Set<String> badmoonAdventuresSet,
@@ -460,9 +632,7 @@ public enum DataTablesHandler {
      */
     public int getFullnessHit(
                               final String consumableName) {
-        final String name = NON_ASCII.matcher(consumableName)
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-        return getOrZero(fullnessHitMap.get(name.toLowerCase(Locale.ENGLISH)));
+        return tables.getFullnessHit(consumableName);
     }
 
     /**
@@ -472,9 +642,7 @@ public enum DataTablesHandler {
      */
     public int getDrunkennessHit(
                                  final String consumableName) {
-        final String name = NON_ASCII.matcher(consumableName)
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-        return getOrZero(drunkennessHitMap.get(name.toLowerCase(Locale.ENGLISH)));
+        return tables.getDrunkennessHit(consumableName);
     }
 
     /**
@@ -484,9 +652,7 @@ public enum DataTablesHandler {
      */
     public int getSpleenHit(
                             final String consumableName) {
-        final String name = NON_ASCII.matcher(consumableName)
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-        return getOrZero(spleenHitMap.get(name.toLowerCase(Locale.ENGLISH)));
+        return tables.getSpleenHit(consumableName);
     }
 
     /**
@@ -497,7 +663,7 @@ public enum DataTablesHandler {
      */
     public boolean isSemirareEncounter(
                                        final Encounter encounter) {
-        return isSemirareEncounter(encounter.getEncounterName());
+        return tables.isSemirareEncounter(encounter);
     }
 
     /**
@@ -508,10 +674,7 @@ public enum DataTablesHandler {
      */
     public boolean isSemirareEncounter(
                                        final String encounterName) {
-        final String name = NON_ASCII.matcher(encounterName)
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-
-        return semirareAdventuresSet.contains(name.toLowerCase(Locale.ENGLISH));
+        return tables.isSemirareEncounter(encounterName);
     }
 
     /**
@@ -522,7 +685,7 @@ public enum DataTablesHandler {
      */
     public boolean isBadMoonEncounter(
                                       final Encounter encounter) {
-        return isBadMoonEncounter(encounter.getEncounterName());
+        return tables.isBadMoonEncounter(encounter);
     }
 
     /**
@@ -533,11 +696,7 @@ public enum DataTablesHandler {
      */
     public boolean isBadMoonEncounter(
                                       final String encounterName) {
-        final String name = NON_ASCII.matcher(encounterName.toLowerCase(Locale.ENGLISH))
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-
-        return badmoonAdventuresSet.contains(name) ? true
-                                                  : name.startsWith(FLOWERS_FOR_BAD_MOON_ADVENUTRE);
+        return tables.isBadMoonEncounter(encounterName);
     }
 
     /**
@@ -548,7 +707,7 @@ public enum DataTablesHandler {
      */
     public boolean isWanderingEncounter(
                                         final Encounter encounter) {
-        return isWanderingEncounter(encounter.getEncounterName());
+        return tables.isWanderingEncounter(encounter);
     }
 
     /**
@@ -559,10 +718,7 @@ public enum DataTablesHandler {
      */
     public boolean isWanderingEncounter(
                                         final String encounterName) {
-        final String name = NON_ASCII.matcher(encounterName.toLowerCase(Locale.ENGLISH))
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-
-        return wanderingAdventuresSet.contains(name);
+        return tables.isWanderingEncounter(encounterName);
     }
 
     /**
@@ -572,8 +728,7 @@ public enum DataTablesHandler {
      */
     public int getSkillMPCost(
                               final String skillName) {
-        final String name = NON_ASCII.matcher(skillName).replaceAll(UsefulPatterns.EMPTY_STRING);
-        return getOrZero(skillsMap.get(name.toLowerCase(Locale.ENGLISH)));
+        return tables.getSkillMPCost(skillName);
     }
 
     /**
@@ -584,22 +739,7 @@ public enum DataTablesHandler {
      */
     public int getMPCostOffset(
                                final EquipmentChange equipment) {
-        int mpCostOffset = 0;
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getHat()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getWeapon()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getOffhand()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getShirt()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getPants()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getAcc1()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getAcc2()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getAcc3()));
-        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getFamEquip()));
-
-        // -3 is minimum
-        if (mpCostOffset < -3)
-            mpCostOffset = -3;
-
-        return mpCostOffset;
+        return tables.getMPCostOffset(equipment);
     }
 
     /**
@@ -610,9 +750,7 @@ public enum DataTablesHandler {
      */
     public int getMPFromEquipment(
                                   final String equipmentName) {
-        final String name = NON_ASCII.matcher(equipmentName)
-                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-        return getOrZero(mpRegenEquipmentsMap.get(name.toLowerCase(Locale.ENGLISH)));
+        return tables.getMPFromEquipment(equipmentName);
     }
 
     /**
@@ -622,17 +760,7 @@ public enum DataTablesHandler {
      *         stats and moxie stats.
      */
     public List<Pair<String, ExtraStats>> getStatsItems() {
-        final List<Pair<String, ExtraStats>> result = Lists.newArrayList(statsEquipmentsMap.size());
-
-        for (final String s : statsEquipmentsMap.keySet())
-            result.add(Pair.of(s, statsEquipmentsMap.get(s)));
-
-        return Lists.sort(result, new Comparator<Pair<String, ExtraStats>>() {
-            public int compare(
-                               final Pair<String, ExtraStats> p1, final Pair<String, ExtraStats> p2) {
-                return p2.getVar2().compareTo(p1.getVar2());
-            }
-        });
+        return tables.getStatsItems();
     }
 
     /**
@@ -645,9 +773,7 @@ public enum DataTablesHandler {
      */
     public Outfit getOutfitChange(
                                   final String outfitName) {
-        final Outfit outfit = outfitsMap.get(outfitName);
-
-        return outfit != null ? outfit : Outfit.NO_CHANGE;
+        return tables.getOutfitChange(outfitName);
     }
 
     /**
@@ -661,9 +787,7 @@ public enum DataTablesHandler {
      */
     public boolean isImportantItem(
                                    final String itemName) {
-        final Boolean onetimeOnly = itemdropsMap.get(itemName);
-
-        return onetimeOnly != null ? !onetimeOnly : false;
+        return tables.isImportantItem(itemName);
     }
 
     /**
@@ -678,9 +802,7 @@ public enum DataTablesHandler {
      */
     public boolean isOnetimeItem(
                                  final String itemName) {
-        final Boolean onetimeOnly = itemdropsMap.get(itemName);
-
-        return onetimeOnly != null ? onetimeOnly : false;
+        return tables.isOnetimeItem(itemName);
     }
 
     /**
@@ -688,7 +810,7 @@ public enum DataTablesHandler {
      *         read-only.
      */
     public Set<String> getBadmoonAdventuresSet() {
-        return badmoonAdventuresSet;
+        return tables.getBadmoonAdventuresSet();
     }
 
     /**
@@ -696,7 +818,7 @@ public enum DataTablesHandler {
      *         read-only.
      */
     public Set<String> getSemirareAdventuresSet() {
-        return semirareAdventuresSet;
+        return tables.getSemirareAdventuresSet();
     }
 
     /**
@@ -704,7 +826,7 @@ public enum DataTablesHandler {
      *         read-only.
      */
     public Set<String> getWanderingAdventuresSet() {
-        return wanderingAdventuresSet;
+        return tables.getWanderingAdventuresSet();
     }
 
     /**
@@ -712,7 +834,7 @@ public enum DataTablesHandler {
      *         read-only.
      */
     public Map<String, Integer> getSkillCostsMap() {
-        return skillsMap;
+        return tables.getSkillCostsMap();
     }
 
     /**
@@ -720,7 +842,7 @@ public enum DataTablesHandler {
      *         map is read-only.
      */
     public Map<String, Integer> getMPCostOffsetEquipmentMap() {
-        return mpCostEquipmentsMap;
+        return tables.getMPCostOffsetEquipmentMap();
     }
 
     /**
@@ -728,7 +850,7 @@ public enum DataTablesHandler {
      *         that the map is read-only.
      */
     public Map<String, Integer> getMPFromEquipmentMap() {
-        return mpRegenEquipmentsMap;
+        return tables.getMPFromEquipmentMap();
     }
 
     /**
@@ -736,7 +858,7 @@ public enum DataTablesHandler {
      *         that the map is read-only.
      */
     public Map<String, ExtraStats> getStatsEquipmentMap() {
-        return statsEquipmentsMap;
+        return tables.getStatsEquipmentMap();
     }
 
     /**
@@ -744,7 +866,7 @@ public enum DataTablesHandler {
      *         slots. Note that the map is read-only.
      */
     public Map<String, Outfit> getOutfitsMap() {
-        return outfitsMap;
+        return tables.getOutfitsMap();
     }
 
     /**
@@ -753,15 +875,7 @@ public enum DataTablesHandler {
      *         logs. Note that the map is read-only.
      */
     public Map<String, Boolean> getItemdropsMap() {
-        return itemdropsMap;
-    }
-
-    /**
-     * @return The given value or, if the value is null, 0.
-     */
-    private static int getOrZero(
-                                 final Integer value) {
-        return value == null ? 0 : value.intValue();
+        return tables.getItemdropsMap();
     }
 
     private static void readFormattedTable(
@@ -776,9 +890,7 @@ public enum DataTablesHandler {
                 if (tmpLine.length() > 0 && !tmpLine.startsWith("//") && !tmpLine.startsWith("#")) {
                     final Matcher m = capturePattern.matcher(tmpLine);
                     if (m.matches()) {
-                        final String name = NON_ASCII.matcher(m.group(1))
-                                                     .replaceAll(UsefulPatterns.EMPTY_STRING);
-                        savedToMap.put(name.toLowerCase(Locale.ENGLISH),
+                        savedToMap.put(DataTableNames.normalize(m.group(1)),
                                        Integer.valueOf(Integer.parseInt(m.group(2))));
                     }
                 }
@@ -0,0 +1,442 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.googlecode.logVisualizer.util.dataTables;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import com.googlecode.logVisualizer.logData.turn.Encounter;
+import com.googlecode.logVisualizer.logData.turn.turnAction.EquipmentChange;
+import com.googlecode.logVisualizer.util.Lists;
+import com.googlecode.logVisualizer.util.Maps;
+import com.googlecode.logVisualizer.util.Pair;
+import com.googlecode.logVisualizer.util.Sets;
+
+/**
+ * Immutable snapshot of all data tables handled by the
+ * {@link DataTablesHandler}. Instances of this class never change after they
+ * were created, so they can be freely shared between threads.
+ * <p>
+ * Apart from the collections as they are read from the data tables, a snapshot
+ * also holds lookup copies of some of them with all names normalised (see
+ * {@link DataTableNames}), so queries only need to normalise the name they are
+ * given.
+ */
+public final class DataTablesSnapshot {
+    private static final String FLOWERS_FOR_BAD_MOON_ADVENUTRE = "flowers for ";
+
+    private final Map<String, Integer> fullnessHitMap;
+
+    private final Map<String, Integer> drunkennessHitMap;
+
+    private final Map<String, Integer> spleenHitMap;
+
+    private final Set<String> badmoonAdventuresSet;
+
+    private final Set<String> semirareAdventuresSet;
+
+    private final Set<String> wanderingAdventuresSet;
+
+    private final Map<String, Boolean> itemdropsMap;
+
+    private final Map<String, Integer> skillsMap;
+
+    private final Map<String, Integer> mpRegenEquipmentsMap;
+
+    private final Map<String, Integer> mpCostEquipmentsMap;
+
+    private final Map<String, ExtraStats> statsEquipmentsMap;
+
+    private final Map<String, Outfit> outfitsMap;
+
+    private final Set<String> badmoonAdventuresLookupSet;
+
+    private final Set<String> semirareAdventuresLookupSet;
+
+    private final Set<String> wanderingAdventuresLookupSet;
+
+    private final Map<String, Integer> skillsLookupMap;
+
+    private final Map<String, Integer> mpRegenEquipmentsLookupMap;
+
+    /**
+     * Creates a snapshot of the given collections. The collections must not be
+     * changed by the caller afterwards, this class only hands out read-only
+     * views of them.
+     */
+    DataTablesSnapshot(
+                       final Map<String, Integer> fullnessHitMap,
+                       final Map<String, Integer> drunkennessHitMap,
+                       final Map<String, Integer> spleenHitMap,
+                       final Set<String> badmoonAdventuresSet,
+                       final Set<String> semirareAdventuresSet,
+                       final Set<String> wanderingAdventuresSet,
+                       final Map<String, Boolean> itemdropsMap,
+                       final Map<String, Integer> skillsMap,
+                       final Map<String, Integer> mpRegenEquipmentsMap,
+                       final Map<String, Integer> mpCostEquipmentsMap,
+                       final Map<String, ExtraStats> statsEquipmentsMap,
+                       final Map<String, Outfit> outfitsMap) {
+        this.fullnessHitMap = Collections.unmodifiableMap(fullnessHitMap);
+        this.drunkennessHitMap = Collections.unmodifiableMap(drunkennessHitMap);
+        this.spleenHitMap = Collections.unmodifiableMap(spleenHitMap);
+        this.badmoonAdventuresSet = Collections.unmodifiableSet(badmoonAdventuresSet);
+        this.semirareAdventuresSet = Collections.unmodifiableSet(semirareAdventuresSet);
+        this.wanderingAdventuresSet = Collections.unmodifiableSet(wanderingAdventuresSet);
+        this.itemdropsMap = Collections.unmodifiableMap(itemdropsMap);
+        this.skillsMap = Collections.unmodifiableMap(skillsMap);
+        this.mpRegenEquipmentsMap = Collections.unmodifiableMap(mpRegenEquipmentsMap);
+        this.mpCostEquipmentsMap = Collections.unmodifiableMap(mpCostEquipmentsMap);
+        this.statsEquipmentsMap = Collections.unmodifiableMap(statsEquipmentsMap);
+        this.outfitsMap = Collections.unmodifiableMap(outfitsMap);
+
+        this.badmoonAdventuresLookupSet = newLookupSet(badmoonAdventuresSet);
+        this.semirareAdventuresLookupSet = newLookupSet(semirareAdventuresSet);
+        this.wanderingAdventuresLookupSet = newLookupSet(wanderingAdventuresSet);
+        this.skillsLookupMap = newLookupMap(skillsMap);
+        this.mpRegenEquipmentsLookupMap = newLookupMap(mpRegenEquipmentsMap);
+    }
+
+    /**
+     * @param consumableName
+     *            The consumable name whose fullness hit should be returned.
+     * @return The fullness hit of the given consumable.
+     */
+    public int getFullnessHit(
+                              final String consumableName) {
+        return getOrZero(fullnessHitMap.get(DataTableNames.normalize(consumableName)));
+    }
+
+    /**
+     * @param consumableName
+     *            The consumable name whose drunkenness hit should be returned.
+     * @return The drunkenness hit of the given consumable.
+     */
+    public int getDrunkennessHit(
+                                 final String consumableName) {
+        return getOrZero(drunkennessHitMap.get(DataTableNames.normalize(consumableName)));
+    }
+
+    /**
+     * @param consumableName
+     *            The consumable name whose spleen hit should be returned.
+     * @return The spleen hit of the given consumable.
+     */
+    public int getSpleenHit(
+                            final String consumableName) {
+        return getOrZero(spleenHitMap.get(DataTableNames.normalize(consumableName)));
+    }
+
+    /**
+     * @param encounter
+     *            The single turn which should be checked on whether it is a
+     *            semi-rare.
+     * @return True if the encounter is a semi-rare, otherwise false.
+     */
+    public boolean isSemirareEncounter(
+                                       final Encounter encounter) {
+        return isSemirareEncounter(encounter.getEncounterName());
+    }
+
+    /**
+     * @param encounterName
+     *            The encounter name which should be checked on whether it is a
+     *            semi-rare.
+     * @return True if the encounter is a semi-rare, otherwise false.
+     */
+    public boolean isSemirareEncounter(
+                                       final String encounterName) {
+        return semirareAdventuresLookupSet.contains(DataTableNames.normalize(encounterName));
+    }
+
+    /**
+     * @param encounter
+     *            The single turn which should be checked on whether it is a Bad
+     *            Moon adventure.
+     * @return True if the encounter is a Bad Moon adventure, otherwise false.
+     */
+    public boolean isBadMoonEncounter(
+                                      final Encounter encounter) {
+        return isBadMoonEncounter(encounter.getEncounterName());
+    }
+
+    /**
+     * @param encounterName
+     *            The encounter name which should be checked on whether it is a
+     *            Bad Moon adventure.
+     * @return True if the encounter is a Bad Moon adventure, otherwise false.
+     */
+    public boolean isBadMoonEncounter(
+                                      final String encounterName) {
+        final String name = DataTableNames.normalize(encounterName);
+
+        return badmoonAdventuresLookupSet.contains(name) ? true
+                                                  : name.startsWith(FLOWERS_FOR_BAD_MOON_ADVENUTRE);
+    }
+
+    /**
+     * @param encounter
+     *            The single turn which should be checked on whether it is a
+     *            wandering adventure.
+     * @return True if the encounter is a wandering adventure, otherwise false.
+     */
+    public boolean isWanderingEncounter(
+                                        final Encounter encounter) {
+        return isWanderingEncounter(encounter.getEncounterName());
+    }
+
+    /**
+     * @param encounterName
+     *            The encounter name which should be checked on whether it is a
+     *            wandering adventure.
+     * @return True if the encounter is a wandering adventure, otherwise false.
+     */
+    public boolean isWanderingEncounter(
+                                        final String encounterName) {
+        return wanderingAdventuresLookupSet.contains(DataTableNames.normalize(encounterName));
+    }
+
+    /**
+     * @param skillName
+     *            The skill name whose MP cost should be returned.
+     * @return The MP cost of the given skill.
+     */
+    public int getSkillMPCost(
+                              final String skillName) {
+        return getOrZero(skillsLookupMap.get(DataTableNames.normalize(skillName)));
+    }
+
+    /**
+     * @param equipment
+     *            The used equipment.
+     * @return The MP cost offset for skill casts, based on the given
+     *         parameters. Can be -3 at minimum, but not lower.
+     */
+    public int getMPCostOffset(
+                               final EquipmentChange equipment) {
+        int mpCostOffset = 0;
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getHat()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getWeapon()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getOffhand()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getShirt()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getPants()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getAcc1()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getAcc2()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getAcc3()));
+        mpCostOffset += getOrZero(mpCostEquipmentsMap.get(equipment.getFamEquip()));
+
+        // -3 is minimum
+        if (mpCostOffset < -3)
+            mpCostOffset = -3;
+
+        return mpCostOffset;
+    }
+
+    /**
+     * @param equipmentName
+     *            The equipment name whose MP per turn regeneration should be
+     *            returned.
+     * @return The MP per turn regeneration of the given equipment.
+     */
+    public int getMPFromEquipment(
+                                  final String equipmentName) {
+        return getOrZero(mpRegenEquipmentsLookupMap.get(DataTableNames.normalize(equipmentName)));
+    }
+
+    /**
+     * @return A list of items and the amount of main substats they give per
+     *         turn. The list is sorted from the highest stats per turn to the
+     *         lowest with the order of general stats, muscle stats, mysticality
+     *         stats and moxie stats.
+     */
+    public List<Pair<String, ExtraStats>> getStatsItems() {
+        final List<Pair<String, ExtraStats>> result = Lists.newArrayList(statsEquipmentsMap.size());
+
+        for (final String s : statsEquipmentsMap.keySet())
+            result.add(Pair.of(s, statsEquipmentsMap.get(s)));
+
+        return Lists.sort(result, new Comparator<Pair<String, ExtraStats>>() {
+            public int compare(
+                               final Pair<String, ExtraStats> p1, final Pair<String, ExtraStats> p2) {
+                return p2.getVar2().compareTo(p1.getVar2());
+            }
+        });
+    }
+
+    /**
+     * @param outfitName
+     *            The name of the outfit whose resulting equipment changes
+     *            should be returned.
+     * @return The equipment changes resulting from putting on the given outfit.
+     *         If the outfit is unknown, {@link Outfit#NO_CHANGE} will be
+     *         returned.
+     */
+    public Outfit getOutfitChange(
+                                  final String outfitName) {
+        final Outfit outfit = outfitsMap.get(outfitName);
+
+        return outfit != null ? outfit : Outfit.NO_CHANGE;
+    }
+
+    /**
+     * Check whether the given item is important. Important items are items that
+     * are always listed in textual logs.
+     * 
+     * @param itemName
+     *            The item name which should be checked on whether it is an
+     *            important item.
+     * @return True if the item is an important item, otherwise false.
+     */
+    public boolean isImportantItem(
+                                   final String itemName) {
+        final Boolean onetimeOnly = itemdropsMap.get(itemName);
+
+        return onetimeOnly != null ? !onetimeOnly : false;
+    }
+
+    /**
+     * Check whether the given item is an onetime-only item. Onetime-only items
+     * are items that are listed in textual logs only the first time they
+     * dropped.
+     * 
+     * @param itemName
+     *            The item name which should be checked on whether it is an
+     *            onetime-only item.
+     * @return True if the item is an one-time item, otherwise false.
+     */
+    public boolean isOnetimeItem(
+                                 final String itemName) {
+        final Boolean onetimeOnly = itemdropsMap.get(itemName);
+
+        return onetimeOnly != null ? onetimeOnly : false;
+    }
+
+    /**
+     * @return A set of Bad Moon adventure names. Note that the set is
+     *         read-only.
+     */
+    public Set<String> getBadmoonAdventuresSet() {
+        return badmoonAdventuresSet;
+    }
+
+    /**
+     * @return A set of semi-rare adventure names. Note that the set is
+     *         read-only.
+     */
+    public Set<String> getSemirareAdventuresSet() {
+        return semirareAdventuresSet;
+    }
+
+    /**
+     * @return A set of wandering adventure names. Note that the set is
+     *         read-only.
+     */
+    public Set<String> getWanderingAdventuresSet() {
+        return wanderingAdventuresSet;
+    }
+
+    /**
+     * @return A map of skills and their MP costs. Note that the map is
+     *         read-only.
+     */
+    public Map<String, Integer> getSkillCostsMap() {
+        return skillsMap;
+    }
+
+    /**
+     * @return A map of equipment names and their MP cost offsets. Note that the
+     *         map is read-only.
+     */
+    public Map<String, Integer> getMPCostOffsetEquipmentMap() {
+        return mpCostEquipmentsMap;
+    }
+
+    /**
+     * @return A map of equipment names and their MP regeneration per turn. Note
+     *         that the map is read-only.
+     */
+    public Map<String, Integer> getMPFromEquipmentMap() {
+        return mpRegenEquipmentsMap;
+    }
+
+    /**
+     * @return A map of equipment names and their substat gain per turn. Note
+     *         that the map is read-only.
+     */
+    public Map<String, ExtraStats> getStatsEquipmentMap() {
+        return statsEquipmentsMap;
+    }
+
+    /**
+     * @return A map of outfit names and how and whether they change equipment
+     *         slots. Note that the map is read-only.
+     */
+    public Map<String, Outfit> getOutfitsMap() {
+        return outfitsMap;
+    }
+
+    /**
+     * @return A map of item names and whether they are shown only once in
+     *         textual logs. Items not named don't show up at all in textual
+     *         logs. Note that the map is read-only.
+     */
+    public Map<String, Boolean> getItemdropsMap() {
+        return itemdropsMap;
+    }
+
+    /**
+     * @return The given value or, if the value is null, 0.
+     */
+    private static int getOrZero(
+                                 final Integer value) {
+        return value == null ? 0 : value.intValue();
+    }
+
+    /**
+     * @return A read-only set of the normalised forms of the given names.
+     */
+    private static Set<String> newLookupSet(
+                                            final Set<String> names) {
+        final Set<String> lookupSet = Sets.newHashSet((int) (names.size() * 1.4));
+        for (final String s : names)
+            lookupSet.add(DataTableNames.normalize(s));
+
+        return Collections.unmodifiableSet(lookupSet);
+    }
+
+    /**
+     * @return A read-only copy of the given map with the normalised forms of
+     *         its keys.
+     */
+    private static <V> Map<String, V> newLookupMap(
+                                                   final Map<String, V> map) {
+        final Map<String, V> lookupMap = Maps.newHashMap((int) (map.size() * 1.4));
+        for (final Entry<String, V> e : map.entrySet())
+            lookupMap.put(DataTableNames.normalize(e.getKey()), e.getValue());
+
+        return Collections.unmodifiableMap(lookupMap);
+    }
+}
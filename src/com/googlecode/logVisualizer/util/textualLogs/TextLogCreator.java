@@ -24,18 +24,22 @@
 
 package com.googlecode.logVisualizer.util.textualLogs;
 
-import static com.googlecode.logVisualizer.parser.UsefulPatterns.NON_ASCII;
-
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.NumberFormat;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -43,6 +47,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import net.java.dev.spellcast.utilities.DataUtilities;
 import net.java.dev.spellcast.utilities.UtilityConstants;
@@ -79,7 +89,12 @@ import com.googlecode.logVisualizer.util.LogOutputFormat;
 import com.googlecode.logVisualizer.util.Maps;
 import com.googlecode.logVisualizer.util.Pair;
 import com.googlecode.logVisualizer.util.Sets;
+import com.googlecode.logVisualizer.util.dataTables.DataTableNames;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesBundle;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesBundle.BundleReader;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesBundle.BundleWriter;
 import com.googlecode.logVisualizer.util.dataTables.DataTablesHandler;
+import com.googlecode.logVisualizer.util.dataTables.DataTablesSnapshot;
 import com.googlecode.logVisualizer.util.dataTables.ExtraStats;
 
 /**
@@ -156,21 +171,35 @@ public final class TextLogCreator {
     private static final DayChange NO_DAY_CHANGE = new DayChange(Integer.MAX_VALUE,
             Integer.MAX_VALUE);
 
-    private static final Map<String, String> TEXT_LOG_ADDITIONS_MAP = readAugmentationsList(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
-            "textAugmentations.txt"));
+    private static final String AUGMENTATIONS_BUNDLE = "logAugmentations.bin";
+
+    private static final Map<String, String> TEXT_LOG_ADDITIONS_MAP = Maps.newHashMap();
+
+    private static final Map<String, String> HTML_LOG_ADDITIONS_MAP = Maps.newHashMap();
 
-    private static final Map<String, String> HTML_LOG_ADDITIONS_MAP = readAugmentationsList(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
-            "htmlAugmentations.txt"));
+    private static final Map<String, String> BBCODE_LOG_ADDITIONS_MAP = Maps.newHashMap();
+
+    /**
+     * The number of threads used to print the days of textual logs
+     * concurrently. It is also the number of days which are printed ahead of
+     * the day written to the output next.
+     */
+    private static final int PRINTING_THREADS_COUNT = Runtime.getRuntime().availableProcessors();
 
-    private static final Map<String, String> BBCODE_LOG_ADDITIONS_MAP = readAugmentationsList(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
-            "bbcodeAugmentations.txt"));
+    static {
+        readAugmentations();
+    }
 
     private final Map<String, String> logAdditionsMap;
 
+    private final DataTablesSnapshot dataTables;
+
     private final Set<String> localeOnetimeItemsSet = Sets.newHashSet(300);
 
     private final StringBuilder log;
 
+    private final LogOutputFilter out;
+
     private final Iterator<FamiliarChange> familiarChangeIter;
 
     private FamiliarChange currentFamChange;
@@ -207,13 +236,75 @@ public final class TextLogCreator {
 
     private boolean isShowNotes = true;
 
+    private int ascensionStartDate;
+
     private Map<Integer,Integer> dailyKaEarned;
 
     private static final String KA_EARNED_DAILY = "Ka earned today: ";
 
+    /**
+     * Fills the augmentation maps of all textual log formats. They are restored
+     * from their precompiled bundle (see {@link DataTablesBundle}) if it is up
+     * to date, otherwise the augmentation files are read and the bundle is
+     * compiled again.
+     */
+    private static void readAugmentations() {
+        final String sourcesStamp = DataTablesBundle.getSourcesStamp("textAugmentations.txt",
+                                                                     "htmlAugmentations.txt",
+                                                                     "bbcodeAugmentations.txt");
+
+        final boolean isRead = DataTablesBundle.readBundle(AUGMENTATIONS_BUNDLE,
+                                                           sourcesStamp,
+                                                           new BundleReader() {
+            public void readBundle(
+                    final DataInputStream in)
+                    throws IOException {
+                DataTablesBundle.readStringMap(in, TEXT_LOG_ADDITIONS_MAP);
+                DataTablesBundle.readStringMap(in, HTML_LOG_ADDITIONS_MAP);
+                DataTablesBundle.readStringMap(in, BBCODE_LOG_ADDITIONS_MAP);
+            }
+        });
+
+        if (!isRead) {
+            TEXT_LOG_ADDITIONS_MAP.clear();
+            HTML_LOG_ADDITIONS_MAP.clear();
+            BBCODE_LOG_ADDITIONS_MAP.clear();
+
+            readAugmentationsList(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
+                    "textAugmentations.txt"), TEXT_LOG_ADDITIONS_MAP);
+            readAugmentationsList(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
+                    "htmlAugmentations.txt"), HTML_LOG_ADDITIONS_MAP);
+            readAugmentationsList(DataUtilities.getReader(UtilityConstants.KOL_DATA_DIRECTORY,
+                    "bbcodeAugmentations.txt"), BBCODE_LOG_ADDITIONS_MAP);
+
+            DataTablesBundle.writeBundle(AUGMENTATIONS_BUNDLE, sourcesStamp, new BundleWriter() {
+                public void writeBundle(
+                        final DataOutputStream out)
+                        throws IOException {
+                    DataTablesBundle.writeStringMap(out, TEXT_LOG_ADDITIONS_MAP);
+                    DataTablesBundle.writeStringMap(out, HTML_LOG_ADDITIONS_MAP);
+                    DataTablesBundle.writeStringMap(out, BBCODE_LOG_ADDITIONS_MAP);
+                }
+            });
+        }
+
+        // The bundle holds the augmentations without line breaks, so it
+        // doesn't depend on the line separator of the system.
+        insertLineBreaks(TEXT_LOG_ADDITIONS_MAP);
+        insertLineBreaks(HTML_LOG_ADDITIONS_MAP);
+        insertLineBreaks(BBCODE_LOG_ADDITIONS_MAP);
+    }
+
+    private static void insertLineBreaks(
+            final Map<String, String> augmentations) {
+        for (final Entry<String, String> e : augmentations.entrySet())
+            e.setValue(e.getValue().replace("N_L", NEW_LINE));
+    }
+
     /**
      * Helper method to parse out the augmentation values for the textual log
-     * outputs and return them in a map.
+     * outputs and put them into the given map. Line breaks in the values are
+     * still marked as {@code N_L}.
      * <p>
      * Currently used key names are:
      *
@@ -248,9 +339,8 @@ public final class TextLogCreator {
      * notesEnd
      * </pre>
      */
-    private static Map<String, String> readAugmentationsList(
-            final BufferedReader br) {
-        final Map<String, String> map = Maps.newHashMap();
+    private static void readAugmentationsList(
+            final BufferedReader br, final Map<String, String> map) {
         String tmpLine;
 
         try {
@@ -258,15 +348,13 @@ public final class TextLogCreator {
                 // Ignore empty lines and comments
                 if (tmpLine.length() > 0 && !tmpLine.startsWith("//") && !tmpLine.startsWith("#")) {
                     final String[] split = tmpLine.split("\\s+\\|\\s+");
-                    map.put(split[0], split[1].replaceAll("N_L", NEW_LINE));
+                    map.put(split[0], split[1]);
                 }
 
             br.close();
         } catch (final IOException e) {
             e.printStackTrace();
         }
-
-        return map;
     }
 
     /**
@@ -286,7 +374,7 @@ public final class TextLogCreator {
         if (!logData.isDetailedLog())
             throw new IllegalArgumentException("Only detailed logs can be used by the TextualLogCreator.");
 
-        final TextLogCreator logCreator = new TextLogCreator(logData, LogOutputFormat.TEXT_LOG);
+        final TextLogCreator logCreator = new TextLogCreator(logData, LogOutputFormat.TEXT_LOG, null);
         logCreator.isShowNotes = false;
         return logCreator.createTurnRundownList(logData);
     }
@@ -307,17 +395,17 @@ public final class TextLogCreator {
      */
     public static String getTextualLog(
             final LogDataHolder logData, final LogOutputFormat logVersion) {
-        // Sometimes, geek jokes are fun! ;)
-        int logDate = 404;
-        if (UsefulPatterns.USUAL_FORMAT_LOG_NAME.matcher(logData.getLogName()).matches())
-            logDate = UsefulPatterns.getLogDate(logData.getLogName());
-
-        return getTextualLog(logData, logDate, logVersion);
+        return getTextualLog(logData, getAscensionStartDate(logData), logVersion);
     }
 
     /**
      * Creates a parsed ascension log from the given {@link LogDataHolder} and
      * returns it as a String.
+     * <p>
+     * This method is a convenience wrapper around
+     * {@link #writeTextualLog(LogDataHolder, int, LogOutputFormat, Writer)}.
+     * When the log should end up in a file or stream, writing it directly is
+     * preferable, because the whole log doesn't have to be held in memory.
      *
      * @param logData
      *            The ascension log data from which the parsed ascension log
@@ -335,23 +423,19 @@ public final class TextLogCreator {
     public static String getTextualLog(
             final LogDataHolder logData, final int ascensionStartDate,
             final LogOutputFormat logVersion) {
-        if (!logData.isDetailedLog())
-            throw new IllegalArgumentException("Only detailed logs can be used by the TextualLogCreator.");
-
-        final TextLogCreator logCreator = new TextLogCreator(logData, logVersion);
-
-        final String logOutput;
-        if (Settings.getSettingBoolean("Show non-ASCII characters in parsed logs"))
-            logOutput = logCreator.createTextLog(logData, ascensionStartDate);
-        else
-            logOutput = NON_ASCII.matcher(logCreator.createTextLog(logData, ascensionStartDate))
-            .replaceAll(UsefulPatterns.EMPTY_STRING);
+        final StringWriter writer = new StringWriter(50000);
+        try {
+            writeTextualLog(logData,
+                    ascensionStartDate,
+                    logVersion,
+                    writer,
+                    isPrintingDaysConcurrently());
+        } catch (final IOException e) {
+            // A StringWriter never throws IOExceptions.
+            throw new IllegalStateException(e);
+        }
 
-        if (logVersion == LogOutputFormat.HTML_LOG)
-            return "<html><body>" + logOutput.replace(NEW_LINE, "<br>" + NEW_LINE)
-                    + "</body></html>";
-        else
-            return logOutput;
+        return writer.toString();
     }
 
     /**
@@ -374,20 +458,47 @@ public final class TextLogCreator {
             final LogDataHolder logData, final File saveDest,
             final LogOutputFormat logVersion)
                     throws IOException {
-        if (!saveDest.exists())
-            throw new IllegalArgumentException("The file doesn't exist.");
-        if (saveDest.isDirectory())
-            throw new IllegalArgumentException("The file is a directory.");
+        saveTextualLogToFile(logData, saveDest, logVersion, isPrintingDaysConcurrently());
+    }
 
-        final PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(saveDest),
-                50000));
-        writer.print(getTextualLog(logData, logVersion));
-        writer.close();
+    /**
+     * Creates a parsed ascension log from the given {@link LogDataHolder} and
+     * saves it to the given file.
+     *
+     * @param logData
+     *            The ascension log data from which the parsed ascension log
+     *            should be created.
+     * @param saveDest
+     *            The file in which the parsed ascension log should be saved in.
+     * @param logVersion
+     *            The wanted version of the textual log output.
+     * @param isPrintingDaysConcurrently
+     *            True if the days of the log should be printed concurrently,
+     *            see {@link #writeTextualLog(LogDataHolder, int, LogOutputFormat, Writer, boolean)}.
+     *            Callers which already create several logs at the same time
+     *            should pass false.
+     * @throws IllegalArgumentException
+     *             if saveDest doesn't exist or is a directory; if the given log
+     *             data is not a detailed LogDataHolder, see
+     *             {@link LogDataHolder#isDetailedLog()}
+     */
+    public static void saveTextualLogToFile(
+            final LogDataHolder logData, final File saveDest,
+            final LogOutputFormat logVersion, final boolean isPrintingDaysConcurrently)
+                    throws IOException {
+        saveTextualLogToFile(logData,
+                getAscensionStartDate(logData),
+                saveDest,
+                logVersion,
+                isPrintingDaysConcurrently);
     }
 
     /**
      * Creates a parsed ascension log from the given {@link LogDataHolder} and
      * saves it to the given file.
+     * <p>
+     * The log is written to the file piece by piece while it is being created,
+     * so the whole log is never held in memory.
      *
      * @param logData
      *            The ascension log data from which the parsed ascension log
@@ -399,6 +510,9 @@ public final class TextLogCreator {
      *            The file in which the parsed ascension log should be saved in.
      * @param logVersion
      *            The wanted version of the textual log output.
+     * @param isPrintingDaysConcurrently
+     *            True if the days of the log should be printed concurrently,
+     *            see {@link #writeTextualLog(LogDataHolder, int, LogOutputFormat, Writer, boolean)}.
      * @throws IllegalArgumentException
      *             if saveDest doesn't exist or is a directory; if the given log
      *             data is not a detailed LogDataHolder, see
@@ -407,17 +521,128 @@ public final class TextLogCreator {
     public static void saveTextualLogToFile(
             final LogDataHolder logData,
             final int ascensionStartDate, final File saveDest,
-            final LogOutputFormat logVersion)
+            final LogOutputFormat logVersion, final boolean isPrintingDaysConcurrently)
                     throws IOException {
         if (!saveDest.exists())
             throw new IllegalArgumentException("The file doesn't exist.");
         if (saveDest.isDirectory())
             throw new IllegalArgumentException("The file is a directory.");
 
-        final PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(saveDest),
-                50000));
-        writer.print(getTextualLog(logData, ascensionStartDate, logVersion));
-        writer.close();
+        final Writer writer = new BufferedWriter(new FileWriter(saveDest), 50000);
+        try {
+            writeTextualLog(logData, ascensionStartDate, logVersion, writer, isPrintingDaysConcurrently);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Creates a parsed ascension log from the given {@link LogDataHolder} and
+     * writes it to the given writer.
+     *
+     * @param logData
+     *            The ascension log data from which the parsed ascension log
+     *            should be created.
+     * @param logVersion
+     *            The wanted version of the textual log output.
+     * @param writer
+     *            The writer to which the parsed ascension log should be
+     *            written.
+     * @throws IllegalArgumentException
+     *             if the given log data is not a detailed LogDataHolder, see
+     *             {@link LogDataHolder#isDetailedLog()}
+     * @see #writeTextualLog(LogDataHolder, int, LogOutputFormat, Writer, boolean)
+     */
+    public static void writeTextualLog(
+            final LogDataHolder logData, final LogOutputFormat logVersion,
+            final Writer writer)
+                    throws IOException {
+        writeTextualLog(logData,
+                getAscensionStartDate(logData),
+                logVersion,
+                writer,
+                isPrintingDaysConcurrently());
+    }
+
+    /**
+     * Creates a parsed ascension log from the given {@link LogDataHolder} and
+     * writes it to the given writer.
+     * <p>
+     * The log is handed to the writer after every turn interval while it is
+     * being created, so only the text of a single turn interval (or of the
+     * summaries at the end) is held in memory by this method. The writer should be buffered if it isn't backed by memory
+     * anyway. It will be flushed, but not closed by this method.
+     * <p>
+     * If the days of the log are printed concurrently, a few days are printed
+     * ahead of the one which is handed to the writer next (see
+     * {@link #printStepsConcurrently(LogDataHolder, LogOutputFormat, List)}),
+     * so the text of those days is held in memory as well. The output is the
+     * same either way.
+     *
+     * @param logData
+     *            The ascension log data from which the parsed ascension log
+     *            should be created.
+     * @param ascensionStartDate
+     *            The real-time start date of the ascension as saved by
+     *            KolMafia.
+     * @param logVersion
+     *            The wanted version of the textual log output.
+     * @param writer
+     *            The writer to which the parsed ascension log should be
+     *            written.
+     * @param isPrintingDaysConcurrently
+     *            True if the days of the log should be printed concurrently.
+     *            This only has an effect if the log spans more than one day
+     *            and more than one processor is available.
+     * @throws IllegalArgumentException
+     *             if the given log data is not a detailed LogDataHolder, see
+     *             {@link LogDataHolder#isDetailedLog()}
+     */
+    public static void writeTextualLog(
+            final LogDataHolder logData, final int ascensionStartDate,
+            final LogOutputFormat logVersion, final Writer writer,
+            final boolean isPrintingDaysConcurrently)
+                    throws IOException {
+        if (writer == null)
+            throw new NullPointerException("The writer must not be null.");
+        if (!logData.isDetailedLog())
+            throw new IllegalArgumentException("Only detailed logs can be used by the TextualLogCreator.");
+
+        final boolean isHTML = logVersion == LogOutputFormat.HTML_LOG;
+        final LogOutputFilter filter = new LogOutputFilter(writer,
+                !Settings.getSettingBoolean("Show non-ASCII characters in parsed logs"),
+                isHTML);
+        final TextLogCreator logCreator = new TextLogCreator(logData, logVersion, filter);
+
+        if (isHTML)
+            writer.write("<html><body>");
+        logCreator.createTextLog(logData, ascensionStartDate, logVersion, isPrintingDaysConcurrently);
+        if (isHTML)
+            writer.write("</body></html>");
+
+        writer.flush();
+    }
+
+    /**
+     * @return The value of the {@code "Print textual log days concurrently"}
+     *         setting.
+     */
+    private static boolean isPrintingDaysConcurrently() {
+        return Settings.getSettingBoolean("Print textual log days concurrently");
+    }
+
+    /**
+     * @return The real-time start date of the ascension if it is part of the
+     *         log name, otherwise 404.
+     */
+    private static int getAscensionStartDate(
+            final LogDataHolder logData) {
+        // Sometimes, geek jokes are fun! ;)
+        int logDate = 404;
+        if (UsefulPatterns.USUAL_FORMAT_LOG_NAME.matcher(logData.getLogName()).matches())
+            logDate = UsefulPatterns.getLogDate(logData.getLogName());
+
+        return logDate;
     }
 
     /**
@@ -428,9 +653,43 @@ public final class TextLogCreator {
      *            should be created.
      * @param logVersion
      *            The wanted version of the textual log output.
+     * @param out
+     *            The output to which the log is handed after every turn
+     *            interval, or {@code null} if the created text should stay
+     *            inside the internal buffer.
      */
     private TextLogCreator(
-            final LogDataHolder logData, final LogOutputFormat logVersion) {
+            final LogDataHolder logData, final LogOutputFormat logVersion,
+            final LogOutputFilter out) {
+        this(logData,
+                logVersion,
+                out,
+                ChangeStreams.of(logData),
+                DataTablesHandler.HANDLER.getDataTables());
+    }
+
+    /**
+     * Sets up a TextLogCreator instance which only prints the given changes.
+     *
+     * @param logData
+     *            The ascension log data from which the parsed ascension log
+     *            should be created.
+     * @param logVersion
+     *            The wanted version of the textual log output.
+     * @param out
+     *            The output to which the log is handed after every turn
+     *            interval, or {@code null} if the created text should stay
+     *            inside the internal buffer.
+     * @param changes
+     *            The changes which should be printed in the turn rundown.
+     * @param dataTables
+     *            The data tables used for the whole log, so all parts of it
+     *            are printed with the same data.
+     */
+    private TextLogCreator(
+            final LogDataHolder logData, final LogOutputFormat logVersion,
+            final LogOutputFilter out, final ChangeStreams changes,
+            final DataTablesSnapshot dataTables) {
         if (logData == null)
             throw new NullPointerException("The LogDataHolder must not be null.");
 
@@ -445,23 +704,26 @@ public final class TextLogCreator {
             logAdditionsMap = Collections.unmodifiableMap(TEXT_LOG_ADDITIONS_MAP);
         }
 
+        this.dataTables = dataTables;
+
         // Populate local one-time item set with all one-time items.
-        for (final Entry<String, Boolean> item : DataTablesHandler.HANDLER.getItemdropsMap()
-                .entrySet())
+        for (final Entry<String, Boolean> item : dataTables.getItemdropsMap().entrySet())
             if (item.getValue())
                 localeOnetimeItemsSet.add(item.getKey());
 
-        // Most logs stay below 50000 characters.
+        // Only the text of the current turn interval is buffered before it is
+        // handed to the output, unless there is no output.
         log = new StringBuilder(50000);
+        this.out = out;
 
-        familiarChangeIter = logData.getFamiliarChanges().iterator();
-        pullIter = logData.getPulls().iterator();
-        levelIter = logData.getLevels().iterator();
-        huntedCombatIter = logData.getHuntedCombats().iterator();
-        disintegratedCombatIter = logData.getLogSummary().getDisintegratedCombats().iterator();
-        banishedCombatIter = logData.getLogSummary().getBanishedCombats().iterator(); //Bombar: Add banished combat support
-        hybridDataIter = logData.getHybridContent().iterator();
-        learnedSkillIter = logData.getLearnedSkills().iterator();
+        familiarChangeIter = changes.familiarChanges.iterator();
+        pullIter = changes.pulls.iterator();
+        levelIter = changes.levels.iterator();
+        huntedCombatIter = changes.huntedCombats.iterator();
+        disintegratedCombatIter = changes.disintegratedCombats.iterator();
+        banishedCombatIter = changes.banishedCombats.iterator(); //Bombar: Add banished combat support
+        hybridDataIter = changes.hybridData.iterator();
+        learnedSkillIter = changes.learnedSkills.iterator();
 
         dailyKaEarned = new HashMap<Integer, Integer>();
     }
@@ -487,8 +749,7 @@ public final class TextLogCreator {
         currentDisintegratedCombat = disintegratedCombatIter.hasNext() ? disintegratedCombatIter.next() : null;
         currentBanishedCombat = banishedCombatIter.hasNext() ? banishedCombatIter.next() : null;
 
-        // Level 1 can be skipped.
-        levelIter.next();
+        // Level 1 is already skipped by the change streams.
         nextLevel = levelIter.hasNext() ? levelIter.next() : null;
 
         final Iterator<DayChange> dayChangeIter = logData.getDayChanges().iterator();
@@ -585,6 +846,11 @@ public final class TextLogCreator {
      * //Bombar: Edit this to get free turns working correctly on cross boundary days
      * Creates a parsed ascension log in a style similar to the format used by
      * the AFH parser.
+     * <p>
+     * The turn rundown is first planned as a list of steps, which are then
+     * printed. If it is wanted, more than one processor is available and the
+     * ascension lasted more than one day, the days are printed concurrently
+     * (see {@link #printStepsConcurrently(LogDataHolder, LogOutputFormat, List)}).
      *
      * @param logData
      *            The LogDataHolder from which the ascension log should be
@@ -592,49 +858,58 @@ public final class TextLogCreator {
      * @param ascensionStartDate
      *            The real-time start date of the ascension as saved by
      *            KolMafia.
+     * @param logVersion
+     *            The wanted version of the textual log output.
+     * @param isPrintingDaysConcurrently
+     *            True if the days of the log should be printed concurrently.
      */
-    private String createTextLog(
-            final LogDataHolder logData, final int ascensionStartDate) {
-        currentFamChange = familiarChangeIter.hasNext() ? familiarChangeIter.next() : null;
-        currentPull = pullIter.hasNext() ? pullIter.next() : null;
-        currentHuntedCombat = huntedCombatIter.hasNext() ? huntedCombatIter.next() : null;
-        currentDisintegratedCombat = disintegratedCombatIter.hasNext() ? disintegratedCombatIter.next()
-                : null;
-        currentBanishedCombat = banishedCombatIter.hasNext() ? banishedCombatIter.next() : null;
-        currentHybridData = hybridDataIter.hasNext() ? hybridDataIter.next() : null;
-        currentLearnedSkill = learnedSkillIter.hasNext() ? learnedSkillIter.next() : null;
+    private void createTextLog(
+            final LogDataHolder logData, final int ascensionStartDate,
+            final LogOutputFormat logVersion, final boolean isPrintingDaysConcurrently)
+                    throws IOException {
+        final List<RundownStep> steps = planTurnRundown(logData);
+
+        this.ascensionStartDate = ascensionStartDate;
+        if (isPrintingDaysConcurrently && PRINTING_THREADS_COUNT > 1
+                && logData.getDayChanges().size() > 1)
+            printStepsConcurrently(logData, logVersion, steps);
+        else {
+            initChangeStreams();
+            for (final RundownStep step : steps)
+                printStep(logData, step);
+            printLogSummaries(logData);
+
+            writeBufferToOutput();
+        }
 
-        // Level 1 can be skipped.
-        levelIter.next();
-        nextLevel = levelIter.hasNext() ? levelIter.next() : null;
+        out.finish();
+    }
+
+    /**
+     * Plans the turn rundown of the given log, which means that all the
+     * decisions on where day changes occur and which turn intervals need to be
+     * split up are made without printing anything.
+     *
+     * @return The steps needed to print the turn rundown, beginning with the
+     *         log header and ending with the end of the turn rundown.
+     */
+    private static List<RundownStep> planTurnRundown(
+            final LogDataHolder logData) {
+        final List<RundownStep> steps = Lists.newArrayList(logData.getTurnIntervalsSpent()
+                .size() * 2);
 
         final Iterator<DayChange> dayChangeIter = logData.getDayChanges().iterator();
         DayChange currentDay = dayChangeIter.next();
         DayChange nextDay = dayChangeIter.hasNext() ? dayChangeIter.next() : NO_DAY_CHANGE;
 
-        // Add the log file header.
-        write("NEW " + logData.getCharacterClass() + " " + logData.getGameMode() + " "
-                + logData.getAscensionPath() + " ASCENSION STARTED " + ascensionStartDate + NEW_LINE);
-        write("------------------------------" + NEW_LINE + NEW_LINE);
-        write(logAdditionsMap.get("logHeaderStart"));
-        write("This log was created by the Ascension Log Visualizer "
-                + Settings.getSettingString("Version") + "." + NEW_LINE);
-        write("The basic idea and the format of this parser have been borrowed from the AFH MafiaLog Parser by VladimirPootin and QuantumNightmare."
-                + NEW_LINE + NEW_LINE);
-        write(logAdditionsMap.get("logHeaderEnd"));
-        write(logAdditionsMap.get("dayChangeLineStart"));
-        write(currentDay.toString());
-        write(logAdditionsMap.get("dayChangeLineEnd"));
-        write(NEW_LINE + NEW_LINE);
-        if (logData.getHeaderFooterComment(currentDay) != null)
-            printNotes(logData.getHeaderFooterComment(currentDay).getHeaderComments());
+        steps.add(RundownStep.header(currentDay));
 
         for (int turnIntervalNdx = 0; turnIntervalNdx < logData.getTurnIntervalsSpent().size(); turnIntervalNdx++) {
             final TurnInterval ti = logData.getTurnIntervalsSpent().get( turnIntervalNdx );
 
             if (!nextDay.equals(NO_DAY_CHANGE) && ti.getEndTurn() >= nextDay.getTurnNumber()) {
                 if (ti.getEndTurn() == nextDay.getTurnNumber()) {
-                    printTurnIntervalContents(ti, currentDay.getDayNumber());
+                    steps.add(RundownStep.interval(ti, currentDay.getDayNumber()));
 
                     //Peek at next interval to make sure it doesn't contain any current day turns
                     if (turnIntervalNdx + 1 < logData.getTurnIntervalsSpent().size()) {
@@ -650,7 +925,7 @@ public final class TextLogCreator {
                             continue;
                     }
 
-                    final Pair<DayChange, DayChange> newDayChangeData = printDayChanges(logData,
+                    final Pair<DayChange, DayChange> newDayChangeData = planDayChanges(steps,
                             ti.getEndTurn(),
                             currentDay,
                             nextDay,
@@ -661,8 +936,8 @@ public final class TextLogCreator {
                     // Consumables usage or pulls that happened nominally on the
                     // last turn before the day change, but were actually done
                     // on the next day.
-                    printCurrentConsumables(ti.getConsumablesUsed(), currentDay.getDayNumber());
-                    printCurrentPulls(currentDay.getDayNumber(), ti.getEndTurn());
+                    steps.add(RundownStep.consumables(ti, currentDay.getDayNumber()));
+                    steps.add(RundownStep.pulls(currentDay.getDayNumber(), ti.getEndTurn()));
                 } else if (ti.getStartTurn() < nextDay.getTurnNumber()) {
                     SingleTurn dayChangeTurn = null;
                     for (final SingleTurn st : ti.getTurns())
@@ -678,9 +953,9 @@ public final class TextLogCreator {
                             .tailSet(dayChangeTurn),
                             dayChangeTurn.getAreaName());
 
-                    printTurnIntervalContents(turnsBeforeDayChange, currentDay.getDayNumber());
+                    steps.add(RundownStep.interval(turnsBeforeDayChange, currentDay.getDayNumber()));
 
-                    final Pair<DayChange, DayChange> newDayChangeData = printDayChanges(logData,
+                    final Pair<DayChange, DayChange> newDayChangeData = planDayChanges(steps,
                             ti.getEndTurn(),
                             currentDay,
                             nextDay,
@@ -691,11 +966,11 @@ public final class TextLogCreator {
                     // Consumables usage or pulls that happened nominally on the
                     // last turn before the day change, but were actually done
                     // on the next day.
-                    printCurrentConsumables(turnsBeforeDayChange.getConsumablesUsed(),
-                            currentDay.getDayNumber());
-                    printCurrentPulls(currentDay.getDayNumber(), turnsBeforeDayChange.getEndTurn());
+                    steps.add(RundownStep.consumables(turnsBeforeDayChange,
+                            currentDay.getDayNumber()));
+                    steps.add(RundownStep.pulls(currentDay.getDayNumber(), turnsBeforeDayChange.getEndTurn()));
 
-                    printTurnIntervalContents(turnsAfterDayChange, currentDay.getDayNumber());
+                    steps.add(RundownStep.interval(turnsAfterDayChange, currentDay.getDayNumber()));
                 } else if (ti.getStartTurn() >= nextDay.getTurnNumber()) {
                     //Check to see if a day change occurs within block
                     SingleTurn dayChangeTurn = null;
@@ -708,7 +983,7 @@ public final class TextLogCreator {
 
                     if (dayChangeTurn == null)  {
                         //No Day change occurred
-                        printTurnIntervalContents(ti, currentDay.getDayNumber());
+                        steps.add(RundownStep.interval(ti, currentDay.getDayNumber()));
 
                         //Peek at next interval to make sure it doesn't contain any current day turns
                         if (turnIntervalNdx + 1 < logData.getTurnIntervalsSpent().size()) {
@@ -724,7 +999,7 @@ public final class TextLogCreator {
                                 continue;
                         }
 
-                        final Pair<DayChange, DayChange> newDayChangeData = printDayChanges(logData,
+                        final Pair<DayChange, DayChange> newDayChangeData = planDayChanges(steps,
                                 ti.getEndTurn(),
                                 currentDay,
                                 nextDay,
@@ -735,8 +1010,8 @@ public final class TextLogCreator {
                         // Consumables usage or pulls that happened nominally on the
                         // last turn before the day change, but were actually done
                         // on the next day.
-                        printCurrentConsumables(ti.getConsumablesUsed(), currentDay.getDayNumber());
-                        printCurrentPulls(currentDay.getDayNumber(), ti.getEndTurn());
+                        steps.add(RundownStep.consumables(ti, currentDay.getDayNumber()));
+                        steps.add(RundownStep.pulls(currentDay.getDayNumber(), ti.getEndTurn()));
                     } else {
                         final TurnInterval turnsBeforeDayChange = new DetailedTurnInterval(ti.getTurns()
                                 .headSet(dayChangeTurn),
@@ -745,9 +1020,9 @@ public final class TextLogCreator {
                                 .tailSet(dayChangeTurn),
                                 dayChangeTurn.getAreaName());
 
-                        printTurnIntervalContents(turnsBeforeDayChange, currentDay.getDayNumber());
+                        steps.add(RundownStep.interval(turnsBeforeDayChange, currentDay.getDayNumber()));
 
-                        final Pair<DayChange, DayChange> newDayChangeData = printDayChanges(logData,
+                        final Pair<DayChange, DayChange> newDayChangeData = planDayChanges(steps,
                                 ti.getEndTurn(),
                                 currentDay,
                                 nextDay,
@@ -758,14 +1033,14 @@ public final class TextLogCreator {
                         // Consumables usage or pulls that happened nominally on the
                         // last turn before the day change, but were actually done
                         // on the next day.
-                        printCurrentConsumables(turnsBeforeDayChange.getConsumablesUsed(),
-                                currentDay.getDayNumber());
-                        printCurrentPulls(currentDay.getDayNumber(), turnsBeforeDayChange.getEndTurn());
+                        steps.add(RundownStep.consumables(turnsBeforeDayChange,
+                                currentDay.getDayNumber()));
+                        steps.add(RundownStep.pulls(currentDay.getDayNumber(), turnsBeforeDayChange.getEndTurn()));
 
-                        printTurnIntervalContents(turnsAfterDayChange, currentDay.getDayNumber());
+                        steps.add(RundownStep.interval(turnsAfterDayChange, currentDay.getDayNumber()));
                     }
                 } else {
-                    final Pair<DayChange, DayChange> newDayChangeData = printDayChanges(logData,
+                    final Pair<DayChange, DayChange> newDayChangeData = planDayChanges(steps,
                             ti.getEndTurn(),
                             currentDay,
                             nextDay,
@@ -773,25 +1048,248 @@ public final class TextLogCreator {
                     currentDay = newDayChangeData.getVar1();
                     nextDay = newDayChangeData.getVar2();
 
-                    printTurnIntervalContents(ti, currentDay.getDayNumber());
+                    steps.add(RundownStep.interval(ti, currentDay.getDayNumber()));
                 }
             } else
-                printTurnIntervalContents(ti, currentDay.getDayNumber());
+                steps.add(RundownStep.interval(ti, currentDay.getDayNumber()));
 
         }
 
+        steps.add(RundownStep.turnRundownEnd(currentDay));
 
-        // Log daily ka at end of run
-        printDailyKa(logData, currentDay.getDayNumber());
+        return steps;
+    }
 
-        printNotes(logData.getHeaderFooterComment(currentDay).getFooterComments());
-        write(NEW_LINE + "Turn rundown finished!");
-        write(logAdditionsMap.get("turnRundownEnd"));
-        write(NEW_LINE + NEW_LINE);
+    /**
+     * Sets the current element of every change stream to its first element.
+     */
+    private void initChangeStreams() {
+        currentFamChange = familiarChangeIter.hasNext() ? familiarChangeIter.next() : null;
+        currentPull = pullIter.hasNext() ? pullIter.next() : null;
+        currentHuntedCombat = huntedCombatIter.hasNext() ? huntedCombatIter.next() : null;
+        currentDisintegratedCombat = disintegratedCombatIter.hasNext() ? disintegratedCombatIter.next()
+                : null;
+        currentBanishedCombat = banishedCombatIter.hasNext() ? banishedCombatIter.next() : null;
+        currentHybridData = hybridDataIter.hasNext() ? hybridDataIter.next() : null;
+        currentLearnedSkill = learnedSkillIter.hasNext() ? learnedSkillIter.next() : null;
+        nextLevel = levelIter.hasNext() ? levelIter.next() : null;
+    }
 
-        printLogSummaries(logData);
+    /**
+     * Prints the given step of the turn rundown.
+     */
+    private void printStep(
+            final LogDataHolder logData, final RundownStep step)
+                    throws IOException {
+        switch (step.kind) {
+        case HEADER:
+            printHeader(logData, step.currentDay);
+            break;
+        case TURN_INTERVAL:
+            // Hand the text over to the output after every turn interval.
+            writeBufferToOutput();
+            printTurnIntervalContents(step.turnInterval, step.dayNumber);
+            break;
+        case CONSUMABLES:
+            printCurrentConsumables(step.turnInterval.getConsumablesUsed(), step.dayNumber);
+            break;
+        case PULLS:
+            printCurrentPulls(step.dayNumber, step.turnNumber);
+            break;
+        case DAY_CHANGE:
+            printDayChange(logData, step.currentDay, step.nextDay);
+            break;
+        case TURN_RUNDOWN_END:
+            // Log daily ka at end of run
+            printDailyKa(logData, step.currentDay.getDayNumber());
 
-        return log.toString();
+            printNotes(logData.getHeaderFooterComment(step.currentDay).getFooterComments());
+            write(NEW_LINE + "Turn rundown finished!");
+            write(logAdditionsMap.get("turnRundownEnd"));
+            write(NEW_LINE + NEW_LINE);
+            break;
+        }
+    }
+
+    /**
+     * Prints the given steps of the turn rundown and the log summaries
+     * concurrently and hands the results over to the output in order.
+     * <p>
+     * The steps are split up into days, each ending with its day change. Every
+     * day is printed by its own TextLogCreator into its own buffer, with the
+     * change streams partitioned in advance so that every day only gets the
+     * changes the sequential printing would print during that day. The only
+     * other state carried from one day to the next are the one-time items,
+     * which are only printed on their first drop. Those are collected per day
+     * in a first, also concurrent, pass. The Ka earned per day is only printed
+     * at the end of the day it was earned on and thus needs no carrying over.
+     * <p>
+     * Every day is handed over to the output as soon as it and all days before
+     * it are printed, and only {@link #PRINTING_THREADS_COUNT} days are printed
+     * ahead of the day written next, so the whole log is never held in memory.
+     * <p>
+     * The result is identical to the one of the sequential printing.
+     */
+    private void printStepsConcurrently(
+            final LogDataHolder logData, final LogOutputFormat logVersion,
+            final List<RundownStep> steps)
+                    throws IOException {
+        final List<List<RundownStep>> days = Lists.newArrayList();
+        int dayStart = 0;
+        for (int i = 0; i < steps.size(); i++)
+            if (steps.get(i).kind == RundownStep.Kind.DAY_CHANGE) {
+                days.add(steps.subList(dayStart, i + 1));
+                dayStart = i + 1;
+            }
+        days.add(steps.subList(dayStart, steps.size()));
+
+        final List<ChangeStreams> changesPerDay = ChangeStreams.of(logData).partition(days);
+
+        final List<Future<Set<String>>> onetimeItemsPerDay = Lists.newArrayList(days.size());
+        final Deque<Future<StringBuilder>> dayTexts = new ArrayDeque<Future<StringBuilder>>(PRINTING_THREADS_COUNT);
+        Future<StringBuilder> summaries = null;
+        try {
+            for (final List<RundownStep> day : days)
+                onetimeItemsPerDay.add(DayPrinters.EXECUTOR.submit(new Callable<Set<String>>() {
+                    public Set<String> call() {
+                        return collectOnetimeItems(day, dataTables.getItemdropsMap());
+                    }
+                }));
+
+            summaries = DayPrinters.EXECUTOR.submit(new Callable<StringBuilder>() {
+                public StringBuilder call() {
+                    final TextLogCreator logCreator = new TextLogCreator(logData,
+                            logVersion,
+                            null,
+                            ChangeStreams.EMPTY,
+                            dataTables);
+                    logCreator.printLogSummaries(logData);
+
+                    return logCreator.log;
+                }
+            });
+
+            // The one-time items dropped before the day submitted next. Every
+            // day gets its own copy, so no task ever has to wait for another.
+            final Set<String> droppedOnetimeItems = Sets.newHashSet(300);
+            int nextDay = 0;
+            while (nextDay < days.size() || !dayTexts.isEmpty()) {
+                while (nextDay < days.size() && dayTexts.size() < PRINTING_THREADS_COUNT) {
+                    dayTexts.add(DayPrinters.EXECUTOR.submit(createDayPrinter(logData,
+                            logVersion,
+                            days.get(nextDay),
+                            changesPerDay.get(nextDay),
+                            Sets.newHashSet(droppedOnetimeItems))));
+                    droppedOnetimeItems.addAll(onetimeItemsPerDay.get(nextDay).get());
+                    nextDay++;
+                }
+
+                out.write(dayTexts.removeFirst().get());
+            }
+            out.write(summaries.get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Creating the log was interrupted.");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // The printing threads are shared, so tasks of this log which are
+            // still pending after a failure have to be cancelled one by one.
+            for (final Future<Set<String>> f : onetimeItemsPerDay)
+                f.cancel(true);
+            for (final Future<StringBuilder> f : dayTexts)
+                f.cancel(true);
+            if (summaries != null)
+                summaries.cancel(true);
+        }
+    }
+
+    /**
+     * @return A task printing the given day of the turn rundown into its own
+     *         buffer.
+     */
+    private Callable<StringBuilder> createDayPrinter(
+            final LogDataHolder logData, final LogOutputFormat logVersion,
+            final List<RundownStep> day, final ChangeStreams changes,
+            final Set<String> droppedOnetimeItems) {
+        return new Callable<StringBuilder>() {
+            public StringBuilder call()
+                    throws Exception {
+                final TextLogCreator logCreator = new TextLogCreator(logData,
+                        logVersion,
+                        null,
+                        changes,
+                        dataTables);
+                logCreator.isShowNotes = isShowNotes;
+                logCreator.ascensionStartDate = ascensionStartDate;
+                logCreator.localeOnetimeItemsSet.removeAll(droppedOnetimeItems);
+
+                logCreator.initChangeStreams();
+                for (final RundownStep step : day)
+                    logCreator.printStep(logData, step);
+
+                return logCreator.log;
+            }
+        };
+    }
+
+    /**
+     * @return The names of all one-time items dropped in the turn intervals of
+     *         the given steps, in the same form in which they are contained in
+     *         {@link #localeOnetimeItemsSet}.
+     */
+    private static Set<String> collectOnetimeItems(
+            final List<RundownStep> steps, final Map<String, Boolean> itemdrops) {
+        final Set<String> onetimeItems = Sets.newHashSet();
+
+        for (final RundownStep step : steps)
+            if (step.kind == RundownStep.Kind.TURN_INTERVAL)
+                for (final SingleTurn st : step.turnInterval.getTurns())
+                    for (final Item i : st.getDroppedItems()) {
+                        final String itemName = DataTableNames.normalize(i.getName());
+                        if (Boolean.TRUE.equals(itemdrops.get(itemName)))
+                            onetimeItems.add(itemName);
+                    }
+
+        return onetimeItems;
+    }
+
+    private void printHeader(
+            final LogDataHolder logData, final DayChange currentDay) {
+        // Add the log file header.
+        write("NEW " + logData.getCharacterClass() + " " + logData.getGameMode() + " "
+                + logData.getAscensionPath() + " ASCENSION STARTED " + ascensionStartDate + NEW_LINE);
+        write("------------------------------" + NEW_LINE + NEW_LINE);
+        write(logAdditionsMap.get("logHeaderStart"));
+        write("This log was created by the Ascension Log Visualizer "
+                + Settings.getSettingString("Version") + "." + NEW_LINE);
+        write("The basic idea and the format of this parser have been borrowed from the AFH MafiaLog Parser by VladimirPootin and QuantumNightmare."
+                + NEW_LINE + NEW_LINE);
+        write(logAdditionsMap.get("logHeaderEnd"));
+        write(logAdditionsMap.get("dayChangeLineStart"));
+        write(currentDay.toString());
+        write(logAdditionsMap.get("dayChangeLineEnd"));
+        write(NEW_LINE + NEW_LINE);
+        if (logData.getHeaderFooterComment(currentDay) != null)
+            printNotes(logData.getHeaderFooterComment(currentDay).getHeaderComments());
+    }
+
+    /**
+     * Hands the buffered text over to the output, if there is one.
+     */
+    private void writeBufferToOutput()
+            throws IOException {
+        if (out != null) {
+            out.write(log);
+            log.setLength(0);
+        }
     }
 
     private void printDailyKa(final LogDataHolder logData, int day)
@@ -824,30 +1322,27 @@ public final class TextLogCreator {
             DayChange currentDay, DayChange nextDay,
             final Iterator<DayChange> dayChangeIter) {
         while (!nextDay.equals(NO_DAY_CHANGE) && currentTurnNumber >= nextDay.getTurnNumber()) {
-            final PlayerSnapshot currentSnapshot = logData.getFirstPlayerSnapshotAfterTurn(nextDay.getTurnNumber());
+            printDayChange(logData, currentDay, nextDay);
 
-            printDailyKa(logData, currentDay.getDayNumber());
-
-            if (logData.getHeaderFooterComment(currentDay) != null)
-                printNotes(logData.getHeaderFooterComment(currentDay).getFooterComments());
+            currentDay = nextDay;
+            nextDay = dayChangeIter.hasNext() ? dayChangeIter.next() : NO_DAY_CHANGE;
+        }
 
-            write(NEW_LINE);
-            write(logAdditionsMap.get("dayChangeLineStart"));
-            write(nextDay.toString());
-            write(logAdditionsMap.get("dayChangeLineEnd"));
-            if (currentSnapshot != null) {
-                write(NEW_LINE);
-                write(ADVENTURES_LEFT_STRING);
-                write(currentSnapshot.getAdventuresLeft());
-                write(NEW_LINE);
-                write(CURRENT_MEAT_STRING);
-                write(currentSnapshot.getCurrentMeat());
-            }
-            write(NEW_LINE);
-            write(NEW_LINE);
+        return Pair.of(currentDay, nextDay);
+    }
 
-            if (logData.getHeaderFooterComment(nextDay) != null)
-                printNotes(logData.getHeaderFooterComment(nextDay).getHeaderComments());
+    /**
+     * Adds a step for all day changes that occurred to the given steps and
+     * returns the new current day number and the next day change. If no day
+     * change occurred, the old values will be returned.
+     */
+    private static Pair<DayChange, DayChange> planDayChanges(
+            final List<RundownStep> steps,
+            final int currentTurnNumber,
+            DayChange currentDay, DayChange nextDay,
+            final Iterator<DayChange> dayChangeIter) {
+        while (!nextDay.equals(NO_DAY_CHANGE) && currentTurnNumber >= nextDay.getTurnNumber()) {
+            steps.add(RundownStep.dayChange(currentDay, nextDay));
 
             currentDay = nextDay;
             nextDay = dayChangeIter.hasNext() ? dayChangeIter.next() : NO_DAY_CHANGE;
@@ -856,6 +1351,38 @@ public final class TextLogCreator {
         return Pair.of(currentDay, nextDay);
     }
 
+    /**
+     * Prints the change from the given current day to the given next day.
+     */
+    private void printDayChange(
+            final LogDataHolder logData, final DayChange currentDay,
+            final DayChange nextDay) {
+        final PlayerSnapshot currentSnapshot = logData.getFirstPlayerSnapshotAfterTurn(nextDay.getTurnNumber());
+
+        printDailyKa(logData, currentDay.getDayNumber());
+
+        if (logData.getHeaderFooterComment(currentDay) != null)
+            printNotes(logData.getHeaderFooterComment(currentDay).getFooterComments());
+
+        write(NEW_LINE);
+        write(logAdditionsMap.get("dayChangeLineStart"));
+        write(nextDay.toString());
+        write(logAdditionsMap.get("dayChangeLineEnd"));
+        if (currentSnapshot != null) {
+            write(NEW_LINE);
+            write(ADVENTURES_LEFT_STRING);
+            write(currentSnapshot.getAdventuresLeft());
+            write(NEW_LINE);
+            write(CURRENT_MEAT_STRING);
+            write(currentSnapshot.getCurrentMeat());
+        }
+        write(NEW_LINE);
+        write(NEW_LINE);
+
+        if (logData.getHeaderFooterComment(nextDay) != null)
+            printNotes(logData.getHeaderFooterComment(nextDay).getHeaderComments());
+    }
+
     /**
      * Prints all pulls from the given day up to the given turn number.
      */
@@ -1024,7 +1551,7 @@ public final class TextLogCreator {
         write(NEW_LINE);
 
         for (final SingleTurn st : ti.getTurns()) {
-            if (DataTablesHandler.HANDLER.isSemirareEncounter(st)) {
+            if (dataTables.isSemirareEncounter(st)) {
                 write(SEMIRARE_PREFIX);
                 write(OPENING_TURN_BRACKET);
                 write(st.getTurnNumber());
@@ -1035,7 +1562,7 @@ public final class TextLogCreator {
                 write(logAdditionsMap.get("specialEncounterEnd"));
                 write(NEW_LINE);
             }
-            if (DataTablesHandler.HANDLER.isBadMoonEncounter(st)) {
+            if (dataTables.isBadMoonEncounter(st)) {
                 write(BAD_MOON_PREFIX);
                 write(OPENING_TURN_BRACKET);
                 write(st.getTurnNumber());
@@ -1091,9 +1618,8 @@ public final class TextLogCreator {
 
             final List<Item> importantItems = Lists.newArrayList();
             for (final Item i : st.getDroppedItems()) {
-                final String itemName = NON_ASCII.matcher(i.getName().toLowerCase(Locale.ENGLISH))
-                        .replaceAll(UsefulPatterns.EMPTY_STRING);
-                if (DataTablesHandler.HANDLER.isImportantItem(itemName))
+                final String itemName = DataTableNames.normalize(i.getName());
+                if (dataTables.isImportantItem(itemName))
                     importantItems.add(i);
                 else if (localeOnetimeItemsSet.contains(itemName)) {
                     importantItems.add(i);
@@ -1456,7 +1982,7 @@ public final class TextLogCreator {
 
         // +Stat Breakdown summary
         final List<StatgiverItem> statGivers = Lists.newArrayList(20);
-        for (final Pair<String, ExtraStats> p : DataTablesHandler.HANDLER.getStatsItems())
+        for (final Pair<String, ExtraStats> p : dataTables.getStatsItems())
             statGivers.add(new StatgiverItem(p.getVar1(), p.getVar2(), logData.getCharacterClass()
                     .getStatClass()));
         final StatgiverItem serpentineSword = new StatgiverItem("serpentine sword",
@@ -1811,4 +2337,347 @@ public final class TextLogCreator {
             final int i) {
         log.append(i);
     }
+
+    /**
+     * Holds the threads printing the days of textual logs concurrently. They
+     * are shared by all logs printed at the same time, so printing several
+     * logs at once never starts more threads than there are processors. The
+     * pool is only created once the first log is printed concurrently, so
+     * using this class without printing logs doesn't start it.
+     */
+    private static final class DayPrinters {
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PRINTING_THREADS_COUNT,
+                new ThreadFactory() {
+            public Thread newThread(
+                    final Runnable r) {
+                final Thread t = new Thread(r, "Textual log day printer");
+                t.setDaemon(true);
+
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Applies the output options which concern the whole text of a log to every
+     * piece handed to it and writes the result to the underlying writer. These
+     * options are the removal of non-ASCII characters and, for HTML logs, an
+     * additional HTML line break in front of every line separator.
+     * <p>
+     * A line separator may be split between two pieces of text, which is why
+     * {@link #finish()} has to be called after the last piece.
+     */
+    private static final class LogOutputFilter {
+        private static final String HTML_LINE_BREAK = "<br>";
+
+        private final Writer writer;
+
+        private final boolean isRemoveNonASCII;
+
+        private final boolean isHTML;
+
+        private char[] buffer = new char[8192];
+
+        /**
+         * The number of characters of a line separator which have been
+         * encountered, but not written yet.
+         */
+        private int matchedNewLineChars;
+
+        LogOutputFilter(
+                final Writer writer, final boolean isRemoveNonASCII,
+                final boolean isHTML) {
+            this.writer = writer;
+            this.isRemoveNonASCII = isRemoveNonASCII;
+            this.isHTML = isHTML;
+        }
+
+        void write(
+                final StringBuilder text)
+                        throws IOException {
+            final int length = text.length();
+            if (buffer.length < length)
+                buffer = new char[Math.max(length, buffer.length * 2)];
+            text.getChars(0, length, buffer, 0);
+
+            if (!isRemoveNonASCII && !isHTML) {
+                writer.write(buffer, 0, length);
+                return;
+            }
+
+            // Write unchanged runs of characters in one go.
+            int runStart = 0;
+            for (int i = 0; i < length; i++) {
+                final char c = buffer[i];
+
+                if (isRemoveNonASCII && c > 0x7F) {
+                    // Characters of a partially matched line separator are
+                    // only counted, not part of the run.
+                    if (matchedNewLineChars == 0)
+                        writer.write(buffer, runStart, i - runStart);
+                    runStart = i + 1;
+                } else if (isHTML) {
+                    if (c == NEW_LINE.charAt(matchedNewLineChars)) {
+                        if (matchedNewLineChars == 0) {
+                            writer.write(buffer, runStart, i - runStart);
+                            runStart = i;
+                        }
+
+                        matchedNewLineChars++;
+                        if (matchedNewLineChars == NEW_LINE.length()) {
+                            writer.write(HTML_LINE_BREAK);
+                            writer.write(NEW_LINE);
+                            matchedNewLineChars = 0;
+                            runStart = i + 1;
+                        }
+                    } else if (matchedNewLineChars > 0) {
+                        // Not a line separator after all, so the already
+                        // matched characters are written out as they were.
+                        writeUnmatchedNewLineChars();
+                        runStart = i;
+                        i--;
+                    }
+                }
+            }
+
+            if (matchedNewLineChars == 0)
+                writer.write(buffer, runStart, length - runStart);
+        }
+
+        /**
+         * Writes out anything which is still pending.
+         */
+        void finish()
+                throws IOException {
+            if (matchedNewLineChars > 0)
+                writeUnmatchedNewLineChars();
+        }
+
+        private void writeUnmatchedNewLineChars()
+                throws IOException {
+            writer.write(NEW_LINE, 0, matchedNewLineChars);
+            matchedNewLineChars = 0;
+        }
+    }
+
+    /**
+     * A single step of printing the turn rundown. The steps are planned in
+     * advance so that the turn rundown can be split up into days.
+     */
+    private static final class RundownStep {
+        static enum Kind {
+            HEADER, TURN_INTERVAL, CONSUMABLES, PULLS, DAY_CHANGE, TURN_RUNDOWN_END
+        };
+
+        final Kind kind;
+
+        final TurnInterval turnInterval;
+
+        final int dayNumber;
+
+        final int turnNumber;
+
+        final DayChange currentDay;
+
+        final DayChange nextDay;
+
+        private RundownStep(
+                final Kind kind, final TurnInterval turnInterval,
+                final int dayNumber, final int turnNumber,
+                final DayChange currentDay, final DayChange nextDay) {
+            this.kind = kind;
+            this.turnInterval = turnInterval;
+            this.dayNumber = dayNumber;
+            this.turnNumber = turnNumber;
+            this.currentDay = currentDay;
+            this.nextDay = nextDay;
+        }
+
+        static RundownStep header(
+                final DayChange currentDay) {
+            return new RundownStep(Kind.HEADER, null, 0, 0, currentDay, null);
+        }
+
+        static RundownStep interval(
+                final TurnInterval turnInterval, final int dayNumber) {
+            return new RundownStep(Kind.TURN_INTERVAL, turnInterval, dayNumber, 0, null, null);
+        }
+
+        static RundownStep consumables(
+                final TurnInterval turnInterval, final int dayNumber) {
+            return new RundownStep(Kind.CONSUMABLES, turnInterval, dayNumber, 0, null, null);
+        }
+
+        static RundownStep pulls(
+                final int dayNumber, final int turnNumber) {
+            return new RundownStep(Kind.PULLS, null, dayNumber, turnNumber, null, null);
+        }
+
+        static RundownStep dayChange(
+                final DayChange currentDay, final DayChange nextDay) {
+            return new RundownStep(Kind.DAY_CHANGE, null, 0, 0, currentDay, nextDay);
+        }
+
+        static RundownStep turnRundownEnd(
+                final DayChange currentDay) {
+            return new RundownStep(Kind.TURN_RUNDOWN_END, null, 0, 0, currentDay, null);
+        }
+    }
+
+    /**
+     * The changes which are printed in between the turn intervals of the turn
+     * rundown, each sorted by turn number.
+     */
+    private static final class ChangeStreams {
+        static final ChangeStreams EMPTY = new ChangeStreams(Collections.<FamiliarChange> emptyList(),
+                Collections.<Pull> emptyList(),
+                Collections.<LevelData> emptyList(),
+                Collections.<DataNumberPair<String>> emptyList(),
+                Collections.<DataNumberPair<String>> emptyList(),
+                Collections.<DataNumberPair<String>> emptyList(),
+                Collections.<DataNumberPair<String>> emptyList(),
+                Collections.<DataNumberPair<String>> emptyList());
+
+        final List<FamiliarChange> familiarChanges;
+
+        final List<Pull> pulls;
+
+        final List<LevelData> levels;
+
+        final List<DataNumberPair<String>> huntedCombats;
+
+        final List<DataNumberPair<String>> disintegratedCombats;
+
+        final List<DataNumberPair<String>> banishedCombats;
+
+        final List<DataNumberPair<String>> hybridData;
+
+        final List<DataNumberPair<String>> learnedSkills;
+
+        private ChangeStreams(
+                final List<FamiliarChange> familiarChanges, final List<Pull> pulls,
+                final List<LevelData> levels,
+                final List<DataNumberPair<String>> huntedCombats,
+                final List<DataNumberPair<String>> disintegratedCombats,
+                final List<DataNumberPair<String>> banishedCombats,
+                final List<DataNumberPair<String>> hybridData,
+                final List<DataNumberPair<String>> learnedSkills) {
+            this.familiarChanges = familiarChanges;
+            this.pulls = pulls;
+            this.levels = levels;
+            this.huntedCombats = huntedCombats;
+            this.disintegratedCombats = disintegratedCombats;
+            this.banishedCombats = banishedCombats;
+            this.hybridData = hybridData;
+            this.learnedSkills = learnedSkills;
+        }
+
+        /**
+         * @return The change streams of the given log. Level 1 is left out,
+         *         because it is never printed.
+         */
+        static ChangeStreams of(
+                final LogDataHolder logData) {
+            final List<LevelData> levels = Lists.newArrayList(logData.getLevels());
+            if (!levels.isEmpty())
+                levels.remove(0);
+
+            return new ChangeStreams(Lists.newArrayList(logData.getFamiliarChanges()),
+                    logData.getPulls(),
+                    levels,
+                    logData.getHuntedCombats(),
+                    logData.getLogSummary().getDisintegratedCombats(),
+                    logData.getLogSummary().getBanishedCombats(),
+                    logData.getHybridContent(),
+                    logData.getLearnedSkills());
+        }
+
+        /**
+         * Splits these change streams up into the parts printed during the
+         * given days. A change is printed during the turn interval whose end
+         * turn is the first one to be greater or equal to the turn of the
+         * change. Pulls are additionally only printed on their day.
+         *
+         * @param days
+         *            The planned steps of every day in order.
+         * @return The change streams of every given day.
+         */
+        List<ChangeStreams> partition(
+                final List<List<RundownStep>> days) {
+            final List<ChangeStreams> changesPerDay = Lists.newArrayList(days.size());
+
+            int famChangeNdx = 0;
+            int pullNdx = 0;
+            int levelNdx = 0;
+            int huntedCombatNdx = 0;
+            int disintegratedCombatNdx = 0;
+            int banishedCombatNdx = 0;
+            int hybridDataNdx = 0;
+            int learnedSkillNdx = 0;
+            for (final List<RundownStep> day : days) {
+                final int famChangeStart = famChangeNdx;
+                final int pullStart = pullNdx;
+                final int levelStart = levelNdx;
+                final int huntedCombatStart = huntedCombatNdx;
+                final int disintegratedCombatStart = disintegratedCombatNdx;
+                final int banishedCombatStart = banishedCombatNdx;
+                final int hybridDataStart = hybridDataNdx;
+                final int learnedSkillStart = learnedSkillNdx;
+
+                for (final RundownStep step : day)
+                    if (step.kind == RundownStep.Kind.TURN_INTERVAL) {
+                        final int endTurn = step.turnInterval.getEndTurn();
+
+                        pullNdx = skipPulls(pullNdx, step.dayNumber, endTurn);
+                        while (famChangeNdx < familiarChanges.size()
+                                && endTurn >= familiarChanges.get(famChangeNdx).getTurnNumber())
+                            famChangeNdx++;
+                        while (levelNdx < levels.size()
+                                && endTurn >= levels.get(levelNdx).getLevelReachedOnTurn())
+                            levelNdx++;
+                        huntedCombatNdx = skip(huntedCombats, huntedCombatNdx, endTurn);
+                        disintegratedCombatNdx = skip(disintegratedCombats,
+                                disintegratedCombatNdx,
+                                endTurn);
+                        banishedCombatNdx = skip(banishedCombats, banishedCombatNdx, endTurn);
+                        hybridDataNdx = skip(hybridData, hybridDataNdx, endTurn);
+                        learnedSkillNdx = skip(learnedSkills, learnedSkillNdx, endTurn);
+                    } else if (step.kind == RundownStep.Kind.PULLS)
+                        pullNdx = skipPulls(pullNdx, step.dayNumber, step.turnNumber);
+
+                changesPerDay.add(new ChangeStreams(familiarChanges.subList(famChangeStart,
+                        famChangeNdx),
+                        pulls.subList(pullStart, pullNdx),
+                        levels.subList(levelStart, levelNdx),
+                        huntedCombats.subList(huntedCombatStart, huntedCombatNdx),
+                        disintegratedCombats.subList(disintegratedCombatStart,
+                                disintegratedCombatNdx),
+                        banishedCombats.subList(banishedCombatStart, banishedCombatNdx),
+                        hybridData.subList(hybridDataStart, hybridDataNdx),
+                        learnedSkills.subList(learnedSkillStart, learnedSkillNdx)));
+            }
+
+            return changesPerDay;
+        }
+
+        private int skipPulls(
+                int pullNdx, final int currentDayNumber, final int currentTurnNumber) {
+            while (pullNdx < pulls.size()
+                    && currentTurnNumber >= pulls.get(pullNdx).getTurnNumber()
+                    && pulls.get(pullNdx).getDayNumber() <= currentDayNumber)
+                pullNdx++;
+
+            return pullNdx;
+        }
+
+        private static int skip(
+                final List<DataNumberPair<String>> changes, int changeNdx,
+                final int currentTurnNumber) {
+            while (changeNdx < changes.size()
+                    && currentTurnNumber >= changes.get(changeNdx).getNumber())
+                changeNdx++;
+
+            return changeNdx;
+        }
+    }
 }
@@ -0,0 +1,308 @@
+/* Copyright (c) 2008-2011, developers of the Ascension Log Visualizer
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom
+ * the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.googlecode.logVisualizer.util.xmlLogs;
+
+import java.util.Arrays;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * A {@link XMLStreamWriter} decorator which puts every element on its own line
+ * and indents it according to its depth, so that XML files written by
+ * {@link XMLLogCreator} are readable by humans.
+ * <p>
+ * Elements which contain text are kept on a single line, elements which
+ * contain other elements have their end tag put on its own line. The
+ * indentation whitespace is written straight to the underlying writer as it
+ * is needed, nothing is buffered by this class.
+ * <p>
+ * This class is a replacement for the JDK-internal
+ * {@code com.sun.xml.internal.txw2.output.IndentingXMLStreamWriter}, which
+ * isn't accessible on newer Java versions, and produces the same layout.
+ */
+final class IndentingXMLWriter implements XMLStreamWriter {
+    private static final String INDENT_STEP = "  ";
+
+    private final XMLStreamWriter writer;
+
+    /**
+     * Flags of all currently open elements showing whether the respective
+     * element contains child elements.
+     */
+    private boolean[] hasChildElements = new boolean[16];
+
+    private int depth;
+
+    /**
+     * @param writer
+     *            The writer to which the indented XML will be written.
+     * @throws NullPointerException
+     *             if writer is {@code null}
+     */
+    IndentingXMLWriter(
+                       final XMLStreamWriter writer) {
+        if (writer == null)
+            throw new NullPointerException("The xml writer must not be null.");
+
+        this.writer = writer;
+    }
+
+    private void onStartElement()
+                                 throws XMLStreamException {
+        onEmptyElement();
+
+        depth++;
+        if (depth == hasChildElements.length)
+            hasChildElements = Arrays.copyOf(hasChildElements, depth * 2);
+        hasChildElements[depth] = false;
+    }
+
+    private void onEmptyElement()
+                                 throws XMLStreamException {
+        hasChildElements[depth] = true;
+        if (depth > 0)
+            writer.writeCharacters("\n");
+        writeIndentation();
+    }
+
+    private void onEndElement()
+                               throws XMLStreamException {
+        depth--;
+        if (hasChildElements[depth + 1]) {
+            writer.writeCharacters("\n");
+            writeIndentation();
+        }
+    }
+
+    private void writeIndentation()
+                                   throws XMLStreamException {
+        for (int i = 0; i < depth; i++)
+            writer.writeCharacters(INDENT_STEP);
+    }
+
+    public void writeStartElement(
+                                  final String localName)
+                                                         throws XMLStreamException {
+        onStartElement();
+        writer.writeStartElement(localName);
+    }
+
+    public void writeStartElement(
+                                  final String namespaceURI, final String localName)
+                                                                                    throws XMLStreamException {
+        onStartElement();
+        writer.writeStartElement(namespaceURI, localName);
+    }
+
+    public void writeStartElement(
+                                  final String prefix, final String localName,
+                                  final String namespaceURI)
+                                                            throws XMLStreamException {
+        onStartElement();
+        writer.writeStartElement(prefix, localName, namespaceURI);
+    }
+
+    public void writeEmptyElement(
+                                  final String localName)
+                                                         throws XMLStreamException {
+        onEmptyElement();
+        writer.writeEmptyElement(localName);
+    }
+
+    public void writeEmptyElement(
+                                  final String namespaceURI, final String localName)
+                                                                                    throws XMLStreamException {
+        onEmptyElement();
+        writer.writeEmptyElement(namespaceURI, localName);
+    }
+
+    public void writeEmptyElement(
+                                  final String prefix, final String localName,
+                                  final String namespaceURI)
+                                                            throws XMLStreamException {
+        onEmptyElement();
+        writer.writeEmptyElement(prefix, localName, namespaceURI);
+    }
+
+    public void writeEndElement()
+                                 throws XMLStreamException {
+        onEndElement();
+        writer.writeEndElement();
+    }
+
+    public void writeEndDocument()
+                                  throws XMLStreamException {
+        while (depth > 0)
+            writeEndElement();
+
+        writer.writeEndDocument();
+    }
+
+    public void close()
+                       throws XMLStreamException {
+        writer.close();
+    }
+
+    public void flush()
+                       throws XMLStreamException {
+        writer.flush();
+    }
+
+    public void writeAttribute(
+                               final String localName, final String value)
+                                                                          throws XMLStreamException {
+        writer.writeAttribute(localName, value);
+    }
+
+    public void writeAttribute(
+                               final String prefix, final String namespaceURI,
+                               final String localName, final String value)
+                                                                          throws XMLStreamException {
+        writer.writeAttribute(prefix, namespaceURI, localName, value);
+    }
+
+    public void writeAttribute(
+                               final String namespaceURI, final String localName,
+                               final String value)
+                                                  throws XMLStreamException {
+        writer.writeAttribute(namespaceURI, localName, value);
+    }
+
+    public void writeNamespace(
+                               final String prefix, final String namespaceURI)
+                                                                              throws XMLStreamException {
+        writer.writeNamespace(prefix, namespaceURI);
+    }
+
+    public void writeDefaultNamespace(
+                                      final String namespaceURI)
+                                                                throws XMLStreamException {
+        writer.writeDefaultNamespace(namespaceURI);
+    }
+
+    public void writeComment(
+                             final String data)
+                                               throws XMLStreamException {
+        writer.writeComment(data);
+    }
+
+    public void writeProcessingInstruction(
+                                           final String target)
+                                                               throws XMLStreamException {
+        writer.writeProcessingInstruction(target);
+    }
+
+    public void writeProcessingInstruction(
+                                           final String target, final String data)
+                                                                                  throws XMLStreamException {
+        writer.writeProcessingInstruction(target, data);
+    }
+
+    public void writeCData(
+                           final String data)
+                                             throws XMLStreamException {
+        writer.writeCData(data);
+    }
+
+    public void writeDTD(
+                         final String dtd)
+                                          throws XMLStreamException {
+        writer.writeDTD(dtd);
+    }
+
+    public void writeEntityRef(
+                               final String name)
+                                                 throws XMLStreamException {
+        writer.writeEntityRef(name);
+    }
+
+    public void writeStartDocument()
+                                    throws XMLStreamException {
+        writer.writeStartDocument();
+        writer.writeCharacters("\n");
+    }
+
+    public void writeStartDocument(
+                                   final String version)
+                                                        throws XMLStreamException {
+        writer.writeStartDocument(version);
+        writer.writeCharacters("\n");
+    }
+
+    public void writeStartDocument(
+                                   final String encoding, final String version)
+                                                                               throws XMLStreamException {
+        writer.writeStartDocument(encoding, version);
+        writer.writeCharacters("\n");
+    }
+
+    public void writeCharacters(
+                                final String text)
+                                                  throws XMLStreamException {
+        writer.writeCharacters(text);
+    }
+
+    public void writeCharacters(
+                                final char[] text, final int start, final int len)
+                                                                                  throws XMLStreamException {
+        writer.writeCharacters(text, start, len);
+    }
+
+    public String getPrefix(
+                            final String uri)
+                                             throws XMLStreamException {
+        return writer.getPrefix(uri);
+    }
+
+    public void setPrefix(
+                          final String prefix, final String uri)
+                                                                throws XMLStreamException {
+        writer.setPrefix(prefix, uri);
+    }
+
+    public void setDefaultNamespace(
+                                    final String uri)
+                                                     throws XMLStreamException {
+        writer.setDefaultNamespace(uri);
+    }
+
+    public void setNamespaceContext(
+                                    final NamespaceContext context)
+                                                                   throws XMLStreamException {
+        writer.setNamespaceContext(context);
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return writer.getNamespaceContext();
+    }
+
+    public Object getProperty(
+                              final String name)
+                                                throws IllegalArgumentException {
+        return writer.getProperty(name);
+    }
+}
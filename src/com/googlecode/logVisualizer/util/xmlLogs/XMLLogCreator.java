@@ -27,6 +27,8 @@ package com.googlecode.logVisualizer.util.xmlLogs;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -42,18 +44,35 @@ import com.googlecode.logVisualizer.logData.turn.SingleTurn;
 import com.googlecode.logVisualizer.logData.turn.TurnInterval;
 import com.googlecode.logVisualizer.logData.turn.turnAction.*;
 import com.googlecode.logVisualizer.util.DataNumberPair;
+import com.googlecode.logVisualizer.util.FileReplacement;
 import com.googlecode.logVisualizer.util.dataTables.DataTablesHandler;
-import com.sun.xml.internal.txw2.output.IndentingXMLStreamWriter;
 
 /**
  * This class gives access to methods to create XML data files from detailed log
  * data.
  * <p>
+ * The XML is streamed to its destination while it is created, but only from
+ * a completely parsed log with its summary. Turns can't be written while the
+ * log is still being parsed, as the parser changes earlier turns once it has
+ * read the whole log, and the turn intervals and summaries are only created
+ * from all turns at once. Memory use of an export is therefore bounded by the
+ * log data itself, not by a single day of it.
+ * <p>
  * All methods in this class throw a {@link NullPointerException} if a null
  * object reference is passed in any parameter.
  */
 public final class XMLLogCreator {
 
+    /**
+     * File extension used by uncompressed Ascension Log XML files.
+     */
+    public static final String XML_LOG_EXTENSION = ".xml";
+
+    /**
+     * File extension used by GZIP compressed Ascension Log XML files.
+     */
+    public static final String COMPRESSED_XML_LOG_EXTENSION = ".xml.gz";
+
     /**
      * Creates an XML file containing the data of the given log data in the
      * given directory.
@@ -72,6 +91,45 @@ public final class XMLLogCreator {
                                     final LogDataHolder logData, final File saveDst)
                                                                                     throws FileAccessException,
                                                                                     XMLAccessException {
+        createXMLLog(logData, saveDst, false);
+    }
+
+    /**
+     * Creates an XML file containing the data of the given log data in the
+     * given directory.
+     * <p>
+     * If the file should be compressed, it will be written as a GZIP stream
+     * while the XML is created and gets the file extension
+     * {@link #COMPRESSED_XML_LOG_EXTENSION}, otherwise
+     * {@link #XML_LOG_EXTENSION} is used. A file of the same log with the
+     * respective other extension will be deleted once the new file is
+     * written, so that a log is never present twice in the same directory.
+     * If writing fails, the files already in the directory stay untouched.
+     * {@link XMLLogReader} recognises compressed files on its own.
+     * <p>
+     * Uncompressed files are indented to be readable by humans, compressed
+     * ones are not. In both cases the XML is streamed to the file while it is
+     * being created (see {@link #writeXMLLog(LogDataHolder, Writer, boolean)}).
+     * 
+     * @param logData
+     *            The log which should be turned into an XML file.
+     * @param saveDst
+     *            The directory in which the log should be saved in. Note that
+     *            the filename will be created from the given log.
+     * @param isCompressed
+     *            {@code true} if the XML file should be GZIP compressed,
+     *            otherwise {@code false}.
+     * @throws IllegalArgumentException
+     *             if the given log is not a detailed log (see
+     *             {@link LogDataHolder#isDetailedLog()}); if the given file
+     *             isn't a directory
+     * @return The created XML file.
+     */
+    public static File createXMLLog(
+                                    final LogDataHolder logData, final File saveDst,
+                                    final boolean isCompressed)
+                                                               throws FileAccessException,
+                                                               XMLAccessException {
         if (logData == null)
             throw new NullPointerException("The log data must not be null.");
         if (saveDst == null)
@@ -81,36 +139,131 @@ public final class XMLLogCreator {
         if (!saveDst.isDirectory())
             throw new IllegalArgumentException("Incorrect saving destination, needs to be a directory.");
 
-        OutputStreamWriter out;
+        final String fileName = logData.getLogName()
+                                + (isCompressed ? COMPRESSED_XML_LOG_EXTENSION : XML_LOG_EXTENSION);
+        final File otherVersion = new File(saveDst,
+                                           logData.getLogName()
+                                                   + (isCompressed ? XML_LOG_EXTENSION
+                                                                  : COMPRESSED_XML_LOG_EXTENSION));
+
+        // The log is first written to a temporary file which then replaces the
+        // old file, so a failed export never leaves a partial file behind or
+        // destroys the last good copy of the log.
+        final File xmlFile = new File(saveDst, fileName);
+        File tmpFile = null;
         try {
-            out = new OutputStreamWriter(new FileOutputStream(new File(saveDst,
-                                                                       logData.getLogName()
-                                                                               + ".xml")),
-                                         Charset.forName("UTF-8"));
-        } catch (final FileNotFoundException e) {
+            tmpFile = File.createTempFile(fileName, ".tmp", saveDst);
+
+            final OutputStream fileStream = new FileOutputStream(tmpFile);
+            final Writer out = new BufferedWriter(new OutputStreamWriter(isCompressed ? new CompressingOutputStream(fileStream)
+                                                                                      : fileStream,
+                                                                          Charset.forName("UTF-8")),
+                                                  64 * 1024);
+            try {
+                // Compressed files aren't meant to be read by humans, so the
+                // indentation would only cost time and space.
+                writeXMLLog(logData, out, !isCompressed);
+            } finally {
+                out.close();
+            }
+
+            FileReplacement.replace(tmpFile, xmlFile);
+            tmpFile = null;
+        } catch (final IOException e) {
             e.printStackTrace();
-            throw new FileAccessException("File stream could not be created.");
+            throw new FileAccessException("The XML file could not be written.");
+        } finally {
+            if (tmpFile != null)
+                tmpFile.delete();
         }
 
+        // Only now that the new file is in place, the other version of the
+        // log can be removed.
+        if (otherVersion.exists())
+            otherVersion.delete();
+
+        return xmlFile;
+    }
+
+    /**
+     * Writes the data of the given log data as an Ascension Log XML document to
+     * the given writer.
+     * <p>
+     * The XML is streamed to the writer while it is being created, element by
+     * element, so no representation of the whole document is ever held in
+     * memory. Because of that, the given writer should be buffered. It will be
+     * flushed, but not closed by this method.
+     * 
+     * @param logData
+     *            The log which should be written as XML.
+     * @param out
+     *            The writer to which the XML should be written.
+     * @param isIndented
+     *            {@code true} if every element should be put on its own,
+     *            indented line, otherwise {@code false}.
+     * @throws IllegalArgumentException
+     *             if the given log is not a detailed log (see
+     *             {@link LogDataHolder#isDetailedLog()})
+     */
+    public static void writeXMLLog(
+                                   final LogDataHolder logData, final Writer out,
+                                   final boolean isIndented)
+                                                            throws XMLAccessException {
+        if (logData == null)
+            throw new NullPointerException("The log data must not be null.");
+        if (out == null)
+            throw new NullPointerException("The writer must not be null.");
+        if (!logData.isDetailedLog())
+            throw new IllegalArgumentException("Only detailed logs can be turned into xml.");
+
         try {
             final XMLOutputFactory factory = XMLOutputFactoryBase.newInstance();
-            final XMLStreamWriter writer = new IndentingXMLStreamWriter( factory.createXMLStreamWriter(out));
+            final XMLStreamWriter streamWriter = factory.createXMLStreamWriter(out);
+            final XMLStreamWriter writer = isIndented ? new IndentingXMLWriter(streamWriter)
+                                                     : streamWriter;
 
             final XMLLogCreator logCreator = new XMLLogCreator(writer, logData);
             logCreator.createLog();
 
+            writer.flush();
             writer.close();
         } catch (final XMLStreamException e) {
             e.printStackTrace();
             throw new XMLAccessException("Could not write to XML file.");
         }
+    }
 
-        try {
-            out.close();
-        } catch (final IOException e) {
-            e.printStackTrace();
-            throw new FileAccessException("File stream could not be closed.");
-        }
+    /**
+     * @param fileName
+     *            The file name to check.
+     * @return {@code true} if the given file name has the extension of an
+     *         uncompressed or compressed Ascension Log XML file, otherwise
+     *         {@code false}.
+     */
+    public static boolean isXMLLogFileName(
+                                           final String fileName) {
+        final String lowerCaseName = fileName.toLowerCase();
+
+        return lowerCaseName.endsWith(XML_LOG_EXTENSION)
+               || lowerCaseName.endsWith(COMPRESSED_XML_LOG_EXTENSION);
+    }
+
+    /**
+     * @param fileName
+     *            The file name of an Ascension Log XML file.
+     * @return The log name of the given file name, which is the file name
+     *         without its uncompressed or compressed XML file extension.
+     */
+    public static String getLogNameFromXMLLogFileName(
+                                                      final String fileName) {
+        final String lowerCaseName = fileName.toLowerCase();
+
+        if (lowerCaseName.endsWith(COMPRESSED_XML_LOG_EXTENSION))
+            return fileName.substring(0, fileName.length() - COMPRESSED_XML_LOG_EXTENSION.length());
+        else if (lowerCaseName.endsWith(XML_LOG_EXTENSION))
+            return fileName.substring(0, fileName.length() - XML_LOG_EXTENSION.length());
+
+        return fileName;
     }
 
     private static final Pattern LINEBREAK_FINDER = Pattern.compile("\n");
@@ -513,4 +666,18 @@ public final class XMLLogCreator {
         writer.writeAttribute("myst", Integer.toString(stats.myst));
         writer.writeAttribute("moxie", Integer.toString(stats.mox));
     }
+
+    /**
+     * GZIP stream used for compressed XML files. The fastest compression level
+     * is used, because the verbose XML compresses well even at that level, while
+     * the higher levels mostly only add CPU time when writing the cache.
+     */
+    private static final class CompressingOutputStream extends GZIPOutputStream {
+        CompressingOutputStream(
+                                final OutputStream out)
+                                                       throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
 }
@@ -24,14 +24,18 @@
 
 package com.googlecode.logVisualizer.util.xmlLogs;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -64,6 +68,7 @@ import com.googlecode.logVisualizer.util.DataNumberPair;
 import com.googlecode.logVisualizer.util.Lists;
 import com.googlecode.logVisualizer.util.Maps;
 import com.googlecode.logVisualizer.util.Pair;
+import com.googlecode.logVisualizer.util.ReadingProgress;
 import com.googlecode.logVisualizer.util.Stack;
 
 /**
@@ -82,6 +87,10 @@ public final class XMLLogReader {
     /**
      * Returns a {@link LogDataHolder} object containing the data of the given
      * ascension log XML file.
+     * <p>
+     * GZIP compressed files (see
+     * {@link XMLLogCreator#createXMLLog(LogDataHolder, File, boolean)}) are
+     * recognised by their content and decompressed while they are parsed.
      *
      * @param xmlLog
      *            The ascension log XML file which is supposed to be parsed.
@@ -93,6 +102,28 @@ public final class XMLLogReader {
             final File xmlLog)
                     throws FileAccessException,
                     XMLAccessException {
+        return parseXMLLog(xmlLog, null);
+    }
+
+    /**
+     * Returns a {@link LogDataHolder} object containing the data of the given
+     * ascension log XML file, see {@link #parseXMLLog(File)}.
+     * <p>
+     * If the reading is cancelled through the given reading progress, the
+     * parsing stops with an {@link XMLAccessException}.
+     *
+     * @param xmlLog
+     *            The ascension log XML file which is supposed to be parsed.
+     * @param progress
+     *            The reading progress of the file. May be {@code null}.
+     * @return The resulting log data from the given ascension log XML file.
+     * @throws IllegalArgumentException
+     *             if the given file isn't an existing file
+     */
+    public static LogDataHolder parseXMLLog(
+            final File xmlLog, final ReadingProgress progress)
+                    throws FileAccessException,
+                    XMLAccessException {
         if (xmlLog == null)
             throw new NullPointerException("The XML log file reference must not be null.");
         if (!xmlLog.isFile())
@@ -102,15 +133,19 @@ public final class XMLLogReader {
 
         final InputStream in;
         try {
-            in = new FileInputStream(xmlLog);
-        } catch (final FileNotFoundException e) {
+            in = openPossiblyCompressedStream(xmlLog, progress);
+        } catch (final IOException e) {
             e.printStackTrace();
             throw new FileAccessException("File stream could not be created.");
         }
 
         try {
             final XMLInputFactory factory = XMLInputFactory.newInstance();
-            final XMLStreamReader parser = factory.createXMLStreamReader(in);
+            // The Ascension Log XML files are always written as UTF-8 (see
+            // XMLLogCreator). Decoding them through the JDK is a lot faster
+            // than the byte-by-byte decoding of the StAX implementation.
+            final XMLStreamReader parser = factory.createXMLStreamReader(new InputStreamReader(in,
+                                                                                              UTF_8));
 
             final XMLLogReader reader = new XMLLogReader(parser);
             logData = reader.parseLog();
@@ -131,8 +166,35 @@ public final class XMLLogReader {
         return logData;
     }
 
+    /**
+     * Opens a stream on the given file. If the file starts with the GZIP magic
+     * number, the returned stream will decompress its content.
+     */
+    private static InputStream openPossiblyCompressedStream(
+                                                            final File file,
+                                                            final ReadingProgress progress)
+                                                                                           throws IOException {
+        final InputStream in = new BufferedInputStream(ReadingProgress.openStream(file, progress),
+                                                       64 * 1024);
+
+        in.mark(2);
+        final int firstByte = in.read();
+        final int secondByte = in.read();
+        in.reset();
+
+        if (firstByte == (GZIPInputStream.GZIP_MAGIC & 0xff)
+            && secondByte == (GZIPInputStream.GZIP_MAGIC >> 8 & 0xff))
+            return new GZIPInputStream(in, 64 * 1024);
+
+        return in;
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private static final Pattern LINEBREAK_FINDER = Pattern.compile("\\{n\\}");
 
+    private static final String LINEBREAK_MARKER = "{n}";
+
     private final XMLStreamReader parser;
 
     private final LogDataHolder logData = new LogDataHolder(true);
@@ -141,6 +203,8 @@ public final class XMLLogReader {
 
     private final Stack<EquipmentChange> equipmentStack = Stack.newStack();
 
+    private final Matcher linebreakMatcher = LINEBREAK_FINDER.matcher("");
+
     private XMLLogReader(
             final XMLStreamReader parser) {
         if (parser == null)
@@ -162,20 +226,31 @@ public final class XMLLogReader {
         while (parser.hasNext()) {
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                final String nodeName = parser.getLocalName();
-
-                if (nodeName.equals("ascensionlogxml")) {
+                switch (XMLName.of(parser.getLocalName())) {
+                case ASCENSIONLOGXML:
                     for (int i = 0; i < parser.getAttributeCount(); i++)
-                        if (parser.getAttributeLocalName(i).equals("version"))
+                        if (attributeName(i) == XMLName.VERSION)
                             ascensionLogXMLVersion = parser.getAttributeValue(i);
-                } else if (nodeName.equals("filecreator")) {
+                    break;
+                case FILECREATOR:
                     for (int i = 0; i < parser.getAttributeCount(); i++)
-                        if (parser.getAttributeLocalName(i).equals("programname"))
+                        switch (attributeName(i)) {
+                        case PROGRAMNAME:
                             fileCreatorName = parser.getAttributeValue(i);
-                        else if (parser.getAttributeLocalName(i).equals("programversion"))
+                            break;
+                        case PROGRAMVERSION:
                             fileCreatorVersion = parser.getAttributeValue(i);
-                } else if (nodeName.equals("ascension"))
+                            break;
+                        default:
+                            break;
+                        }
+                    break;
+                case ASCENSION:
                     parseAscension();
+                    break;
+                default:
+                    break;
+                }
 
                 break;
             default:
@@ -193,16 +268,25 @@ public final class XMLLogReader {
         String characterName = "";
         String startData = "";
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("charactername"))
+            switch (attributeName(i)) {
+            case CHARACTERNAME:
                 characterName = parser.getAttributeValue(i);
-            else if (parser.getAttributeLocalName(i).equals("startdate"))
+                break;
+            case STARTDATE:
                 startData = parser.getAttributeValue(i);
-            else if (parser.getAttributeLocalName(i).equals("characterclass"))
+                break;
+            case CHARACTERCLASS:
                 logData.setCharacterClass(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("gamemode"))
+                break;
+            case GAMEMODE:
                 logData.setGameMode(GameMode.fromString(parser.getAttributeValue(i)));
-            else if (parser.getAttributeLocalName(i).equals("ascensionpath"))
+                break;
+            case ASCENSIONPATH:
                 logData.setAscensionPath(AscensionPath.fromString(parser.getAttributeValue(i)));
+                break;
+            default:
+                break;
+            }
         logData.setLogName(characterName + "-" + startData);
 
         ascensionParsing: {
@@ -210,26 +294,35 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    final String nodeName = parser.getLocalName();
-
-                    if (nodeName.equals("turnrundown"))
+                    switch (XMLName.of(parser.getLocalName())) {
+                    case TURNRUNDOWN:
                         intervals = parseTurnRundown();
-                    else if (nodeName.equals("daychanges"))
+                        break;
+                    case DAYCHANGES:
                         parseDayChanges();
-                    else if (nodeName.equals("levels"))
+                        break;
+                    case LEVELS:
                         parseLevels();
-                    else if (nodeName.equals("playersnapshots"))
+                        break;
+                    case PLAYERSNAPSHOTS:
                         parsePlayerSnapshots();
-                    else if (nodeName.equals("pulls"))
+                        break;
+                    case PULLS:
                         parsePulls();
-                    else if (nodeName.equals("huntedcombats"))
+                        break;
+                    case HUNTEDCOMBATS:
                         parseHuntedCombats();
-                    else if (nodeName.equals("lostcombats"))
+                        break;
+                    case LOSTCOMBATS:
                         parseLostCombats();
+                        break;
+                    default:
+                        break;
+                    }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("ascension"))
+                    if (XMLName.ASCENSION.isNameOf(parser.getLocalName()))
                         break ascensionParsing;
                 default:
                     break;
@@ -272,14 +365,14 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    if (parser.getLocalName().equals("turninterval")) {
+                    if (XMLName.of(parser.getLocalName()) == XMLName.TURNINTERVAL) {
                         final TurnInterval currentInterval = parseTurnInterval();
                         intervals.put(currentInterval.getEndTurn(), currentInterval);
                     }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("turnrundown"))
+                    if (XMLName.TURNRUNDOWN.isNameOf(parser.getLocalName()))
                         break turnRundownParsing;
                 default:
                     break;
@@ -296,7 +389,7 @@ public final class XMLLogReader {
         String areaName = "";
         Pair<LogComment, LogComment> comments = null;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("area"))
+            if (attributeName(i) == XMLName.AREA)
                 areaName = parser.getAttributeValue(i);
 
         turnIntervalParsing: {
@@ -304,14 +397,20 @@ public final class XMLLogReader {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        if (parser.getLocalName().equals("turn"))
+                        switch (XMLName.of(parser.getLocalName())) {
+                        case TURN:
                             turns.add(parseTurn(areaName));
-                        else if (parser.getLocalName().equals("notes"))
+                            break;
+                        case NOTES:
                             comments = parseIntervalNotes();
+                            break;
+                        default:
+                            break;
+                        }
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("turninterval"))
+                        if (XMLName.TURNINTERVAL.isNameOf(parser.getLocalName()))
                             break turnIntervalParsing;
                     default:
                         break;
@@ -357,32 +456,33 @@ public final class XMLLogReader {
         boolean isDisintegrated = false;
         int freeRunaways = 0;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("turnnumber"))
+            switch (attributeName(i)) {
+            case TURNNUMBER:
                 turnNumber = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("turnversion"))
+                break;
+            case TURNVERSION:
                 turnVersion = TurnVersion.fromString(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         turnParsing: {
                 while (parser.hasNext()) {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        final String nodeName = parser.getLocalName();
-
-                        if (nodeName.equals("areaname")) {
-                            parser.next();
-                            if (parser.getEventType() == XMLStreamConstants.CHARACTERS
-                                    && !parser.isWhiteSpace())
-                                areaName = parser.getText();
-                        } else if (nodeName.equals("encountername")) {
-                            parser.next();
-                            if (parser.getEventType() == XMLStreamConstants.CHARACTERS
-                                    && !parser.isWhiteSpace())
-                                encounterName = parser.getText();
-                        } else if (nodeName.equals("day")) {
-                            parser.next();
-                            dayNumber = Integer.parseInt(parser.getText());
-                        } else if (nodeName.equals("familiar")) {
+                        switch (XMLName.of(parser.getLocalName())) {
+                        case AREANAME:
+                            areaName = nextNonWhitespaceText(areaName);
+                            break;
+                        case ENCOUNTERNAME:
+                            encounterName = nextNonWhitespaceText(encounterName);
+                            break;
+                        case DAY:
+                            dayNumber = nextInt();
+                            break;
+                        case FAMILIAR:
                             parser.next();
                             final FamiliarChange oldFamiliar = familiarStack.peek().get();
                             if (!parser.getText().equals(oldFamiliar.getFamiliarName())) {
@@ -392,7 +492,8 @@ public final class XMLLogReader {
                                     familiarStack.push(familiar);
                             } else
                                 familiar = oldFamiliar;
-                        } else if (nodeName.equals("equipment")) {
+                            break;
+                        case EQUIPMENT:
                             final int turnNo = turnNumber > 0 ? turnNumber - 1 : 0;
                             final EquipmentChange currentEquipment = parseEquipment(turnNo);
                             final EquipmentChange oldEquipment = equipmentStack.peek().get();
@@ -402,35 +503,46 @@ public final class XMLLogReader {
                                     equipmentStack.push(currentEquipment);
                             } else
                                 equipment = oldEquipment;
-                        } else if (nodeName.equals("statgain"))
+                            break;
+                        case STATGAIN:
                             statgains = parseStatgain();
-                        else if (nodeName.equals("meatgain"))
+                            break;
+                        case MEATGAIN:
                             meatgains = parseMeatgain();
-                        else if (nodeName.equals("mpgain"))
+                            break;
+                        case MPGAIN:
                             mpgains = parseMPGain();
-                        else if (nodeName.equals("disintegration")) {
+                            break;
+                        case DISINTEGRATION:
                             for (int i = 0; i < parser.getAttributeCount(); i++)
-                                if (parser.getAttributeLocalName(i).equals("used"))
+                                if (attributeName(i) == XMLName.USED)
                                     isDisintegrated = Boolean.parseBoolean(parser.getAttributeValue(i));
-                        } else if (nodeName.equals("freerunaways")) {
-                            parser.next();
-                            freeRunaways = Integer.parseInt(parser.getText());
-                        } else if (nodeName.equals("notes")) {
+                            break;
+                        case FREERUNAWAYS:
+                            freeRunaways = nextInt();
+                            break;
+                        case NOTES:
                             parser.next();
                             if (parser.getEventType() == XMLStreamConstants.CHARACTERS
                                     && !parser.isWhiteSpace())
-                                comment.setComments(LINEBREAK_FINDER.matcher(parser.getText())
-                                        .replaceAll("\n"));
-                        } else if (nodeName.equals("itemdrop"))
+                                comment.setComments(decodeLinebreaks(parser.getText()));
+                            break;
+                        case ITEMDROP:
                             itemDrops.add(parseItemdrop(turnNumber));
-                        else if (nodeName.equals("skillcast"))
+                            break;
+                        case SKILLCAST:
                             skills.add(parseSkillCast(turnNumber));
-                        else if (nodeName.equals("consumable"))
+                            break;
+                        case CONSUMABLE:
                             consumables.add(parseConsumable(turnNumber));
+                            break;
+                        default:
+                            break;
+                        }
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("turn"))
+                        if (XMLName.TURN.isNameOf(parser.getLocalName()))
                             break turnParsing;
                     default:
                         break;
@@ -478,40 +590,41 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    final String nodeName = parser.getLocalName();
-
-                    if (nodeName.equals("hat")) {
-                        parser.next();
-                        hat = parser.getText();
-                    } else if (nodeName.equals("weapon")) {
-                        parser.next();
-                        weapon = parser.getText();
-                    } else if (nodeName.equals("offhand")) {
-                        parser.next();
-                        offhand = parser.getText();
-                    } else if (nodeName.equals("shirt")) {
-                        parser.next();
-                        shirt = parser.getText();
-                    } else if (nodeName.equals("pants")) {
-                        parser.next();
-                        pants = parser.getText();
-                    } else if (nodeName.equals("acc1")) {
-                        parser.next();
-                        acc1 = parser.getText();
-                    } else if (nodeName.equals("acc2")) {
-                        parser.next();
-                        acc2 = parser.getText();
-                    } else if (nodeName.equals("acc3")) {
-                        parser.next();
-                        acc3 = parser.getText();
-                    } else if (nodeName.equals("famequip")) {
-                        parser.next();
-                        famEquip = parser.getText();
+                    switch (XMLName.of(parser.getLocalName())) {
+                    case HAT:
+                        hat = nextText();
+                        break;
+                    case WEAPON:
+                        weapon = nextText();
+                        break;
+                    case OFFHAND:
+                        offhand = nextText();
+                        break;
+                    case SHIRT:
+                        shirt = nextText();
+                        break;
+                    case PANTS:
+                        pants = nextText();
+                        break;
+                    case ACC1:
+                        acc1 = nextText();
+                        break;
+                    case ACC2:
+                        acc2 = nextText();
+                        break;
+                    case ACC3:
+                        acc3 = nextText();
+                        break;
+                    case FAMEQUIP:
+                        famEquip = nextText();
+                        break;
+                    default:
+                        break;
                     }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("equipment"))
+                    if (XMLName.EQUIPMENT.isNameOf(parser.getLocalName()))
                         break equipmentParsing;
                 default:
                     break;
@@ -542,20 +655,23 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    if (parser.getLocalName().equals("insideencounter")) {
-                        parser.next();
-                        insideEncounter = Integer.parseInt(parser.getText());
-                    } else if (parser.getLocalName().equals("other")) {
-                        parser.next();
-                        other = Integer.parseInt(parser.getText());
-                    } else if (parser.getLocalName().equals("meatspent")) {
-                        parser.next();
-                        meatSpent = Integer.parseInt(parser.getText());
+                    switch (XMLName.of(parser.getLocalName())) {
+                    case INSIDEENCOUNTER:
+                        insideEncounter = nextInt();
+                        break;
+                    case OTHER:
+                        other = nextInt();
+                        break;
+                    case MEATSPENT:
+                        meatSpent = nextInt();
+                        break;
+                    default:
+                        break;
                     }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("meatgain"))
+                    if (XMLName.MEATGAIN.isNameOf(parser.getLocalName()))
                         break meatParsing;
                 default:
                     break;
@@ -581,26 +697,29 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    if (parser.getLocalName().equals("insideencounter")) {
-                        parser.next();
-                        insideEncounter = Integer.parseInt(parser.getText());
-                    } else if (parser.getLocalName().equals("starfish")) {
-                        parser.next();
-                        starfish = Integer.parseInt(parser.getText());
-                    } else if (parser.getLocalName().equals("resting")) {
-                        parser.next();
-                        resting = Integer.parseInt(parser.getText());
-                    } else if (parser.getLocalName().equals("outofencounter")) {
-                        parser.next();
-                        other = Integer.parseInt(parser.getText());
-                    } else if (parser.getLocalName().equals("consumable")) {
-                        parser.next();
-                        consumable = Integer.parseInt(parser.getText());
+                    switch (XMLName.of(parser.getLocalName())) {
+                    case INSIDEENCOUNTER:
+                        insideEncounter = nextInt();
+                        break;
+                    case STARFISH:
+                        starfish = nextInt();
+                        break;
+                    case RESTING:
+                        resting = nextInt();
+                        break;
+                    case OUTOFENCOUNTER:
+                        other = nextInt();
+                        break;
+                    case CONSUMABLE:
+                        consumable = nextInt();
+                        break;
+                    default:
+                        break;
                     }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("mpgain"))
+                    if (XMLName.MPGAIN.isNameOf(parser.getLocalName()))
                         break mpParsing;
                 default:
                     break;
@@ -621,7 +740,7 @@ public final class XMLLogReader {
         String name = "";
         int amount = 1;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("amount"))
+            if (attributeName(i) == XMLName.AMOUNT)
                 amount = Integer.parseInt(parser.getAttributeValue(i));
 
         itemParsing: {
@@ -629,14 +748,12 @@ public final class XMLLogReader {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        if (parser.getLocalName().equals("name")) {
-                            parser.next();
-                            name = parser.getText();
-                        }
+                        if (XMLName.of(parser.getLocalName()) == XMLName.NAME)
+                            name = nextText();
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("itemdrop"))
+                        if (XMLName.ITEMDROP.isNameOf(parser.getLocalName()))
                             break itemParsing;
                     default:
                         break;
@@ -654,24 +771,28 @@ public final class XMLLogReader {
         int amount = 1;
         int mpCost = 1;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("amount"))
+            switch (attributeName(i)) {
+            case AMOUNT:
                 amount = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("mpcost"))
+                break;
+            case MPCOST:
                 mpCost = Integer.parseInt(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         skillParsing: {
                 while (parser.hasNext()) {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        if (parser.getLocalName().equals("name")) {
-                            parser.next();
-                            name = parser.getText();
-                        }
+                        if (XMLName.of(parser.getLocalName()) == XMLName.NAME)
+                            name = nextText();
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("skillcast"))
+                        if (XMLName.SKILLCAST.isNameOf(parser.getLocalName()))
                             break skillParsing;
                     default:
                         break;
@@ -696,31 +817,42 @@ public final class XMLLogReader {
         Statgain stats = Statgain.NO_STATS;
         ConsumableVersion consumableVersion = ConsumableVersion.OTHER;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("amount"))
+            switch (attributeName(i)) {
+            case AMOUNT:
                 amount = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("version"))
+                break;
+            case VERSION:
                 consumableVersion = ConsumableVersion.fromString(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         consumableParsing: {
                 while (parser.hasNext()) {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        if (parser.getLocalName().equals("name")) {
-                            parser.next();
-                            name = parser.getText();
-                        } else if (parser.getLocalName().equals("adventuregain")) {
-                            parser.next();
-                            adventureGain = Integer.parseInt(parser.getText());
-                        } else if (parser.getLocalName().equals("consumedonday")) {
-                            parser.next();
-                            consumedOnDay = Integer.parseInt(parser.getText());
-                        } else if (parser.getLocalName().equals("statgain"))
+                        switch (XMLName.of(parser.getLocalName())) {
+                        case NAME:
+                            name = nextText();
+                            break;
+                        case ADVENTUREGAIN:
+                            adventureGain = nextInt();
+                            break;
+                        case CONSUMEDONDAY:
+                            consumedOnDay = nextInt();
+                            break;
+                        case STATGAIN:
                             stats = parseStatgain();
+                            break;
+                        default:
+                            break;
+                        }
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("consumable"))
+                        if (XMLName.CONSUMABLE.isNameOf(parser.getLocalName()))
                             break consumableParsing;
                     default:
                         break;
@@ -759,23 +891,26 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    if (parser.getLocalName().equals("preintervalnotes")) {
+                    switch (XMLName.of(parser.getLocalName())) {
+                    case PREINTERVALNOTES:
                         parser.next();
                         if (parser.getEventType() == XMLStreamConstants.CHARACTERS
                                 && !parser.isWhiteSpace())
-                            preComment.setComments(LINEBREAK_FINDER.matcher(parser.getText())
-                                    .replaceAll("\n"));
-                    } else if (parser.getLocalName().equals("postintervalnotes")) {
+                            preComment.setComments(decodeLinebreaks(parser.getText()));
+                        break;
+                    case POSTINTERVALNOTES:
                         parser.next();
                         if (parser.getEventType() == XMLStreamConstants.CHARACTERS
                                 && !parser.isWhiteSpace())
-                            postComment.setComments(LINEBREAK_FINDER.matcher(parser.getText())
-                                    .replaceAll("\n"));
+                            postComment.setComments(decodeLinebreaks(parser.getText()));
+                        break;
+                    default:
+                        break;
                     }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("notes"))
+                    if (XMLName.NOTES.isNameOf(parser.getLocalName()))
                         break notesParsing;
                 default:
                     break;
@@ -792,7 +927,7 @@ public final class XMLLogReader {
             parser.next();
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                if (parser.getLocalName().equals("day")) {
+                if (XMLName.of(parser.getLocalName()) == XMLName.DAY) {
                     final Pair<DayChange, HeaderFooterComment> currentDay = parseDayChange();
                     logData.addDayChange(currentDay.getVar1());
 
@@ -803,7 +938,7 @@ public final class XMLLogReader {
 
                 break;
             case XMLStreamConstants.END_ELEMENT:
-                if (parser.getLocalName().equals("daychanges"))
+                if (XMLName.DAYCHANGES.isNameOf(parser.getLocalName()))
                     return;
             default:
                 break;
@@ -818,7 +953,7 @@ public final class XMLLogReader {
         final HeaderFooterComment comment = new HeaderFooterComment();
 
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("daynumber"))
+            if (attributeName(i) == XMLName.DAYNUMBER)
                 dayNumber = Integer.parseInt(parser.getAttributeValue(i));
 
         dayNodeParsing: {
@@ -826,28 +961,29 @@ public final class XMLLogReader {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        final String nodeName = parser.getLocalName();
-
-                        if (nodeName.equals("turnwhenreached")) {
-                            parser.next();
-                            turnNumber = Integer.parseInt(parser.getText());
-                        } else if (nodeName.equals("headernotes")) {
+                        switch (XMLName.of(parser.getLocalName())) {
+                        case TURNWHENREACHED:
+                            turnNumber = nextInt();
+                            break;
+                        case HEADERNOTES:
                             parser.next();
                             if (parser.getEventType() == XMLStreamConstants.CHARACTERS
                                     && !parser.isWhiteSpace())
-                                comment.setHeaderComments(LINEBREAK_FINDER.matcher(parser.getText())
-                                        .replaceAll("\n"));
-                        } else if (nodeName.equals("footernotes")) {
+                                comment.setHeaderComments(decodeLinebreaks(parser.getText()));
+                            break;
+                        case FOOTERNOTES:
                             parser.next();
                             if (parser.getEventType() == XMLStreamConstants.CHARACTERS
                                     && !parser.isWhiteSpace())
-                                comment.setFooterComments(LINEBREAK_FINDER.matcher(parser.getText())
-                                        .replaceAll("\n"));
+                                comment.setFooterComments(decodeLinebreaks(parser.getText()));
+                            break;
+                        default:
+                            break;
                         }
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("day"))
+                        if (XMLName.DAY.isNameOf(parser.getLocalName()))
                             break dayNodeParsing;
                     default:
                         break;
@@ -864,12 +1000,12 @@ public final class XMLLogReader {
             parser.next();
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                if (parser.getLocalName().equals("level"))
+                if (XMLName.of(parser.getLocalName()) == XMLName.LEVEL)
                     logData.addLevel(parseLevel());
 
                 break;
             case XMLStreamConstants.END_ELEMENT:
-                if (parser.getLocalName().equals("levels"))
+                if (XMLName.LEVELS.isNameOf(parser.getLocalName()))
                     return;
             default:
                 break;
@@ -882,10 +1018,16 @@ public final class XMLLogReader {
         int levelNumber = 1;
         int turnNumber = 0;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("levelnumber"))
+            switch (attributeName(i)) {
+            case LEVELNUMBER:
                 levelNumber = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("onturn"))
+                break;
+            case ONTURN:
                 turnNumber = Integer.parseInt(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         final LevelData level = new LevelData(levelNumber, turnNumber);
 
@@ -894,26 +1036,29 @@ public final class XMLLogReader {
                 parser.next();
                 switch (parser.getEventType()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    final String nodeName = parser.getLocalName();
-
-                    if (nodeName.equals("combatturns")) {
-                        parser.next();
-                        level.setCombatTurns(Integer.parseInt(parser.getText()));
-                    } else if (nodeName.equals("noncombatturns")) {
-                        parser.next();
-                        level.setNoncombatTurns(Integer.parseInt(parser.getText()));
-                    } else if (nodeName.equals("otherturns")) {
-                        parser.next();
-                        level.setOtherTurns(Integer.parseInt(parser.getText()));
-                    } else if (nodeName.equals("mainstatgainperturn")) {
-                        parser.next();
-                        level.setStatGainPerTurn(Double.parseDouble(parser.getText()));
-                    } else if (nodeName.equals("statswhenreached"))
+                    switch (XMLName.of(parser.getLocalName())) {
+                    case COMBATTURNS:
+                        level.setCombatTurns(nextInt());
+                        break;
+                    case NONCOMBATTURNS:
+                        level.setNoncombatTurns(nextInt());
+                        break;
+                    case OTHERTURNS:
+                        level.setOtherTurns(nextInt());
+                        break;
+                    case MAINSTATGAINPERTURN:
+                        level.setStatGainPerTurn(Double.parseDouble(nextText()));
+                        break;
+                    case STATSWHENREACHED:
                         level.setStatsAtLevelReached(parseStatgain());
+                        break;
+                    default:
+                        break;
+                    }
 
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if (parser.getLocalName().equals("level"))
+                    if (XMLName.LEVEL.isNameOf(parser.getLocalName()))
                         break levelNodeParsing;
                 default:
                     break;
@@ -930,12 +1075,12 @@ public final class XMLLogReader {
             parser.next();
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                if (parser.getLocalName().equals("playersnapshot"))
+                if (XMLName.of(parser.getLocalName()) == XMLName.PLAYERSNAPSHOT)
                     logData.addPlayerSnapshot(parsePlayerSnapshot());
 
                 break;
             case XMLStreamConstants.END_ELEMENT:
-                if (parser.getLocalName().equals("playersnapshots"))
+                if (XMLName.PLAYERSNAPSHOTS.isNameOf(parser.getLocalName()))
                     return;
             default:
                 break;
@@ -950,7 +1095,7 @@ public final class XMLLogReader {
         int currentMeat = 0;
         Statgain stats = Statgain.NO_STATS;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("onturn"))
+            if (attributeName(i) == XMLName.ONTURN)
                 turnNumber = Integer.parseInt(parser.getAttributeValue(i));
 
         snapshotNodeParsing: {
@@ -958,20 +1103,23 @@ public final class XMLLogReader {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        final String nodeName = parser.getLocalName();
-
-                        if (nodeName.equals("adventuresleft")) {
-                            parser.next();
-                            adventuresLeft = Integer.parseInt(parser.getText());
-                        } else if (nodeName.equals("currentmeat")) {
-                            parser.next();
-                            currentMeat = Integer.parseInt(parser.getText());
-                        } else if (nodeName.equals("stats"))
+                        switch (XMLName.of(parser.getLocalName())) {
+                        case ADVENTURESLEFT:
+                            adventuresLeft = nextInt();
+                            break;
+                        case CURRENTMEAT:
+                            currentMeat = nextInt();
+                            break;
+                        case STATS:
                             stats = parseStatgain();
+                            break;
+                        default:
+                            break;
+                        }
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("playersnapshot"))
+                        if (XMLName.PLAYERSNAPSHOT.isNameOf(parser.getLocalName()))
                             break snapshotNodeParsing;
                     default:
                         break;
@@ -988,12 +1136,12 @@ public final class XMLLogReader {
             parser.next();
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                if (parser.getLocalName().equals("pull"))
+                if (XMLName.of(parser.getLocalName()) == XMLName.PULL)
                     logData.addPull(parsePull());
 
                 break;
             case XMLStreamConstants.END_ELEMENT:
-                if (parser.getLocalName().equals("pulls"))
+                if (XMLName.PULLS.isNameOf(parser.getLocalName()))
                     return;
             default:
                 break;
@@ -1008,29 +1156,36 @@ public final class XMLLogReader {
         int amount = 1;
         String itemName = "";
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("daynumber"))
+            switch (attributeName(i)) {
+            case DAYNUMBER:
                 dayNumber = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("onturn"))
+                break;
+            case ONTURN:
                 turnNumber = Integer.parseInt(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         pullNodeParsing: {
                 while (parser.hasNext()) {
                     parser.next();
                     switch (parser.getEventType()) {
                     case XMLStreamConstants.START_ELEMENT:
-                        final String nodeName = parser.getLocalName();
-
-                        if (nodeName.equals("amount")) {
-                            parser.next();
-                            amount = Integer.parseInt(parser.getText());
-                        } else if (nodeName.equals("itemname")) {
-                            parser.next();
-                            itemName = parser.getText();
+                        switch (XMLName.of(parser.getLocalName())) {
+                        case AMOUNT:
+                            amount = nextInt();
+                            break;
+                        case ITEMNAME:
+                            itemName = nextText();
+                            break;
+                        default:
+                            break;
                         }
 
                         break;
                     case XMLStreamConstants.END_ELEMENT:
-                        if (parser.getLocalName().equals("pull"))
+                        if (XMLName.PULL.isNameOf(parser.getLocalName()))
                             break pullNodeParsing;
                     default:
                         break;
@@ -1047,12 +1202,12 @@ public final class XMLLogReader {
             parser.next();
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                if (parser.getLocalName().equals("combat"))
+                if (XMLName.of(parser.getLocalName()) == XMLName.COMBAT)
                     logData.addHuntedCombat(parseCombat());
 
                 break;
             case XMLStreamConstants.END_ELEMENT:
-                if (parser.getLocalName().equals("huntedcombats"))
+                if (XMLName.HUNTEDCOMBATS.isNameOf(parser.getLocalName()))
                     return;
             default:
                 break;
@@ -1066,12 +1221,12 @@ public final class XMLLogReader {
             parser.next();
             switch (parser.getEventType()) {
             case XMLStreamConstants.START_ELEMENT:
-                if (parser.getLocalName().equals("combat"))
+                if (XMLName.of(parser.getLocalName()) == XMLName.COMBAT)
                     logData.addLostCombat(parseCombat());
 
                 break;
             case XMLStreamConstants.END_ELEMENT:
-                if (parser.getLocalName().equals("lostcombats"))
+                if (XMLName.LOSTCOMBATS.isNameOf(parser.getLocalName()))
                     return;
             default:
                 break;
@@ -1084,12 +1239,19 @@ public final class XMLLogReader {
         int myst = 0;
         int moxie = 0;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("muscle"))
+            switch (attributeName(i)) {
+            case MUSCLE:
                 muscle = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("myst"))
+                break;
+            case MYST:
                 myst = Integer.parseInt(parser.getAttributeValue(i));
-            else if (parser.getAttributeLocalName(i).equals("moxie"))
+                break;
+            case MOXIE:
                 moxie = Integer.parseInt(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         final boolean isNonZero = muscle != 0 || myst != 0 || moxie != 0;
 
@@ -1100,11 +1262,258 @@ public final class XMLLogReader {
         String name = "";
         int turnNumber = 0;
         for (int i = 0; i < parser.getAttributeCount(); i++)
-            if (parser.getAttributeLocalName(i).equals("name"))
+            switch (attributeName(i)) {
+            case NAME:
                 name = parser.getAttributeValue(i);
-            else if (parser.getAttributeLocalName(i).equals("onturn"))
+                break;
+            case ONTURN:
                 turnNumber = Integer.parseInt(parser.getAttributeValue(i));
+                break;
+            default:
+                break;
+            }
 
         return DataNumberPair.of(name, turnNumber);
     }
+
+    /**
+     * @return The name of the attribute at the given index of the current
+     *         element.
+     */
+    private XMLName attributeName(
+            final int index) {
+        return XMLName.of(parser.getAttributeLocalName(index));
+    }
+
+    /**
+     * Moves the parser to the text content of the current element and returns
+     * it.
+     */
+    private String nextText()
+            throws XMLStreamException {
+        parser.next();
+        return parser.getText();
+    }
+
+    /**
+     * Moves the parser to the content of the current element and returns its
+     * text if it isn't empty or only whitespace, otherwise the given default
+     * value.
+     */
+    private String nextNonWhitespaceText(
+            final String defaultValue)
+                    throws XMLStreamException {
+        parser.next();
+        if (parser.getEventType() == XMLStreamConstants.CHARACTERS && !parser.isWhiteSpace())
+            return parser.getText();
+
+        return defaultValue;
+    }
+
+    /**
+     * Moves the parser to the text content of the current element and returns
+     * it as an integer. The number is decoded directly from the character
+     * buffer of the parser, so no intermediate String is created.
+     */
+    private int nextInt()
+            throws XMLStreamException {
+        parser.next();
+        return parseInt(parser.getTextCharacters(), parser.getTextStart(), parser.getTextLength());
+    }
+
+    /**
+     * Decodes the line break markers used by the XML format into actual line
+     * breaks.
+     */
+    private String decodeLinebreaks(
+            final String text) {
+        if (text.indexOf(LINEBREAK_MARKER) < 0)
+            return text;
+
+        return linebreakMatcher.reset(text).replaceAll("\n");
+    }
+
+    /**
+     * Parses the given characters as a decimal integer. Anything the fast path
+     * can't handle, be it characters that aren't digits or numbers which could
+     * overflow, is delegated to {@link Integer#parseInt(String)}, so the
+     * behaviour for invalid input stays the same.
+     */
+    private static int parseInt(
+            final char[] chars, final int start, final int length) {
+        final boolean isNegative = length > 0 && chars[start] == '-';
+        final int digitsStart = isNegative ? start + 1 : start;
+        final int end = start + length;
+
+        if (digitsStart < end && end - digitsStart <= 9) {
+            int result = 0;
+            int i = digitsStart;
+            for (; i < end; i++) {
+                final int digit = chars[i] - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+
+                result = result * 10 + digit;
+            }
+
+            if (i == end)
+                return isNegative ? -result : result;
+        }
+
+        return Integer.parseInt(new String(chars, start, length));
+    }
+
+    /**
+     * All element and attribute names used by the Ascension Log XML format.
+     * The names are looked up once through a small dispatch table, so that the
+     * parsing methods can dispatch on them with switch statements instead of
+     * chains of string comparisons.
+     */
+    private static enum XMLName {
+        ASCENSIONLOGXML,
+        FILECREATOR,
+        ASCENSION,
+        TURNRUNDOWN,
+        TURNINTERVAL,
+        TURN,
+        AREA,
+        AREANAME,
+        ENCOUNTERNAME,
+        DAY,
+        FAMILIAR,
+        EQUIPMENT,
+        HAT,
+        WEAPON,
+        OFFHAND,
+        SHIRT,
+        PANTS,
+        ACC1,
+        ACC2,
+        ACC3,
+        FAMEQUIP,
+        STATGAIN,
+        MEATGAIN,
+        INSIDEENCOUNTER,
+        OTHER,
+        MEATSPENT,
+        MPGAIN,
+        STARFISH,
+        RESTING,
+        OUTOFENCOUNTER,
+        CONSUMABLE,
+        DISINTEGRATION,
+        FREERUNAWAYS,
+        NOTES,
+        PREINTERVALNOTES,
+        POSTINTERVALNOTES,
+        ITEMDROP,
+        SKILLCAST,
+        NAME,
+        ADVENTUREGAIN,
+        CONSUMEDONDAY,
+        DAYCHANGES,
+        TURNWHENREACHED,
+        HEADERNOTES,
+        FOOTERNOTES,
+        LEVELS,
+        LEVEL,
+        COMBATTURNS,
+        NONCOMBATTURNS,
+        OTHERTURNS,
+        STATSWHENREACHED,
+        MAINSTATGAINPERTURN,
+        PLAYERSNAPSHOTS,
+        PLAYERSNAPSHOT,
+        STATS,
+        ADVENTURESLEFT,
+        CURRENTMEAT,
+        PULLS,
+        PULL,
+        ITEMNAME,
+        AMOUNT,
+        HUNTEDCOMBATS,
+        LOSTCOMBATS,
+        COMBAT,
+        VERSION,
+        PROGRAMNAME,
+        PROGRAMVERSION,
+        CHARACTERNAME,
+        CHARACTERCLASS,
+        GAMEMODE,
+        ASCENSIONPATH,
+        STARTDATE,
+        TURNNUMBER,
+        TURNVERSION,
+        USED,
+        MPCOST,
+        DAYNUMBER,
+        LEVELNUMBER,
+        ONTURN,
+        MUSCLE,
+        MYST,
+        MOXIE,
+        NOT_DEFINED;
+
+        private static final int DISPATCH_TABLE_MASK = 255;
+
+        private static final XMLName[] DISPATCH_TABLE = new XMLName[DISPATCH_TABLE_MASK + 1];
+
+        static {
+            for (final XMLName xmlName : values())
+                if (xmlName != NOT_DEFINED) {
+                    int index = slotOf(xmlName.xmlName);
+                    while (DISPATCH_TABLE[index] != null)
+                        index = index + 1 & DISPATCH_TABLE_MASK;
+
+                    DISPATCH_TABLE[index] = xmlName;
+                }
+        }
+
+        private final String xmlName = name().toLowerCase(Locale.ENGLISH);
+
+        /**
+         * @return {@code true} if the given element or attribute name is the
+         *         name of this constant, otherwise {@code false}.
+         */
+        boolean isNameOf(
+                final String name) {
+            return xmlName.equals(name);
+        }
+
+        /**
+         * @return The XMLName constant of the given element or attribute name.
+         *         Returns {@link #NOT_DEFINED} for unknown names.
+         */
+        static XMLName of(
+                final String name) {
+            if (name.length() == 0)
+                return NOT_DEFINED;
+
+            // The table is at most half full, so there always is an empty slot
+            // which ends the search for unknown names.
+            for (int index = slotOf(name);; index = index + 1 & DISPATCH_TABLE_MASK) {
+                final XMLName candidate = DISPATCH_TABLE[index];
+                if (candidate == null)
+                    return NOT_DEFINED;
+                else if (candidate.xmlName.equals(name))
+                    return candidate;
+            }
+        }
+
+        /**
+         * Computes the slot of the given name inside the dispatch table. Only
+         * the length and the first and last two characters of the name are
+         * used, which is enough to tell the names of this format apart with
+         * few collisions and a lot cheaper than a full hash of the name, which
+         * isn't cached because the parser creates a new string for every
+         * element.
+         */
+        private static int slotOf(
+                final String name) {
+            final int length = name.length();
+
+            return (length * 31 + name.charAt(0) * 17 + name.charAt(length - 1) * 5 + name.charAt(length >> 1))
+                    & DISPATCH_TABLE_MASK;
+        }
+    }
 }